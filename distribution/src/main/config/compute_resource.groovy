@@ -22,8 +22,13 @@ import net.jini.config.Configuration
 import org.rioproject.config.Component
 import org.rioproject.impl.system.OperatingSystemType
 import org.rioproject.impl.system.measurable.MeasurableMonitor
-import org.rioproject.impl.system.measurable.cpu.LinuxHandler
+import org.rioproject.impl.system.measurable.cgroup.CGroupCPUMonitor
+import org.rioproject.impl.system.measurable.cgroup.CGroupMemoryMonitor
+import org.rioproject.impl.system.measurable.cgroup.CGroupSampler
+import org.rioproject.impl.system.measurable.cpu.LinuxCPUMonitor
 import org.rioproject.impl.system.measurable.cpu.SystemCPUHandler
+import org.rioproject.impl.system.measurable.forecast.Forecaster
+import org.rioproject.impl.system.measurable.forecast.HoltForecaster
 import org.rioproject.impl.system.measurable.memory.MemInfoMonitor
 import org.rioproject.impl.system.measurable.memory.SystemMemoryMonitor
 import org.rioproject.impl.system.measurable.memory.pool.MemoryPool
@@ -99,11 +104,24 @@ class BasicMeasurable {
 @Component('org.rioproject.system.measurable.cpu')
 class MeasurableCPU extends BasicMeasurable {
     MeasurableMonitor getMonitor() {
-        if (OperatingSystemType.isLinux())
-            new LinuxHandler() as MeasurableMonitor
+        if (CGroupSampler.getInstance().sample { it.isCpuLimited() })
+            new CGroupCPUMonitor() as MeasurableMonitor
+        else if (OperatingSystemType.isLinux())
+            new LinuxCPUMonitor() as MeasurableMonitor
         else
             new SystemCPUHandler() as MeasurableMonitor
     }
+
+    /*
+     * Smooth CPU utilization and track its trend before thresholds are
+     * checked. SLAs declaring a forecast horizon are breached when the
+     * utilization is forecast to cross the high threshold within the horizon.
+     * The time until the high threshold is reached is recorded by the
+     * CPU.TimeToBreach watch
+     */
+    Forecaster getForecaster() {
+        new HoltForecaster(0.5, 0.3)
+    }
     /*
      * High threshold is the number of CPUs on the system
      */
@@ -114,6 +132,94 @@ class MeasurableCPU extends BasicMeasurable {
 
 }
 
+/*
+ * Configuration for the CPU I/O wait measurable capability, only created on
+ * Linux. I/O wait is not counted as CPU utilization.
+ */
+@Component('org.rioproject.system.measurable.cpu.iowait')
+class MeasurableCPUIOWait extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.5)
+    }
+}
+
+/*
+ * Configuration for the CPU steal measurable capability, only created on
+ * Linux. Steal is the time the hypervisor ran other virtual machines while
+ * this one had work to do, a high value indicates an oversubscribed host.
+ */
+@Component('org.rioproject.system.measurable.cpu.steal')
+class MeasurableCPUSteal extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.2)
+    }
+}
+
+/*
+ * Configuration for the cgroup CPU throttling measurable capability, only
+ * created when running under a CPU quota. The value is the fraction of quota
+ * periods in which the container was throttled.
+ */
+@Component('org.rioproject.system.measurable.cgroup.throttled')
+class MeasurableCGroupThrottled extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.25)
+    }
+}
+
+/*
+ * Configuration for the cgroup memory pressure measurable capability, only
+ * created on cgroup v2. The value is the share of time some tasks were stalled
+ * waiting for memory.
+ */
+@Component('org.rioproject.system.measurable.cgroup.memoryPressure')
+class MeasurableCGroupMemoryPressure extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.1)
+    }
+}
+
+/*
+ * Configuration for the cgroup process id measurable capability, only created
+ * when the container has a pids limit.
+ */
+@Component('org.rioproject.system.measurable.cgroup.pids')
+class MeasurableCGroupPids extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.9)
+    }
+}
+
+/*
+ * Configuration for the JVM garbage collection measurable capability. The
+ * value is the share of time spent collecting garbage, a high value
+ * indicates a service that is bound by garbage collection.
+ */
+@Component('org.rioproject.system.measurable.jvm.gcPause')
+class MeasurableGCPause extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.1)
+    }
+}
+
+/*
+ * Configuration for the JVM allocation rate measurable capability. The value
+ * is the allocation rate as a fraction of the allocation budget.
+ */
+@Component('org.rioproject.system.measurable.jvm.allocationRate')
+class MeasurableAllocationRate extends BasicMeasurable {
+    /* Report an allocation rate of 1 GB per second as 1 */
+    long getAllocationBudget() {
+        1024 * 1024 * 1024
+    }
+}
+
 /*
  * Configuration for the JVM's CPU measurable capability. This configuration
  * overrides methods in the BasicMeasurable class to customize the setting for
@@ -154,7 +260,9 @@ class MeasurableMemory extends BasicMeasurable {
 class MeasurableSystemMemory extends BasicMeasurable {
 
     MeasurableMonitor getMonitor() {
-        if (OperatingSystemType.isLinux())
+        if (CGroupSampler.getInstance().sample { it.isMemoryLimited() })
+            return new CGroupMemoryMonitor() as MeasurableMonitor
+        else if (OperatingSystemType.isLinux())
             return new MemInfoMonitor() as MeasurableMonitor
         else
             return new SystemMemoryMonitor() as MeasurableMonitor
@@ -176,6 +284,35 @@ class MeasurableSystemMemory extends BasicMeasurable {
 @Component('org.rioproject.system.measurable.disk')
 class MeasurableDiskSpace extends BasicMeasurable {    }
 
+/*
+ * Configuration for the disk I/O measurable capability, only created on
+ * Linux. The value is the fraction of time the busiest disk had I/O in
+ * progress. Set devices to the names of the disks to monitor, by default all
+ * whole disks are monitored.
+ */
+@Component('org.rioproject.system.measurable.diskIO')
+class MeasurableDiskIO extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.9)
+    }
+}
+
+/*
+ * Configuration for the network measurable capability, only created on
+ * Linux. The value is the larger of the receive and transmit rates of the
+ * busiest interface as a fraction of its bandwidth. The bandwidth is read
+ * from /sys/class/net, set bandwidth (in bytes per second) for interfaces
+ * that do not report their speed.
+ */
+@Component('org.rioproject.system.measurable.network')
+class MeasurableNetwork extends BasicMeasurable {
+    @Override
+    ThresholdValues getThresholdValues() {
+        new ThresholdValues(0.0, 0.8)
+    }
+}
+
 @Component('org.rioproject.system.memory.pool')
 class MemoryPools extends BasicMeasurable {
 
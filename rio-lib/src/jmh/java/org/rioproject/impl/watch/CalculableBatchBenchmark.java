@@ -0,0 +1,91 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.openjdk.jmh.annotations.*;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.CalculableBatch;
+import org.rioproject.watch.StopWatchCalculable;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing and deserializing watch history as an array of {@code Calculable} records, which
+ * is how {@code WatchDataSource.getCalculable} returns it, with the {@code CalculableBatch} form. The
+ * serialized sizes are printed during setup.
+ *
+ * <pre>
+ * gradle :rio-lib:jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CalculableBatchBenchmark {
+    @Param({"50", "1000"})
+    private int size;
+    private Calculable[] calculables;
+    private CalculableBatch batch;
+    private byte[] arrayBytes;
+    private byte[] batchBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        calculables = new Calculable[size];
+        long now = System.currentTimeMillis();
+        for(int i = 0; i < size; i++)
+            calculables[i] = new StopWatchCalculable("org.rioproject.example.Service.invoke", i % 50, now + i * 10);
+        batch = new CalculableBatch(calculables);
+        arrayBytes = serialize(calculables);
+        batchBytes = serialize(batch);
+        System.out.printf("%nsize: %d, Calculable[]: %d bytes, CalculableBatch: %d bytes%n",
+                          size, arrayBytes.length, batchBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeArray() throws IOException {
+        return serialize(calculables);
+    }
+
+    @Benchmark
+    public byte[] serializeBatch() throws IOException {
+        return serialize(batch);
+    }
+
+    @Benchmark
+    public Object deserializeArray() throws Exception {
+        return deserialize(arrayBytes);
+    }
+
+    @Benchmark
+    public Object deserializeBatch() throws Exception {
+        return deserialize(batchBytes);
+    }
+
+    private static byte[] serialize(final Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        return in.readObject();
+    }
+}
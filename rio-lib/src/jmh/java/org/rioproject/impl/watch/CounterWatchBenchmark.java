@@ -0,0 +1,57 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares multi-threaded {@code increment()} throughput of the {@code CounterWatch}, which adds a
+ * {@code Calculable} and checks thresholds for each increment, with the {@code StripedCounterWatch}.
+ *
+ * <pre>
+ * gradle :rio-lib:jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class CounterWatchBenchmark {
+    @Param({"false", "true"})
+    private boolean striped;
+    private CounterWatch watch;
+
+    @Setup
+    public void setup() {
+        watch = striped ? new StripedCounterWatch("benchmark") : new CounterWatch("benchmark");
+        if(watch instanceof StripedCounterWatch)
+            ((StripedCounterWatch)watch).start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if(watch instanceof StripedCounterWatch)
+            ((StripedCounterWatch)watch).stop();
+        ((WatchDataSourceImpl)watch.getWatchDataSource()).close();
+    }
+
+    @Benchmark
+    public void increment() {
+        watch.increment();
+    }
+}
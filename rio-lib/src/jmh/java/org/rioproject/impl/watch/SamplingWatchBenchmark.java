@@ -0,0 +1,104 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.openjdk.jmh.annotations.*;
+import org.rioproject.watch.Calculable;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sampling a bean property through reflection, as the {@code SamplingWatch} did before binding
+ * accessors as method handles, with the {@code SamplingWatch}; and reading the attributes of an MBean sampled
+ * by ten watches one at a time with reading them through an {@code MBeanAttributeSampler}.
+ *
+ * <pre>
+ * gradle :rio-lib:jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SamplingWatchBenchmark {
+    private static final String[] ATTRIBUTES = {"HeapMemoryUsage", "NonHeapMemoryUsage", "ObjectPendingFinalizationCount",
+                                                "Verbose", "HeapMemoryUsage", "NonHeapMemoryUsage",
+                                                "ObjectPendingFinalizationCount", "Verbose", "HeapMemoryUsage",
+                                                "NonHeapMemoryUsage"};
+    private final Bean bean = new Bean();
+    private Method accessor;
+    private SamplingWatch watch;
+    private MBeanServer mbs;
+    private ObjectName memory;
+    private MBeanAttributeSampler.Member[] members;
+
+    @Setup
+    public void setup() throws Exception {
+        accessor = Bean.class.getMethod("getCount");
+        watch = new SamplingWatch("benchmark");
+        watch.setBean(bean);
+        watch.setAccessor(accessor);
+        mbs = ManagementFactory.getPlatformMBeanServer();
+        memory = new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME);
+        MBeanAttributeSampler sampler = new MBeanAttributeSampler(mbs, memory, 1000);
+        members = new MBeanAttributeSampler.Member[ATTRIBUTES.length];
+        for(int i = 0; i < members.length; i++)
+            members[i] = sampler.add(ATTRIBUTES[i]);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        watch.getWatchDataSource().close();
+    }
+
+    @Benchmark
+    public void reflectiveSample() throws Exception {
+        Object value = accessor.invoke(bean, (Object[])null);
+        watch.addWatchRecord(new Calculable(watch.getId(), new Double(value.toString()), System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public void samplingWatch() {
+        watch.checkValue();
+    }
+
+    @Benchmark
+    public Object getAttributeEach() throws Exception {
+        Object last = null;
+        for(String attribute : ATTRIBUTES)
+            last = mbs.getAttribute(memory, attribute);
+        return last;
+    }
+
+    @Benchmark
+    public Object attributeSampler() {
+        Object last = null;
+        for(MBeanAttributeSampler.Member member : members)
+            last = member.getValue();
+        return last;
+    }
+
+    public static class Bean {
+        private long count;
+
+        public long getCount() {
+            return ++count;
+        }
+    }
+}
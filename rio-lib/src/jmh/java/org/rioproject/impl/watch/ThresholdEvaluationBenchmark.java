@@ -0,0 +1,80 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdType;
+import org.rioproject.watch.ThresholdValues;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking one sample against the 50 {@code BoundedThresholdManager}s of a service with 50 SLAs,
+ * checking each in turn with {@code checkThreshold()}, and checking all with the batched
+ * {@code ThresholdManager.checkThresholds()}. Samples are either within every SLA's range, or cross
+ * thresholds so that listeners are notified.
+ *
+ * <pre>
+ * gradle :rio-lib:jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ThresholdEvaluationBenchmark {
+    private static final int SLAS = 50;
+    private static final int SAMPLES = 1024;
+    @Param({"false", "true"})
+    private boolean batched;
+    @Param({"false", "true"})
+    private boolean crossing;
+    private BoundedThresholdManager[] thresholdManagers;
+    private Calculable[] samples;
+    private int next;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        Random random = new Random(1);
+        thresholdManagers = new BoundedThresholdManager[SLAS];
+        for(int i = 0; i < SLAS; i++) {
+            thresholdManagers[i] = new BoundedThresholdManager("sla-"+i);
+            thresholdManagers[i].setThresholdValues(new ThresholdValues(0.1 + random.nextDouble() * 0.1,
+                                                                        0.8 + random.nextDouble() * 0.1));
+            thresholdManagers[i].addThresholdListener(
+                (Calculable calculable, ThresholdValues thresholdValues, ThresholdType type) ->
+                    blackhole.consume(thresholdValues));
+        }
+        samples = new Calculable[SAMPLES];
+        for(int i = 0; i < SAMPLES; i++) {
+            double value = crossing ? random.nextDouble() : 0.2 + random.nextDouble() * 0.6;
+            samples[i] = new Calculable("benchmark", value, i);
+        }
+    }
+
+    @Benchmark
+    public void check() {
+        Calculable sample = samples[next++ & (SAMPLES - 1)];
+        if(batched) {
+            ThresholdManager.checkThresholds(sample, thresholdManagers);
+        } else {
+            for(BoundedThresholdManager thresholdManager : thresholdManagers)
+                thresholdManager.checkThreshold(sample);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.openjdk.jmh.annotations.*;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.StopWatchCalculable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the list backed and ring buffer backed {@code WatchDataSourceImpl} history at the default
+ * and maximum {@code collectionSize}. The {@code contended} group adds records from one thread while
+ * another thread reads the history, which is the pattern of a busy service being watched by a UI.
+ *
+ * <pre>
+ * gradle :rio-lib:jmh
+ * </pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WatchDataSourceHistoryBenchmark {
+    @Param({"50", "1000"})
+    private int collectionSize;
+    @Param({"false", "true"})
+    private boolean ringBufferHistory;
+    private WatchDataSourceImpl watchDataSource;
+    private long now;
+
+    @Setup
+    public void setup() {
+        DynamicConfiguration config = new DynamicConfiguration();
+        config.setEntry("org.rioproject.watch", "collectionSize", collectionSize);
+        config.setEntry("org.rioproject.watch", "ringBufferHistory", boolean.class, ringBufferHistory);
+        watchDataSource = new WatchDataSourceImpl("benchmark", config);
+        for(int i = 0; i < collectionSize; i++)
+            watchDataSource.addCalculable(new StopWatchCalculable("benchmark", i, next()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        watchDataSource.close();
+    }
+
+    private long next() {
+        return now++;
+    }
+
+    @Benchmark
+    @Group("add")
+    public void add() {
+        watchDataSource.addCalculable(new StopWatchCalculable("benchmark", 10, next()));
+    }
+
+    @Benchmark
+    @Group("contended")
+    public void contendedAdd() {
+        watchDataSource.addCalculable(new StopWatchCalculable("benchmark", 10, next()));
+    }
+
+    @Benchmark
+    @Group("contended")
+    public Calculable[] contendedGetCalculable() {
+        return watchDataSource.getCalculable();
+    }
+
+    @Benchmark
+    @Group("contended")
+    public Calculable contendedGetLastCalculable() {
+        return watchDataSource.getLastCalculable();
+    }
+}
@@ -633,6 +633,8 @@ class GroovyDSLOpStringParser implements OpStringParser {
                     currentSLA.upperThresholdDampeningTime = attributes.upperDampener
                 if(attributes.max)
                     currentSLA.maxServices = attributes.max
+                if(attributes.forecast)
+                    currentSLA.forecastHorizon = attributes.forecast
             }
 
             emc.monitor = { Map attributes ->
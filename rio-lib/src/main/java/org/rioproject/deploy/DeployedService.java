@@ -66,14 +66,6 @@ public class DeployedService implements Serializable {
 
     @Override
     public int hashCode() {
-        int result = serviceElement != null ? serviceElement.hashCode() : 0;
-        result = 31 * result +
-                (serviceBeanInstance != null
-                        ? serviceBeanInstance.hashCode()
-                        : 0);
-        result = 31 * result + (computeResourceUtilization != null
-                ? computeResourceUtilization.hashCode()
-                : 0);
-        return result;
+        return serviceBeanInstance != null ? serviceBeanInstance.hashCode() : 0;
     }
 }
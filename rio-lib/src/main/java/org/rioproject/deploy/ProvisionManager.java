@@ -97,6 +97,31 @@ public interface ProvisionManager {
                 List<DeployedService> deployedServices,
                 int serviceLimit) throws UnknownLeaseException, RemoteException;
 
+    /**
+     * Provides a feedback mechanism for a {@link ServiceBeanInstantiator} to update it's operational
+     * capabilities, deployed services and service limit, sending either a snapshot or only what changed
+     * since a previous update.
+     * <p>
+     * A snapshot is always applied. A delta is only applied if the last update applied for the
+     * ServiceBeanInstantiator has the delta's base version. Otherwise, for example if an update was lost or
+     * the ProvisionManager has only seen the registration, the delta is not applied and the
+     * ServiceBeanInstantiator must send a snapshot.
+     * <p>
+     * The ServiceBeanInstantiator must have an active {@link net.jini.core.lease.Lease} with the
+     * ProvisionManager for this method to be successful.
+     *
+     * @param instantiator The Listener to send events to
+     * @param update The update
+     *
+     * @return True if the update was applied, false if the ServiceBeanInstantiator must send a snapshot
+     *
+     * @throws UnknownLeaseException If the Lease to the ProvisionManager is
+     * unknown
+     * @throws RemoteException If communication errors happen
+     */
+    boolean update(ServiceBeanInstantiator instantiator,
+                   ResourceCapabilityUpdate update) throws UnknownLeaseException, RemoteException;
+
     /**
      * Get all registered
      * {@link ServiceBeanInstantiator} instances.
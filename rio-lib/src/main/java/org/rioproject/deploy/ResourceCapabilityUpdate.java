@@ -0,0 +1,267 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.deploy;
+
+import org.rioproject.system.ComputeResourceUtilization;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An update of the {@link ResourceCapability}, deployed services and service limit of a
+ * {@link ServiceBeanInstantiator}, sent to a {@link ProvisionManager}.
+ *
+ * <p>An update is either a snapshot, with the complete state, or a delta with only what changed since the
+ * update with the base version: the {@link MeasuredResource}s that changed, the platform capabilities that
+ * changed, and the services that were deployed or removed. A delta can only be applied to the state of its
+ * base version, if the {@code ProvisionManager} has a different version it asks for a snapshot.</p>
+ */
+public class ResourceCapabilityUpdate implements Serializable {
+    static final long serialVersionUID = 1L;
+    /** The base version of a snapshot */
+    public static final long SNAPSHOT = -1;
+    private final long version;
+    private final long baseVersion;
+    private final int serviceLimit;
+    /* Snapshot */
+    private final ResourceCapability resourceCapability;
+    private final List<DeployedService> deployedServices;
+    /* Delta */
+    private final double utilization;
+    private final MeasuredResource[] changedMeasuredResources;
+    private final String[] removedMeasuredResources;
+    private final PlatformCapability[] platformCapabilities;
+    private final int[] changedPlatformCapabilityIndexes;
+    private final PlatformCapability[] changedPlatformCapabilities;
+    private final List<DeployedService> addedServices;
+    private final List<DeployedService> removedServices;
+
+    private ResourceCapabilityUpdate(long version,
+                                     long baseVersion,
+                                     int serviceLimit,
+                                     ResourceCapability resourceCapability,
+                                     List<DeployedService> deployedServices,
+                                     double utilization,
+                                     MeasuredResource[] changedMeasuredResources,
+                                     String[] removedMeasuredResources,
+                                     PlatformCapability[] platformCapabilities,
+                                     int[] changedPlatformCapabilityIndexes,
+                                     PlatformCapability[] changedPlatformCapabilities,
+                                     List<DeployedService> addedServices,
+                                     List<DeployedService> removedServices) {
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.serviceLimit = serviceLimit;
+        this.resourceCapability = resourceCapability;
+        this.deployedServices = deployedServices;
+        this.utilization = utilization;
+        this.changedMeasuredResources = changedMeasuredResources;
+        this.removedMeasuredResources = removedMeasuredResources;
+        this.platformCapabilities = platformCapabilities;
+        this.changedPlatformCapabilityIndexes = changedPlatformCapabilityIndexes;
+        this.changedPlatformCapabilities = changedPlatformCapabilities;
+        this.addedServices = addedServices;
+        this.removedServices = removedServices;
+    }
+
+    /**
+     * Create a snapshot
+     *
+     * @param version The version of the update
+     * @param resourceCapability The capabilities of the compute resource, must not be null
+     * @param deployedServices The deployed services, must not be null
+     * @param serviceLimit The maximum amount of services the compute resource will accept for provisioning
+     *
+     * @return An update with the complete state
+     */
+    public static ResourceCapabilityUpdate snapshot(long version,
+                                                    ResourceCapability resourceCapability,
+                                                    List<DeployedService> deployedServices,
+                                                    int serviceLimit) {
+        if(resourceCapability==null)
+            throw new IllegalArgumentException("resourceCapability is null");
+        if(deployedServices==null)
+            throw new IllegalArgumentException("deployedServices is null");
+        return new ResourceCapabilityUpdate(version,
+                                            SNAPSHOT,
+                                            serviceLimit,
+                                            resourceCapability,
+                                            deployedServices,
+                                            resourceCapability.getUtilization(),
+                                            null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Create a delta
+     *
+     * @param version The version of the update
+     * @param baseVersion The version of the update the delta applies to
+     * @param serviceLimit The maximum amount of services the compute resource will accept for provisioning
+     * @param utilization The composite utilization of the compute resource
+     * @param changedMeasuredResources The measured resources that were added or changed
+     * @param removedMeasuredResources The identifiers of the measured resources that were removed
+     * @param platformCapabilities All platform capabilities, if capabilities were added or removed, otherwise
+     * null
+     * @param changedPlatformCapabilityIndexes If the platform capabilities were not added or removed, the
+     * positions of the platform capabilities that changed
+     * @param changedPlatformCapabilities The platform capabilities that changed, at the positions of
+     * {@code changedPlatformCapabilityIndexes}
+     * @param addedServices The services that were deployed
+     * @param removedServices The services that were removed
+     *
+     * @return An update with the changes since the base version
+     */
+    public static ResourceCapabilityUpdate delta(long version,
+                                                 long baseVersion,
+                                                 int serviceLimit,
+                                                 double utilization,
+                                                 MeasuredResource[] changedMeasuredResources,
+                                                 String[] removedMeasuredResources,
+                                                 PlatformCapability[] platformCapabilities,
+                                                 int[] changedPlatformCapabilityIndexes,
+                                                 PlatformCapability[] changedPlatformCapabilities,
+                                                 List<DeployedService> addedServices,
+                                                 List<DeployedService> removedServices) {
+        if(baseVersion < 0)
+            throw new IllegalArgumentException("baseVersion must not be negative");
+        if(changedPlatformCapabilityIndexes.length!=changedPlatformCapabilities.length)
+            throw new IllegalArgumentException("changedPlatformCapabilityIndexes and " +
+                                               "changedPlatformCapabilities must have the same length");
+        return new ResourceCapabilityUpdate(version,
+                                            baseVersion,
+                                            serviceLimit,
+                                            null,
+                                            null,
+                                            utilization,
+                                            changedMeasuredResources,
+                                            removedMeasuredResources,
+                                            platformCapabilities,
+                                            changedPlatformCapabilityIndexes,
+                                            changedPlatformCapabilities,
+                                            addedServices,
+                                            removedServices);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The version of the update a delta applies to, or {@link #SNAPSHOT}
+     */
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public boolean isSnapshot() {
+        return baseVersion==SNAPSHOT;
+    }
+
+    public int getServiceLimit() {
+        return serviceLimit;
+    }
+
+    /**
+     * @return The deployed services of a snapshot, or null for a delta
+     */
+    public List<DeployedService> getDeployedServices() {
+        return deployedServices;
+    }
+
+    /**
+     * @return The services deployed since the base version, empty for a snapshot
+     */
+    public List<DeployedService> getAddedServices() {
+        return addedServices==null ? Collections.<DeployedService>emptyList() : addedServices;
+    }
+
+    /**
+     * @return The services removed since the base version, empty for a snapshot
+     */
+    public List<DeployedService> getRemovedServices() {
+        return removedServices==null ? Collections.<DeployedService>emptyList() : removedServices;
+    }
+
+    /**
+     * @return The measured resources added or changed since the base version, empty for a snapshot
+     */
+    public MeasuredResource[] getChangedMeasuredResources() {
+        return changedMeasuredResources==null ? new MeasuredResource[0] : changedMeasuredResources;
+    }
+
+    /**
+     * Get the capabilities of the compute resource
+     *
+     * @param base The capabilities of the base version, ignored for a snapshot
+     *
+     * @return The capabilities of the compute resource at this version
+     *
+     * @throws IllegalStateException if the platform capabilities of the base version do not match the
+     * positions of the changed platform capabilities
+     */
+    public ResourceCapability apply(ResourceCapability base) {
+        if(isSnapshot())
+            return resourceCapability;
+        Map<String, MeasuredResource> measured = new LinkedHashMap<>();
+        for(MeasuredResource mRes : base.getMeasuredResources())
+            measured.put(mRes.getIdentifier(), mRes);
+        for(String identifier : removedMeasuredResources)
+            measured.remove(identifier);
+        for(MeasuredResource mRes : changedMeasuredResources)
+            measured.put(mRes.getIdentifier(), mRes);
+
+        PlatformCapability[] pCaps = platformCapabilities;
+        if(pCaps==null) {
+            pCaps = base.getPlatformCapabilities();
+            for(int i = 0; i < changedPlatformCapabilityIndexes.length; i++) {
+                int index = changedPlatformCapabilityIndexes[i];
+                if(index >= pCaps.length)
+                    throw new IllegalStateException("Platform capability "+index+" is not in the base version");
+                pCaps[index] = changedPlatformCapabilities[i];
+            }
+        }
+        ComputeResourceUtilization cru = base.getComputeResourceUtilization();
+        return new ResourceCapability(base.getAddress(),
+                                      base.getHostName(),
+                                      base.supportsPersistentProvisioning(),
+                                      pCaps,
+                                      new ComputeResourceUtilization(cru.getDescription(),
+                                                                     cru.getHostName(),
+                                                                     cru.getAddress(),
+                                                                     utilization,
+                                                                     measured.values()));
+    }
+
+    @Override public String toString() {
+        if(isSnapshot())
+            return "ResourceCapabilityUpdate{version="+version+", snapshot, deployed="+deployedServices.size()+"}";
+        return "ResourceCapabilityUpdate{version="+version+
+               ", base="+baseVersion+
+               ", measured="+changedMeasuredResources.length+
+               ", removedMeasured="+removedMeasuredResources.length+
+               ", platform="+(platformCapabilities==null
+                              ? changedPlatformCapabilities.length
+                              : "all "+platformCapabilities.length)+
+               ", added="+addedServices.size()+
+               ", removed="+removedServices.size()+"}";
+    }
+}
@@ -54,6 +54,43 @@ public interface ServiceBeanInstantiator {
     DeployedService instantiate(ServiceProvisionEvent event)
     throws ServiceBeanInstantiationException, UnknownEventException, RemoteException;
 
+    /**
+     * Instantiate a group of ServiceBean instances in one request. The events
+     * are for instances of the same {@link org.rioproject.opstring.ServiceElement}.
+     * The first instance is instantiated before the others, so the service's
+     * artifacts are resolved once. If the first instance cannot be
+     * instantiated the request fails and no other instances are created. An
+     * implementation may create the remaining instances concurrently.
+     *
+     * <p>The default implementation invokes {@link #instantiate(ServiceProvisionEvent)}
+     * for each event in turn, so ServiceBeanInstantiator implementations that
+     * do not provide batched instantiation are still supported.</p>
+     *
+     * @param events The ServiceProvisionEvents, one for each instance
+     *
+     * @return An array the same length as <tt>events</tt>. Each element is
+     * the deployed service for the event at the same index, or <code>null</code>
+     * if that instance was not instantiated
+     *
+     * @throws ServiceBeanInstantiationException if the first instance cannot be
+     * loaded or instantiated, in which case no instances have been created
+     * @throws UnknownEventException if it does not recognize the Event ID
+     * @throws RemoteException if communication errors occur
+     */
+    default DeployedService[] instantiate(ServiceProvisionEvent[] events)
+        throws ServiceBeanInstantiationException, UnknownEventException, RemoteException {
+        DeployedService[] deployedServices = new DeployedService[events.length];
+        for (int i = 0; i < events.length; i++) {
+            try {
+                deployedServices[i] = instantiate(events[i]);
+            } catch (ServiceBeanInstantiationException e) {
+                if (i == 0)
+                    throw e;
+            }
+        }
+        return deployedServices;
+    }
+
     /**
      * Invoked to update instantiated ServiceBean instances of changes in 
      * their {@link org.rioproject.opstring.ServiceElement} objects and
@@ -308,7 +308,8 @@ public class ScalingPolicyHandler extends SLAPolicyHandler implements ServicePro
                 buffer.append("maxServices=").append(maxServices).append(", ");
                 buffer.append("minServices=").append(minServices).append(", ");
                 buffer.append("upperThresholdDampeningTime=").append(upperThresholdDampeningTime).append(", ");
-                buffer.append("lowerThresholdDampeningTime=").append(lowerThresholdDampeningTime);
+                buffer.append("lowerThresholdDampeningTime=").append(lowerThresholdDampeningTime).append(", ");
+                buffer.append("forecastHorizon=").append(getSLA().getForecastHorizon());
                 logger.debug(buffer.toString());
             }
         } catch(Exception e) {
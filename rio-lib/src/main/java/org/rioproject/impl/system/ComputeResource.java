@@ -461,6 +461,10 @@ public class ComputeResource {
      * <code>MeasurableCapability</code> object will be remain unchanged and
      * the provided <code>MeasurableCapability</code> ignored
      *
+     * <p>If the <code>MeasurableCapability</code> is forecast, the
+     * <code>TimeToBreach</code> that records its time to breach is added as
+     * well</p>
+     *
      * @param capability The MeasurableCapability to add
      *
      * @return True if added, false otherwise
@@ -471,6 +475,9 @@ public class ComputeResource {
             return(false);
         if(measurables.add(capability)) {
             added = true;
+            MeasurableCapability timeToBreach = capability.getTimeToBreachCapability();
+            if(timeToBreach!=null && !measurables.contains(timeToBreach))
+                measurables.add(timeToBreach);
             stateChange();
         }
         return(added);
@@ -622,10 +629,15 @@ public class ComputeResource {
         synchronized(measurables) {
             mCaps = getMeasurableCapabilities();
         }
-        MeasuredResource[] measured = new MeasuredResource[mCaps.length];
-        for(int i=0; i<mCaps.length; i++)
-            measured[i] = mCaps[i].getMeasuredResource();
-        return(measured);
+        /* Skip measurables that have not produced a measurement yet, for
+         * example rate based measurables before their second sample */
+        List<MeasuredResource> measured = new ArrayList<MeasuredResource>();
+        for (MeasurableCapability mCap : mCaps) {
+            MeasuredResource mRes = mCap.getMeasuredResource();
+            if(mRes!=null)
+                measured.add(mRes);
+        }
+        return measured.toArray(new MeasuredResource[0]);
     }
 
     /**
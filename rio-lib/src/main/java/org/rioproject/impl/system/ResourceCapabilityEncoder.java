@@ -0,0 +1,247 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system;
+
+import org.rioproject.deploy.DeployedService;
+import org.rioproject.deploy.ResourceCapabilityUpdate;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
+import org.rioproject.watch.ThresholdValues;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes the {@link ResourceCapability}, deployed services and service limit of a compute resource as
+ * {@link ResourceCapabilityUpdate}s for one {@link org.rioproject.deploy.ProvisionManager}.
+ *
+ * <p>The first update, and the first update after {@link #reset()}, is a snapshot. Each following update is a
+ * delta against the state last sent. A {@link MeasuredResource} is only sent if its value moved by at least
+ * the significance since it was last sent, or if it crossed a threshold or its thresholds changed, so a value
+ * that drifts slowly is sent once the drift adds up. If nothing changed the update is suppressed, at most
+ * {@code maxSuppressed} times in a row, so the {@code ProvisionManager} still hears from the compute resource
+ * periodically.</p>
+ *
+ * <p>If an update is not applied by the {@code ProvisionManager}, for example because it missed an update or
+ * was restarted, call {@link #reset()} and send the snapshot the next {@link #encode} returns.</p>
+ */
+public class ResourceCapabilityEncoder {
+    /** The default significance, a change of 1% of a utilization */
+    public static final double DEFAULT_SIGNIFICANCE = 0.01;
+    /** The default number of updates in a row that may be suppressed */
+    public static final int DEFAULT_MAX_SUPPRESSED = 5;
+    private final double significance;
+    private final int maxSuppressed;
+    private long version;
+    private boolean baseline;
+    private int suppressed;
+    private int serviceLimit;
+    private double utilization;
+    private final Map<String, MeasuredResource> measured = new HashMap<>();
+    private final List<Class<?>> platformClasses = new ArrayList<>();
+    private final List<Map<String, Object>> platformValues = new ArrayList<>();
+    private final Set<DeployedService> deployed = new LinkedHashSet<>();
+
+    public ResourceCapabilityEncoder() {
+        this(DEFAULT_SIGNIFICANCE, DEFAULT_MAX_SUPPRESSED);
+    }
+
+    /**
+     * Create a ResourceCapabilityEncoder
+     *
+     * @param significance The least change of a measured value (or of the utilization) that is sent
+     * @param maxSuppressed The number of updates in a row that may be suppressed when nothing changed
+     */
+    public ResourceCapabilityEncoder(double significance, int maxSuppressed) {
+        if(significance < 0)
+            throw new IllegalArgumentException("significance must not be negative");
+        if(maxSuppressed < 0)
+            throw new IllegalArgumentException("maxSuppressed must not be negative");
+        this.significance = significance;
+        this.maxSuppressed = maxSuppressed;
+    }
+
+    /**
+     * Encode an update
+     *
+     * @param resourceCapability The capabilities of the compute resource
+     * @param deployedServices The deployed services
+     * @param serviceLimit The maximum amount of services the compute resource will accept for provisioning
+     *
+     * @return An update to send, or null if nothing changed significantly and the update is suppressed
+     */
+    public synchronized ResourceCapabilityUpdate encode(ResourceCapability resourceCapability,
+                                                        List<DeployedService> deployedServices,
+                                                        int serviceLimit) {
+        if(!baseline)
+            return snapshot(resourceCapability, deployedServices, serviceLimit);
+
+        List<MeasuredResource> changedMeasured = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        for(MeasuredResource mRes : resourceCapability.getMeasuredResources()) {
+            present.add(mRes.getIdentifier());
+            MeasuredResource sent = measured.get(mRes.getIdentifier());
+            if(sent==null || isSignificant(sent, mRes)) {
+                changedMeasured.add(mRes);
+                measured.put(mRes.getIdentifier(), mRes);
+            }
+        }
+        List<String> removedMeasured = new ArrayList<>();
+        for(Iterator<String> it = measured.keySet().iterator(); it.hasNext();) {
+            String identifier = it.next();
+            if(!present.contains(identifier)) {
+                removedMeasured.add(identifier);
+                it.remove();
+            }
+        }
+
+        PlatformCapability[] pCaps = resourceCapability.getPlatformCapabilities();
+        PlatformCapability[] allPlatform = null;
+        List<Integer> changedIndexes = new ArrayList<>();
+        List<PlatformCapability> changedPlatform = new ArrayList<>();
+        if(platformStructureChanged(pCaps)) {
+            allPlatform = pCaps;
+            setPlatformCapabilities(pCaps);
+        } else {
+            for(int i = 0; i < pCaps.length; i++) {
+                /* Capabilities are updated in place, compare with a copy of what was sent */
+                Map<String, Object> values = pCaps[i].getCapabilities();
+                if(!values.equals(platformValues.get(i))) {
+                    changedIndexes.add(i);
+                    changedPlatform.add(pCaps[i]);
+                    platformValues.set(i, values);
+                }
+            }
+        }
+
+        Set<DeployedService> current = new LinkedHashSet<>(deployedServices);
+        List<DeployedService> added = new ArrayList<>();
+        for(DeployedService service : current) {
+            if(!deployed.contains(service))
+                added.add(service);
+        }
+        List<DeployedService> removed = new ArrayList<>();
+        for(DeployedService service : deployed) {
+            if(!current.contains(service))
+                removed.add(service);
+        }
+        deployed.clear();
+        deployed.addAll(current);
+
+        double currentUtilization = resourceCapability.getUtilization();
+        boolean changed = !changedMeasured.isEmpty() ||
+                          !removedMeasured.isEmpty() ||
+                          allPlatform!=null ||
+                          !changedIndexes.isEmpty() ||
+                          !added.isEmpty() ||
+                          !removed.isEmpty() ||
+                          serviceLimit!=this.serviceLimit ||
+                          Math.abs(currentUtilization - utilization) >= significance;
+        if(!changed && suppressed < maxSuppressed) {
+            suppressed++;
+            return null;
+        }
+        suppressed = 0;
+        this.serviceLimit = serviceLimit;
+        utilization = currentUtilization;
+        int[] indexes = new int[changedIndexes.size()];
+        for(int i = 0; i < indexes.length; i++)
+            indexes[i] = changedIndexes.get(i);
+        version++;
+        return ResourceCapabilityUpdate.delta(version,
+                                              version - 1,
+                                              serviceLimit,
+                                              currentUtilization,
+                                              changedMeasured.toArray(new MeasuredResource[0]),
+                                              removedMeasured.toArray(new String[0]),
+                                              allPlatform,
+                                              indexes,
+                                              changedPlatform.toArray(new PlatformCapability[0]),
+                                              added,
+                                              removed);
+    }
+
+    /**
+     * Discard the state last sent, the next update is a snapshot
+     */
+    public synchronized void reset() {
+        baseline = false;
+    }
+
+    /**
+     * @return The version of the last update
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private ResourceCapabilityUpdate snapshot(ResourceCapability resourceCapability,
+                                              List<DeployedService> deployedServices,
+                                              int serviceLimit) {
+        measured.clear();
+        for(MeasuredResource mRes : resourceCapability.getMeasuredResources())
+            measured.put(mRes.getIdentifier(), mRes);
+        setPlatformCapabilities(resourceCapability.getPlatformCapabilities());
+        deployed.clear();
+        deployed.addAll(deployedServices);
+        this.serviceLimit = serviceLimit;
+        utilization = resourceCapability.getUtilization();
+        suppressed = 0;
+        baseline = true;
+        version++;
+        return ResourceCapabilityUpdate.snapshot(version, resourceCapability, deployedServices, serviceLimit);
+    }
+
+    private boolean platformStructureChanged(PlatformCapability[] pCaps) {
+        if(pCaps.length!=platformClasses.size())
+            return true;
+        for(int i = 0; i < pCaps.length; i++) {
+            if(pCaps[i].getClass()!=platformClasses.get(i))
+                return true;
+        }
+        return false;
+    }
+
+    private void setPlatformCapabilities(PlatformCapability[] pCaps) {
+        platformClasses.clear();
+        platformValues.clear();
+        for(PlatformCapability pCap : pCaps) {
+            platformClasses.add(pCap.getClass());
+            platformValues.add(pCap.getCapabilities());
+        }
+    }
+
+    private boolean isSignificant(MeasuredResource sent, MeasuredResource current) {
+        if(sent.getClass()!=current.getClass())
+            return true;
+        ThresholdValues sentThresholds = sent.getThresholdValues();
+        ThresholdValues thresholds = current.getThresholdValues();
+        if(sentThresholds==null || thresholds==null)
+            return sentThresholds!=thresholds || Math.abs(current.getValue() - sent.getValue()) >= significance;
+        if(sentThresholds.getLowThreshold()!=thresholds.getLowThreshold() ||
+           sentThresholds.getHighThreshold()!=thresholds.getHighThreshold() ||
+           sent.thresholdCrossed()!=current.thresholdCrossed())
+            return true;
+        return Math.abs(current.getValue() - sent.getValue()) >= significance;
+    }
+}
@@ -21,11 +21,19 @@ import org.rioproject.start.config.PlatformCapabilityConfig;
 import org.rioproject.start.config.PlatformLoader;
 import org.rioproject.costmodel.ResourceCostModel;
 import org.rioproject.impl.system.capability.PlatformCapabilityLoader;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
 import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.impl.system.measurable.cgroup.CGroupMeasurable;
+import org.rioproject.impl.system.measurable.cgroup.CGroupSampler;
 import org.rioproject.impl.system.measurable.cpu.CPU;
+import org.rioproject.impl.system.measurable.cpu.CPUState;
+import org.rioproject.impl.system.measurable.disk.DiskIO;
 import org.rioproject.impl.system.measurable.disk.DiskSpace;
+import org.rioproject.impl.system.measurable.jvm.JVMMeasurable;
+import org.rioproject.impl.system.measurable.jvm.JVMSampler;
 import org.rioproject.impl.system.measurable.memory.Memory;
 import org.rioproject.impl.system.measurable.memory.SystemMemory;
+import org.rioproject.impl.system.measurable.network.Network;
 import org.rioproject.impl.util.FileUtils;
 import org.rioproject.system.SystemWatchID;
 import org.rioproject.system.capability.PlatformCapability;
@@ -80,8 +88,19 @@ public class SystemCapabilities implements SystemCapabilitiesLoader {
      * <ul>
      * <li>org.rioproject.system.measurable.cpu.CPU
      * <li>org.rioproject.system.measurable.memory.Memory
+     * <li>org.rioproject.system.measurable.jvm.JVMMeasurable, for the share
+     * of time spent in garbage collection and the allocation rate of the JVM
      * </ul>
      *
+     * On Linux, <code>CPUState</code> capabilities measuring the CPU I/O wait
+     * and steal time, a <code>DiskIO</code> capability measuring disk I/O
+     * and a <code>Network</code> capability measuring network interface
+     * throughput are also returned. When running in a cgroup with a CPU
+     * quota, a process id limit, or pressure stall information (cgroup v2),
+     * <code>CGroupMeasurable</code> capabilities measuring throttling, the
+     * process ids used and memory pressure against the cgroup's limits are
+     * returned.
+     *
      * If the operating system is not a member of the "Windows" family of
      * operating systems, an additional <code>MeasurableCapability</code> is
      * returned :
@@ -128,6 +147,40 @@ public class SystemCapabilities implements SystemCapabilitiesLoader {
         if(jvmCpu.isEnabled())
             measurables.add(jvmCpu);
 
+        /* Measure garbage collection and allocation of the JVM */
+        JVMSampler jvm = JVMSampler.getInstance();
+        for(MeasurableCapability jvmMeasurable : new MeasurableCapability[]{JVMMeasurable.gcPause(config, jvm),
+                                                                             JVMMeasurable.allocationRate(config, jvm)}) {
+            if(jvmMeasurable.isEnabled())
+                measurables.add(jvmMeasurable);
+        }
+
+        /* On Linux, measure the I/O wait and steal time separately, and measure disk I/O and network
+         * throughput */
+        if(LinuxProcSampler.isAvailable()) {
+            for(MeasurableCapability linuxMeasurable : new MeasurableCapability[]{CPUState.ioWait(config),
+                                                                                   CPUState.steal(config),
+                                                                                   new DiskIO(config),
+                                                                                   new Network(config)}) {
+                if(linuxMeasurable.isEnabled())
+                    measurables.add(linuxMeasurable);
+            }
+        }
+
+        /* When running in a container, measure against its cgroup's limits */
+        CGroupSampler cgroup = CGroupSampler.getInstance();
+        List<MeasurableCapability> cgroupMeasurables = new ArrayList<>();
+        if(cgroup.sample(CGroupSampler::isCpuLimited))
+            cgroupMeasurables.add(CGroupMeasurable.throttled(config, cgroup));
+        if(!Double.isNaN(cgroup.sample(CGroupSampler::getMemoryPressure)))
+            cgroupMeasurables.add(CGroupMeasurable.memoryPressure(config, cgroup));
+        if(cgroup.sample(CGroupSampler::getPidsLimit) > 0)
+            cgroupMeasurables.add(CGroupMeasurable.pids(config, cgroup));
+        for(MeasurableCapability cgroupMeasurable : cgroupMeasurables) {
+            if(cgroupMeasurable.isEnabled())
+                measurables.add(cgroupMeasurable);
+        }
+
 
         MeasurableCapability diskSpace = getDiskSpace(config);
         if(diskSpace.isEnabled())
@@ -0,0 +1,537 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable;
+
+import org.rioproject.impl.system.OperatingSystemType;
+import org.rioproject.impl.system.measurable.cpu.ProcStat;
+import org.rioproject.impl.system.measurable.disk.DiskStats;
+import org.rioproject.impl.system.measurable.network.NetDev;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples the Linux {@code /proc} files used by the system measurables once, and shares the parsed values
+ * with every {@link MeasurableMonitor} that reads them.
+ *
+ * <p>The following files are read, relative to the root directory (normally {@code /proc}):
+ * <tt>stat</tt>, <tt>meminfo</tt>, <tt>loadavg</tt>, <tt>diskstats</tt>, <tt>net/dev</tt>,
+ * <tt>self/stat</tt>, <tt>self/status</tt> and <tt>pressure/cpu</tt>, <tt>pressure/memory</tt> and
+ * <tt>pressure/io</tt>. Files that cannot be read, such as the pressure files on kernels without PSI
+ * support, report -1 or {@code Double.NaN}.</p>
+ *
+ * <p>A monitor reads values using {@link #sample(Function)}. If the last sample is older than the maximum
+ * age, every file is read again before the values are provided to the monitor. Since the measurable
+ * capabilities of a {@code ComputeResource} usually have the same period, they are checked in the same tick
+ * of the {@code SamplingScheduler}: the first reads the files, and the others use the same sample. The
+ * values the monitors report are therefore time-coherent, and each file is read once per tick. The files
+ * are kept open and parsed in place, so sampling does not allocate.</p>
+ *
+ * <p>CPU utilization and the changes of the disk and network counters depend on the interval they are
+ * computed over. A monitor that reports them keeps an {@link Interval}, created by {@link #createInterval()},
+ * and reads it using {@link #sample(Interval, Function)}. The Interval keeps the counters of the sample the
+ * monitor last read, so the values are computed over the interval between the monitor's own reads, whatever
+ * the period of the other monitors.</p>
+ */
+public class LinuxProcSampler {
+    /** The default root directory */
+    public static final String PROC = "/proc";
+    /** The default maximum age of a sample that is shared, in milliseconds */
+    public static final long DEFAULT_MAX_AGE = 1000;
+    /** <tt>MemTotal</tt> in <tt>meminfo</tt> */
+    public static final int MEM_TOTAL = 0;
+    /** <tt>MemFree</tt> in <tt>meminfo</tt> */
+    public static final int MEM_FREE = 1;
+    /** <tt>MemAvailable</tt> in <tt>meminfo</tt> */
+    public static final int MEM_AVAILABLE = 2;
+    /** <tt>Buffers</tt> in <tt>meminfo</tt> */
+    public static final int BUFFERS = 3;
+    /** <tt>Cached</tt> in <tt>meminfo</tt> */
+    public static final int CACHED = 4;
+    /** <tt>Active</tt> in <tt>meminfo</tt> */
+    public static final int ACTIVE = 5;
+    /** <tt>Inactive</tt> in <tt>meminfo</tt> */
+    public static final int INACTIVE = 6;
+    /** <tt>SwapTotal</tt> in <tt>meminfo</tt> */
+    public static final int SWAP_TOTAL = 7;
+    /** <tt>SwapFree</tt> in <tt>meminfo</tt> */
+    public static final int SWAP_FREE = 8;
+    /** <tt>VmSize</tt> in <tt>self/status</tt> */
+    public static final int VM_SIZE = 0;
+    /** <tt>VmHWM</tt> in <tt>self/status</tt> */
+    public static final int VM_HWM = 1;
+    /** <tt>VmRSS</tt> in <tt>self/status</tt> */
+    public static final int VM_RSS = 2;
+    /** <tt>VmSwap</tt> in <tt>self/status</tt> */
+    public static final int VM_SWAP = 3;
+    /** <tt>pressure/cpu</tt> */
+    public static final int PRESSURE_CPU = 0;
+    /** <tt>pressure/memory</tt> */
+    public static final int PRESSURE_MEMORY = 1;
+    /** <tt>pressure/io</tt> */
+    public static final int PRESSURE_IO = 2;
+    private static final byte[][] MEM_INFO_KEYS = keys("MemTotal:", "MemFree:", "MemAvailable:", "Buffers:",
+                                                       "Cached:", "Active:", "Inactive:", "SwapTotal:", "SwapFree:");
+    private static final byte[][] STATUS_KEYS = keys("VmSize:", "VmHWM:", "VmRSS:", "VmSwap:");
+    private static final byte[] THREADS = ProcFile.key("Threads:");
+    private static final byte[] SOME = ProcFile.key("some");
+    private static final byte[] FULL = ProcFile.key("full");
+    private static final int WINDOWS = 3;
+    private static LinuxProcSampler instance;
+    private final String root;
+    private final ProcStat stat;
+    private final ProcFile memInfo;
+    private final ProcFile loadAvg;
+    private final ProcFile selfStat;
+    private final ProcFile selfStatus;
+    private final ProcFile[] pressure;
+    private final DiskStats diskStats;
+    private final NetDev netDev;
+    private final LongSupplier clock;
+    private final long[] memInfoValues = new long[MEM_INFO_KEYS.length];
+    private final long[] statusValues = new long[STATUS_KEYS.length];
+    private final double[] loadAverage = new double[3];
+    private final double[] pressureValues = new double[3 * 2 * WINDOWS];
+    private boolean statSampled;
+    private long processTicks = -1;
+    private long threads = -1;
+    private long sampleTime;
+    private long sampleNanos;
+    private long samples;
+    private volatile long maxAge = DEFAULT_MAX_AGE;
+
+    /**
+     * Create a LinuxProcSampler
+     *
+     * @param root The root directory of the files, for example {@code /proc}, must not be null
+     */
+    public LinuxProcSampler(final String root) {
+        this(root, System::nanoTime);
+    }
+
+    /**
+     * Create a LinuxProcSampler
+     *
+     * @param root The root directory of the files, for example {@code /proc}, must not be null
+     * @param clock Provides the time of each sample in nanoseconds, like {@code System.nanoTime()}, must
+     * not be null
+     */
+    public LinuxProcSampler(final String root, final LongSupplier clock) {
+        if(root==null)
+            throw new IllegalArgumentException("root is null");
+        if(clock==null)
+            throw new IllegalArgumentException("clock is null");
+        this.root = root;
+        this.clock = clock;
+        stat = new ProcStat(file("stat"));
+        memInfo = new ProcFile(file("meminfo"));
+        loadAvg = new ProcFile(file("loadavg"));
+        selfStat = new ProcFile(file("self/stat"));
+        selfStatus = new ProcFile(file("self/status"));
+        pressure = new ProcFile[]{new ProcFile(file("pressure/cpu")),
+                                  new ProcFile(file("pressure/memory")),
+                                  new ProcFile(file("pressure/io"))};
+        diskStats = new DiskStats(file("diskstats"));
+        netDev = new NetDev(file("net/dev"));
+    }
+
+    /**
+     * Get the LinuxProcSampler that reads {@code /proc}, shared by the measurables of the process
+     *
+     * @return The shared LinuxProcSampler
+     */
+    public static synchronized LinuxProcSampler getInstance() {
+        if(instance==null)
+            instance = new LinuxProcSampler(PROC);
+        return instance;
+    }
+
+    /**
+     * Determine if {@code /proc} can be sampled
+     *
+     * @return True if running on Linux and {@code /proc/stat} can be read
+     */
+    public static boolean isAvailable() {
+        return OperatingSystemType.isLinux() && new File(PROC, "stat").canRead();
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * Set the maximum age of a sample that is shared
+     *
+     * @param maxAge The maximum age in milliseconds. If 0, the files are read for every call to
+     * {@link #sample(Function)}
+     */
+    public void setMaxAge(final long maxAge) {
+        if(maxAge < 0)
+            throw new IllegalArgumentException("maxAge must not be negative");
+        this.maxAge = maxAge;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Provide the values of the current sample, reading the files first if the sample is older than the
+     * maximum age
+     *
+     * @param reader Reads values from this sampler. The values do not change while the reader runs
+     * @param <T> The type the reader returns
+     *
+     * @return The value returned by the reader
+     */
+    public synchronized <T> T sample(final Function<? super LinuxProcSampler, T> reader) {
+        if(samples==0 || clock.getAsLong() - sampleNanos >= maxAge * 1000000)
+            refresh();
+        return reader.apply(this);
+    }
+
+    /**
+     * Provide the values of an Interval, reading the files first if the sample is older than the maximum age.
+     * If the sample has not been read by the Interval before, the Interval moves to it, so its values are
+     * computed since the sample it last read.
+     *
+     * @param interval The Interval of the consumer, created by {@link #createInterval()}
+     * @param reader Reads values from the Interval. The values do not change while the reader runs
+     * @param <T> The type the reader returns
+     *
+     * @return The value returned by the reader
+     */
+    public synchronized <T> T sample(final Interval interval, final Function<? super Interval, T> reader) {
+        if(samples==0 || clock.getAsLong() - sampleNanos >= maxAge * 1000000)
+            refresh();
+        interval.advance(this);
+        return reader.apply(interval);
+    }
+
+    /**
+     * Create an Interval for a consumer of this sampler
+     *
+     * @return A new Interval, that has not read a sample
+     */
+    public Interval createInterval() {
+        return new Interval(this);
+    }
+
+    /**
+     * Read every file
+     */
+    public synchronized void refresh() {
+        long now = clock.getAsLong();
+        sampleTime = System.currentTimeMillis();
+        sampleNanos = now;
+        samples++;
+        statSampled = stat.sample();
+
+        Arrays.fill(memInfoValues, -1);
+        if(memInfo.read()) {
+            for(int i = 0; i < MEM_INFO_KEYS.length; i++) {
+                if(memInfo.find(MEM_INFO_KEYS[i]))
+                    memInfoValues[i] = memInfo.nextLong();
+            }
+        }
+
+        Arrays.fill(loadAverage, Double.NaN);
+        if(loadAvg.read()) {
+            for(int i = 0; i < loadAverage.length; i++)
+                loadAverage[i] = loadAvg.nextDecimal();
+        }
+
+        processTicks = -1;
+        if(selfStat.read() && selfStat.skipPastLast(')')) {
+            /* Skip state through cmajflt, to utime and stime */
+            selfStat.skipFields(11);
+            long utime = selfStat.nextLong();
+            long stime = selfStat.nextLong();
+            if(utime >= 0 && stime >= 0)
+                processTicks = utime + stime;
+        }
+
+        Arrays.fill(statusValues, -1);
+        threads = -1;
+        if(selfStatus.read()) {
+            for(int i = 0; i < STATUS_KEYS.length; i++) {
+                if(selfStatus.find(STATUS_KEYS[i]))
+                    statusValues[i] = selfStatus.nextLong();
+            }
+            if(selfStatus.find(THREADS))
+                threads = selfStatus.nextLong();
+        }
+
+        diskStats.sample();
+        netDev.sample();
+
+        Arrays.fill(pressureValues, Double.NaN);
+        for(int resource = 0; resource < pressure.length; resource++) {
+            ProcFile file = pressure[resource];
+            if(!file.read())
+                continue;
+            readPressure(file, SOME, resource, false);
+            readPressure(file, FULL, resource, true);
+        }
+    }
+
+    private void readPressure(final ProcFile file, final byte[] key, final int resource, final boolean full) {
+        if(!file.find(key))
+            return;
+        int offset = pressureIndex(resource, full, 0);
+        for(int window = 0; window < WINDOWS; window++) {
+            if(!file.skipPast('='))
+                break;
+            pressureValues[offset + window] = file.nextDecimal();
+        }
+    }
+
+    private static int pressureIndex(final int resource, final boolean full, final int window) {
+        return (resource * 2 + (full ? 1 : 0)) * WINDOWS + window;
+    }
+
+    /**
+     * @return The time of the current sample, in milliseconds since the epoch
+     */
+    public synchronized long getSampleTime() {
+        return sampleTime;
+    }
+
+    /**
+     * @return True if {@code stat} was read by the current sample
+     */
+    public synchronized boolean isStatSampled() {
+        return statSampled;
+    }
+
+    /**
+     * Get the CPU counters read from {@code stat}. The fractions are computed between the last two samples of
+     * this sampler, use an {@link Interval} to compute them over the interval of a consumer
+     *
+     * @return The ProcStat
+     */
+    public ProcStat getProcStat() {
+        return stat;
+    }
+
+    /**
+     * Get the block device counters read from {@code diskstats}
+     *
+     * @return The DiskStats
+     */
+    public DiskStats getDiskStats() {
+        return diskStats;
+    }
+
+    /**
+     * Get the network interface counters read from {@code net/dev}
+     *
+     * @return The NetDev
+     */
+    public NetDev getNetDev() {
+        return netDev;
+    }
+
+    /**
+     * Get a value from {@code meminfo}
+     *
+     * @param field The field, for example {@link #MEM_TOTAL}
+     *
+     * @return The value in kilobytes, or -1 if not available
+     */
+    public synchronized long getMemInfo(final int field) {
+        return memInfoValues[field];
+    }
+
+    /**
+     * Get a load average from {@code loadavg}
+     *
+     * @param index 0 for the 1 minute load average, 1 for 5 minutes, 2 for 15 minutes
+     *
+     * @return The load average, or {@code Double.NaN} if not available
+     */
+    public synchronized double getLoadAverage(final int index) {
+        return loadAverage[index];
+    }
+
+    /**
+     * @return The CPU time used by this process, in clock ticks, read from {@code self/stat}, or -1 if not
+     * available
+     */
+    public synchronized long getProcessTicks() {
+        return processTicks;
+    }
+
+    /**
+     * Get a value from {@code self/status}
+     *
+     * @param field The field, for example {@link #VM_RSS}
+     *
+     * @return The value in kilobytes, or -1 if not available
+     */
+    public synchronized long getProcessStatus(final int field) {
+        return statusValues[field];
+    }
+
+    /**
+     * @return The number of threads in this process, or -1 if not available
+     */
+    public synchronized long getThreadCount() {
+        return threads;
+    }
+
+    /**
+     * Get a pressure stall average from the {@code pressure} files
+     *
+     * @param resource The resource, for example {@link #PRESSURE_CPU}
+     * @param full If true, the share of time all non-idle tasks were stalled, otherwise the share of time
+     * some tasks were stalled
+     * @param window 0 for the 10 second average, 1 for 60 seconds, 2 for 300 seconds
+     *
+     * @return The percentage of time stalled, or {@code Double.NaN} if not available
+     */
+    public synchronized double getPressure(final int resource, final boolean full, final int window) {
+        if(window < 0 || window >= WINDOWS)
+            throw new IndexOutOfBoundsException("window "+window);
+        return pressureValues[pressureIndex(resource, full, window)];
+    }
+
+    /**
+     * Close the files, they are opened again by the next sample
+     */
+    public synchronized void close() {
+        stat.close();
+        memInfo.close();
+        loadAvg.close();
+        selfStat.close();
+        selfStatus.close();
+        for(ProcFile file : pressure)
+            file.close();
+        diskStats.close();
+        netDev.close();
+    }
+
+    private String file(final String name) {
+        return root+File.separator+name;
+    }
+
+    private static byte[][] keys(final String... keys) {
+        byte[][] bytes = new byte[keys.length][];
+        for(int i = 0; i < keys.length; i++)
+            bytes[i] = ProcFile.key(keys[i]);
+        return bytes;
+    }
+
+    /**
+     * The counters of the sample a consumer of a {@link LinuxProcSampler} last read. The CPU utilization and
+     * the changes of the counters of an Interval are computed since that sample, so each consumer computes
+     * them over the interval between its own reads. Copying the counters does not allocate once the
+     * Interval has been sized by the first sample.
+     *
+     * <p>An Interval is read using {@link LinuxProcSampler#sample(Interval, Function)}, and is not thread
+     * safe.</p>
+     */
+    public static class Interval {
+        private final ProcStat stat;
+        private final ProcCounters diskStats;
+        private final ProcCounters netDev;
+        private long sample;
+        private long sampleNanos;
+        private long elapsedNanos;
+        private boolean statSampled;
+        private long processTicks = -1;
+        private long lastProcessTicks = -1;
+
+        private Interval(final LinuxProcSampler sampler) {
+            stat = new ProcStat(sampler.file("stat"));
+            diskStats = new ProcCounters(sampler.diskStats.getCounters().getFields());
+            netDev = new ProcCounters(sampler.netDev.getCounters().getFields());
+        }
+
+        private void advance(final LinuxProcSampler sampler) {
+            if(sample==sampler.samples)
+                return;
+            elapsedNanos = sample==0 ? 0 : sampler.sampleNanos - sampleNanos;
+            sample = sampler.samples;
+            sampleNanos = sampler.sampleNanos;
+            statSampled = sampler.statSampled;
+            if(statSampled)
+                stat.sample(sampler.stat);
+            lastProcessTicks = processTicks;
+            processTicks = sampler.processTicks;
+            diskStats.sample(sampler.diskStats.getCounters());
+            netDev.sample(sampler.netDev.getCounters());
+        }
+
+        /**
+         * @return The time between the sample this Interval last read and the one before it, in
+         * nanoseconds, or 0 if it has read one sample
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return True if {@code stat} was read by the sample
+         */
+        public boolean isStatSampled() {
+            return statSampled;
+        }
+
+        /**
+         * Get the CPU counters read from {@code stat}. The first fractions are computed since boot, after that
+         * they are computed over the interval
+         *
+         * @return The ProcStat
+         */
+        public ProcStat getProcStat() {
+            return stat;
+        }
+
+        /**
+         * @return The block device counters read from {@code diskstats}, the changes are computed over the
+         * interval
+         */
+        public ProcCounters getDiskStats() {
+            return diskStats;
+        }
+
+        /**
+         * @return The network interface counters read from {@code net/dev}, the changes are computed over
+         * the interval
+         */
+        public ProcCounters getNetDev() {
+            return netDev;
+        }
+
+        /**
+         * Get the CPU utilization of this process over the interval, read from {@code self/stat}
+         *
+         * @return The fraction of the time of all CPUs that was used by the process, between 0 and 1, or -1
+         * if not available
+         */
+        public double getProcessCpuUtilization() {
+            if(!statSampled || processTicks < 0 || lastProcessTicks < 0 || stat.getCpuCount()==0)
+                return -1;
+            long ticks = stat.getTicks(0);
+            if(ticks <= 0)
+                return 0;
+            return Math.min(1, (double)Math.max(0, processTicks - lastProcessTicks) / ticks);
+        }
+    }
+}
@@ -22,6 +22,8 @@ import org.rioproject.costmodel.ResourceCost;
 import org.rioproject.costmodel.ResourceCostModel;
 import org.rioproject.costmodel.ResourceCostProducer;
 import org.rioproject.costmodel.ZeroCostModel;
+import org.rioproject.impl.system.measurable.forecast.Forecaster;
+import org.rioproject.impl.system.measurable.forecast.TimeToBreach;
 import org.rioproject.impl.watch.PeriodicWatch;
 import org.rioproject.impl.watch.ThresholdManager;
 import org.rioproject.sla.SLA;
@@ -31,7 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.rmi.RemoteException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -46,9 +48,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public abstract class MeasurableCapability extends PeriodicWatch implements ResourceCostProducer,
                                                                             MeasurableCapabilityMBean {
     /**
-     * Collection of secondary ThresholdManager instances
+     * Secondary ThresholdManager instances, replaced when a ThresholdManager is
+     * added or removed so recording a Calculable does not lock or copy
      */
-    private final Collection<ThresholdManager> thresholdManagers = new ArrayList<ThresholdManager>();
+    private volatile ThresholdManager[] thresholdManagers = new ThresholdManager[0];
+    private final Object thresholdManagerLock = new Object();
     /**
      * The SLA for the MeasurableCapability
      */
@@ -74,10 +78,17 @@ public abstract class MeasurableCapability extends PeriodicWatch implements Reso
     /** Defines the default history max size */
     public final static int MAX_COLLECTION_SIZE = 100;
     private int collectionSize;
+    /** Smooths measured values before thresholds are checked, and forecasts them */
+    private volatile Forecaster forecaster;
+    private volatile long timeToBreach = Forecaster.NO_BREACH;
+    /** Records the time to breach as a watch, created when a Forecaster is set */
+    private volatile TimeToBreach timeToBreachCapability;
+    private final Configuration config;
     private static final Logger logger = LoggerFactory.getLogger(MeasurableCapability.class);
 
     protected MeasurableCapability(final String id, final String componentName, final Configuration config) {
         super(id, config);
+        this.config = config;
         try {
             isEnabled.set((Boolean) config.getEntry(componentName, "enabled", boolean.class, Boolean.TRUE));
         } catch (ConfigurationException e) {
@@ -111,6 +122,13 @@ public abstract class MeasurableCapability extends PeriodicWatch implements Reso
         }
         if(localRef!=null)
             localRef.setMaxSize(collectionSize);
+        try {
+            forecaster = (Forecaster)config.getEntry(componentName, "forecaster", Forecaster.class, null);
+        } catch (ConfigurationException e) {
+            logger.error("Getting Forecaster", e);
+        }
+        if(forecaster!=null)
+            timeToBreachCapability = createTimeToBreach(config);
     }
 
     public void addWatchDataReplicator(WatchDataReplicator replicator) {
@@ -201,6 +219,59 @@ public abstract class MeasurableCapability extends PeriodicWatch implements Reso
         return(sampleSize);
     }    
     
+    /**
+     * Set the {@link Forecaster} used to smooth measured values before their
+     * thresholds are checked
+     *
+     * @param forecaster The Forecaster, or null to check measured values as
+     * they are recorded
+     */
+    public void setForecaster(Forecaster forecaster) {
+        checkEnabled();
+        this.forecaster = forecaster;
+        timeToBreach = Forecaster.NO_BREACH;
+        if(forecaster!=null && timeToBreachCapability==null)
+            timeToBreachCapability = createTimeToBreach(config);
+    }
+
+    /**
+     * Get the {@link Forecaster}
+     *
+     * @return The Forecaster used to smooth measured values, or null if
+     * measured values are checked as they are recorded
+     */
+    public Forecaster getForecaster() {
+        return forecaster;
+    }
+
+    /**
+     * @see MeasurableCapabilityMBean#getTimeToBreach()
+     */
+    public long getTimeToBreach() {
+        return timeToBreach;
+    }
+
+    /**
+     * Get the {@link TimeToBreach} that records the time to breach of this
+     * MeasurableCapability as a watch, so an {@link SLA} can be declared for it
+     *
+     * @return The TimeToBreach, or null if a {@link Forecaster} has not been set
+     */
+    public TimeToBreach getTimeToBreachCapability() {
+        return timeToBreachCapability;
+    }
+
+    /**
+     * Create the {@link TimeToBreach} for this MeasurableCapability
+     *
+     * @param config Configuration object
+     *
+     * @return The TimeToBreach, or null if the time to breach is not recorded
+     */
+    protected TimeToBreach createTimeToBreach(Configuration config) {
+        return new TimeToBreach(getId(), config);
+    }
+
     /**
      * Add a secondary ThresholdManager to the MeasurableCapability. The primary 
      * ThresholdManager and the ThresholdValues are set when this class is loaded. 
@@ -213,7 +284,11 @@ public abstract class MeasurableCapability extends PeriodicWatch implements Reso
         checkEnabled();
         if(thresholdManager==null)
             throw new IllegalArgumentException("thresholdManager is null");
-        thresholdManagers.add(thresholdManager);
+        synchronized(thresholdManagerLock) {
+            ThresholdManager[] tMgrs = Arrays.copyOf(thresholdManagers, thresholdManagers.length+1);
+            tMgrs[tMgrs.length-1] = thresholdManager;
+            thresholdManagers = tMgrs;
+        }
     }
 
     /**
@@ -222,8 +297,18 @@ public abstract class MeasurableCapability extends PeriodicWatch implements Reso
      * @param thresholdManager The ThresholdManager
      */
     public void removeSecondaryThresholdManager(ThresholdManager thresholdManager) {
-        if(thresholdManager!=null)
-            thresholdManagers.remove(thresholdManager);
+        if(thresholdManager==null)
+            return;
+        synchronized(thresholdManagerLock) {
+            ThresholdManager[] tMgrs = thresholdManagers;
+            int index = Arrays.asList(tMgrs).indexOf(thresholdManager);
+            if(index<0)
+                return;
+            ThresholdManager[] removed = new ThresholdManager[tMgrs.length-1];
+            System.arraycopy(tMgrs, 0, removed, 0, index);
+            System.arraycopy(tMgrs, index+1, removed, index, removed.length-index);
+            thresholdManagers = removed;
+        }
     }
 
     /**
@@ -284,28 +369,57 @@ public abstract class MeasurableCapability extends PeriodicWatch implements Reso
     }
 
     /**
-     * Add a Calculable to the watch and update state
+     * Add a Calculable to the watch and update state. If a {@link Forecaster}
+     * is set, the measured value is recorded and the smoothed value is checked
+     * against the thresholds. A secondary ThresholdManager for an {@link SLA}
+     * with a forecast horizon is given the forecast value when the value is
+     * forecast to breach the upper threshold within the horizon.
      * 
      * @param record A Calculable record
      */
     public void addWatchRecord(Calculable record) {
         checkEnabled();
-        super.addWatchRecord(record);
-        for (ThresholdManager tManager : getThresholdManagers())
-            tManager.checkThreshold(record);
+        Forecaster forecaster = this.forecaster;
+        ThresholdManager[] tManagers = thresholdManagers;
+        if(forecaster==null) {
+            super.addWatchRecord(record);
+            ThresholdManager.checkThresholds(record, tManagers);
+            return;
+        }
+        forecaster.add(record.getValue(), record.getWhen());
+        Calculable smoothed = new Calculable(record.getId(), forecaster.getValue(), record.getWhen());
+        smoothed.setDetail(record.getDetail());
+        timeToBreach = forecaster.getTimeToBreach(getThresholdValues().getHighThreshold());
+        addWatchRecord(record, smoothed);
+        for (ThresholdManager tManager : tManagers)
+            tManager.checkThreshold(forecast(forecaster, smoothed, tManager));
+        TimeToBreach timeToBreachCapability = this.timeToBreachCapability;
+        if(timeToBreachCapability!=null)
+            timeToBreachCapability.record(timeToBreach, record.getWhen());
+    }
+
+    private Calculable forecast(Forecaster forecaster, Calculable record, ThresholdManager tManager) {
+        ThresholdValues tVals = tManager.getThresholdValues();
+        if(!(tVals instanceof SLA) || ((SLA)tVals).getForecastHorizon()==0)
+            return record;
+        double high = tVals.getHighThreshold();
+        if(record.getValue() > high)
+            return record;
+        double projected = forecaster.forecast(((SLA)tVals).getForecastHorizon());
+        if(!(projected > high))
+            return record;
+        Calculable forecast = new Calculable(record.getId(), projected, record.getWhen());
+        forecast.setDetail("forecast");
+        return forecast;
     }
 
     /**
      * Get the registered {@link ThresholdManager}s
      *
-     * @return The registered {@link ThresholdManager}s. A new unmodifiable collection is allocated each time
+     * @return An unmodifiable collection of the {@link ThresholdManager}s registered when this method is called
      */
     protected Collection<ThresholdManager> getThresholdManagers() {
-        Collection<ThresholdManager> tMgrs;
-        synchronized(thresholdManagers) {
-            tMgrs = Collections.unmodifiableCollection(thresholdManagers);
-        }
-        return tMgrs;
+        return Collections.unmodifiableList(Arrays.asList(thresholdManagers));
     }
 
 }
@@ -48,4 +48,18 @@ public interface MeasurableCapabilityMBean extends PeriodicWatchMBean {
      * MeasurableCapability
      */
     double getUtilization();
+
+    /**
+     * Get the projected time until the smoothed value reaches the high
+     * threshold
+     *
+     * @return The number of milliseconds until the value is forecast to
+     * reach the high threshold, 0 if it is at or above the high threshold, or
+     * -1 if it is not forecast to reach it or no
+     * {@link org.rioproject.impl.system.measurable.forecast.Forecaster} has
+     * been set. The value is also recorded by a
+     * {@link org.rioproject.impl.system.measurable.forecast.TimeToBreach}
+     * watch that an SLA can be declared for
+     */
+    long getTimeToBreach();
 }
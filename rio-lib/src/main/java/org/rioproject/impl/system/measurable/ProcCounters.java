@@ -0,0 +1,170 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Cumulative counters read from a {@link ProcFile} for a set of named entries, such as the devices in
+ * {@code /proc/diskstats} or the interfaces in {@code /proc/net/dev}, with the counters of the previous
+ * sample so that the change between samples can be computed.
+ *
+ * <p>Entries are matched by name without allocating, an entry is added (and its name allocated) the first
+ * time it is read. An entry that is not in a sample, for example a removed device, is not present until it is
+ * read again.</p>
+ *
+ * <p>ProcCounters can also take their samples from other ProcCounters using {@link #sample(ProcCounters)}, so
+ * several consumers can compute changes over their own intervals while the file is read once.</p>
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public class ProcCounters {
+    private final int fields;
+    private String[] names = new String[0];
+    private byte[][] keys = new byte[0][];
+    private long[] current = new long[0];
+    private long[] previous = new long[0];
+    private boolean[] read = new boolean[0];
+    private boolean[] readBefore = new boolean[0];
+    private int count;
+
+    /**
+     * Create ProcCounters
+     *
+     * @param fields The number of counters for each entry
+     */
+    public ProcCounters(final int fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Start a sample, the counters read so far become the previous counters
+     */
+    public void begin() {
+        System.arraycopy(current, 0, previous, 0, count * fields);
+        System.arraycopy(read, 0, readBefore, 0, count);
+        Arrays.fill(read, 0, count, false);
+    }
+
+    /**
+     * Get the index of the entry named by the last token scanned from a file, adding the entry if it is new
+     *
+     * @param file The file a token was scanned from using {@link ProcFile#nextToken()}
+     *
+     * @return The index of the entry
+     */
+    public int index(final ProcFile file) {
+        for(int i = 0; i < count; i++) {
+            if(file.tokenEquals(keys[i])) {
+                read[i] = true;
+                return i;
+            }
+        }
+        if(count==names.length)
+            grow(Math.max(4, count * 2));
+        names[count] = file.token();
+        keys[count] = names[count].getBytes(StandardCharsets.US_ASCII);
+        read[count] = true;
+        return count++;
+    }
+
+    /**
+     * Take the counters of the current sample of other ProcCounters as the next sample of these
+     * ProcCounters. The changes are then computed since the previous sample of these ProcCounters.
+     *
+     * @param source The ProcCounters to take the counters from, with the same number of counters for each
+     * entry. Since entries are only added, an entry has the same index in both
+     */
+    public void sample(final ProcCounters source) {
+        if(source.fields!=fields)
+            throw new IllegalArgumentException("The number of counters for each entry differs");
+        begin();
+        if(source.count > names.length)
+            grow(source.names.length);
+        for(int i = count; i < source.count; i++) {
+            names[i] = source.names[i];
+            keys[i] = source.keys[i];
+        }
+        count = source.count;
+        System.arraycopy(source.current, 0, current, 0, count * fields);
+        System.arraycopy(source.read, 0, read, 0, count);
+    }
+
+    /**
+     * Set a counter of the current sample
+     *
+     * @param index The index of the entry
+     * @param field The counter
+     * @param value The value
+     */
+    public void set(final int index, final int field, final long value) {
+        current[index * fields + field] = value;
+    }
+
+    /**
+     * @return The number of entries that have been read
+     */
+    public int size() {
+        return count;
+    }
+
+    public String getName(final int index) {
+        return names[index];
+    }
+
+    /**
+     * Determine if the change of an entry's counters is known
+     *
+     * @param index The index of the entry
+     *
+     * @return True if the entry was read by the current and the previous samples
+     */
+    public boolean isPresent(final int index) {
+        return read[index] && readBefore[index];
+    }
+
+    /**
+     * Get the change of a counter between the previous and the current sample
+     *
+     * @param index The index of the entry
+     * @param field The counter
+     *
+     * @return The change, or 0 if the entry is not present in both samples or the counter was reset
+     */
+    public long getDelta(final int index, final int field) {
+        if(!isPresent(index))
+            return 0;
+        int offset = index * fields + field;
+        return Math.max(0, current[offset] - previous[offset]);
+    }
+
+    /**
+     * @return The number of counters for each entry
+     */
+    public int getFields() {
+        return fields;
+    }
+
+    private void grow(final int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        current = Arrays.copyOf(current, capacity * fields);
+        previous = Arrays.copyOf(previous, capacity * fields);
+        read = Arrays.copyOf(read, capacity);
+        readBefore = Arrays.copyOf(readBefore, capacity);
+    }
+}
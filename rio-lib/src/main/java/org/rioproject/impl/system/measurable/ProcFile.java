@@ -0,0 +1,300 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A small text file, such as a file under {@code /proc}, that is kept open and read into a reused direct
+ * {@code ByteBuffer}. Values are parsed in place from a read position, so reading and parsing the file does
+ * not allocate once the buffer has been sized.
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public class ProcFile {
+    private final String path;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean reported;
+    private static final Logger logger = LoggerFactory.getLogger(ProcFile.class);
+
+    /**
+     * Create a ProcFile
+     *
+     * @param path The location of the file, must not be null
+     */
+    public ProcFile(final String path) {
+        if(path==null)
+            throw new IllegalArgumentException("path is null");
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Read the file, and set the read position to the start of the file
+     *
+     * @return True if the file was read, false if it could not be read
+     */
+    public boolean read() {
+        position = 0;
+        try {
+            if(channel==null)
+                channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+            buffer.clear();
+            while(true) {
+                if(!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+                if(channel.read(buffer, buffer.position()) < 0)
+                    break;
+            }
+            buffer.flip();
+            return true;
+        } catch(IOException e) {
+            if(!reported) {
+                logger.debug("Unable to read {}: {}", path, e.toString());
+                reported = true;
+            }
+            buffer.clear().limit(0);
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Find a line that starts with a key, and set the read position to the character after the key
+     *
+     * @param key The key, as ASCII bytes
+     *
+     * @return True if the key was found. If false, the read position is unchanged
+     */
+    public boolean find(final byte[] key) {
+        int limit = buffer.limit() - key.length;
+        for(int i = 0; i <= limit; i++) {
+            if(i > 0 && buffer.get(i - 1)!='\n')
+                continue;
+            int j = 0;
+            while(j < key.length && buffer.get(i + j)==key[j])
+                j++;
+            if(j==key.length) {
+                position = i + key.length;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set the read position to the character after the next occurrence of a character on the current line
+     *
+     * @param c The character
+     *
+     * @return True if the character was found. If false, the read position is unchanged
+     */
+    public boolean skipPast(final char c) {
+        for(int i = position; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if(b==c) {
+                position = i + 1;
+                return true;
+            }
+            if(b=='\n')
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Set the read position to the character after the last occurrence of a character in the file
+     *
+     * @param c The character
+     *
+     * @return True if the character was found. If false, the read position is unchanged
+     */
+    public boolean skipPastLast(final char c) {
+        for(int i = buffer.limit() - 1; i >= position; i--) {
+            if(buffer.get(i)==c) {
+                position = i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skip whitespace separated fields on the current line
+     *
+     * @param count The number of fields to skip
+     */
+    public void skipFields(final int count) {
+        for(int i = 0; i < count; i++) {
+            skipSpaces();
+            while(position < buffer.limit() && !isSpace(buffer.get(position)) && buffer.get(position)!='\n')
+                position++;
+        }
+    }
+
+    /**
+     * Parse the non-negative integer that follows the read position, skipping leading spaces
+     *
+     * @return The value, or -1 if the next field is not a number
+     */
+    public long nextLong() {
+        skipSpaces();
+        long value = -1;
+        byte b;
+        while(position < buffer.limit() && (b = buffer.get(position)) >= '0' && b <= '9') {
+            value = (value < 0 ? 0 : value * 10) + (b - '0');
+            position++;
+        }
+        return value;
+    }
+
+    /**
+     * Parse the non-negative decimal number that follows the read position, skipping leading spaces
+     *
+     * @return The value, or {@code Double.NaN} if the next field is not a number
+     */
+    public double nextDecimal() {
+        long whole = nextLong();
+        if(whole < 0)
+            return Double.NaN;
+        if(position >= buffer.limit() || buffer.get(position)!='.')
+            return whole;
+        position++;
+        long fraction = 0;
+        long scale = 1;
+        byte b;
+        while(position < buffer.limit() && (b = buffer.get(position)) >= '0' && b <= '9') {
+            if(scale < 1_000_000_000_000L) {
+                fraction = fraction * 10 + (b - '0');
+                scale *= 10;
+            }
+            position++;
+        }
+        return whole + (double)fraction / scale;
+    }
+
+    /**
+     * Set the read position to the start of the next line
+     *
+     * @return True if there is a next line. If false, the read position is at the end of the file
+     */
+    public boolean nextLine() {
+        while(position < buffer.limit() && buffer.get(position)!='\n')
+            position++;
+        if(position < buffer.limit())
+            position++;
+        return position < buffer.limit();
+    }
+
+    /**
+     * Scan the token that follows the read position, skipping leading spaces. A token ends at whitespace, a
+     * colon or the end of the line. The read position is set after the token, and after the colon if the
+     * token ends with one
+     *
+     * @return True if a token was scanned, false if the line has no more tokens
+     */
+    public boolean nextToken() {
+        skipSpaces();
+        tokenStart = position;
+        byte b;
+        while(position < buffer.limit() && !isSpace(b = buffer.get(position)) && b!=':' && b!='\n')
+            position++;
+        tokenEnd = position;
+        if(position < buffer.limit() && buffer.get(position)==':')
+            position++;
+        return tokenEnd > tokenStart;
+    }
+
+    /**
+     * Determine if the last token scanned by {@link #nextToken()} is equal to a key
+     *
+     * @param key The key, as ASCII bytes
+     *
+     * @return True if the token is equal to the key
+     */
+    public boolean tokenEquals(final byte[] key) {
+        if(key.length!=tokenEnd - tokenStart)
+            return false;
+        for(int i = 0; i < key.length; i++) {
+            if(buffer.get(tokenStart + i)!=key[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The last token scanned by {@link #nextToken()}
+     */
+    public String token() {
+        byte[] bytes = new byte[tokenEnd - tokenStart];
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(tokenStart + i);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private void skipSpaces() {
+        while(position < buffer.limit() && isSpace(buffer.get(position)))
+            position++;
+    }
+
+    private static boolean isSpace(final byte b) {
+        return b==' ' || b=='\t';
+    }
+
+    /**
+     * Close the file, it is opened again by the next read
+     */
+    public void close() {
+        if(channel!=null) {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                logger.trace("Closing {}", path, e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Get the ASCII bytes of a key
+     *
+     * @param key The key
+     *
+     * @return The bytes to pass to {@link #find(byte[])}
+     */
+    public static byte[] key(final String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+}
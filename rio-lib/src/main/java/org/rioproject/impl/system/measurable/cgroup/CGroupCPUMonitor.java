@@ -0,0 +1,81 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cgroup;
+
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.system.measurable.cpu.CpuUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Monitors the CPU utilization of the cgroup this process runs in, as a fraction of the cgroup's CPU quota.
+ * A utilization of 1 means the cgroup is using all of its quota, and is being throttled, even if the
+ * machine's CPUs are idle.
+ *
+ * <p>The number of processors reported is the number of CPUs the quota allows, rounded up.</p>
+ */
+public class CGroupCPUMonitor implements MeasurableMonitor<CpuUtilization> {
+    private final CGroupSampler sampler;
+    private final OperatingSystemMXBean opSysMBean = ManagementFactory.getOperatingSystemMXBean();
+    private String id;
+    private ThresholdValues tVals;
+
+    public CGroupCPUMonitor() {
+        this(CGroupSampler.getInstance());
+    }
+
+    /* For testing */
+    CGroupCPUMonitor(CGroupSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    public void setID(String id) {
+        this.id = id;
+    }
+
+    public void setThresholdValues(ThresholdValues tVals) {
+        this.tVals = tVals;
+    }
+
+    public CpuUtilization getMeasuredResource() {
+        return sampler.sample(this::measure);
+    }
+
+    private CpuUtilization measure(CGroupSampler sampler) {
+        double utilization = sampler.getCpuUtilization();
+        if(utilization < 0)
+            return new CpuUtilization(id, 0, tVals);
+        double userShare = sampler.getUserShare();
+        if(userShare < 0)
+            userShare = 1;
+        double limit = sampler.getCpuLimit();
+        int processors = limit > 0 ? (int)Math.ceil(limit) : Runtime.getRuntime().availableProcessors();
+        return new CpuUtilization(id,
+                                  utilization * (1 - userShare),
+                                  utilization * userShare,
+                                  Double.NaN,
+                                  Double.NaN,
+                                  new double[]{opSysMBean.getSystemLoadAverage()},
+                                  processors,
+                                  null,
+                                  tVals);
+    }
+
+    public void terminate() {
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cgroup;
+
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A <code>MeasurableCapability</code> for a resource of the cgroup this process runs in that has no
+ * host-wide equivalent: how often the cgroup's CPU quota is throttling it, the share of time tasks are
+ * stalled waiting for memory, and how much of the cgroup's process id limit is used. Each value is between 0
+ * and 1, so thresholds are expressed against the container's limits.
+ *
+ * <p>The following configuration entries are read, from the
+ * <tt>org.rioproject.system.measurable.cgroup.throttled</tt>,
+ * <tt>org.rioproject.system.measurable.cgroup.memoryPressure</tt> and
+ * <tt>org.rioproject.system.measurable.cgroup.pids</tt> components: <tt>enabled</tt>,
+ * <tt>thresholdValues</tt>, <tt>collectionSize</tt> and <tt>reportRate</tt>.</p>
+ */
+public class CGroupMeasurable extends MeasurableCapability {
+    static final String COMPONENT = "org.rioproject.system.measurable.cgroup";
+    static final Logger logger = LoggerFactory.getLogger(COMPONENT);
+    private final CGroupSampler sampler;
+    private final ToDoubleFunction<CGroupSampler> measure;
+    private volatile double value;
+
+    /**
+     * Create a CGroupMeasurable for the fraction of CPU quota periods in which the cgroup was throttled
+     *
+     * @param config Configuration object
+     * @param sampler The CGroupSampler to read
+     *
+     * @return A CGroupMeasurable with an id of {@link SystemWatchID#CPU_THROTTLED}
+     */
+    public static CGroupMeasurable throttled(Configuration config, CGroupSampler sampler) {
+        return new CGroupMeasurable(config,
+                                    SystemWatchID.CPU_THROTTLED,
+                                    COMPONENT+".throttled",
+                                    sampler,
+                                    CGroupSampler::getThrottledFraction);
+    }
+
+    /**
+     * Create a CGroupMeasurable for the share of time some tasks in the cgroup were stalled waiting for
+     * memory, over the last 10 seconds
+     *
+     * @param config Configuration object
+     * @param sampler The CGroupSampler to read
+     *
+     * @return A CGroupMeasurable with an id of {@link SystemWatchID#MEMORY_PRESSURE}
+     */
+    public static CGroupMeasurable memoryPressure(Configuration config, CGroupSampler sampler) {
+        return new CGroupMeasurable(config,
+                                    SystemWatchID.MEMORY_PRESSURE,
+                                    COMPONENT+".memoryPressure",
+                                    sampler,
+                                    s -> s.getMemoryPressure() / 100);
+    }
+
+    /**
+     * Create a CGroupMeasurable for the number of processes and threads in the cgroup, as a fraction of its
+     * limit
+     *
+     * @param config Configuration object
+     * @param sampler The CGroupSampler to read
+     *
+     * @return A CGroupMeasurable with an id of {@link SystemWatchID#PIDS}
+     */
+    public static CGroupMeasurable pids(Configuration config, CGroupSampler sampler) {
+        return new CGroupMeasurable(config,
+                                    SystemWatchID.PIDS,
+                                    COMPONENT+".pids",
+                                    sampler,
+                                    s -> s.getPidsLimit() > 0 && s.getPidsCount() >= 0
+                                         ? (double)s.getPidsCount() / s.getPidsLimit()
+                                         : -1);
+    }
+
+    CGroupMeasurable(Configuration config,
+                     String id,
+                     String component,
+                     CGroupSampler sampler,
+                     ToDoubleFunction<CGroupSampler> measure) {
+        super(id, component, config);
+        this.sampler = sampler;
+        this.measure = measure;
+        if(!isEnabled())
+            return;
+        try {
+            ThresholdValues tVals = (ThresholdValues)config.getEntry(component,
+                                                                     "thresholdValues",
+                                                                     ThresholdValues.class,
+                                                                     new ThresholdValues(0.0, 1.0));
+            setThresholdValues(tVals);
+            long reportRate = Config.getLongEntry(config,
+                                                  component,
+                                                  "reportRate",
+                                                  DEFAULT_PERIOD,     /* default */
+                                                  1000,               /* min */
+                                                  Integer.MAX_VALUE); /* max */
+            setPeriod(reportRate);
+        } catch (Throwable e) {
+            logger.error("Getting {} Configuration", id, e);
+        }
+    }
+
+    /**
+     * Get the last measured value
+     *
+     * @return The value, between 0 and 1
+     */
+    public double getUtilization() {
+        return value;
+    }
+
+    public void checkValue() {
+        double sampled = sampler.sample(s -> measure.applyAsDouble(s));
+        /* Not available, for example pressure information on cgroup v1 */
+        if(sampled < 0 || Double.isNaN(sampled))
+            return;
+        value = sampled;
+        addWatchRecord(new Calculable(getId(), value, System.currentTimeMillis()));
+        setLastMeasuredResource(new MeasuredResource(getId(), value, getThresholdValues()));
+    }
+}
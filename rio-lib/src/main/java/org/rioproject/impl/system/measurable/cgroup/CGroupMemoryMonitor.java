@@ -0,0 +1,73 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cgroup;
+
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.system.measurable.memory.SystemMemoryUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+/**
+ * Monitors the memory used by the cgroup this process runs in, against the cgroup's memory limit. Inactive
+ * file cache, which is reclaimed before the limit is enforced, is not counted as used.
+ */
+public class CGroupMemoryMonitor implements MeasurableMonitor<SystemMemoryUtilization> {
+    private static final double MB = 1024 * 1024;
+    private final CGroupSampler sampler;
+    private String id;
+    private ThresholdValues tVals;
+
+    public CGroupMemoryMonitor() {
+        this(CGroupSampler.getInstance());
+    }
+
+    /* For testing */
+    CGroupMemoryMonitor(CGroupSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    public void setID(String id) {
+        this.id = id;
+    }
+
+    public void setThresholdValues(ThresholdValues tVals) {
+        this.tVals = tVals;
+    }
+
+    public SystemMemoryUtilization getMeasuredResource() {
+        return sampler.sample(this::measure);
+    }
+
+    private SystemMemoryUtilization measure(CGroupSampler sampler) {
+        long limit = sampler.getMemoryLimit();
+        long used = sampler.getMemoryUsage();
+        if(limit <= 0 || used < 0)
+            return new SystemMemoryUtilization(id, tVals);
+        used = Math.min(used, limit);
+        double usedPercent = (double)used / limit;
+        return new SystemMemoryUtilization(id,
+                                           usedPercent,
+                                           limit / MB,
+                                           (limit - used) / MB,
+                                           used / MB,
+                                           1 - usedPercent,
+                                           usedPercent,
+                                           limit / 1024,
+                                           tVals);
+    }
+
+    public void terminate() {
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cgroup;
+
+import org.rioproject.impl.system.measurable.ProcFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples the resource limits and usage of the control group (cgroup) this process runs in, supporting both
+ * the cgroup v2 (unified) and the cgroup v1 layouts.
+ *
+ * <p>The cgroup of the process is found using {@code /proc/self/cgroup}, relative to the directory the
+ * cgroup file system is mounted on (normally {@code /sys/fs/cgroup}). If the cgroup directory is not found
+ * under the mount, as is the case in a container with its own cgroup namespace, the mount directory itself
+ * is used.</p>
+ *
+ * <p>The following are read:</p>
+ * <ul>
+ * <li>The CPU quota and period, the CPU time used, and the number of periods and time the cgroup was
+ * throttled (<tt>cpu.max</tt> and <tt>cpu.stat</tt>, or <tt>cpu.cfs_quota_us</tt>, <tt>cpu.cfs_period_us</tt>,
+ * <tt>cpu.stat</tt>, <tt>cpuacct.usage</tt> and <tt>cpuacct.stat</tt>)</li>
+ * <li>The memory limit and usage, excluding inactive file cache (<tt>memory.max</tt>, <tt>memory.current</tt>
+ * and <tt>memory.stat</tt>, or <tt>memory.limit_in_bytes</tt>, <tt>memory.usage_in_bytes</tt> and
+ * <tt>memory.stat</tt>)</li>
+ * <li>The CPU and memory pressure stall information (<tt>cpu.pressure</tt> and <tt>memory.pressure</tt>, v2
+ * only)</li>
+ * <li>The process id limit and count (<tt>pids.max</tt> and <tt>pids.current</tt>)</li>
+ * </ul>
+ *
+ * <p>Like the {@code LinuxProcSampler}, values are read using {@link #sample(Function)}, and the files are
+ * read again if the sample is older than the maximum age, so measurables checked in the same tick share a
+ * sample. Rates are computed over the interval between the last two samples.</p>
+ */
+public class CGroupSampler {
+    /** The default cgroup mount directory */
+    public static final String CGROUP = "/sys/fs/cgroup";
+    /** The default location of the cgroup membership of the process */
+    public static final String PROC_SELF_CGROUP = "/proc/self/cgroup";
+    /** The default maximum age of a sample that is shared, in milliseconds */
+    public static final long DEFAULT_MAX_AGE = 1000;
+    /* Memory limits at or above this are v1's representation of no limit */
+    private static final long UNLIMITED_MEMORY = 1L << 60;
+    private static final byte[] USAGE_USEC = ProcFile.key("usage_usec ");
+    private static final byte[] USER_USEC = ProcFile.key("user_usec ");
+    private static final byte[] SYSTEM_USEC = ProcFile.key("system_usec ");
+    private static final byte[] NR_PERIODS = ProcFile.key("nr_periods ");
+    private static final byte[] NR_THROTTLED = ProcFile.key("nr_throttled ");
+    private static final byte[] THROTTLED_USEC = ProcFile.key("throttled_usec ");
+    private static final byte[] THROTTLED_TIME = ProcFile.key("throttled_time ");
+    private static final byte[] USER = ProcFile.key("user ");
+    private static final byte[] SYSTEM = ProcFile.key("system ");
+    private static final byte[] INACTIVE_FILE = ProcFile.key("inactive_file ");
+    private static final byte[] TOTAL_INACTIVE_FILE = ProcFile.key("total_inactive_file ");
+    private static final byte[] SOME = ProcFile.key("some");
+    private static final Logger logger = LoggerFactory.getLogger(CGroupSampler.class);
+    private static CGroupSampler instance;
+    private final int version;
+    private final String description;
+    private final ProcFile cpuMax;
+    private final ProcFile cpuPeriod;
+    private final ProcFile cpuStat;
+    private final ProcFile cpuUsage;
+    private final ProcFile cpuAcctStat;
+    private final ProcFile cpuPressure;
+    private final ProcFile memoryLimit;
+    private final ProcFile memoryUsage;
+    private final ProcFile memoryStat;
+    private final ProcFile memoryPressure;
+    private final ProcFile pidsMax;
+    private final ProcFile pidsCurrent;
+    private final Counters current = new Counters();
+    private final Counters previous = new Counters();
+    private long cpuQuota = -1;
+    private long cpuQuotaPeriod = -1;
+    private long memoryLimitBytes = -1;
+    private long memoryUsageBytes = -1;
+    private long pidsLimit = -1;
+    private long pidsCount = -1;
+    private double cpuPressureAvg10 = Double.NaN;
+    private double memoryPressureAvg10 = Double.NaN;
+    private long sampleNanos;
+    private long samples;
+    private volatile long maxAge = DEFAULT_MAX_AGE;
+    private LongSupplier clock = System::nanoTime;
+
+    /**
+     * Create a CGroupSampler
+     *
+     * @param mount The directory the cgroup file system is mounted on, must not be null
+     * @param selfCGroup The location of the file that lists the cgroups of the process, for example
+     * {@code /proc/self/cgroup}, must not be null
+     */
+    public CGroupSampler(final String mount, final String selfCGroup) {
+        if(mount==null)
+            throw new IllegalArgumentException("mount is null");
+        if(selfCGroup==null)
+            throw new IllegalArgumentException("selfCGroup is null");
+        List<String> memberships = readMemberships(selfCGroup);
+        if(new File(mount, "cgroup.controllers").exists()) {
+            version = 2;
+            String dir = resolve(mount, null, memberships);
+            description = "cgroup v2 "+dir;
+            cpuMax = file(dir, "cpu.max");
+            cpuPeriod = null;
+            cpuStat = file(dir, "cpu.stat");
+            cpuUsage = null;
+            cpuAcctStat = null;
+            cpuPressure = file(dir, "cpu.pressure");
+            memoryLimit = file(dir, "memory.max");
+            memoryUsage = file(dir, "memory.current");
+            memoryStat = file(dir, "memory.stat");
+            memoryPressure = file(dir, "memory.pressure");
+            pidsMax = file(dir, "pids.max");
+            pidsCurrent = file(dir, "pids.current");
+        } else if(new File(mount, "cpu").isDirectory() || new File(mount, "memory").isDirectory()) {
+            version = 1;
+            String cpu = resolve(mount, "cpu", memberships);
+            String cpuAcct = resolve(mount, "cpuacct", memberships);
+            String memory = resolve(mount, "memory", memberships);
+            String pids = resolve(mount, "pids", memberships);
+            description = "cgroup v1 "+cpu+", "+memory;
+            cpuMax = file(cpu, "cpu.cfs_quota_us");
+            cpuPeriod = file(cpu, "cpu.cfs_period_us");
+            cpuStat = file(cpu, "cpu.stat");
+            cpuUsage = file(cpuAcct, "cpuacct.usage");
+            cpuAcctStat = file(cpuAcct, "cpuacct.stat");
+            cpuPressure = null;
+            memoryLimit = file(memory, "memory.limit_in_bytes");
+            memoryUsage = file(memory, "memory.usage_in_bytes");
+            memoryStat = file(memory, "memory.stat");
+            memoryPressure = null;
+            pidsMax = file(pids, "pids.max");
+            pidsCurrent = file(pids, "pids.current");
+        } else {
+            version = 0;
+            description = "no cgroup";
+            cpuMax = cpuPeriod = cpuStat = cpuUsage = cpuAcctStat = cpuPressure = null;
+            memoryLimit = memoryUsage = memoryStat = memoryPressure = pidsMax = pidsCurrent = null;
+        }
+    }
+
+    /**
+     * Get the CGroupSampler for the cgroup of this process, shared by the measurables of the process
+     *
+     * @return The shared CGroupSampler. If there is no cgroup file system, the sampler reports no limits
+     */
+    public static synchronized CGroupSampler getInstance() {
+        if(instance==null) {
+            instance = new CGroupSampler(CGROUP, PROC_SELF_CGROUP);
+            logger.debug("Sampling {}", instance.description);
+        }
+        return instance;
+    }
+
+    /*
+     * Find the directory of the cgroup the process belongs to for a controller, or for the unified hierarchy
+     * if the controller is null
+     */
+    private static String resolve(final String mount, final String controller, final List<String> memberships) {
+        String base = mount;
+        String path = null;
+        for(String membership : memberships) {
+            /* hierarchy-ID:controller-list:cgroup-path */
+            int first = membership.indexOf(':');
+            int second = membership.indexOf(':', first + 1);
+            if(first < 0 || second < 0)
+                continue;
+            String controllers = membership.substring(first + 1, second);
+            if(controller==null) {
+                if(controllers.isEmpty()) {
+                    path = membership.substring(second + 1);
+                    break;
+                }
+            } else {
+                for(String c : controllers.split(",")) {
+                    if(c.equals(controller)) {
+                        path = membership.substring(second + 1);
+                        /* Controllers mounted together, such as cpu,cpuacct */
+                        base = new File(mount, controllers).isDirectory()
+                               ? mount+File.separator+controllers
+                               : mount+File.separator+controller;
+                        break;
+                    }
+                }
+                if(path!=null)
+                    break;
+            }
+        }
+        if(controller!=null && path==null)
+            base = mount+File.separator+controller;
+        if(path!=null && !path.equals("/")) {
+            File dir = new File(base, path);
+            if(dir.isDirectory())
+                return dir.getPath();
+        }
+        return base;
+    }
+
+    private static List<String> readMemberships(final String selfCGroup) {
+        try {
+            return Files.readAllLines(new File(selfCGroup).toPath(), StandardCharsets.US_ASCII);
+        } catch(IOException e) {
+            logger.trace("Unable to read {}", selfCGroup, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private static ProcFile file(final String dir, final String name) {
+        return new ProcFile(dir+File.separator+name);
+    }
+
+    /**
+     * @return 2 for the unified hierarchy, 1 for the v1 hierarchies, 0 if no cgroup file system was found
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the maximum age of a sample that is shared
+     *
+     * @param maxAge The maximum age in milliseconds. If 0, the files are read for every call to
+     * {@link #sample(Function)}
+     */
+    public void setMaxAge(final long maxAge) {
+        if(maxAge < 0)
+            throw new IllegalArgumentException("maxAge must not be negative");
+        this.maxAge = maxAge;
+    }
+
+    /* For testing */
+    synchronized void setClock(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Provide the values of the current sample, reading the files first if the sample is older than the
+     * maximum age
+     *
+     * @param reader Reads values from this sampler. The values do not change while the reader runs
+     * @param <T> The type the reader returns
+     *
+     * @return The value returned by the reader
+     */
+    public synchronized <T> T sample(final Function<? super CGroupSampler, T> reader) {
+        if(samples==0 || clock.getAsLong() - sampleNanos >= maxAge * 1000000)
+            refresh();
+        return reader.apply(this);
+    }
+
+    /**
+     * Read every file
+     */
+    public synchronized void refresh() {
+        previous.copy(current);
+        current.clear();
+        current.nanos = clock.getAsLong();
+        sampleNanos = current.nanos;
+        samples++;
+        if(version==0)
+            return;
+
+        cpuQuota = -1;
+        cpuQuotaPeriod = -1;
+        if(cpuMax.read()) {
+            cpuQuota = cpuMax.nextLong();
+            if(version==2) {
+                if(cpuQuota < 0)
+                    cpuMax.skipFields(1);
+                cpuQuotaPeriod = cpuMax.nextLong();
+            }
+        }
+        if(version==1 && cpuPeriod.read())
+            cpuQuotaPeriod = cpuPeriod.nextLong();
+        if(cpuQuotaPeriod <= 0)
+            cpuQuota = -1;
+
+        if(cpuStat.read()) {
+            current.periods = find(cpuStat, NR_PERIODS);
+            current.throttledPeriods = find(cpuStat, NR_THROTTLED);
+            if(version==2) {
+                current.usage = find(cpuStat, USAGE_USEC);
+                current.user = find(cpuStat, USER_USEC);
+                current.system = find(cpuStat, SYSTEM_USEC);
+                current.throttled = find(cpuStat, THROTTLED_USEC);
+            } else {
+                long throttled = find(cpuStat, THROTTLED_TIME);
+                current.throttled = throttled < 0 ? -1 : throttled / 1000;
+            }
+        }
+        if(version==1) {
+            if(cpuUsage.read()) {
+                long usage = cpuUsage.nextLong();
+                current.usage = usage < 0 ? -1 : usage / 1000;
+            }
+            /* In clock ticks, only the ratio of user and system time is used */
+            if(cpuAcctStat.read()) {
+                current.user = find(cpuAcctStat, USER);
+                current.system = find(cpuAcctStat, SYSTEM);
+            }
+        }
+
+        memoryLimitBytes = memoryLimit.read() ? memoryLimit.nextLong() : -1;
+        if(memoryLimitBytes >= UNLIMITED_MEMORY)
+            memoryLimitBytes = -1;
+        memoryUsageBytes = memoryUsage.read() ? memoryUsage.nextLong() : -1;
+        if(memoryUsageBytes >= 0 && memoryStat.read()) {
+            long inactive = find(memoryStat, version==2 ? INACTIVE_FILE : TOTAL_INACTIVE_FILE);
+            if(inactive > 0)
+                memoryUsageBytes = Math.max(0, memoryUsageBytes - inactive);
+        }
+
+        cpuPressureAvg10 = readPressure(cpuPressure);
+        memoryPressureAvg10 = readPressure(memoryPressure);
+
+        pidsLimit = pidsMax.read() ? pidsMax.nextLong() : -1;
+        pidsCount = pidsCurrent.read() ? pidsCurrent.nextLong() : -1;
+    }
+
+    private static long find(final ProcFile file, final byte[] key) {
+        return file.find(key) ? file.nextLong() : -1;
+    }
+
+    private static double readPressure(final ProcFile file) {
+        if(file==null || !file.read() || !file.find(SOME) || !file.skipPast('='))
+            return Double.NaN;
+        return file.nextDecimal();
+    }
+
+    /**
+     * @return True if the cgroup has a CPU quota
+     */
+    public synchronized boolean isCpuLimited() {
+        return cpuQuota > 0;
+    }
+
+    /**
+     * @return The number of CPUs the cgroup's quota allows, or -1 if there is no quota
+     */
+    public synchronized double getCpuLimit() {
+        return cpuQuota > 0 ? (double)cpuQuota / cpuQuotaPeriod : -1;
+    }
+
+    /**
+     * Get the CPU utilization of the cgroup between the last two samples
+     *
+     * @return The CPU time used as a fraction of the time allowed by the quota, or of the time of all
+     * processors if there is no quota, between 0 and 1. If not available, -1
+     */
+    public synchronized double getCpuUtilization() {
+        long used = delta(current.usage, previous.usage);
+        long elapsed = (current.nanos - previous.nanos) / 1000;
+        if(used < 0 || elapsed <= 0)
+            return -1;
+        double cpus = cpuQuota > 0 ? (double)cpuQuota / cpuQuotaPeriod : Runtime.getRuntime().availableProcessors();
+        return Math.min(1, used / (elapsed * cpus));
+    }
+
+    /**
+     * Get the share of the CPU utilization that was spent in user mode between the last two samples
+     *
+     * @return The share, between 0 and 1, or -1 if not available
+     */
+    public synchronized double getUserShare() {
+        long user = delta(current.user, previous.user);
+        long system = delta(current.system, previous.system);
+        if(user < 0 || system < 0 || user + system==0)
+            return -1;
+        return (double)user / (user + system);
+    }
+
+    /**
+     * Get the fraction of enforcement periods in which the cgroup was throttled, between the last two samples
+     *
+     * @return The fraction, between 0 and 1. If no periods elapsed, 0. If not available, -1
+     */
+    public synchronized double getThrottledFraction() {
+        long periods = delta(current.periods, previous.periods);
+        long throttled = delta(current.throttledPeriods, previous.throttledPeriods);
+        if(periods < 0 || throttled < 0)
+            return -1;
+        return periods==0 ? 0 : Math.min(1, (double)throttled / periods);
+    }
+
+    /**
+     * Get the time the cgroup was throttled between the last two samples
+     *
+     * @return The time throttled in microseconds, or -1 if not available
+     */
+    public synchronized long getThrottledTime() {
+        return delta(current.throttled, previous.throttled);
+    }
+
+    /**
+     * @return True if the cgroup has a memory limit
+     */
+    public synchronized boolean isMemoryLimited() {
+        return memoryLimitBytes > 0;
+    }
+
+    /**
+     * @return The memory limit in bytes, or -1 if there is no limit
+     */
+    public synchronized long getMemoryLimit() {
+        return memoryLimitBytes;
+    }
+
+    /**
+     * @return The memory used by the cgroup in bytes, excluding inactive file cache, or -1 if not available
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsageBytes;
+    }
+
+    /**
+     * @return The share of time some tasks were stalled on CPU over the last 10 seconds, as a percentage, or
+     * {@code Double.NaN} if not available
+     */
+    public synchronized double getCpuPressure() {
+        return cpuPressureAvg10;
+    }
+
+    /**
+     * @return The share of time some tasks were stalled on memory over the last 10 seconds, as a percentage,
+     * or {@code Double.NaN} if not available
+     */
+    public synchronized double getMemoryPressure() {
+        return memoryPressureAvg10;
+    }
+
+    /**
+     * @return The maximum number of processes and threads in the cgroup, or -1 if there is no limit
+     */
+    public synchronized long getPidsLimit() {
+        return pidsLimit;
+    }
+
+    /**
+     * @return The number of processes and threads in the cgroup, or -1 if not available
+     */
+    public synchronized long getPidsCount() {
+        return pidsCount;
+    }
+
+    /**
+     * Close the files, they are opened again by the next sample
+     */
+    public synchronized void close() {
+        for(ProcFile file : new ProcFile[]{cpuMax, cpuPeriod, cpuStat, cpuUsage, cpuAcctStat, cpuPressure,
+                                           memoryLimit, memoryUsage, memoryStat, memoryPressure,
+                                           pidsMax, pidsCurrent}) {
+            if(file!=null)
+                file.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private static long delta(final long current, final long previous) {
+        if(current < 0 || previous < 0)
+            return -1;
+        return Math.max(0, current - previous);
+    }
+
+    /*
+     * The cumulative counters of a sample
+     */
+    private static class Counters {
+        long nanos;
+        long usage = -1;
+        long user = -1;
+        long system = -1;
+        long periods = -1;
+        long throttledPeriods = -1;
+        long throttled = -1;
+
+        void clear() {
+            usage = user = system = periods = throttledPeriods = throttled = -1;
+        }
+
+        void copy(final Counters other) {
+            nanos = other.nanos;
+            usage = other.usage;
+            user = other.user;
+            system = other.system;
+            periods = other.periods;
+            throttledPeriods = other.throttledPeriods;
+            throttled = other.throttled;
+        }
+    }
+}
@@ -19,6 +19,9 @@ import com.sun.jini.config.Config;
 import net.jini.config.Configuration;
 import org.rioproject.costmodel.ResourceCostModel;
 import org.rioproject.costmodel.ZeroCostModel;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.impl.system.measurable.cgroup.CGroupCPUMonitor;
+import org.rioproject.impl.system.measurable.cgroup.CGroupSampler;
 import org.rioproject.impl.system.measurable.MeasurableCapability;
 import org.rioproject.impl.system.measurable.MeasurableMonitor;
 import org.rioproject.system.MeasuredResource;
@@ -31,7 +34,6 @@ import org.rioproject.watch.ThresholdValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.management.ManagementFactory;
 
 /**
  * The <code>CPU</code> object is a <code>MeasurableCapability</code> which
@@ -103,14 +105,21 @@ public class CPU extends MeasurableCapability {
 
             MeasurableMonitor defaultMonitor;
             if(monitorJVM) {
-                ProcessCPUHandler cpuHandler = new ProcessCPUHandler();
-                cpuHandler.setMXBean(ManagementFactory.getOperatingSystemMXBean());
-                defaultMonitor = cpuHandler;
+                if(LinuxProcSampler.isAvailable()) {
+                    defaultMonitor = new LinuxProcessCPUMonitor();
+                } else {
+                    defaultMonitor = new ProcessCPUHandler();
+                }
             } else {
-                SystemCPUHandler cpuHandler = new SystemCPUHandler();
-                cpuHandler.setID(id);
-                cpuHandler.setThresholdValues(tVals);
-                defaultMonitor = cpuHandler;
+                /* When running under a CPU quota, measure utilization against the quota */
+                if(CGroupSampler.getInstance().sample(CGroupSampler::isCpuLimited))
+                    defaultMonitor = new CGroupCPUMonitor();
+                else if(LinuxProcSampler.isAvailable())
+                    defaultMonitor = new LinuxCPUMonitor();
+                else
+                    defaultMonitor = new SystemCPUHandler();
+                defaultMonitor.setID(id);
+                defaultMonitor.setThresholdValues(tVals);
             }
 
             MeasurableMonitor monitor =
@@ -0,0 +1,120 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cpu;
+
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdValues;
+
+/**
+ * A <code>MeasurableCapability</code> for the fraction of time the machine's
+ * CPUs spend in a single state, read from {@code /proc/stat} on Linux by the
+ * shared {@link LinuxProcSampler}. It is
+ * used to measure the I/O wait and steal time, which are not counted as
+ * utilization by the {@link CPU} capability, so that thresholds can be
+ * declared for them separately.
+ *
+ * <p>The following configuration entries are read, from the
+ * <tt>org.rioproject.system.measurable.cpu.iowait</tt> and
+ * <tt>org.rioproject.system.measurable.cpu.steal</tt> components:
+ * <tt>enabled</tt>, <tt>thresholdValues</tt>, <tt>collectionSize</tt>
+ * and <tt>reportRate</tt>.
+ */
+public class CPUState extends MeasurableCapability {
+    private final LinuxProcSampler sampler;
+    private final LinuxProcSampler.Interval interval;
+    private final int state;
+    private volatile double value;
+
+    /**
+     * Create a CPUState for the I/O wait time
+     *
+     * @param config Configuration object
+     *
+     * @return A CPUState with an id of {@link SystemWatchID#CPU_IOWAIT}
+     */
+    public static CPUState ioWait(Configuration config) {
+        return new CPUState(config,
+                            SystemWatchID.CPU_IOWAIT,
+                            CPU.COMPONENT+".iowait",
+                            ProcStat.IOWAIT,
+                            LinuxProcSampler.getInstance());
+    }
+
+    /**
+     * Create a CPUState for the time stolen by the hypervisor
+     *
+     * @param config Configuration object
+     *
+     * @return A CPUState with an id of {@link SystemWatchID#CPU_STEAL}
+     */
+    public static CPUState steal(Configuration config) {
+        return new CPUState(config,
+                            SystemWatchID.CPU_STEAL,
+                            CPU.COMPONENT+".steal",
+                            ProcStat.STEAL,
+                            LinuxProcSampler.getInstance());
+    }
+
+    CPUState(Configuration config, String id, String component, int state, LinuxProcSampler sampler) {
+        super(id, component, config);
+        this.sampler = sampler;
+        this.interval = sampler.createInterval();
+        this.state = state;
+        if(!isEnabled())
+            return;
+        try {
+            ThresholdValues tVals = (ThresholdValues)config.getEntry(component,
+                                                                     "thresholdValues",
+                                                                     ThresholdValues.class,
+                                                                     new ThresholdValues(0.0, 1.0));
+            setThresholdValues(tVals);
+            long reportRate = Config.getLongEntry(config,
+                                                  component,
+                                                  "reportRate",
+                                                  DEFAULT_PERIOD,     /* default */
+                                                  1000,               /* min */
+                                                  Integer.MAX_VALUE); /* max */
+            setPeriod(reportRate);
+        } catch (Throwable e) {
+            CPU.logger.error("Getting {} Configuration", id, e);
+        }
+    }
+
+    /**
+     * Get the fraction of time spent in the state
+     *
+     * @return The fraction of time spent in the state since the previous check
+     */
+    public double getUtilization() {
+        return value;
+    }
+
+    public void checkValue() {
+        Double sampled = sampler.sample(interval,
+                                        i -> i.isStatSampled() ? i.getProcStat().getFraction(0, state) : null);
+        if(sampled==null)
+            return;
+        value = sampled;
+        addWatchRecord(new Calculable(getId(), value, System.currentTimeMillis()));
+        setLastMeasuredResource(new MeasuredResource(getId(), value, getThresholdValues()));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cpu;
+
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.system.measurable.cpu.CpuUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+/**
+ * Monitors system CPU utilization on Linux using {@code /proc/stat}.
+ *
+ * <p>The measured {@link CpuUtilization} has the aggregate user (including nice) and system (including irq
+ * and softirq) utilization, with the I/O wait and steal time reported separately and not counted as
+ * utilization. The utilization of each processor is available from {@link CpuUtilization#getCores()}.</p>
+ *
+ * <p>The counters are read by the shared {@link LinuxProcSampler}, utilization is computed over the interval
+ * since the previous measurement, the first measurement is computed since boot.</p>
+ */
+public class LinuxCPUMonitor implements MeasurableMonitor<CpuUtilization> {
+    private final LinuxProcSampler sampler;
+    private final LinuxProcSampler.Interval interval;
+    private String id;
+    private ThresholdValues tVals;
+    private String[] coreIDs = new String[0];
+
+    public LinuxCPUMonitor() {
+        this(LinuxProcSampler.getInstance());
+    }
+
+    /* For testing */
+    LinuxCPUMonitor(LinuxProcSampler sampler) {
+        this.sampler = sampler;
+        this.interval = sampler.createInterval();
+    }
+
+    public void setID(String id) {
+        this.id = id;
+        coreIDs = new String[0];
+    }
+
+    public void setThresholdValues(ThresholdValues tVals) {
+        this.tVals = tVals;
+    }
+
+    public CpuUtilization getMeasuredResource() {
+        return sampler.sample(interval, this::measure);
+    }
+
+    private CpuUtilization measure(LinuxProcSampler.Interval interval) {
+        ProcStat procStat = interval.getProcStat();
+        int cpus = procStat.getCpuCount();
+        if(!interval.isStatSampled() || cpus==0)
+            return new CpuUtilization(id, 0, tVals);
+        if(coreIDs.length != cpus - 1) {
+            coreIDs = new String[cpus - 1];
+            for(int i = 0; i < coreIDs.length; i++)
+                coreIDs[i] = id+"."+i;
+        }
+        CpuUtilization[] cores = new CpuUtilization[cpus - 1];
+        for(int i = 0; i < cores.length; i++)
+            cores[i] = create(procStat, coreIDs[i], i + 1, null, 1, null);
+        double load = sampler.getLoadAverage(0);
+        return create(procStat,
+                      id,
+                      0,
+                      new double[]{Double.isNaN(load) ? -1 : load},
+                      Runtime.getRuntime().availableProcessors(),
+                      cores);
+    }
+
+    private CpuUtilization create(ProcStat procStat,
+                                  String identifier,
+                                  int cpu,
+                                  double[] load,
+                                  int processors,
+                                  CpuUtilization[] cores) {
+        double user = procStat.getFraction(cpu, ProcStat.USER) + procStat.getFraction(cpu, ProcStat.NICE);
+        double system = procStat.getFraction(cpu, ProcStat.SYSTEM) +
+                        procStat.getFraction(cpu, ProcStat.IRQ) +
+                        procStat.getFraction(cpu, ProcStat.SOFTIRQ);
+        return new CpuUtilization(identifier,
+                                  system,
+                                  user,
+                                  procStat.getFraction(cpu, ProcStat.IOWAIT),
+                                  procStat.getFraction(cpu, ProcStat.STEAL),
+                                  load,
+                                  processors,
+                                  cores,
+                                  tVals);
+    }
+
+    public void terminate() {
+    }
+}
@@ -28,9 +28,12 @@ import java.io.IOException;
  * Handles getting the CPU states for Linux by using the /proc filesystem
  *
  * @author Dennis Reedy
+ * @deprecated Use {@link LinuxCPUMonitor}, which also reports the I/O wait,
+ * steal and per processor utilization
  */
+@Deprecated
 public class LinuxHandler implements MeasurableMonitor<CpuUtilization> {
-    private static double[] knownStats = new double[]{0.0, 0.0, 0.0, 0.0};
+    private final double[] knownStats = new double[]{0.0, 0.0, 0.0, 0.0};
     private static final String PROC_STAT = "/proc/stat";
     private String id;
     private ThresholdValues tVals;
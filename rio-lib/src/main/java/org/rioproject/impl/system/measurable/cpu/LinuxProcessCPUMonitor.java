@@ -0,0 +1,61 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cpu;
+
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.system.measurable.cpu.ProcessCpuUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+/**
+ * Monitors the CPU utilization of this process on Linux using {@code /proc/self/stat}, read by the shared
+ * {@link LinuxProcSampler}.
+ *
+ * <p>Like {@link ProcessCPUHandler}, the utilization is the fraction of the time of all CPUs used by the
+ * process, computed over the interval since the previous measurement. The first measurement is 0.</p>
+ */
+public class LinuxProcessCPUMonitor implements MeasurableMonitor<ProcessCpuUtilization> {
+    private final LinuxProcSampler sampler;
+    private final LinuxProcSampler.Interval interval;
+    private String id;
+    private ThresholdValues tVals;
+
+    public LinuxProcessCPUMonitor() {
+        this(LinuxProcSampler.getInstance());
+    }
+
+    /* For testing */
+    LinuxProcessCPUMonitor(LinuxProcSampler sampler) {
+        this.sampler = sampler;
+        this.interval = sampler.createInterval();
+    }
+
+    public void setID(String id) {
+        this.id = id;
+    }
+
+    public void setThresholdValues(ThresholdValues tVals) {
+        this.tVals = tVals;
+    }
+
+    public ProcessCpuUtilization getMeasuredResource() {
+        double utilization = sampler.sample(interval, LinuxProcSampler.Interval::getProcessCpuUtilization);
+        return new ProcessCpuUtilization(id, Math.max(0, utilization), tVals);
+    }
+
+    public void terminate() {
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cpu;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the CPU time counters from {@code /proc/stat}, and computes the fraction of time each CPU spent in
+ * each state between two samples.
+ *
+ * <p>The file is kept open and read from the start into a reused direct {@code ByteBuffer}, and the
+ * counters are parsed in place. Only the leading <tt>cpu</tt> lines are read, the rest of the file (which
+ * includes the long <tt>intr</tt> line) is not. Sampling does not allocate once the buffer and counter
+ * arrays have been sized by the first sample.</p>
+ *
+ * <p>Index 0 is the aggregate of all CPUs, index <i>n</i>+1 is <tt>cpu<i>n</i></tt>. A CPU that is offline
+ * has no line, and reports zero for every state.</p>
+ *
+ * <p>Instances are thread safe, but each keeps its own previous sample, so the fractions are computed
+ * over the interval between calls to {@link #sample()} on the same instance. A ProcStat can also take its
+ * samples from another ProcStat using {@link #sample(ProcStat)}, so several consumers can compute fractions
+ * over their own intervals while the file is read once.</p>
+ */
+public class ProcStat {
+    /** The default location of the file */
+    public static final String PROC_STAT = "/proc/stat";
+    /** Time spent in user mode */
+    public static final int USER = 0;
+    /** Time spent in user mode with low priority */
+    public static final int NICE = 1;
+    /** Time spent in system mode */
+    public static final int SYSTEM = 2;
+    /** Time spent idle */
+    public static final int IDLE = 3;
+    /** Time spent idle, waiting for I/O to complete */
+    public static final int IOWAIT = 4;
+    /** Time spent servicing interrupts */
+    public static final int IRQ = 5;
+    /** Time spent servicing softirqs */
+    public static final int SOFTIRQ = 6;
+    /** Time spent in other operating systems when running in a virtualized environment */
+    public static final int STEAL = 7;
+    /* Guest time is already included in user time, and is not counted */
+    static final int STATES = 8;
+    private final String path;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    private long[] current = new long[0];
+    private long[] previous = new long[0];
+    private int cpus;
+    private long samples;
+    private static final Logger logger = LoggerFactory.getLogger(ProcStat.class);
+
+    /**
+     * Create a ProcStat that reads {@code /proc/stat}
+     */
+    public ProcStat() {
+        this(PROC_STAT);
+    }
+
+    /**
+     * Create a ProcStat
+     *
+     * @param path The location of the file to read, must not be null
+     */
+    public ProcStat(final String path) {
+        if(path==null)
+            throw new IllegalArgumentException("path is null");
+        this.path = path;
+    }
+
+    /**
+     * Read the counters. After the first sample, the fractions are computed since boot, after that they are
+     * computed since the previous sample.
+     *
+     * @return True if the counters were read, false if the file could not be read
+     */
+    public synchronized boolean sample() {
+        try {
+            read();
+        } catch(IOException e) {
+            if(samples==0 || logger.isDebugEnabled())
+                logger.warn("Unable to read {}: {}", path, e.toString());
+            close();
+            return false;
+        }
+        long[] swap = previous;
+        previous = current;
+        current = swap;
+        parse();
+        samples++;
+        return true;
+    }
+
+    /**
+     * Take the counters of the current sample of another ProcStat as the next sample of this ProcStat,
+     * without reading the file. The fractions are then computed since the previous sample of this ProcStat.
+     *
+     * @param source The ProcStat to take the counters from
+     */
+    public synchronized void sample(final ProcStat source) {
+        synchronized(source) {
+            long[] swap = previous;
+            previous = current;
+            current = swap;
+            int length = source.cpus * STATES;
+            if(current.length < length)
+                current = new long[length];
+            System.arraycopy(source.current, 0, current, 0, length);
+            Arrays.fill(current, length, current.length, 0);
+            cpus = source.cpus;
+            samples++;
+        }
+    }
+
+    /**
+     * @return The number of CPU entries, including the aggregate at index 0
+     */
+    public synchronized int getCpuCount() {
+        return cpus;
+    }
+
+    /**
+     * Get the fraction of time a CPU spent in a state
+     *
+     * @param cpu The CPU index, 0 for the aggregate of all CPUs
+     * @param state The state, for example {@link #IOWAIT}
+     *
+     * @return The fraction of time, between 0 and 1, spent in the state between the last two samples. If no
+     * time elapsed, or the CPU is offline, 0
+     */
+    public synchronized double getFraction(final int cpu, final int state) {
+        if(state < 0 || state >= STATES)
+            throw new IndexOutOfBoundsException("state "+state);
+        long total = getTicks(cpu);
+        return total > 0 ? (double)delta(cpu * STATES + state) / total : 0;
+    }
+
+    /**
+     * Get the time that elapsed on a CPU between the last two samples
+     *
+     * @param cpu The CPU index, 0 for the aggregate of all CPUs
+     *
+     * @return The elapsed time, in clock ticks, summed over every state
+     */
+    public synchronized long getTicks(final int cpu) {
+        if(cpu < 0 || cpu >= cpus)
+            throw new IndexOutOfBoundsException("cpu "+cpu+", count "+cpus);
+        int offset = cpu * STATES;
+        long total = 0;
+        for(int i = 0; i < STATES; i++)
+            total += delta(offset + i);
+        return total;
+    }
+
+    private long delta(final int index) {
+        long last = index < previous.length ? previous[index] : 0;
+        /* A CPU that went offline and came back restarts its counters */
+        return Math.max(0, current[index] - last);
+    }
+
+    /**
+     * Close the file
+     */
+    public synchronized void close() {
+        if(channel!=null) {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                logger.trace("Closing {}", path, e);
+            }
+            channel = null;
+        }
+    }
+
+    /*
+     * Read from the start of the file until the first line that is not a cpu line
+     */
+    private void read() throws IOException {
+        if(channel==null)
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        buffer.clear();
+        int scanned = 0;
+        while(true) {
+            if(!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            int read = channel.read(buffer, buffer.position());
+            if(read < 0)
+                break;
+            int limit = buffer.position();
+            boolean done = false;
+            for(; scanned < limit - 1; scanned++) {
+                if(buffer.get(scanned)=='\n' && buffer.get(scanned + 1)!='c') {
+                    done = true;
+                    break;
+                }
+            }
+            if(done)
+                break;
+        }
+        buffer.flip();
+    }
+
+    private void parse() {
+        int limit = buffer.limit();
+        int position = 0;
+        int count = 0;
+        if(current.length > 0)
+            Arrays.fill(current, 0);
+        while(position + 3 < limit
+              && buffer.get(position)=='c' && buffer.get(position + 1)=='p' && buffer.get(position + 2)=='u') {
+            position += 3;
+            int index = 0;
+            if(buffer.get(position)!=' ') {
+                int n = 0;
+                byte b;
+                while(position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+                    n = n * 10 + (b - '0');
+                    position++;
+                }
+                index = n + 1;
+            }
+            ensureCapacity(index + 1);
+            count = Math.max(count, index + 1);
+            int offset = index * STATES;
+            for(int state = 0; state < STATES; state++) {
+                while(position < limit && buffer.get(position)==' ')
+                    position++;
+                byte b;
+                if(position >= limit || (b = buffer.get(position)) < '0' || b > '9')
+                    break;
+                long value = 0;
+                while(position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    position++;
+                }
+                current[offset + state] = value;
+            }
+            while(position < limit && buffer.get(position)!='\n')
+                position++;
+            position++;
+        }
+        cpus = count;
+    }
+
+    private void ensureCapacity(final int count) {
+        int length = count * STATES;
+        if(current.length < length) {
+            current = Arrays.copyOf(current, length);
+        }
+    }
+}
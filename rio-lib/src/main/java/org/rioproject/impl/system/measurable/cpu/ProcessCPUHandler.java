@@ -16,18 +16,19 @@
 package org.rioproject.impl.system.measurable.cpu;
 
 import org.rioproject.impl.system.measurable.MXBeanMonitor;
+import org.rioproject.impl.system.measurable.jvm.JVMSampler;
 import org.rioproject.system.MeasuredResource;
 import org.rioproject.system.measurable.cpu.ProcessCpuUtilization;
 import org.rioproject.watch.ThresholdValues;
 
-import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 
 /**
- * CPU monitor that obtains process CPU utilization. This utility uses either
- * Hyperic SIGAR, or {@link com.sun.management.OperatingSystemMXBean} to obtain
- * process CPU time. Hyperic SIGAR is preferred. If not available
- * the <tt>com.sun.management.OperatingSystemMXBean</tt> will be used.
+ * CPU monitor that obtains process CPU utilization. If an
+ * {@link OperatingSystemMXBean} has been set, for example one of a forked
+ * service's virtual machine, the <tt>com.sun.management.OperatingSystemMXBean</tt>
+ * process CPU load is used. Otherwise the utilization of this process is read
+ * from the shared {@link JVMSampler}.
  *
  * @author Dennis Reedy
  */
@@ -63,17 +64,10 @@ public class ProcessCPUHandler implements MXBeanMonitor<OperatingSystemMXBean> {
     }
 
     private double getUtilizationUsingJMX() {
-        checkMXBean();
         if (osMBean == null) {
-            return 0;
+            /* Not available until the second sample */
+            return Math.max(0, JVMSampler.getInstance().sample(JVMSampler::getProcessCpuUtilization));
         }
         return osMBean.getProcessCpuLoad();
     }
-
-    private void checkMXBean() {
-        if (osMBean == null) {
-            OperatingSystemMXBean mxBean = ManagementFactory.getOperatingSystemMXBean();
-            setMXBean(mxBean);
-        }
-    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.disk;
+
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import org.rioproject.costmodel.ResourceCostModel;
+import org.rioproject.costmodel.ZeroCostModel;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.system.measurable.disk.DiskIOUtilization;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>DiskIO</code> object is a <code>MeasurableCapability</code> which
+ * monitors a ComputeResource's disk I/O. Its value is the utilization of the
+ * busiest disk, the fraction of time the disk had I/O in progress, the rates
+ * and latency of each disk are available from the {@link DiskIOUtilization}.
+ *
+ * <p>The following configuration entries are read, from the
+ * <tt>org.rioproject.system.measurable.diskIO</tt> component:
+ * <tt>enabled</tt>, <tt>thresholdValues</tt>, <tt>resourceCost</tt>,
+ * <tt>collectionSize</tt>, <tt>reportRate</tt>, <tt>devices</tt> (the names
+ * of the disks to monitor, by default all whole disks) and
+ * <tt>diskIOMonitor</tt>.
+ */
+public class DiskIO extends MeasurableCapability {
+    /** Component for Configuration and Logging */
+    static final String COMPONENT = "org.rioproject.system.measurable.diskIO";
+    /** A Logger for this class */
+    static Logger logger = LoggerFactory.getLogger(COMPONENT);
+
+    /**
+     * Construct a new DiskIO object
+     *
+     * @param config Configuration object
+     */
+    public DiskIO(Configuration config) {
+        this(config, null);
+    }
+
+    /* For testing */
+    DiskIO(Configuration config, MeasurableMonitor defaultMonitor) {
+        super(SystemWatchID.DISK_IO, COMPONENT, config);
+        if(!isEnabled())
+            return;
+        try {
+            ThresholdValues tVals =
+                (ThresholdValues)config.getEntry(COMPONENT,
+                                                 "thresholdValues",
+                                                 ThresholdValues.class,
+                                                 new ThresholdValues(0.0, 1.0));
+            setThresholdValues(tVals);
+            ResourceCostModel rCostModel =
+                (ResourceCostModel)config.getEntry(COMPONENT,
+                                                   "resourceCost",
+                                                   ResourceCostModel.class,
+                                                   new ZeroCostModel());
+            setResourceCostModel(rCostModel);
+            String[] devices = (String[])config.getEntry(COMPONENT, "devices", String[].class, new String[0]);
+            MeasurableMonitor monitor =
+                (MeasurableMonitor)config.getEntry(COMPONENT,
+                                                   "diskIOMonitor",
+                                                   MeasurableMonitor.class,
+                                                   defaultMonitor==null ? new DiskIOMonitor() : defaultMonitor);
+            if(monitor instanceof DiskIOMonitor)
+                ((DiskIOMonitor)monitor).setDevices(devices);
+            long reportRate = Config.getLongEntry(config,
+                                                  COMPONENT,
+                                                  "reportRate",
+                                                  DEFAULT_PERIOD,     /* default */
+                                                  1000,               /* min */
+                                                  Integer.MAX_VALUE); /* max */
+            setPeriod(reportRate);
+            setMeasurableMonitor(monitor);
+        } catch (Throwable e) {
+            logger.error("Getting DiskIO Configuration", e);
+        }
+    }
+
+    /**
+     * Get the utilization of the busiest disk
+     *
+     * @return The last measured utilization, between 0 and 1
+     */
+    public double getUtilization() {
+        MeasuredResource mRes = lastMeasured;
+        return mRes==null ? 0 : mRes.getValue();
+    }
+
+    public void checkValue() {
+        if(monitor==null)
+            return;
+        MeasuredResource mRes = monitor.getMeasuredResource();
+        addWatchRecord(new Calculable(getId(), mRes.getValue(), System.currentTimeMillis()));
+        setLastMeasuredResource(mRes);
+        logger.trace("{}", mRes);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.disk;
+
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.impl.system.measurable.ProcCounters;
+import org.rioproject.system.measurable.disk.DiskIOUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Monitors disk I/O on Linux using {@code /proc/diskstats}.
+ *
+ * <p>For each disk the measured {@link DiskIOUtilization} has the reads and writes completed per second, the
+ * bytes read and written per second, the average time a read or write took and the utilization, the fraction
+ * of time the disk had I/O in progress. The aggregate adds up the rates of the disks, and its value is the
+ * utilization of the busiest disk.</p>
+ *
+ * <p>The counters are read by the shared {@link LinuxProcSampler}, rates are computed over the interval
+ * since the previous measurement. By default all whole disks are monitored, partitions and memory backed devices
+ * are not.</p>
+ */
+public class DiskIOMonitor implements MeasurableMonitor<DiskIOUtilization> {
+    private final LinuxProcSampler sampler;
+    private final LinuxProcSampler.Interval interval;
+    private String id;
+    private ThresholdValues tVals;
+    private Set<String> devices;
+    /* Whether each entry of the counters is monitored, computed once per entry */
+    private boolean[] monitored = new boolean[0];
+    private String[] deviceIDs = new String[0];
+
+    public DiskIOMonitor() {
+        this(LinuxProcSampler.getInstance());
+    }
+
+    /* For testing */
+    DiskIOMonitor(LinuxProcSampler sampler) {
+        this.sampler = sampler;
+        this.interval = sampler.createInterval();
+    }
+
+    /**
+     * Set the devices to monitor
+     *
+     * @param devices The names of the devices, for example {@code sda}. If null or empty, all whole disks are
+     * monitored
+     */
+    public void setDevices(String... devices) {
+        this.devices = devices==null || devices.length==0 ? null : new HashSet<>(Arrays.asList(devices));
+        monitored = new boolean[0];
+    }
+
+    public void setID(String id) {
+        this.id = id;
+        deviceIDs = new String[0];
+    }
+
+    public void setThresholdValues(ThresholdValues tVals) {
+        this.tVals = tVals;
+    }
+
+    public DiskIOUtilization getMeasuredResource() {
+        return sampler.sample(interval, this::measure);
+    }
+
+    private DiskIOUtilization measure(LinuxProcSampler.Interval interval) {
+        ProcCounters counters = interval.getDiskStats();
+        double seconds = interval.getElapsedNanos() / 1e9;
+        if(seconds <= 0)
+            return new DiskIOUtilization(id, 0, tVals);
+        update(counters);
+        List<DiskIOUtilization> disks = new ArrayList<>();
+        double utilization = 0, iops = 0, read = 0, write = 0;
+        long ios = 0, ioMillis = 0;
+        for(int i = 0; i < counters.size(); i++) {
+            if(!monitored[i] || !counters.isPresent(i))
+                continue;
+            long deviceIOs = counters.getDelta(i, DiskStats.READS) + counters.getDelta(i, DiskStats.WRITES);
+            long deviceIOMillis = counters.getDelta(i, DiskStats.READ_MILLIS) +
+                                  counters.getDelta(i, DiskStats.WRITE_MILLIS);
+            double deviceRead = counters.getDelta(i, DiskStats.READ_SECTORS) * DiskStats.SECTOR_SIZE / seconds;
+            double deviceWrite = counters.getDelta(i, DiskStats.WRITE_SECTORS) * DiskStats.SECTOR_SIZE / seconds;
+            double busy = Math.min(1, counters.getDelta(i, DiskStats.IO_MILLIS) / (seconds * 1000));
+            disks.add(new DiskIOUtilization(deviceIDs[i],
+                                            counters.getName(i),
+                                            busy,
+                                            deviceIOs / seconds,
+                                            deviceRead,
+                                            deviceWrite,
+                                            deviceIOs==0 ? 0 : (double)deviceIOMillis / deviceIOs,
+                                            null,
+                                            tVals));
+            utilization = Math.max(utilization, busy);
+            iops += deviceIOs / seconds;
+            read += deviceRead;
+            write += deviceWrite;
+            ios += deviceIOs;
+            ioMillis += deviceIOMillis;
+        }
+        return new DiskIOUtilization(id,
+                                     null,
+                                     utilization,
+                                     iops,
+                                     read,
+                                     write,
+                                     ios==0 ? 0 : (double)ioMillis / ios,
+                                     disks.toArray(new DiskIOUtilization[0]),
+                                     tVals);
+    }
+
+    private void update(ProcCounters counters) {
+        int known = Math.min(monitored.length, deviceIDs.length);
+        if(known==counters.size())
+            return;
+        monitored = Arrays.copyOf(monitored, counters.size());
+        deviceIDs = Arrays.copyOf(deviceIDs, counters.size());
+        for(int i = known; i < counters.size(); i++) {
+            String name = counters.getName(i);
+            monitored[i] = devices==null ? DiskStats.isDisk(name) : devices.contains(name);
+            deviceIDs[i] = id+"."+name;
+        }
+    }
+
+    public void terminate() {
+    }
+}
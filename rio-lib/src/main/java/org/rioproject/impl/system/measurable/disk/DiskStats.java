@@ -0,0 +1,111 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.disk;
+
+import org.rioproject.impl.system.measurable.ProcCounters;
+import org.rioproject.impl.system.measurable.ProcFile;
+
+/**
+ * Reads the I/O counters of each block device from {@code /proc/diskstats}.
+ */
+public class DiskStats {
+    /** Reads completed */
+    public static final int READS = 0;
+    /** Sectors read, a sector is 512 bytes */
+    public static final int READ_SECTORS = 1;
+    /** Milliseconds spent reading */
+    public static final int READ_MILLIS = 2;
+    /** Writes completed */
+    public static final int WRITES = 3;
+    /** Sectors written, a sector is 512 bytes */
+    public static final int WRITE_SECTORS = 4;
+    /** Milliseconds spent writing */
+    public static final int WRITE_MILLIS = 5;
+    /** Milliseconds the device had I/O in progress */
+    public static final int IO_MILLIS = 6;
+    /** The size of a sector */
+    public static final int SECTOR_SIZE = 512;
+    private final ProcFile file;
+    private final ProcCounters counters = new ProcCounters(7);
+
+    /**
+     * Create a DiskStats
+     *
+     * @param path The location of the file to read, must not be null
+     */
+    public DiskStats(final String path) {
+        file = new ProcFile(path);
+    }
+
+    /**
+     * Read the counters
+     *
+     * @return True if the file was read
+     */
+    public boolean sample() {
+        counters.begin();
+        if(!file.read())
+            return false;
+        do {
+            /* major minor name, then the counters */
+            file.skipFields(2);
+            if(!file.nextToken())
+                continue;
+            int index = counters.index(file);
+            counters.set(index, READS, file.nextLong());
+            file.skipFields(1);
+            counters.set(index, READ_SECTORS, file.nextLong());
+            counters.set(index, READ_MILLIS, file.nextLong());
+            counters.set(index, WRITES, file.nextLong());
+            file.skipFields(1);
+            counters.set(index, WRITE_SECTORS, file.nextLong());
+            counters.set(index, WRITE_MILLIS, file.nextLong());
+            file.skipFields(1);
+            counters.set(index, IO_MILLIS, file.nextLong());
+        } while(file.nextLine());
+        return true;
+    }
+
+    /**
+     * @return The counters of each device
+     */
+    public ProcCounters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Determine if a device is a whole disk, rather than a partition or a memory backed device. Loop, ram,
+     * zram and device mapper devices are not considered disks, since their I/O is counted on the disks that
+     * back them.
+     *
+     * @param name The name of the device
+     *
+     * @return True if the device is a whole disk
+     */
+    public static boolean isDisk(final String name) {
+        if(name.startsWith("loop") || name.startsWith("ram") || name.startsWith("zram") || name.startsWith("dm-"))
+            return false;
+        /* nvme0n1p1, mmcblk0p1 */
+        if(name.matches(".*\\dp\\d+"))
+            return false;
+        /* sda1, vdb2, xvda1, hda1 */
+        return !name.matches("(sd|vd|xvd|hd)[a-z]+\\d+");
+    }
+
+    public void close() {
+        file.close();
+    }
+}
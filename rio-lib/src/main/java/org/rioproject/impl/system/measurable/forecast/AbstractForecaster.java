@@ -0,0 +1,45 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+/**
+ * Base class for {@link Forecaster} implementations that project the smoothed value along a linear trend.
+ * Subclasses update their state while holding the instance lock.
+ */
+public abstract class AbstractForecaster implements Forecaster {
+
+    public synchronized double forecast(final long horizon) {
+        return getValue() + getTrend() * horizon;
+    }
+
+    public synchronized long getTimeToBreach(final double threshold) {
+        double now = forecast(0);
+        if(Double.isNaN(now))
+            return NO_BREACH;
+        if(now >= threshold)
+            return 0;
+        double trend = getTrend();
+        if(trend <= 0)
+            return NO_BREACH;
+        double time = Math.ceil((threshold - now) / trend);
+        return time >= Long.MAX_VALUE ? NO_BREACH : (long)time;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+"{value="+getValue()+", trend="+getTrend()+"}";
+    }
+}
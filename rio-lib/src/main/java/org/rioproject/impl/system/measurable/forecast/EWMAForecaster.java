@@ -0,0 +1,57 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+/**
+ * Smooths values with an exponentially weighted moving average. Recent values carry more weight than
+ * older ones, so a sustained change is followed quicker than with a mean of the same number of samples,
+ * while a single spike is damped. No trend is modelled, the forecast is the smoothed value.
+ */
+public class EWMAForecaster extends AbstractForecaster {
+    private final double alpha;
+    private double value = Double.NaN;
+
+    /**
+     * Create an EWMAForecaster
+     *
+     * @param alpha The weight given to each new value, greater than 0 and at most 1. A value of 1 disables
+     * smoothing
+     */
+    public EWMAForecaster(final double alpha) {
+        if(!(alpha > 0 && alpha <= 1))
+            throw new IllegalArgumentException("alpha must be greater than 0 and at most 1");
+        this.alpha = alpha;
+    }
+
+    public synchronized void add(final double value, final long when) {
+        if(Double.isNaN(this.value))
+            this.value = value;
+        else
+            this.value = alpha * value + (1 - alpha) * this.value;
+    }
+
+    public synchronized double getValue() {
+        return value;
+    }
+
+    public double getTrend() {
+        return 0;
+    }
+
+    public synchronized void reset() {
+        value = Double.NaN;
+    }
+}
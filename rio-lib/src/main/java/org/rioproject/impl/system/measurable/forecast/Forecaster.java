@@ -0,0 +1,77 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+/**
+ * Smooths the values measured by a {@link org.rioproject.impl.system.measurable.MeasurableCapability}
+ * before their thresholds are checked, and projects where the values are heading.
+ *
+ * <p>A Forecaster keeps state across the values it is given, each instance is used by a single
+ * MeasurableCapability. Implementations must be safe to read while values are being added.</p>
+ */
+public interface Forecaster {
+    /**
+     * Returned by {@link #getTimeToBreach(double)} when the value is not projected to reach the threshold
+     */
+    long NO_BREACH = -1;
+
+    /**
+     * Add a measured value
+     *
+     * @param value The measured value
+     * @param when The time the value was measured, in milliseconds
+     */
+    void add(double value, long when);
+
+    /**
+     * Get the smoothed value
+     *
+     * @return The smoothed value, or {@code Double.NaN} if no values have been added
+     */
+    double getValue();
+
+    /**
+     * Get the trend of the smoothed value
+     *
+     * @return The change of the smoothed value per millisecond, 0 if the Forecaster does not model a trend
+     */
+    double getTrend();
+
+    /**
+     * Project the smoothed value into the future
+     *
+     * @param horizon The number of milliseconds after the last value was measured
+     *
+     * @return The projected value, or {@code Double.NaN} if no values have been added
+     */
+    double forecast(long horizon);
+
+    /**
+     * Get the time until the projected value reaches a threshold
+     *
+     * @param threshold The threshold
+     *
+     * @return The number of milliseconds after the last value was measured until the projected value reaches
+     * the threshold, 0 if the smoothed value is already at or above the threshold, or {@link #NO_BREACH} if
+     * the value is not projected to reach it
+     */
+    long getTimeToBreach(double threshold);
+
+    /**
+     * Discard the values that have been added
+     */
+    void reset();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+/**
+ * Smooths values with Holt's linear trend method, double exponential smoothing of the level and of the
+ * trend of the values. The trend is kept per millisecond, so values do not need to be measured at a fixed
+ * rate, and the forecast extends the smoothed level along the smoothed trend.
+ */
+public class HoltForecaster extends AbstractForecaster {
+    private final double alpha;
+    private final double beta;
+    private double level = Double.NaN;
+    private double trend;
+    private long last;
+
+    /**
+     * Create a HoltForecaster
+     *
+     * @param alpha The weight given to each new value when smoothing the level, greater than 0 and at most 1
+     * @param beta The weight given to each new change in level when smoothing the trend, greater than 0 and
+     * at most 1
+     */
+    public HoltForecaster(final double alpha, final double beta) {
+        if(!(alpha > 0 && alpha <= 1))
+            throw new IllegalArgumentException("alpha must be greater than 0 and at most 1");
+        if(!(beta > 0 && beta <= 1))
+            throw new IllegalArgumentException("beta must be greater than 0 and at most 1");
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    public synchronized void add(final double value, final long when) {
+        if(Double.isNaN(level)) {
+            level = value;
+            trend = 0;
+        } else {
+            long elapsed = Math.max(1, when - last);
+            double previous = level;
+            level = alpha * value + (1 - alpha) * (level + trend * elapsed);
+            trend = beta * (level - previous) / elapsed + (1 - beta) * trend;
+        }
+        last = when;
+    }
+
+    public synchronized double getValue() {
+        return level;
+    }
+
+    public synchronized double getTrend() {
+        return trend;
+    }
+
+    public synchronized void reset() {
+        level = Double.NaN;
+        trend = 0;
+    }
+}
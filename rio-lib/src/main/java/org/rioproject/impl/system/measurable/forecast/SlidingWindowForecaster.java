@@ -0,0 +1,94 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+/**
+ * Smooths values with the mean of a sliding window of the most recent values. The trend is the least
+ * squares slope of the values in the window against the time they were measured, and the forecast follows
+ * the fitted line from the time of the last value.
+ */
+public class SlidingWindowForecaster extends AbstractForecaster {
+    private final double[] values;
+    private final long[] whens;
+    private int count;
+    private int next;
+
+    /**
+     * Create a SlidingWindowForecaster
+     *
+     * @param size The number of values in the window, must be greater than zero
+     */
+    public SlidingWindowForecaster(final int size) {
+        if(size < 1)
+            throw new IllegalArgumentException("size must be greater than zero");
+        values = new double[size];
+        whens = new long[size];
+    }
+
+    public synchronized void add(final double value, final long when) {
+        values[next] = value;
+        whens[next] = when;
+        next = (next + 1) % values.length;
+        if(count < values.length)
+            count++;
+    }
+
+    public synchronized double getValue() {
+        if(count==0)
+            return Double.NaN;
+        double sum = 0;
+        for(int i = 0; i < count; i++)
+            sum += values[i];
+        return sum / count;
+    }
+
+    public synchronized double getTrend() {
+        if(count < 2)
+            return 0;
+        long origin = whens[0];
+        double meanTime = meanTime(origin);
+        double mean = getValue();
+        double covariance = 0;
+        double variance = 0;
+        for(int i = 0; i < count; i++) {
+            double dt = (whens[i] - origin) - meanTime;
+            covariance += dt * (values[i] - mean);
+            variance += dt * dt;
+        }
+        return variance==0 ? 0 : covariance / variance;
+    }
+
+    @Override
+    public synchronized double forecast(final long horizon) {
+        if(count==0)
+            return Double.NaN;
+        long origin = whens[0];
+        long last = whens[(next + values.length - 1) % values.length];
+        return getValue() + getTrend() * ((last - origin) - meanTime(origin) + horizon);
+    }
+
+    private double meanTime(final long origin) {
+        double sum = 0;
+        for(int i = 0; i < count; i++)
+            sum += whens[i] - origin;
+        return sum / count;
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        next = 0;
+    }
+}
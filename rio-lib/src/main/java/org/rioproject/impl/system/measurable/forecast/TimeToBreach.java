@@ -0,0 +1,107 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+import net.jini.config.Configuration;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.watch.Calculable;
+
+/**
+ * A <code>MeasurableCapability</code> that records how long, in milliseconds,
+ * until the value of another MeasurableCapability is forecast to reach its
+ * high threshold. Its id is the id of the forecast MeasurableCapability with
+ * a suffix of {@link #ID_SUFFIX}, for example <tt>CPU.TimeToBreach</tt>, so an
+ * SLA can be declared against it with a low threshold of the warning time
+ * wanted.
+ *
+ * <p>Values are recorded by the forecast MeasurableCapability as it is
+ * measured. When the value is not forecast to reach the high threshold
+ * {@link #NO_BREACH} is recorded. A TimeToBreach does not produce a
+ * <code>MeasuredResource</code>, so it is not included in the utilization of
+ * the compute resource.</p>
+ *
+ * <p>The following configuration entries are read from the
+ * <tt>org.rioproject.system.measurable.forecast.timeToBreach</tt> component:
+ * <tt>enabled</tt>, <tt>collectionSize</tt> and <tt>watchDataSource</tt>.</p>
+ */
+public class TimeToBreach extends MeasurableCapability {
+    /** The suffix appended to the id of the forecast MeasurableCapability */
+    public static final String ID_SUFFIX = ".TimeToBreach";
+    /** Recorded when the value is not forecast to reach the high threshold */
+    public static final double NO_BREACH = Double.MAX_VALUE;
+    static final String COMPONENT = "org.rioproject.system.measurable.forecast.timeToBreach";
+
+    /**
+     * Create a TimeToBreach
+     *
+     * @param forecastId The id of the forecast MeasurableCapability
+     * @param config Configuration object
+     */
+    public TimeToBreach(String forecastId, Configuration config) {
+        super(forecastId+ID_SUFFIX, COMPONENT, config);
+    }
+
+    /**
+     * Record the time until the value is forecast to reach the high threshold
+     *
+     * @param timeToBreach The number of milliseconds, or
+     * {@link Forecaster#NO_BREACH}
+     * @param when The time the forecast value was measured
+     */
+    public void record(long timeToBreach, long when) {
+        if(!isEnabled())
+            return;
+        addWatchRecord(new Calculable(getId(),
+                                      timeToBreach==Forecaster.NO_BREACH ? NO_BREACH : timeToBreach,
+                                      when));
+    }
+
+    /**
+     * @return null, a TimeToBreach is not forecast
+     */
+    @Override
+    protected TimeToBreach createTimeToBreach(Configuration config) {
+        return null;
+    }
+
+    /**
+     * Values are recorded by the forecast MeasurableCapability, there is
+     * nothing to measure periodically
+     */
+    @Override
+    public void start() {
+    }
+
+    public void checkValue() {
+    }
+
+    /**
+     * @return The last recorded time to breach, in milliseconds
+     */
+    public double getUtilization() {
+        Calculable last = getLastCalculable();
+        return last==null ? NO_BREACH : last.getValue();
+    }
+
+    /**
+     * @return null, a TimeToBreach is not a resource of the compute resource
+     */
+    @Override
+    public MeasuredResource getMeasuredResource() {
+        return null;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.jvm;
+
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import net.jini.config.ConfigurationException;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A <code>MeasurableCapability</code> for the health of this Java Virtual Machine, read by the shared
+ * {@link JVMSampler}: the share of time spent in garbage collection, and the rate memory is allocated as a
+ * fraction of an allocation budget. Each value is between 0 and 1, so SLAs can be declared to detect
+ * services that are bound by garbage collection.
+ *
+ * <p>The following configuration entries are read, from the
+ * <tt>org.rioproject.system.measurable.jvm.gcPause</tt> and
+ * <tt>org.rioproject.system.measurable.jvm.allocationRate</tt> components: <tt>enabled</tt>,
+ * <tt>thresholdValues</tt>, <tt>collectionSize</tt> and <tt>reportRate</tt>. The
+ * <tt>allocationRate</tt> component also reads <tt>allocationBudget</tt>, the allocation rate in bytes
+ * per second that is reported as 1, which defaults to {@link #DEFAULT_ALLOCATION_BUDGET}.</p>
+ */
+public class JVMMeasurable extends MeasurableCapability {
+    static final String COMPONENT = "org.rioproject.system.measurable.jvm";
+    /** The default allocation budget, 1 GB per second */
+    public static final long DEFAULT_ALLOCATION_BUDGET = 1024 * 1024 * 1024;
+    static final Logger logger = LoggerFactory.getLogger(COMPONENT);
+    private final JVMSampler sampler;
+    private final ToDoubleFunction<JVMSampler> measure;
+    private volatile double value;
+
+    /**
+     * Create a JVMMeasurable for the share of time spent in garbage collection
+     *
+     * @param config Configuration object
+     * @param sampler The JVMSampler to read
+     *
+     * @return A JVMMeasurable with an id of {@link SystemWatchID#GC_PAUSE}
+     */
+    public static JVMMeasurable gcPause(Configuration config, JVMSampler sampler) {
+        return new JVMMeasurable(config,
+                                 SystemWatchID.GC_PAUSE,
+                                 COMPONENT+".gcPause",
+                                 sampler,
+                                 JVMSampler::getGcTimeFraction);
+    }
+
+    /**
+     * Create a JVMMeasurable for the rate memory is allocated, as a fraction of the allocation budget
+     *
+     * @param config Configuration object
+     * @param sampler The JVMSampler to read
+     *
+     * @return A JVMMeasurable with an id of {@link SystemWatchID#ALLOCATION_RATE}
+     */
+    public static JVMMeasurable allocationRate(Configuration config, JVMSampler sampler) {
+        String component = COMPONENT+".allocationRate";
+        long budget = DEFAULT_ALLOCATION_BUDGET;
+        try {
+            budget = Config.getLongEntry(config,
+                                         component,
+                                         "allocationBudget",
+                                         DEFAULT_ALLOCATION_BUDGET, /* default */
+                                         1,                         /* min */
+                                         Long.MAX_VALUE);           /* max */
+        } catch (ConfigurationException e) {
+            logger.warn("Unable to obtain {}.allocationBudget from configuration, use default and continue",
+                        component);
+        }
+        double allocationBudget = budget;
+        return new JVMMeasurable(config,
+                                 SystemWatchID.ALLOCATION_RATE,
+                                 component,
+                                 sampler,
+                                 s -> s.getAllocationRate() < 0 ? -1 : s.getAllocationRate() / allocationBudget);
+    }
+
+    JVMMeasurable(Configuration config,
+                  String id,
+                  String component,
+                  JVMSampler sampler,
+                  ToDoubleFunction<JVMSampler> measure) {
+        super(id, component, config);
+        this.sampler = sampler;
+        this.measure = measure;
+        if(!isEnabled())
+            return;
+        try {
+            ThresholdValues tVals = (ThresholdValues)config.getEntry(component,
+                                                                     "thresholdValues",
+                                                                     ThresholdValues.class,
+                                                                     new ThresholdValues(0.0, 1.0));
+            setThresholdValues(tVals);
+            long reportRate = Config.getLongEntry(config,
+                                                  component,
+                                                  "reportRate",
+                                                  DEFAULT_PERIOD,     /* default */
+                                                  1000,               /* min */
+                                                  Integer.MAX_VALUE); /* max */
+            setPeriod(reportRate);
+        } catch (Throwable e) {
+            logger.error("Getting {} Configuration", id, e);
+        }
+    }
+
+    /**
+     * Get the last measured value
+     *
+     * @return The value, between 0 and 1 for the share of time spent in garbage collection, the allocation
+     * rate may exceed 1 if the budget is exceeded
+     */
+    public double getUtilization() {
+        return value;
+    }
+
+    public void checkValue() {
+        double sampled = sampler.sample(s -> measure.applyAsDouble(s));
+        /* Not available, or the first sample */
+        if(sampled < 0 || Double.isNaN(sampled))
+            return;
+        value = sampled;
+        addWatchRecord(new Calculable(getId(), value, System.currentTimeMillis()));
+        setLastMeasuredResource(new MeasuredResource(getId(), value, getThresholdValues()));
+    }
+}
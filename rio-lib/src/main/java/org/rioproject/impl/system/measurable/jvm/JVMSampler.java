@@ -0,0 +1,396 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.jvm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.*;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples the platform MXBeans of this Java Virtual Machine once, and shares the values with every monitor
+ * that reads them: process CPU time, the usage of every memory pool, garbage collection counts and time,
+ * safepoint time, the number of live threads, the bytes allocated by live threads and deadlocked threads.
+ *
+ * <p>Like the {@link org.rioproject.impl.system.measurable.LinuxProcSampler}, values are read using
+ * {@link #sample(Function)}, and the MXBeans are only read again if the last sample is older than the
+ * maximum age, so monitors checked in the same tick see one coherent sample. Deadlock detection uses
+ * {@code findDeadlockedThreads()}, and the {@code ThreadInfo} of the deadlocked threads, with their stack
+ * traces, is only fetched when the set of deadlocked threads changes.</p>
+ *
+ * <p>Rates are computed over the interval between the last two samples, which is {@link #getElapsedNanos()}
+ * long. The safepoint time is read from the HotSpot internal runtime MBean and is not available on other
+ * virtual machines. The allocation rate is the sum of the bytes allocated by each live thread since the
+ * last sample, the allocations of threads that ended between samples are not counted.</p>
+ */
+public class JVMSampler {
+    /** The default maximum age of a sample that is shared, in milliseconds */
+    public static final long DEFAULT_MAX_AGE = 1000;
+    private static final ThreadInfo[] NO_THREAD_INFO = new ThreadInfo[0];
+    private static final long[] NO_THREADS = new long[0];
+    private static final Logger logger = LoggerFactory.getLogger(JVMSampler.class);
+    private static JVMSampler instance;
+    private final LongSupplier clock;
+    private final com.sun.management.OperatingSystemMXBean osBean;
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final List<MemoryPoolMXBean> pools;
+    private final List<GarbageCollectorMXBean> collectors;
+    private final LongSupplier safepointTime;
+    private final int processors;
+    private final MemoryUsage[] poolUsage;
+    private final long[] gcCounts;
+    private final long[] gcTimes;
+    private final long[] lastGcCounts;
+    private final long[] lastGcTimes;
+    private Map<Long, Long> allocated = new HashMap<>();
+    private long cpuTime = -1;
+    private long lastCpuTime = -1;
+    private long safepoint = -1;
+    private long lastSafepoint = -1;
+    private long allocatedDelta = -1;
+    private int threadCount;
+    private long[] deadlocked = NO_THREADS;
+    private ThreadInfo[] deadlockedInfo = NO_THREAD_INFO;
+    private long sampleTime;
+    private long sampleNanos;
+    private long elapsedNanos;
+    private long samples;
+    private volatile long maxAge = DEFAULT_MAX_AGE;
+
+    /**
+     * Create a JVMSampler for this Java Virtual Machine
+     */
+    public JVMSampler() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Create a JVMSampler for this Java Virtual Machine
+     *
+     * @param clock Provides the time of each sample in nanoseconds, like {@code System.nanoTime()}, must
+     * not be null
+     */
+    public JVMSampler(final LongSupplier clock) {
+        if(clock==null)
+            throw new IllegalArgumentException("clock is null");
+        this.clock = clock;
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        osBean = os instanceof com.sun.management.OperatingSystemMXBean
+                 ? (com.sun.management.OperatingSystemMXBean)os : null;
+        threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = null;
+        if(threadBean instanceof com.sun.management.ThreadMXBean) {
+            allocation = (com.sun.management.ThreadMXBean)threadBean;
+            if(!allocation.isThreadAllocatedMemorySupported() || !allocation.isThreadAllocatedMemoryEnabled())
+                allocation = null;
+        }
+        allocationBean = allocation;
+        pools = ManagementFactory.getMemoryPoolMXBeans();
+        collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        safepointTime = getSafepointTimeSupplier();
+        processors = os.getAvailableProcessors();
+        poolUsage = new MemoryUsage[pools.size()];
+        gcCounts = new long[collectors.size()];
+        gcTimes = new long[collectors.size()];
+        lastGcCounts = new long[collectors.size()];
+        lastGcTimes = new long[collectors.size()];
+    }
+
+    /**
+     * Get the JVMSampler shared by the measurables of the process
+     *
+     * @return The shared JVMSampler
+     */
+    public static synchronized JVMSampler getInstance() {
+        if(instance==null)
+            instance = new JVMSampler();
+        return instance;
+    }
+
+    /**
+     * Set the maximum age of a sample that is shared
+     *
+     * @param maxAge The maximum age in milliseconds. If 0, the MXBeans are read for every call to
+     * {@link #sample(Function)}
+     */
+    public void setMaxAge(final long maxAge) {
+        if(maxAge < 0)
+            throw new IllegalArgumentException("maxAge must not be negative");
+        this.maxAge = maxAge;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Provide the values of the current sample, reading the MXBeans first if the sample is older than the
+     * maximum age
+     *
+     * @param reader Reads values from this sampler. The values do not change while the reader runs
+     * @param <T> The type the reader returns
+     *
+     * @return The value returned by the reader
+     */
+    public synchronized <T> T sample(final Function<? super JVMSampler, T> reader) {
+        if(samples==0 || clock.getAsLong() - sampleNanos >= maxAge * 1000000)
+            refresh();
+        return reader.apply(this);
+    }
+
+    /**
+     * Read every MXBean
+     */
+    public synchronized void refresh() {
+        long now = clock.getAsLong();
+        elapsedNanos = samples==0 ? 0 : now - sampleNanos;
+        sampleTime = System.currentTimeMillis();
+        sampleNanos = now;
+        samples++;
+
+        lastCpuTime = cpuTime;
+        cpuTime = osBean==null ? -1 : osBean.getProcessCpuTime();
+
+        for(int i = 0; i < poolUsage.length; i++) {
+            MemoryPoolMXBean pool = pools.get(i);
+            poolUsage[i] = pool.isValid() ? pool.getUsage() : null;
+        }
+
+        System.arraycopy(gcCounts, 0, lastGcCounts, 0, gcCounts.length);
+        System.arraycopy(gcTimes, 0, lastGcTimes, 0, gcTimes.length);
+        for(int i = 0; i < gcCounts.length; i++) {
+            GarbageCollectorMXBean collector = collectors.get(i);
+            gcCounts[i] = collector.getCollectionCount();
+            gcTimes[i] = collector.getCollectionTime();
+        }
+
+        lastSafepoint = safepoint;
+        safepoint = safepointTime==null ? -1 : safepointTime.getAsLong();
+
+        threadCount = threadBean.getThreadCount();
+        sampleAllocation();
+        sampleDeadlocks();
+    }
+
+    private void sampleAllocation() {
+        if(allocationBean==null)
+            return;
+        long[] ids = threadBean.getAllThreadIds();
+        long[] bytes = allocationBean.getThreadAllocatedBytes(ids);
+        Map<Long, Long> current = new HashMap<>(ids.length * 2);
+        long delta = 0;
+        for(int i = 0; i < ids.length; i++) {
+            if(bytes[i] < 0)
+                continue;
+            Long last = allocated.get(ids[i]);
+            delta += last==null ? bytes[i] : Math.max(0, bytes[i] - last);
+            current.put(ids[i], bytes[i]);
+        }
+        allocatedDelta = samples==1 ? -1 : delta;
+        allocated = current;
+    }
+
+    private void sampleDeadlocks() {
+        long[] ids = threadBean.isSynchronizerUsageSupported()
+                     ? threadBean.findDeadlockedThreads()
+                     : threadBean.findMonitorDeadlockedThreads();
+        if(ids==null) {
+            deadlocked = NO_THREADS;
+            deadlockedInfo = NO_THREAD_INFO;
+            return;
+        }
+        Arrays.sort(ids);
+        if(Arrays.equals(ids, deadlocked))
+            return;
+        deadlocked = ids;
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids, Integer.MAX_VALUE);
+        int count = 0;
+        for(ThreadInfo info : infos) {
+            if(info!=null)
+                infos[count++] = info;
+        }
+        deadlockedInfo = Arrays.copyOf(infos, count);
+    }
+
+    /**
+     * @return The time of the current sample, in milliseconds since the epoch
+     */
+    public synchronized long getSampleTime() {
+        return sampleTime;
+    }
+
+    /**
+     * @return The time between the last two samples in nanoseconds, or 0 if there has been one sample
+     */
+    public synchronized long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the CPU utilization of this process between the last two samples
+     *
+     * @return The fraction of the time of all CPUs that was used by the process, between 0 and 1, or -1 if
+     * not available
+     */
+    public synchronized double getProcessCpuUtilization() {
+        if(cpuTime < 0 || lastCpuTime < 0 || elapsedNanos <= 0)
+            return -1;
+        return Math.min(1, (double)Math.max(0, cpuTime - lastCpuTime) / ((double)elapsedNanos * processors));
+    }
+
+    /**
+     * Get the usage of a memory pool
+     *
+     * @param name The name of the memory pool
+     *
+     * @return The usage of the memory pool, or null if there is no valid memory pool with the name
+     */
+    public synchronized MemoryUsage getMemoryPoolUsage(final String name) {
+        for(int i = 0; i < poolUsage.length; i++) {
+            if(pools.get(i).getName().equals(name))
+                return poolUsage[i];
+        }
+        return null;
+    }
+
+    /**
+     * @return The total number of collections of every garbage collector
+     */
+    public synchronized long getGcCount() {
+        return sum(gcCounts);
+    }
+
+    /**
+     * @return The total accumulated elapsed time of the collections of every garbage collector, in
+     * milliseconds
+     */
+    public synchronized long getGcTime() {
+        return sum(gcTimes);
+    }
+
+    /**
+     * @return The number of collections between the last two samples
+     */
+    public synchronized long getGcCountDelta() {
+        return samples < 2 ? 0 : sum(gcCounts) - sum(lastGcCounts);
+    }
+
+    /**
+     * Get the share of time spent in garbage collection between the last two samples. For collectors that
+     * stop the application this is the share of time the application was paused, for concurrent collectors
+     * the time reported may include their concurrent phases
+     *
+     * @return The fraction of the elapsed time spent collecting, between 0 and 1, or -1 if not available
+     */
+    public synchronized double getGcTimeFraction() {
+        if(elapsedNanos <= 0)
+            return -1;
+        return fraction(sum(gcTimes) - sum(lastGcTimes));
+    }
+
+    /**
+     * @return The total time spent at safepoints, in milliseconds, or -1 if not available
+     */
+    public synchronized long getSafepointTime() {
+        return safepoint;
+    }
+
+    /**
+     * Get the share of time spent at safepoints between the last two samples
+     *
+     * @return The fraction of the elapsed time the application was stopped at safepoints, between 0 and 1,
+     * or -1 if not available
+     */
+    public synchronized double getSafepointTimeFraction() {
+        if(safepoint < 0 || lastSafepoint < 0 || elapsedNanos <= 0)
+            return -1;
+        return fraction(safepoint - lastSafepoint);
+    }
+
+    /**
+     * @return The number of live threads
+     */
+    public synchronized int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Get the rate that live threads allocated memory between the last two samples
+     *
+     * @return The bytes allocated per second, or -1 if not available
+     */
+    public synchronized double getAllocationRate() {
+        if(allocatedDelta < 0 || elapsedNanos <= 0)
+            return -1;
+        return allocatedDelta * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The number of threads that are deadlocked waiting for monitors or ownable synchronizers
+     */
+    public synchronized int getDeadlockedThreadCount() {
+        return deadlocked.length;
+    }
+
+    /**
+     * Get information about the deadlocked threads, including their stack traces
+     *
+     * @return The ThreadInfo of each deadlocked thread that is still alive. A new array is allocated each
+     * time. If there are no deadlocked threads, a zero-length array is returned
+     */
+    public synchronized ThreadInfo[] getDeadlockedThreads() {
+        return deadlockedInfo.length==0 ? NO_THREAD_INFO : deadlockedInfo.clone();
+    }
+
+    private double fraction(final long millis) {
+        return Math.min(1, Math.max(0, millis * 1e6 / elapsedNanos));
+    }
+
+    private static long sum(final long[] values) {
+        long sum = 0;
+        for(long value : values)
+            sum += Math.max(0, value);
+        return sum;
+    }
+
+    private static LongSupplier getSafepointTimeSupplier() {
+        try {
+            Object runtime = Class.forName("sun.management.ManagementFactoryHelper")
+                                  .getMethod("getHotspotRuntimeMBean").invoke(null);
+            Method totalSafepointTime = Class.forName("sun.management.HotspotRuntimeMBean")
+                                             .getMethod("getTotalSafepointTime");
+            totalSafepointTime.invoke(runtime);
+            return () -> {
+                try {
+                    return (Long)totalSafepointTime.invoke(runtime);
+                } catch(Exception e) {
+                    return -1;
+                }
+            };
+        } catch(Throwable t) {
+            logger.debug("Safepoint time is not available: {}", t.toString());
+            return null;
+        }
+    }
+}
@@ -15,27 +15,32 @@
  */
 package org.rioproject.impl.system.measurable.memory;
 
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
 import org.rioproject.impl.system.measurable.MeasurableMonitor;
 import org.rioproject.system.measurable.memory.SystemMemoryUtilization;
 import org.rioproject.watch.ThresholdValues;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.StringTokenizer;
 
 /**
- * Monitors {@code /proc/meminfo}
+ * Monitors {@code /proc/meminfo}, read by the shared {@link LinuxProcSampler}
  *
  * @author Dennis Reedy
  */
 public class MemInfoMonitor implements MeasurableMonitor<SystemMemoryUtilization> {
+    private final LinuxProcSampler sampler;
     private String id;
     private ThresholdValues thresholdValues;
-    private String memInfo = "/proc/meminfo";
-    private static final Logger logger = LoggerFactory.getLogger(MemInfoMonitor.class);
+
+    public MemInfoMonitor() {
+        this(LinuxProcSampler.getInstance());
+    }
+
+    /* For testing */
+    MemInfoMonitor(LinuxProcSampler sampler) {
+        this.sampler = sampler;
+    }
 
     @Override
     public void terminate() {
@@ -51,68 +56,36 @@ public class MemInfoMonitor implements MeasurableMonitor<SystemMemoryUtilization
         this.thresholdValues = thresholdValues;
     }
 
-    /* For testing */
-    void setMemInfoFile(String memInfo) {
-        this.memInfo = memInfo;
-    }
-
     @Override
     public SystemMemoryUtilization getMeasuredResource() {
-        SystemMemoryUtilization memoryUtilization;
-        BufferedReader br = null;
-        try {
-            long total = 0;
-            long active = 0;
-
-            File file = new File(memInfo);
-            br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-            String str;
-            StringTokenizer token;
-            while ((str = br.readLine()) != null) {
-                token = new StringTokenizer(str);
-                if (!token.hasMoreTokens())
-                    continue;
-
-                str = token.nextToken();
-                if (!token.hasMoreTokens())
-                    continue;
+        return sampler.sample(this::measure);
+    }
 
-                if (str.equalsIgnoreCase("MemTotal:"))
-                    total = Long.parseLong(token.nextToken());
-                else if (str.equalsIgnoreCase("Active:"))
-                    active = Long.parseLong(token.nextToken());
-            }
+    private SystemMemoryUtilization measure(LinuxProcSampler sampler) {
+        long total = sampler.getMemInfo(LinuxProcSampler.MEM_TOTAL);
+        long active = sampler.getMemInfo(LinuxProcSampler.ACTIVE);
+        if(total <= 0 || active < 0)
+            return new SystemMemoryUtilization(id, thresholdValues);
 
-            long free = total - active;
-            double u = (double)active/(double)total;
-            BigDecimal bd = new BigDecimal(u).setScale(2, RoundingMode.FLOOR);
-            double usedPercent = bd.doubleValue();
+        long free = total - active;
+        double u = (double)active/(double)total;
+        BigDecimal bd = new BigDecimal(u).setScale(2, RoundingMode.FLOOR);
+        double usedPercent = bd.doubleValue();
 
-            double f = (double)free/(double)total;
-            bd = new BigDecimal(f).setScale(2, RoundingMode.CEILING);
-            double freePercent = bd.doubleValue();
+        double f = (double)free/(double)total;
+        bd = new BigDecimal(f).setScale(2, RoundingMode.CEILING);
+        double freePercent = bd.doubleValue();
 
-            double KB = 1024;
-            memoryUtilization = new SystemMemoryUtilization(id,
-                                                            usedPercent,
-                                                            ((double)total)/ KB,
-                                                            ((double)free)/ KB,
-                                                            ((double)active)/ KB,
-                                                            freePercent,
-                                                            usedPercent,
-                                                            total,
-                                                            thresholdValues);
-        } catch (IOException e) {
-            memoryUtilization = new SystemMemoryUtilization(id, thresholdValues);
-        } finally {
-            if(br!=null)
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    logger.warn("Trying to close the BufferedReader for /proc/meminfo", e);
-                }
-        }
-        return memoryUtilization;
+        double KB = 1024;
+        return new SystemMemoryUtilization(id,
+                                           usedPercent,
+                                           ((double)total)/ KB,
+                                           ((double)free)/ KB,
+                                           ((double)active)/ KB,
+                                           freePercent,
+                                           usedPercent,
+                                           total,
+                                           thresholdValues);
     }
 
 }
@@ -18,6 +18,8 @@ package org.rioproject.impl.system.measurable.memory;
 import net.jini.config.Configuration;
 import net.jini.config.ConfigurationException;
 import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.impl.system.measurable.cgroup.CGroupMemoryMonitor;
+import org.rioproject.impl.system.measurable.cgroup.CGroupSampler;
 import org.rioproject.system.MeasuredResource;
 import org.rioproject.system.SystemWatchID;
 import org.rioproject.system.measurable.memory.CalculableMemory;
@@ -70,9 +72,13 @@ public class SystemMemory extends Memory {
     @Override
     protected MeasurableMonitor createMeasurableMonitor(Configuration config)
         throws ConfigurationException {
+        /* When running under a memory limit, measure utilization against the limit */
+        MeasurableMonitor defaultMonitor = CGroupSampler.getInstance().sample(CGroupSampler::isMemoryLimited)
+                                           ? new CGroupMemoryMonitor()
+                                           : new SystemMemoryMonitor();
         return (MeasurableMonitor) config.getEntry(getComponentName(),
                                                    "monitor",
                                                    MeasurableMonitor.class,
-                                                   new SystemMemoryMonitor());
+                                                   defaultMonitor);
     }
 }
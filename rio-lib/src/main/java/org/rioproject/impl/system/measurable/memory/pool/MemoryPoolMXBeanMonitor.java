@@ -16,14 +16,17 @@
 package org.rioproject.impl.system.measurable.memory.pool;
 
 import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.impl.system.measurable.jvm.JVMSampler;
 import org.rioproject.system.measurable.memory.pool.MemoryPoolUtilization;
 import org.rioproject.watch.ThresholdValues;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
 
 /**
- * Monitoring for JMX memory pool.
+ * Monitoring for JMX memory pool. The usage of the memory pool is read from
+ * the shared {@link JVMSampler}, which reads every memory pool in one sample.
  */
 public class MemoryPoolMXBeanMonitor implements MeasurableMonitor<MemoryPoolUtilization> {
     private String id;
@@ -71,13 +74,17 @@ public class MemoryPoolMXBeanMonitor implements MeasurableMonitor<MemoryPoolUtil
         getMemoryPoolMXBean();
         if(memoryPoolBean==null)
             return null;
-        double utilization = (double)memoryPoolBean.getUsage().getUsed()/(double)memoryPoolBean.getUsage().getMax();
+        String name = memoryPoolBean.getName();
+        MemoryUsage usage = JVMSampler.getInstance().sample(s -> s.getMemoryPoolUsage(name));
+        if(usage==null)
+            usage = memoryPoolBean.getUsage();
+        double utilization = (double)usage.getUsed()/(double)usage.getMax();
         return new MemoryPoolUtilization(getId(),
                                          utilization,
-                                         memoryPoolBean.getUsage().getCommitted(),
-                                         memoryPoolBean.getUsage().getInit(),
-                                         memoryPoolBean.getUsage().getMax(),
-                                         memoryPoolBean.getUsage().getUsed(),
+                                         usage.getCommitted(),
+                                         usage.getInit(),
+                                         usage.getMax(),
+                                         usage.getUsed(),
                                          getThresholdValues());
     }
 
@@ -0,0 +1,89 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.network;
+
+import org.rioproject.impl.system.measurable.ProcCounters;
+import org.rioproject.impl.system.measurable.ProcFile;
+
+/**
+ * Reads the counters of each network interface from {@code /proc/net/dev}.
+ */
+public class NetDev {
+    /** Bytes received */
+    public static final int RX_BYTES = 0;
+    /** Packets received */
+    public static final int RX_PACKETS = 1;
+    /** Received packets dropped */
+    public static final int RX_DROPS = 2;
+    /** Bytes transmitted */
+    public static final int TX_BYTES = 3;
+    /** Packets transmitted */
+    public static final int TX_PACKETS = 4;
+    /** Transmitted packets dropped */
+    public static final int TX_DROPS = 5;
+    private final ProcFile file;
+    private final ProcCounters counters = new ProcCounters(6);
+
+    /**
+     * Create a NetDev
+     *
+     * @param path The location of the file to read, must not be null
+     */
+    public NetDev(final String path) {
+        file = new ProcFile(path);
+    }
+
+    /**
+     * Read the counters
+     *
+     * @return True if the file was read
+     */
+    public boolean sample() {
+        counters.begin();
+        if(!file.read())
+            return false;
+        /* Skip the two header lines */
+        if(!file.nextLine() || !file.nextLine())
+            return true;
+        do {
+            if(!file.nextToken())
+                continue;
+            int index = counters.index(file);
+            counters.set(index, RX_BYTES, file.nextLong());
+            counters.set(index, RX_PACKETS, file.nextLong());
+            file.skipFields(1);
+            counters.set(index, RX_DROPS, file.nextLong());
+            /* fifo frame compressed multicast */
+            file.skipFields(4);
+            counters.set(index, TX_BYTES, file.nextLong());
+            counters.set(index, TX_PACKETS, file.nextLong());
+            file.skipFields(1);
+            counters.set(index, TX_DROPS, file.nextLong());
+        } while(file.nextLine());
+        return true;
+    }
+
+    /**
+     * @return The counters of each interface
+     */
+    public ProcCounters getCounters() {
+        return counters;
+    }
+
+    public void close() {
+        file.close();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.network;
+
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import org.rioproject.costmodel.ResourceCostModel;
+import org.rioproject.costmodel.ZeroCostModel;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.system.measurable.network.NetworkUtilization;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>Network</code> object is a <code>MeasurableCapability</code> which
+ * monitors a ComputeResource's network interfaces. Its value is the
+ * utilization of the busiest interface, the larger of its receive and
+ * transmit rates as a fraction of its bandwidth, the throughput, packet
+ * rates and drops of each interface are available from the
+ * {@link NetworkUtilization}.
+ *
+ * <p>The following configuration entries are read, from the
+ * <tt>org.rioproject.system.measurable.network</tt> component:
+ * <tt>enabled</tt>, <tt>thresholdValues</tt>, <tt>resourceCost</tt>,
+ * <tt>collectionSize</tt>, <tt>reportRate</tt>, <tt>interfaces</tt> (the
+ * names of the interfaces to monitor, by default all but the loopback
+ * interface), <tt>bandwidth</tt> (the bandwidth of each interface in bytes
+ * per second, by default read from <tt>/sys/class/net</tt>) and
+ * <tt>networkMonitor</tt>.
+ */
+public class Network extends MeasurableCapability {
+    /** Component for Configuration and Logging */
+    static final String COMPONENT = "org.rioproject.system.measurable.network";
+    /** A Logger for this class */
+    static Logger logger = LoggerFactory.getLogger(COMPONENT);
+
+    /**
+     * Construct a new Network object
+     *
+     * @param config Configuration object
+     */
+    public Network(Configuration config) {
+        this(config, null);
+    }
+
+    /* For testing */
+    Network(Configuration config, MeasurableMonitor defaultMonitor) {
+        super(SystemWatchID.NETWORK, COMPONENT, config);
+        if(!isEnabled())
+            return;
+        try {
+            ThresholdValues tVals =
+                (ThresholdValues)config.getEntry(COMPONENT,
+                                                 "thresholdValues",
+                                                 ThresholdValues.class,
+                                                 new ThresholdValues(0.0, 1.0));
+            setThresholdValues(tVals);
+            ResourceCostModel rCostModel =
+                (ResourceCostModel)config.getEntry(COMPONENT,
+                                                   "resourceCost",
+                                                   ResourceCostModel.class,
+                                                   new ZeroCostModel());
+            setResourceCostModel(rCostModel);
+            String[] interfaces = (String[])config.getEntry(COMPONENT,
+                                                            "interfaces",
+                                                            String[].class,
+                                                            new String[0]);
+            long bandwidth = Config.getLongEntry(config,
+                                                 COMPONENT,
+                                                 "bandwidth",
+                                                 0,                /* default */
+                                                 0,                /* min */
+                                                 Long.MAX_VALUE);  /* max */
+            MeasurableMonitor monitor =
+                (MeasurableMonitor)config.getEntry(COMPONENT,
+                                                   "networkMonitor",
+                                                   MeasurableMonitor.class,
+                                                   defaultMonitor==null ? new NetworkMonitor() : defaultMonitor);
+            if(monitor instanceof NetworkMonitor) {
+                ((NetworkMonitor)monitor).setInterfaces(interfaces);
+                ((NetworkMonitor)monitor).setBandwidth(bandwidth);
+            }
+            long reportRate = Config.getLongEntry(config,
+                                                  COMPONENT,
+                                                  "reportRate",
+                                                  DEFAULT_PERIOD,     /* default */
+                                                  1000,               /* min */
+                                                  Integer.MAX_VALUE); /* max */
+            setPeriod(reportRate);
+            setMeasurableMonitor(monitor);
+        } catch (Throwable e) {
+            logger.error("Getting Network Configuration", e);
+        }
+    }
+
+    /**
+     * Get the utilization of the busiest interface
+     *
+     * @return The last measured utilization, between 0 and 1
+     */
+    public double getUtilization() {
+        MeasuredResource mRes = lastMeasured;
+        return mRes==null ? 0 : mRes.getValue();
+    }
+
+    public void checkValue() {
+        if(monitor==null)
+            return;
+        MeasuredResource mRes = monitor.getMeasuredResource();
+        addWatchRecord(new Calculable(getId(), mRes.getValue(), System.currentTimeMillis()));
+        setLastMeasuredResource(mRes);
+        logger.trace("{}", mRes);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.network;
+
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.impl.system.measurable.MeasurableMonitor;
+import org.rioproject.impl.system.measurable.ProcCounters;
+import org.rioproject.system.measurable.network.NetworkUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Monitors network interfaces on Linux using {@code /proc/net/dev}.
+ *
+ * <p>For each interface the measured {@link NetworkUtilization} has the bytes and packets received and
+ * transmitted per second and the packets dropped per second. Its utilization is the larger of the receive and
+ * transmit rates as a fraction of the interface's bandwidth, since the two directions do not share bandwidth.
+ * The aggregate adds up the rates of the interfaces, and its value is the utilization of the busiest
+ * interface.</p>
+ *
+ * <p>The bandwidth of an interface is read from {@code /sys/class/net/<interface>/speed}, if it is not known
+ * (for example for virtual interfaces) 1 Gbit/s is assumed. The counters are read by the shared
+ * {@link LinuxProcSampler}, rates are computed over the interval since the previous measurement. By default
+ * all interfaces except the loopback interface are monitored.</p>
+ */
+public class NetworkMonitor implements MeasurableMonitor<NetworkUtilization> {
+    /** The bandwidth assumed when the speed of an interface is not known, 1 Gbit/s in bytes per second */
+    public static final long DEFAULT_BANDWIDTH = 125000000;
+    private static final String SYS = "/sys";
+    private static final String LOOPBACK = "lo";
+    private final LinuxProcSampler sampler;
+    private final LinuxProcSampler.Interval interval;
+    private final String sysRoot;
+    private String id;
+    private ThresholdValues tVals;
+    private Set<String> interfaces;
+    private long bandwidth;
+    /* Whether each entry of the counters is monitored and its bandwidth, computed once per entry */
+    private boolean[] monitored = new boolean[0];
+    private double[] capacity = new double[0];
+    private String[] interfaceIDs = new String[0];
+
+    public NetworkMonitor() {
+        this(LinuxProcSampler.getInstance(), SYS);
+    }
+
+    /* For testing */
+    NetworkMonitor(LinuxProcSampler sampler, String sysRoot) {
+        this.sampler = sampler;
+        this.interval = sampler.createInterval();
+        this.sysRoot = sysRoot;
+    }
+
+    /**
+     * Set the interfaces to monitor
+     *
+     * @param interfaces The names of the interfaces, for example {@code eth0}. If null or empty, all interfaces
+     * except the loopback interface are monitored
+     */
+    public void setInterfaces(String... interfaces) {
+        this.interfaces = interfaces==null || interfaces.length==0 ? null : new HashSet<>(Arrays.asList(interfaces));
+        monitored = new boolean[0];
+    }
+
+    /**
+     * Set the bandwidth of each interface
+     *
+     * @param bandwidth The bandwidth in bytes per second. If 0, the bandwidth of each interface is read from
+     * {@code /sys/class/net}
+     */
+    public void setBandwidth(long bandwidth) {
+        this.bandwidth = bandwidth;
+        monitored = new boolean[0];
+    }
+
+    public void setID(String id) {
+        this.id = id;
+        interfaceIDs = new String[0];
+    }
+
+    public void setThresholdValues(ThresholdValues tVals) {
+        this.tVals = tVals;
+    }
+
+    public NetworkUtilization getMeasuredResource() {
+        return sampler.sample(interval, this::measure);
+    }
+
+    private NetworkUtilization measure(LinuxProcSampler.Interval interval) {
+        ProcCounters counters = interval.getNetDev();
+        double seconds = interval.getElapsedNanos() / 1e9;
+        if(seconds <= 0)
+            return new NetworkUtilization(id, 0, tVals);
+        update(counters);
+        List<NetworkUtilization> list = new ArrayList<>();
+        double utilization = 0, rxBytes = 0, txBytes = 0, rxPackets = 0, txPackets = 0, drops = 0;
+        for(int i = 0; i < counters.size(); i++) {
+            if(!monitored[i] || !counters.isPresent(i))
+                continue;
+            double rx = counters.getDelta(i, NetDev.RX_BYTES) / seconds;
+            double tx = counters.getDelta(i, NetDev.TX_BYTES) / seconds;
+            double rxp = counters.getDelta(i, NetDev.RX_PACKETS) / seconds;
+            double txp = counters.getDelta(i, NetDev.TX_PACKETS) / seconds;
+            double dropped = (counters.getDelta(i, NetDev.RX_DROPS) + counters.getDelta(i, NetDev.TX_DROPS)) / seconds;
+            double busy = Math.min(1, Math.max(rx, tx) / capacity[i]);
+            list.add(new NetworkUtilization(interfaceIDs[i],
+                                            counters.getName(i),
+                                            busy,
+                                            rx,
+                                            tx,
+                                            rxp,
+                                            txp,
+                                            dropped,
+                                            null,
+                                            tVals));
+            utilization = Math.max(utilization, busy);
+            rxBytes += rx;
+            txBytes += tx;
+            rxPackets += rxp;
+            txPackets += txp;
+            drops += dropped;
+        }
+        return new NetworkUtilization(id,
+                                      null,
+                                      utilization,
+                                      rxBytes,
+                                      txBytes,
+                                      rxPackets,
+                                      txPackets,
+                                      drops,
+                                      list.toArray(new NetworkUtilization[0]),
+                                      tVals);
+    }
+
+    private void update(ProcCounters counters) {
+        int known = Math.min(monitored.length, interfaceIDs.length);
+        if(known==counters.size())
+            return;
+        monitored = Arrays.copyOf(monitored, counters.size());
+        capacity = Arrays.copyOf(capacity, counters.size());
+        interfaceIDs = Arrays.copyOf(interfaceIDs, counters.size());
+        for(int i = known; i < counters.size(); i++) {
+            String name = counters.getName(i);
+            monitored[i] = interfaces==null ? !LOOPBACK.equals(name) : interfaces.contains(name);
+            capacity[i] = bandwidth > 0 ? bandwidth : getBandwidth(name);
+            interfaceIDs[i] = id+"."+name;
+        }
+    }
+
+    /*
+     * The speed of an interface in Mbit/s, as bytes per second. The file cannot be read while the interface
+     * is down, and is -1 for interfaces that do not report a speed
+     */
+    private long getBandwidth(String name) {
+        try {
+            String speed = new String(Files.readAllBytes(Paths.get(sysRoot, "class", "net", name, "speed")),
+                                      StandardCharsets.US_ASCII).trim();
+            long mbits = Long.parseLong(speed);
+            if(mbits > 0)
+                return mbits * 125000;
+        } catch(IOException | NumberFormatException e) {
+            /* Not known */
+        }
+        return DEFAULT_BANDWIDTH;
+    }
+
+    public void terminate() {
+    }
+}
@@ -26,13 +26,21 @@ import org.slf4j.LoggerFactory;
  * follows: A ThresholdNotify.notify method is invoked when the high threshold
  * is breached, and again invoked when the Calculable drops below the high
  * threshold. Low threshold processing occurs in the same manner
+ *
+ * <p>The thresholds and step are copied from the ThresholdValues when they are
+ * set, so values are checked against primitive fields, and the ThresholdValues
+ * are only updated when a threshold is crossed. The current thresholds are read
+ * from the ThresholdValues when they are needed, since they may be reset by
+ * the holder of the ThresholdValues.</p>
  */
 public class BoundedThresholdManager extends ThresholdManager {
-    private boolean thresholdCrossed = false;
     private static final int CLEARED = 0;
     private static final int BREACHED_LOWER = 1;
     private static final int BREACHED_UPPER = 2;
-    private int direction = 0;
+    private int direction = CLEARED;
+    private double low = Double.NaN;
+    private double high = Double.NaN;
+    private double step;
     private final String id;
     static Logger logger = LoggerFactory.getLogger("org.rioproject.watch");
 
@@ -41,7 +49,7 @@ public class BoundedThresholdManager extends ThresholdManager {
     }
 
     public boolean getThresholdCrossed() {
-        return (thresholdCrossed);
+        return direction != CLEARED;
     }
 
     @Override
@@ -49,35 +57,53 @@ public class BoundedThresholdManager extends ThresholdManager {
         return id;
     }
 
+    @Override
+    public void setThresholdValues(ThresholdValues thresholdValues) {
+        super.setThresholdValues(thresholdValues);
+        ThresholdValues tVals = getThresholdValues();
+        low = tVals.getLowThreshold();
+        high = tVals.getHighThreshold();
+        step = tVals.getStep();
+    }
+
+    @Override
+    protected boolean mayCross(double value) {
+        switch(direction) {
+            case BREACHED_UPPER:
+                return value < high || (value > high && (step <= 0 || value - thresholdValues.getCurrentHighThreshold() >= step));
+            case BREACHED_LOWER:
+                return value > low || (value < low && (step <= 0 || Math.abs(thresholdValues.getCurrentLowThreshold() - value) >= step));
+            default:
+                return value > high || value < low;
+        }
+    }
+
     public void checkThreshold(Calculable calculable) {
-        ThresholdValues thresholdValues = getThresholdValues();
         double value = calculable.getValue();
-        if(thresholdCrossed) {
-            if(direction == BREACHED_UPPER) {
-                if(value < thresholdValues.getHighThreshold()) {
-                    thresholdCrossed = false;
-                    direction = CLEARED;
-                    /* the next 2 lines produce a cleared event*/
-                    thresholdValues.incThresholdClearedCount();
-                    notifyListeners(calculable, ThresholdType.CLEARED);
-                    checkLowThresholdBreach(calculable);
-                } else {
-                    checkHighThresholdBreach(calculable);
-                }
-            } else if(direction == BREACHED_LOWER) {
-                if(value > thresholdValues.getLowThreshold()) {
-                    thresholdCrossed = false;
-                    direction = CLEARED;
-                    thresholdValues.incThresholdClearedCount();
-                    notifyListeners(calculable, ThresholdType.CLEARED);
-                    checkHighThresholdBreach(calculable);
-                } else {                    
-                    checkLowThresholdBreach(calculable);
-                }
+        if(!mayCross(value))
+            return;
+        if(direction == BREACHED_UPPER) {
+            if(value < high) {
+                direction = CLEARED;
+                /* the next 2 lines produce a cleared event*/
+                thresholdValues.incThresholdClearedCount();
+                notifyListeners(calculable, ThresholdType.CLEARED);
+                checkLowThresholdBreach(calculable, value);
+            } else {
+                checkHighThresholdBreach(calculable, value);
+            }
+        } else if(direction == BREACHED_LOWER) {
+            if(value > low) {
+                direction = CLEARED;
+                thresholdValues.incThresholdClearedCount();
+                notifyListeners(calculable, ThresholdType.CLEARED);
+                checkHighThresholdBreach(calculable, value);
+            } else {
+                checkLowThresholdBreach(calculable, value);
             }
         } else {
-            checkHighThresholdBreach(calculable);
-            checkLowThresholdBreach(calculable);
+            checkHighThresholdBreach(calculable, value);
+            checkLowThresholdBreach(calculable, value);
         }
     }
 
@@ -85,19 +111,17 @@ public class BoundedThresholdManager extends ThresholdManager {
      * Check if the Calculable has crossed the high threshold
      *
      * @param calculable The Calculable value to check
+     * @param value The value of the Calculable
      */
-    private void checkHighThresholdBreach(Calculable calculable) {
-        double value = calculable.getValue();
-        if(value > thresholdValues.getHighThreshold()) {
+    private void checkHighThresholdBreach(Calculable calculable, double value) {
+        if(value > high) {
             boolean notify;
-            if(thresholdValues.getStep()>0 && thresholdCrossed) {
-                double diff = value - thresholdValues.getCurrentHighThreshold();
-                notify = diff >= thresholdValues.getStep();
+            if(step>0 && direction != CLEARED) {
+                notify = value - thresholdValues.getCurrentHighThreshold() >= step;
             } else {
                 notify = true;
             }
             if(notify) {
-                thresholdCrossed = true;
                 direction = BREACHED_UPPER;
                 thresholdValues.incThresholdBreachedCount();
                 thresholdValues.setCurrentHighThreshold(value);
@@ -110,19 +134,17 @@ public class BoundedThresholdManager extends ThresholdManager {
      * Check if the Calculable has crossed the low threshold
      *
      * @param calculable The Calculable value to check
+     * @param value The value of the Calculable
      */
-    private void checkLowThresholdBreach(Calculable calculable) {
-        double value = calculable.getValue();
-        if(value < thresholdValues.getLowThreshold()) {
+    private void checkLowThresholdBreach(Calculable calculable, double value) {
+        if(value < low) {
             boolean notify;
-            if(thresholdValues.getStep()>0 && thresholdCrossed) {
-                double diff = Math.abs(thresholdValues.getCurrentLowThreshold()-value);
-                notify = diff >= thresholdValues.getStep();
+            if(step>0 && direction != CLEARED) {
+                notify = Math.abs(thresholdValues.getCurrentLowThreshold() - value) >= step;
             } else {
                 notify = true;
             }
             if(notify) {
-                thresholdCrossed = true;
                 direction = BREACHED_LOWER;
                 thresholdValues.incThresholdBreachedCount();
                 thresholdValues.setCurrentLowThreshold(value);
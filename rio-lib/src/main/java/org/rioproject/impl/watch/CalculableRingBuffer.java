@@ -0,0 +1,288 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.rioproject.watch.Calculable;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A fixed capacity history of {@link Calculable} records used by the {@link WatchDataSourceImpl}
+ * when configured for ring buffer history.
+ *
+ * <p>Timestamps and values are held in parallel {@code long[]} and {@code double[]} arrays alongside
+ * the recorded {@code Calculable}, so adding a record never shifts the history and range checks do
+ * not need to dereference each {@code Calculable}. While the retained records are in time order, a time
+ * range is found with a binary search rather than a scan. Writers are serialized through the write mode of a
+ * {@link StampedLock}, making the buffer single-writer. Readers use optimistic reads that are validated
+ * after the copy, and only fall back to a read lock when a reader keeps losing the race with writers.</p>
+ */
+class CalculableRingBuffer {
+    /** Number of optimistic read attempts before falling back to a read lock */
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+    private final StampedLock lock = new StampedLock();
+    private long[] whens;
+    private double[] values;
+    private Calculable[] calculables;
+    /** Total number of records added since the last clear or resize */
+    private long head;
+    /** The position of the last record added with a time earlier than the record before it, or -1 */
+    private long lastUnordered = -1;
+
+    /**
+     * Create a CalculableRingBuffer
+     *
+     * @param capacity The maximum number of records to retain, must be greater than zero
+     */
+    CalculableRingBuffer(final int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be greater than zero");
+        allocate(capacity);
+    }
+
+    private void allocate(final int capacity) {
+        whens = new long[capacity];
+        values = new double[capacity];
+        calculables = new Calculable[capacity];
+    }
+
+    /**
+     * Add a Calculable to the history, overwriting the oldest record if the history is full
+     *
+     * @param calculable The Calculable to add
+     */
+    void add(final Calculable calculable) {
+        long stamp = lock.writeLock();
+        try {
+            int index = (int)(head % calculables.length);
+            if(head > 0 && calculable.getWhen() < whens[(int)((head - 1) % calculables.length)])
+                lastUnordered = head;
+            whens[index] = calculable.getWhen();
+            values[index] = calculable.getValue();
+            calculables[index] = calculable;
+            head++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The maximum number of records the history retains
+     */
+    int capacity() {
+        long stamp = lock.tryOptimisticRead();
+        int capacity = calculables.length;
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                capacity = calculables.length;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * @return The number of records in the history
+     */
+    int size() {
+        long stamp = lock.tryOptimisticRead();
+        long count = head;
+        int capacity = calculables.length;
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = head;
+                capacity = calculables.length;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return (int)Math.min(count, capacity);
+    }
+
+    /**
+     * Change the capacity of the history, retaining the newest records that fit
+     *
+     * @param capacity The new capacity, must be greater than zero
+     */
+    void resize(final int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be greater than zero");
+        long stamp = lock.writeLock();
+        try {
+            if(capacity == calculables.length)
+                return;
+            long[] oldWhens = whens;
+            double[] oldValues = values;
+            Calculable[] oldCalculables = calculables;
+            int oldCapacity = oldCalculables.length;
+            int retain = (int)Math.min(Math.min(head, oldCapacity), capacity);
+            allocate(capacity);
+            lastUnordered = -1;
+            for(int i = 0; i < retain; i++) {
+                int from = (int)((head - retain + i) % oldCapacity);
+                whens[i] = oldWhens[from];
+                values[i] = oldValues[from];
+                calculables[i] = oldCalculables[from];
+                if(i > 0 && whens[i] < whens[i - 1])
+                    lastUnordered = i;
+            }
+            head = retain;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove all records from the history
+     */
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(calculables, null);
+            head = 0;
+            lastUnordered = -1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The most recently added Calculable, or {@code null} if the history is empty
+     */
+    Calculable last() {
+        long stamp = lock.tryOptimisticRead();
+        Calculable[] slots = calculables;
+        long count = head;
+        Calculable last = count == 0 ? null : slots[(int)((count - 1) % slots.length)];
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                last = head == 0 ? null : calculables[(int)((head - 1) % calculables.length)];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @return The records in the history, oldest first
+     */
+    Calculable[] toArray() {
+        return range(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the records recorded within a time range
+     *
+     * @param from The start time, inclusive
+     * @param to The end time, inclusive
+     *
+     * @return The records in the history within the time range, oldest first
+     */
+    Calculable[] range(final long from, final long to) {
+        for(int i = 0; i < OPTIMISTIC_ATTEMPTS; i++) {
+            long stamp = lock.tryOptimisticRead();
+            if(stamp == 0)
+                continue;
+            long[] w = whens;
+            Calculable[] slots = calculables;
+            long count = head;
+            long unordered = lastUnordered;
+            if(!lock.validate(stamp))
+                continue;
+            Calculable[] result = copy(w, slots, count, unordered, from, to);
+            if(lock.validate(stamp))
+                return result;
+        }
+        long stamp = lock.readLock();
+        try {
+            return copy(whens, calculables, head, lastUnordered, from, to);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static Calculable[] copy(final long[] w,
+                                     final Calculable[] slots,
+                                     final long count,
+                                     final long unordered,
+                                     final long from,
+                                     final long to) {
+        int capacity = slots.length;
+        int size = (int)Math.min(count, capacity);
+        int start = (int)((count - size) % capacity);
+        if(from == Long.MIN_VALUE && to == Long.MAX_VALUE)
+            return copy(slots, start, 0, size);
+        if(unordered <= count - size) {
+            /* The retained records are in time order, binary search for the range */
+            int first = firstAtOrAfter(w, start, size, from);
+            int last = to == Long.MAX_VALUE ? size : firstAtOrAfter(w, start, size, to + 1);
+            return copy(slots, start, first, Math.max(last - first, 0));
+        }
+        int matched = 0;
+        for(int i = 0, index = start; i < size; i++) {
+            long when = w[index];
+            if(when >= from && when <= to)
+                matched++;
+            if(++index == capacity)
+                index = 0;
+        }
+        Calculable[] result = new Calculable[matched];
+        for(int i = 0, n = 0, index = start; i < size && n < matched; i++) {
+            long when = w[index];
+            if(when >= from && when <= to)
+                result[n++] = slots[index];
+            if(++index == capacity)
+                index = 0;
+        }
+        return result;
+    }
+
+    /*
+     * Copy length records starting at the offset from the oldest record
+     */
+    private static Calculable[] copy(final Calculable[] slots, final int start, final int offset, final int length) {
+        int capacity = slots.length;
+        Calculable[] result = new Calculable[length];
+        int first = (start + offset) % capacity;
+        int firstPart = Math.min(length, capacity - first);
+        System.arraycopy(slots, first, result, 0, firstPart);
+        System.arraycopy(slots, 0, result, firstPart, length - firstPart);
+        return result;
+    }
+
+    /*
+     * Binary search time ordered records for the offset from the oldest record of the first record at or
+     * after a time
+     */
+    private static int firstAtOrAfter(final long[] w, final int start, final int size, final long when) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(w[(start + mid) % w.length] < when)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.rioproject.watch.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records values into {@link Histogram} buckets from any number of threads, without allocating per value.
+ * Each call to {@link #drain(Histogram)} fills a {@code Histogram} with the values recorded since the previous
+ * drain. Buckets are drained atomically, so a value recorded concurrently with a drain is counted in either the
+ * drained interval or the next one, never lost.
+ */
+public class HistogramRecorder {
+    private final Histogram layout;
+    private final AtomicLongArray counts;
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Create a HistogramRecorder
+     *
+     * @param highestTrackableValue The highest value to track
+     * @param significantBits The number of significant bits kept for each value
+     */
+    public HistogramRecorder(final long highestTrackableValue, final int significantBits) {
+        layout = new Histogram(highestTrackableValue, significantBits);
+        counts = new AtomicLongArray(layout.getBucketCount());
+    }
+
+    /**
+     * Record a value
+     *
+     * @param value The value to record, values less than zero are recorded as zero
+     */
+    public void record(final long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(layout.indexFor(v));
+        long current;
+        while(v < (current = min.get()) && !min.compareAndSet(current, v)) {
+            /* retry */
+        }
+        while(v > (current = max.get()) && !max.compareAndSet(current, v)) {
+            /* retry */
+        }
+    }
+
+    /**
+     * Get the values recorded since the last drain, and reset the recorder
+     *
+     * @param histogram Receives the values recorded since the last drain, replacing its contents. It must
+     * have the layout of this recorder
+     *
+     * @return The histogram provided
+     */
+    public Histogram drain(final Histogram histogram) {
+        if(histogram.getHighestTrackableValue() != layout.getHighestTrackableValue() ||
+           histogram.getSignificantBits() != layout.getSignificantBits())
+            throw new IllegalArgumentException("The histogram does not have the layout of the recorder");
+        histogram.reset();
+        long minValue = min.getAndSet(Long.MAX_VALUE);
+        long maxValue = max.getAndSet(Long.MIN_VALUE);
+        for(int i = 0; i < counts.length(); i++) {
+            if(counts.get(i) != 0)
+                histogram.recordCountAtIndex(i, counts.getAndSet(i, 0));
+        }
+        if(histogram.getTotalCount() > 0) {
+            /* A value counted in this interval may have had its extremes recorded after they were read */
+            if(maxValue == Long.MIN_VALUE)
+                maxValue = histogram.highestValueAt(highestIndex(histogram));
+            if(minValue == Long.MAX_VALUE)
+                minValue = histogram.lowestValueAt(lowestIndex(histogram));
+            histogram.recordExtremes(minValue, maxValue);
+        }
+        return histogram;
+    }
+
+    private static int highestIndex(final Histogram histogram) {
+        for(int i = histogram.getBucketCount() - 1; i > 0; i--) {
+            if(histogram.getCountAtIndex(i) != 0)
+                return i;
+        }
+        return 0;
+    }
+
+    private static int lowestIndex(final Histogram histogram) {
+        for(int i = 0; i < histogram.getBucketCount(); i++) {
+            if(histogram.getCountAtIndex(i) != 0)
+                return i;
+        }
+        return 0;
+    }
+}
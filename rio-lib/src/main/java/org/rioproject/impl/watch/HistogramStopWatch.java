@@ -0,0 +1,260 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import net.jini.config.ConfigurationException;
+import net.jini.config.EmptyConfiguration;
+import org.rioproject.watch.Histogram;
+import org.rioproject.watch.HistogramCalculable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link StopWatch} that records elapsed times into a fixed-memory {@link Histogram} instead of adding a
+ * {@code Calculable} for each elapsed time. Recording an elapsed time does not allocate.
+ *
+ * <p>At each period a single {@link HistogramCalculable} is added to the watch, summarizing the elapsed times
+ * recorded during the period. Its value is the elapsed time at the threshold percentile (the 99th percentile
+ * by default), so a threshold set on this watch is checked against that percentile once per period. Intervals
+ * with no recorded times do not add a {@code HistogramCalculable}. Summaries can be merged, see
+ * {@link HistogramCalculable#merge}.</p>
+ *
+ * <p>The watch is sampled by the {@link SamplingScheduler} once {@link #start()} is called. The following
+ * configuration entries are supported, using the component name <tt>org.rioproject.watch</tt>:</p>
+ * <ul>
+ * <li><tt>histogramHighestTrackableValue</tt>: The highest elapsed time, in milliseconds, tracked by the
+ * histogram. Defaults to 1 hour</li>
+ * <li><tt>histogramSignificantBits</tt>: The number of significant bits kept for each elapsed time.
+ * Defaults to {@link Histogram#DEFAULT_SIGNIFICANT_BITS}</li>
+ * </ul>
+ */
+public class HistogramStopWatch extends StopWatch implements HistogramStopWatchMBean {
+    /** The default highest trackable elapsed time, 1 hour */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = 60 * 60 * 1000;
+    private final HistogramRecorder recorder;
+    /* The elapsed times of the period being published, reused for each period, guarded by the recorder */
+    private final Histogram interval;
+    /* The elapsed times published since the watch was created, guarded by itself */
+    private final Histogram cumulative;
+    private final long[] bucketBounds;
+    private final ThreadLocal<long[]> startTime = ThreadLocal.withInitial(() -> new long[1]);
+    private volatile double thresholdPercentile = HistogramCalculable.DEFAULT_THRESHOLD_PERCENTILE;
+    private long period = PeriodicWatch.DEFAULT_PERIOD;
+    private SamplingScheduler.Registration registration;
+    private static final Logger logger = LoggerFactory.getLogger(HistogramStopWatch.class);
+
+    /**
+     * Creates new HistogramStopWatch
+     *
+     * @param id the identifier for this watch
+     */
+    public HistogramStopWatch(final String id) {
+        this(id, EmptyConfiguration.INSTANCE);
+    }
+
+    /**
+     * Creates new HistogramStopWatch, creates and exports a WatchDataSourceImpl if the WatchDataSource is
+     * null using the Configuration object provided
+     *
+     * @param id The identifier for this watch
+     * @param config Configuration object used for constructing a WatchDataSource and the histogram
+     */
+    public HistogramStopWatch(final String id, final Configuration config) {
+        super(id, config);
+        long highestTrackableValue;
+        int significantBits;
+        try {
+            highestTrackableValue = Config.getLongEntry(config,
+                                                        COMPONENT,
+                                                        "histogramHighestTrackableValue",
+                                                        DEFAULT_HIGHEST_TRACKABLE_VALUE,
+                                                        2,
+                                                        Long.MAX_VALUE);
+            significantBits = Config.getIntEntry(config,
+                                                 COMPONENT,
+                                                 "histogramSignificantBits",
+                                                 Histogram.DEFAULT_SIGNIFICANT_BITS,
+                                                 2,
+                                                 16);
+        } catch(ConfigurationException e) {
+            logger.warn("Getting histogram configuration for [{}], using defaults", id, e);
+            highestTrackableValue = DEFAULT_HIGHEST_TRACKABLE_VALUE;
+            significantBits = Histogram.DEFAULT_SIGNIFICANT_BITS;
+        }
+        recorder = new HistogramRecorder(highestTrackableValue, significantBits);
+        interval = new Histogram(highestTrackableValue, significantBits);
+        cumulative = new Histogram(highestTrackableValue, significantBits);
+        int bounds = 64 - Long.numberOfLeadingZeros(highestTrackableValue);
+        bucketBounds = new long[bounds];
+        for(int i = 0; i < bounds; i++)
+            bucketBounds[i] = (1L << i) - 1;
+    }
+
+    /**
+     * @see StopWatchMBean#setElapsedTime(long, long)
+     */
+    @Override
+    public void setElapsedTime(final long elapsed, final long now) {
+        recorder.record(elapsed);
+    }
+
+    /**
+     * Record an elapsed time. The detail is not kept, elapsed times are only available as part of the
+     * histogram summary.
+     */
+    @Override
+    public void setElapsedTime(final long elapsed, final long now, final String detail) {
+        recorder.record(elapsed);
+    }
+
+    /**
+     * @see StopWatchMBean#getStartTime
+     */
+    @Override
+    public long getStartTime() {
+        return startTime.get()[0];
+    }
+
+    /**
+     * @see StopWatchMBean#setStartTime(long)
+     */
+    @Override
+    public void setStartTime(final long start) {
+        startTime.get()[0] = start;
+    }
+
+    /**
+     * Publish a {@link HistogramCalculable} for the elapsed times recorded since the last check
+     */
+    public void checkValue() {
+        HistogramCalculable summary = null;
+        synchronized(recorder) {
+            recorder.drain(interval);
+            if(interval.getTotalCount() > 0) {
+                synchronized(cumulative) {
+                    cumulative.merge(interval);
+                }
+                summary = new HistogramCalculable(id, interval, thresholdPercentile, System.currentTimeMillis());
+            }
+        }
+        if(summary != null)
+            addWatchRecord(summary);
+    }
+
+    /**
+     * Get the upper bounds used by {@link #getCumulativeCounts(long[])}. The bounds are one less than each
+     * power of two up to the highest trackable value, which fall on bucket boundaries of the histogram, so
+     * the counts for them are exact.
+     *
+     * @return The upper bounds, in ascending order
+     */
+    public long[] getBucketBounds() {
+        return bucketBounds.clone();
+    }
+
+    /**
+     * Get the number of elapsed times published since the watch was created that are at or below each of
+     * the {@link #getBucketBounds() bucket bounds}
+     *
+     * @param counts Receives the count for each bucket bound, must be at least as long as the bucket bounds
+     *
+     * @return The total number of elapsed times published since the watch was created
+     */
+    public long getCumulativeCounts(final long[] counts) {
+        synchronized(cumulative) {
+            long total = 0;
+            int bound = 0;
+            for(int i = 0; i < cumulative.getBucketCount(); i++) {
+                long count = cumulative.getCountAtIndex(i);
+                if(count == 0)
+                    continue;
+                long highest = cumulative.highestValueAt(i);
+                while(bound < bucketBounds.length && highest > bucketBounds[bound])
+                    counts[bound++] = total;
+                total += count;
+            }
+            while(bound < bucketBounds.length)
+                counts[bound++] = total;
+            return total;
+        }
+    }
+
+    /**
+     * @return The sum of the elapsed times published since the watch was created, estimated from the
+     * histogram bucket mid-points
+     */
+    public double getCumulativeSum() {
+        synchronized(cumulative) {
+            return cumulative.getMean() * cumulative.getTotalCount();
+        }
+    }
+
+    /**
+     * @see HistogramStopWatchMBean#getThresholdPercentile
+     */
+    public double getThresholdPercentile() {
+        return thresholdPercentile;
+    }
+
+    /**
+     * @see HistogramStopWatchMBean#setThresholdPercentile
+     */
+    public void setThresholdPercentile(final double percentile) {
+        if(percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        this.thresholdPercentile = percentile;
+    }
+
+    /**
+     * @see PeriodicWatchMBean#start
+     */
+    public synchronized void start() {
+        stop();
+        registration = SamplingScheduler.getInstance().schedule(this, period);
+    }
+
+    /**
+     * @see PeriodicWatchMBean#stop
+     */
+    public synchronized void stop() {
+        if(registration != null)
+            registration.cancel();
+    }
+
+    /**
+     * @see PeriodicWatchMBean#getPeriod
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * @see PeriodicWatchMBean#setPeriod
+     */
+    public synchronized void setPeriod(final long newPeriod) {
+        if(newPeriod == period)
+            return;
+        if(newPeriod <= 0)
+            throw new IllegalArgumentException("period cannot be less then or equal to zero");
+        this.period = newPeriod;
+        if(registration != null && !registration.isCancelled()) {
+            stop();
+            start();
+        }
+    }
+}
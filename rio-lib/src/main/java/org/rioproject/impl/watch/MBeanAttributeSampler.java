@@ -0,0 +1,175 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the attributes of an MBean that are sampled by {@link SamplingWatch} instances with the same period
+ * in one {@link MBeanServerConnection#getAttributes(ObjectName, String[])} call per tick.
+ *
+ * <p>Each sampled attribute is represented by a {@link Member}, which is set as the bean of a
+ * {@code SamplingWatch} with a property of {@link Member#PROPERTY}. Since all of the watches have the same
+ * period, the {@link SamplingScheduler} samples them in the same tick. The first member sampled in a tick
+ * reads the attributes of every member, the other members use the values read. A member reads again if the
+ * values are older than half the period, so the values are never stale if the period of a watch is
+ * changed.</p>
+ */
+public class MBeanAttributeSampler {
+    private final MBeanServerConnection connection;
+    private final ObjectName objectName;
+    private final long period;
+    private final List<Member> members = new ArrayList<>();
+    private String[] attributes = new String[0];
+    private final Map<String, Object> values = new HashMap<>();
+    private long readTime;
+    private static final Logger logger = LoggerFactory.getLogger(MBeanAttributeSampler.class);
+
+    /**
+     * Create an MBeanAttributeSampler
+     *
+     * @param connection The MBeanServerConnection to read attributes from, must not be null
+     * @param objectName The ObjectName of the MBean, must not be null
+     * @param period The period of the watches that sample the attributes
+     */
+    public MBeanAttributeSampler(final MBeanServerConnection connection, final ObjectName objectName, final long period) {
+        if(connection==null)
+            throw new IllegalArgumentException("connection is null");
+        if(objectName==null)
+            throw new IllegalArgumentException("objectName is null");
+        this.connection = connection;
+        this.objectName = objectName;
+        this.period = period;
+    }
+
+    public MBeanServerConnection getConnection() {
+        return connection;
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Add an attribute to read
+     *
+     * @param attribute The name of the attribute, must not be null
+     *
+     * @return A Member that provides the value of the attribute
+     */
+    public synchronized Member add(final String attribute) {
+        if(attribute==null)
+            throw new IllegalArgumentException("attribute is null");
+        Member member = new Member(attribute);
+        members.add(member);
+        updateAttributes();
+        return member;
+    }
+
+    /**
+     * Remove a Member
+     *
+     * @param member The Member to remove
+     *
+     * @return True if there are no more members
+     */
+    public synchronized boolean remove(final Member member) {
+        members.remove(member);
+        updateAttributes();
+        return members.isEmpty();
+    }
+
+    private void updateAttributes() {
+        List<String> names = new ArrayList<>();
+        for(Member member : members) {
+            if(!names.contains(member.attribute))
+                names.add(member.attribute);
+        }
+        attributes = names.toArray(new String[0]);
+        /* Read on the next sample, so an added attribute is not read as missing */
+        readTime = 0;
+    }
+
+    private synchronized Object getValue(final Member member) {
+        long now = System.currentTimeMillis();
+        if(member.read || now - readTime > period / 2) {
+            read();
+            readTime = now;
+            for(Member m : members)
+                m.read = false;
+        }
+        member.read = true;
+        return values.get(member.attribute);
+    }
+
+    private void read() {
+        values.clear();
+        try {
+            AttributeList list = connection.getAttributes(objectName, attributes);
+            for(Attribute attribute : list.asList())
+                values.put(attribute.getName(), attribute.getValue());
+            if(list.size() < attributes.length && logger.isDebugEnabled())
+                logger.debug("Read {} of {} attributes from MBean [{}]", list.size(), attributes.length, objectName);
+        } catch(Exception e) {
+            logger.warn("Reading attributes from MBean [{}]: {}", objectName, e.toString());
+        }
+    }
+
+    /**
+     * An attribute read by the MBeanAttributeSampler
+     */
+    public class Member {
+        /** The property a SamplingWatch uses to get the value of the attribute */
+        public static final String PROPERTY = "value";
+        private final String attribute;
+        private boolean read;
+
+        private Member(final String attribute) {
+            this.attribute = attribute;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        public MBeanAttributeSampler getSampler() {
+            return MBeanAttributeSampler.this;
+        }
+
+        /**
+         * Get the value of the attribute
+         *
+         * @return The value of the attribute, or null if it could not be read
+         */
+        public Object getValue() {
+            return MBeanAttributeSampler.this.getValue(this);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.rioproject.impl.system.ComputeResource;
+import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.watch.Calculable;
+import org.rioproject.web.ContentProvider;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Renders the watches in {@link WatchRegistry} instances, and the measurable capabilities of a
+ * {@link ComputeResource}, in the OpenMetrics text format, for scraping by Prometheus and compatible
+ * monitoring systems.
+ *
+ * <p>The following metric families are written:</p>
+ * <ul>
+ * <li><tt>rio_watch</tt>: A gauge with the last value recorded by each watch, labeled with the
+ * <tt>opstring</tt>, <tt>service</tt> and <tt>instance</tt> of the {@link Scope}, and the <tt>watch</tt>
+ * id</li>
+ * <li><tt>rio_watch_elapsed_milliseconds</tt>: A histogram of the elapsed times published by each
+ * {@link HistogramStopWatch} since it was created, with the same labels</li>
+ * <li><tt>rio_compute_resource</tt>: A gauge with the last value recorded by each measurable capability of
+ * the ComputeResource, labeled with the <tt>host</tt> and <tt>measurable</tt> id</li>
+ * </ul>
+ *
+ * <p>The metrics are written directly to the provided Writer as they are read from the watches, values are
+ * read from the local watch history without copying it.</p>
+ */
+public class OpenMetricsExporter implements ContentProvider {
+    /** The OpenMetrics text format content type */
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final String WATCH = "rio_watch";
+    private static final String ELAPSED = "rio_watch_elapsed_milliseconds";
+    private static final String COMPUTE_RESOURCE = "rio_compute_resource";
+    private final ComputeResource computeResource;
+    private final Supplier<? extends Collection<Scope>> scopes;
+
+    /**
+     * Create an OpenMetricsExporter
+     *
+     * @param computeResource The ComputeResource whose measurable capabilities are written, may be null
+     * @param scopes Provides the watch registries to write for each request, must not be null
+     */
+    public OpenMetricsExporter(final ComputeResource computeResource, final Supplier<? extends Collection<Scope>> scopes) {
+        if(scopes == null)
+            throw new IllegalArgumentException("scopes is null");
+        this.computeResource = computeResource;
+        this.scopes = scopes;
+    }
+
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    public void write(final Writer out) throws IOException {
+        Collection<Scope> current = scopes.get();
+        char[] buffer = new char[20];
+
+        boolean header = false;
+        for(Scope scope : current) {
+            for(Watch watch : scope.registry.getWatches()) {
+                if(watch == null || watch instanceof HistogramStopWatch || watch instanceof MeasurableCapability)
+                    continue;
+                Calculable last = watch.getLastCalculable();
+                if(last == null)
+                    continue;
+                if(!header) {
+                    out.write("# TYPE rio_watch gauge\n# HELP rio_watch The last value recorded by the watch\n");
+                    header = true;
+                }
+                writeName(out, WATCH, null, scope, watch.getId());
+                out.write("} ");
+                writeDouble(out, last.getValue(), buffer);
+                out.write('\n');
+            }
+        }
+
+        header = false;
+        long[] counts = null;
+        for(Scope scope : current) {
+            for(Watch watch : scope.registry.getWatches()) {
+                if(!(watch instanceof HistogramStopWatch))
+                    continue;
+                HistogramStopWatch histogramWatch = (HistogramStopWatch)watch;
+                long[] bounds = histogramWatch.getBucketBounds();
+                if(counts == null || counts.length < bounds.length)
+                    counts = new long[bounds.length];
+                long total = histogramWatch.getCumulativeCounts(counts);
+                if(!header) {
+                    out.write("# TYPE rio_watch_elapsed_milliseconds histogram\n" +
+                              "# UNIT rio_watch_elapsed_milliseconds milliseconds\n" +
+                              "# HELP rio_watch_elapsed_milliseconds The elapsed times recorded by the watch\n");
+                    header = true;
+                }
+                for(int i = 0; i < bounds.length; i++) {
+                    writeName(out, ELAPSED, "_bucket", scope, watch.getId());
+                    out.write(",le=\"");
+                    writeLong(out, bounds[i], buffer);
+                    out.write(".0\"} ");
+                    writeLong(out, counts[i], buffer);
+                    out.write('\n');
+                }
+                writeName(out, ELAPSED, "_bucket", scope, watch.getId());
+                out.write(",le=\"+Inf\"} ");
+                writeLong(out, total, buffer);
+                out.write('\n');
+                writeName(out, ELAPSED, "_count", scope, watch.getId());
+                out.write("} ");
+                writeLong(out, total, buffer);
+                out.write('\n');
+                writeName(out, ELAPSED, "_sum", scope, watch.getId());
+                out.write("} ");
+                writeDouble(out, histogramWatch.getCumulativeSum(), buffer);
+                out.write('\n');
+            }
+        }
+
+        if(computeResource != null) {
+            String host = computeResource.getHostName();
+            header = false;
+            for(MeasurableCapability measurable : computeResource.getMeasurableCapabilities()) {
+                Calculable last = measurable.getLastCalculable();
+                if(last == null)
+                    continue;
+                if(!header) {
+                    out.write("# TYPE rio_compute_resource gauge\n" +
+                              "# HELP rio_compute_resource The last value recorded by the measurable capability\n");
+                    header = true;
+                }
+                out.write(COMPUTE_RESOURCE);
+                out.write("{host=\"");
+                writeEscaped(out, host);
+                out.write("\",measurable=\"");
+                writeEscaped(out, measurable.getId());
+                out.write("\"} ");
+                writeDouble(out, last.getValue(), buffer);
+                out.write('\n');
+            }
+        }
+        out.write("# EOF\n");
+        out.flush();
+    }
+
+    /*
+     * Write the metric name and the labels of the scope and watch, leaving the label set open
+     */
+    private static void writeName(final Writer out,
+                                  final String name,
+                                  final String suffix,
+                                  final Scope scope,
+                                  final String watchId) throws IOException {
+        out.write(name);
+        if(suffix != null)
+            out.write(suffix);
+        out.write('{');
+        out.write(scope.labels);
+        out.write("watch=\"");
+        writeEscaped(out, watchId);
+        out.write('"');
+    }
+
+    static void writeDouble(final Writer out, final double value, final char[] buffer) throws IOException {
+        if(Double.isNaN(value))
+            out.write("NaN");
+        else if(Double.isInfinite(value))
+            out.write(value > 0 ? "+Inf" : "-Inf");
+        else if(value == Math.rint(value) && Math.abs(value) < 1L << 53)
+            writeLong(out, (long)value, buffer);
+        else
+            out.write(Double.toString(value));
+    }
+
+    /*
+     * Write the decimal digits of a value without creating a String
+     */
+    static void writeLong(final Writer out, final long value, final char[] buffer) throws IOException {
+        if(value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        long v = Math.abs(value);
+        int position = buffer.length;
+        do {
+            buffer[--position] = (char)('0' + v % 10);
+            v /= 10;
+        } while(v != 0);
+        if(value < 0)
+            buffer[--position] = '-';
+        out.write(buffer, position, buffer.length - position);
+    }
+
+    static void writeEscaped(final Writer out, final String value) throws IOException {
+        if(value == null)
+            return;
+        int length = value.length();
+        int start = 0;
+        for(int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if(c == '\\' || c == '"' || c == '\n') {
+                out.write(value, start, i - start);
+                out.write(c == '\n' ? "\\n" : c == '\\' ? "\\\\" : "\\\"");
+                start = i + 1;
+            }
+        }
+        out.write(value, start, length - start);
+    }
+
+    /**
+     * A WatchRegistry and the labels its watches are written with
+     */
+    public static class Scope {
+        private final WatchRegistry registry;
+        private final String labels;
+
+        /**
+         * Create a Scope
+         *
+         * @param registry The WatchRegistry, must not be null
+         * @param opstring The name of the OperationalString the service is part of, may be null
+         * @param service The name of the service, may be null
+         * @param instance The instance identifier of the service, may be null
+         */
+        public Scope(final WatchRegistry registry, final String opstring, final String service, final Object instance) {
+            if(registry == null)
+                throw new IllegalArgumentException("registry is null");
+            this.registry = registry;
+            StringWriter writer = new StringWriter();
+            try {
+                writeLabel(writer, "opstring", opstring);
+                writeLabel(writer, "service", service);
+                writeLabel(writer, "instance", instance == null ? null : instance.toString());
+            } catch(IOException e) {
+                throw new IllegalStateException(e);
+            }
+            labels = writer.toString();
+        }
+
+        private static void writeLabel(final Writer out, final String name, final String value) throws IOException {
+            if(value == null)
+                return;
+            out.write(name);
+            out.write("=\"");
+            writeEscaped(out, value);
+            out.write("\",");
+        }
+
+        public WatchRegistry getRegistry() {
+            return registry;
+        }
+    }
+}
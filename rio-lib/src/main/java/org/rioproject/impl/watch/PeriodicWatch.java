@@ -18,12 +18,10 @@ package org.rioproject.impl.watch;
 import net.jini.config.Configuration;
 import org.rioproject.watch.WatchDataSource;
 
-import java.util.Date;
-import java.util.Timer;
-import java.util.TimerTask;
-
 /**
- * A PeriodicWatch provides a mechanism to obtain information at preset intervals of time.
+ * A PeriodicWatch provides a mechanism to obtain information at preset intervals of time. Sampling is
+ * done by the process-wide {@link SamplingScheduler}, which samples all watches with the same period
+ * in one batch.
  *
  * @author Dennis Reedy
  */
@@ -31,7 +29,7 @@ public abstract class PeriodicWatch extends ThresholdWatch implements PeriodicWa
     /** Holds value of property period. */
     public static final long DEFAULT_PERIOD = 30 * 1000;
     private long period = DEFAULT_PERIOD;
-    private Timer watchTimer;
+    private volatile SamplingScheduler.Registration registration;
 
     /**
      * Creates new {@code PeriodicWatch}
@@ -67,19 +65,17 @@ public abstract class PeriodicWatch extends ThresholdWatch implements PeriodicWa
     /**
      * @see PeriodicWatchMBean#start
      */
-    public void start() {
-        long now = System.currentTimeMillis();
+    public synchronized void start() {
         stop();
-        watchTimer = new Timer(true);
-        watchTimer.schedule(new PeriodicTask(), new Date(now+period), period);
+        registration = SamplingScheduler.getInstance().schedule(this, period);
     }
 
     /**
      * @see PeriodicWatchMBean#stop
      */
-    public void stop() {
-        if(watchTimer != null)
-            watchTimer.cancel();
+    public synchronized void stop() {
+        if(registration != null)
+            registration.cancel();
     }
 
     /**
@@ -98,21 +94,9 @@ public abstract class PeriodicWatch extends ThresholdWatch implements PeriodicWa
         if(newPeriod <= 0)
             throw new IllegalArgumentException("period cannot be less then or equal to zero");
         this.period = newPeriod;
-        if(watchTimer!=null) {
+        if(registration!=null) {
             stop();
             start();
         }
     }
-
-    /**
-     * The TimerTask which calls checkValue
-     */
-    class PeriodicTask extends TimerTask {
-        /**
-         * The action to be performed by this timer task.
-         */
-        public void run() {
-            checkValue();
-        }
-    }
 }
@@ -20,18 +20,15 @@ package org.rioproject.impl.watch;
  */
 public interface PeriodicWatchMBean extends ThresholdWatchMBean {
     /**
-     * Start the PeriodicWatch. The PeriodicWatch will be started using repeated
-     * fixed-delay executions, with the first invocation of
-     * <code>checkValue</code> occurring at the time this method is invoked
-     * plus the time specified for the <code>property</code> value In
-     * fixed-delay execution, each execution is scheduled relative to the actual
-     * execution time of the previous execution. If an execution is delayed for
-     * any reason (such as garbage collection or other background activity),
-     * subsequent executions will be delayed as well. A new Timer will be
-     * created each time this method is called. If a Timer already exists, it
-     * will be cancelled.
+     * Start the PeriodicWatch. The PeriodicWatch will be scheduled with the
+     * {@link SamplingScheduler}, and sampled together with all other watches
+     * that have the same period. The first invocation of
+     * <code>checkValue</code> occurs on the first tick at least
+     * <code>period</code> milliseconds after this method is invoked. If the
+     * PeriodicWatch is already scheduled, the existing schedule will be
+     * cancelled.
      *
-     * @see java.util.Timer#schedule(java.util.TimerTask, java.util.Date, long)
+     * @see SamplingScheduler#schedule(PeriodicWatchMBean, long)
      */
     void start();
 
@@ -1,12 +1,12 @@
 /*
  * Copyright to the original author or authors.
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *         http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,7 +15,11 @@
  */
 package org.rioproject.impl.watch;
 
+import com.sun.jini.config.Config;
+import net.jini.config.Configuration;
+import net.jini.config.ConfigurationException;
 import org.rioproject.watch.Calculable;
+import org.rioproject.watch.CalculableBatch;
 import org.rioproject.watch.WatchDataReplicator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,21 +31,138 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Provides a queued approach to replicate a Watch record.
+ *
+ * <p>Records are placed on a bounded queue and replicated in batches: a batch is shipped when
+ * {@code batchSize} records are queued, or {@code maxDelay} milliseconds after the first record of the batch
+ * was queued, whichever comes first. When the queue is full the {@link OverflowPolicy} decides which records
+ * are dropped. Batches for all {@code QueuedReplicator} instances are shipped using one shared pool of
+ * threads, the number of threads is set using the <tt>org.rioproject.watch.replicator.threads</tt>
+ * system property, and defaults to 2.</p>
+ *
+ * <p>A QueuedReplicator created with a {@link Configuration} reads the following entries, using the component
+ * name <tt>org.rioproject.watch.replicator</tt>:</p>
+ * <ul>
+ * <li><tt>batchSize</tt>: The maximum number of records shipped in a batch. Defaults to
+ * {@link #DEFAULT_BATCH_SIZE}</li>
+ * <li><tt>maxDelay</tt>: The maximum time (in milliseconds) a record waits before its batch is shipped.
+ * Defaults to {@link #DEFAULT_MAX_DELAY}</li>
+ * <li><tt>capacity</tt>: The capacity of the queue, at least the batch size. Defaults to
+ * {@link #DEFAULT_CAPACITY}</li>
+ * <li><tt>overflowPolicy</tt>: The {@link OverflowPolicy}. Defaults to {@link OverflowPolicy#DROP_OLDEST}</li>
+ * <li><tt>sampleRate</tt>: For {@link OverflowPolicy#SAMPLE}, the number of overflowing records for each
+ * record kept. Defaults to {@link #DEFAULT_SAMPLE_RATE}</li>
+ * </ul>
  */
 public abstract class QueuedReplicator implements WatchDataReplicator, Serializable {
-    private static final long serialVersionUID = 1L;
-    private boolean closed = false;
-    private final BlockingQueue<Calculable> replicatorQ = new LinkedBlockingQueue<Calculable>();
-    private transient ExecutorService execService;
-    private transient CountDownLatch shutdownLatch;
+    private static final long serialVersionUID = 2L;
+    /** The component name used to read configuration entries */
+    public static final String COMPONENT = "org.rioproject.watch.replicator";
+    /** System property to set the number of threads shared by all replicators */
+    public static final String THREADS = "org.rioproject.watch.replicator.threads";
+    /** The default number of records shipped in a batch */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /** The default time (in milliseconds) a record waits to be shipped */
+    public static final long DEFAULT_MAX_DELAY = 1000;
+    /** The default capacity of the queue */
+    public static final int DEFAULT_CAPACITY = 10000;
+    /** When sampling, the default number of overflowing records for each record kept */
+    public static final int DEFAULT_SAMPLE_RATE = 10;
+    private static final int IDLE = 0;
+    private static final int DELAYED = 1;
+    private static final int IMMEDIATE = 2;
+    private final int batchSize;
+    private final long maxDelay;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private volatile boolean closed = false;
+    private transient BlockingQueue<Calculable> replicatorQ;
+    private transient AtomicInteger drainState;
+    private transient AtomicLong overflowed;
+    private transient AtomicLong dropped;
+    private transient AtomicLong replicated;
+    private transient AtomicLong batches;
+    private transient volatile long lastLag;
+    private transient volatile long maxLag;
+    private transient ReentrantLock drainLock;
     private static Logger logger = LoggerFactory.getLogger("org.rioproject.watch");
 
+    /**
+     * How records are dropped when the queue is full
+     */
+    public enum OverflowPolicy {
+        /** Drop the oldest queued record to make room for the new record */
+        DROP_OLDEST,
+        /** Drop the new record */
+        DROP_NEWEST,
+        /** Keep one in every {@code sampleRate} new records, dropping the oldest queued record to make room */
+        SAMPLE
+    }
+
+    /**
+     * Create a QueuedReplicator using the default batch size, maximum delay and capacity, dropping the oldest
+     * record when the queue is full
+     */
+    protected QueuedReplicator() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY, DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Create a QueuedReplicator using the batch size, maximum delay, capacity, overflow policy and sample rate
+     * read from a Configuration. Entries that are not provided use their default
+     *
+     * @param config The Configuration to read, must not be null
+     */
+    protected QueuedReplicator(final Configuration config) {
+        this(getIntEntry(config, "batchSize", DEFAULT_BATCH_SIZE),
+             getLongEntry(config, "maxDelay", DEFAULT_MAX_DELAY),
+             getIntEntry(config, "capacity", DEFAULT_CAPACITY),
+             getOverflowPolicy(config),
+             getIntEntry(config, "sampleRate", DEFAULT_SAMPLE_RATE));
+    }
+
+    /**
+     * Create a QueuedReplicator
+     *
+     * @param batchSize The maximum number of records shipped in a batch
+     * @param maxDelay The maximum time (in milliseconds) a record waits before its batch is shipped
+     * @param capacity The capacity of the queue
+     * @param overflowPolicy How records are dropped when the queue is full
+     * @param sampleRate For {@link OverflowPolicy#SAMPLE}, the number of overflowing records for each
+     * record kept
+     */
+    protected QueuedReplicator(final int batchSize,
+                               final long maxDelay,
+                               final int capacity,
+                               final OverflowPolicy overflowPolicy,
+                               final int sampleRate) {
+        if(batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        if(maxDelay < 0)
+            throw new IllegalArgumentException("maxDelay cannot be negative");
+        if(capacity < batchSize)
+            throw new IllegalArgumentException("capacity must be at least the batchSize");
+        if(overflowPolicy == null)
+            throw new IllegalArgumentException("overflowPolicy is null");
+        if(sampleRate < 1)
+            throw new IllegalArgumentException("sampleRate must be at least 1");
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        init();
+    }
+
     /**
      * Performs the actual write to the underlying resource
-     * 
+     *
      * @param calculable the Calculable record to replicate
      *
      * @throws IOException if the write encounters errors
@@ -65,82 +186,226 @@ public abstract class QueuedReplicator implements WatchDataReplicator, Serializa
     @SuppressWarnings("PMD.EmptyMethodInAbstractClassShouldBeAbstract")
     protected void closeResource() { }
 
-
-    public synchronized void close() {
+    /**
+     * Ship all queued records, then close the underlying resource
+     */
+    public void close() {
         closed = true;
-        if(replicatorQ!=null && !replicatorQ.isEmpty()) {
-            shutdownLatch = new CountDownLatch(1);
-            try {
-                shutdownLatch.await();
-            } catch (InterruptedException e) {
-               Thread.currentThread().interrupt();
-            }
+        drainLock.lock();
+        try {
+            ship(Integer.MAX_VALUE);
+        } finally {
+            drainLock.unlock();
         }
-        if (execService != null) {
-            execService.shutdownNow();
-            execService = null;
-        }
-        if(replicatorQ!=null)
-            replicatorQ.clear();
-
         closeResource();
     }
 
     /**
      * Archive a record from the WatchDataSource history by placing it on a
      * queue
-     * 
+     *
      * @param calculable the Calculable record to archive
      */
-    public void addCalculable(Calculable calculable) {
-        init();
-        replicatorQ.add(calculable);
-    }
-
-    private class ReplicatorTask implements Runnable {
-        public void run() {
-            while(!closed) {
-                try {
-                    Calculable calculable = replicatorQ.poll(5, TimeUnit.SECONDS);
-                    if(calculable!=null) {
-                        replicate(calculable);
-                    }
-                } catch(IOException e) {
-                    logger.warn("Replication communication failure: ", e);
-                } catch (InterruptedException e) {
-                    //logger.warn( "ReplicatorTask interrupted", e);
-                    Thread.currentThread().interrupt();
-                }
-            }
+    public void addCalculable(final Calculable calculable) {
+        if(closed || calculable == null)
+            return;
+        if(!replicatorQ.offer(calculable))
+            overflow(calculable);
+        if(replicatorQ.size() >= batchSize) {
+            if(drainState.getAndSet(IMMEDIATE) != IMMEDIATE)
+                Shipper.EXECUTOR.execute(this::drain);
+        } else if(drainState.compareAndSet(IDLE, DELAYED)) {
+            Shipper.EXECUTOR.schedule(this::drain, maxDelay, TimeUnit.MILLISECONDS);
+        }
+    }
 
+    private void overflow(final Calculable calculable) {
+        long count = overflowed.incrementAndGet();
+        if(overflowPolicy == OverflowPolicy.DROP_NEWEST ||
+           (overflowPolicy == OverflowPolicy.SAMPLE && count % sampleRate != 0)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        /* Make room by dropping the oldest record, retrying if other producers took the space */
+        while(!replicatorQ.offer(calculable)) {
+            if(replicatorQ.poll() != null)
+                dropped.incrementAndGet();
+        }
+    }
+
+    /*
+     * Ship one batch. If another thread is shipping for this replicator it will reschedule when it is done,
+     * so shared threads are never blocked waiting on a slow replicator
+     */
+    private void drain() {
+        if(!drainLock.tryLock())
+            return;
+        try {
+            drainState.set(IDLE);
+            if(closed)
+                return;
+            ship(batchSize);
+        } finally {
+            drainLock.unlock();
+        }
+        if(closed || replicatorQ.isEmpty())
+            return;
+        if(replicatorQ.size() >= batchSize) {
+            drainState.set(IMMEDIATE);
+            Shipper.EXECUTOR.execute(this::drain);
+        } else {
+            drainState.set(DELAYED);
+            Shipper.EXECUTOR.schedule(this::drain, maxDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /*
+     * Ship full batches, and at most one partial batch. Must be called holding the drainLock
+     */
+    private void ship(final int limit) {
+        List<Calculable> batch = new ArrayList<Calculable>(Math.min(limit, batchSize));
+        int shipped = 0;
+        while(shipped < limit && replicatorQ.drainTo(batch, batchSize) > 0) {
+            shipped += batch.size();
+            long lag = System.currentTimeMillis() - batch.get(0).getWhen();
+            lastLag = lag;
+            if(lag > maxLag)
+                maxLag = lag;
             try {
-                List<Calculable> drain = new ArrayList<Calculable>();
-                replicatorQ.drainTo(drain);
-                int numToDrain = drain.size();
-                if(numToDrain>0) {
-                    try {
-                        bulkReplicate(drain);
-                    } catch(IOException e) {
-                        logger.warn("Cannot archive (draining): ", e);
-                    }
-                }
-            } finally {
-                if(shutdownLatch!=null)
-                    shutdownLatch.countDown();
+                if(batch.size() == 1)
+                    replicate(batch.get(0));
+                else
+                    bulkReplicate(new CalculableBatch(batch));
+                replicated.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch(Exception e) {
+                dropped.addAndGet(batch.size());
+                logger.warn("Replication communication failure, dropped {} records: {}", batch.size(), e.toString());
             }
+            boolean partial = batch.size() < batchSize;
+            batch.clear();
+            if(partial)
+                break;
+        }
+    }
+
+    /**
+     * @return The number of records waiting to be replicated
+     */
+    public int getQueueSize() {
+        return replicatorQ.size();
+    }
+
+    /**
+     * @return The number of records dropped, either because the queue was full or because replication failed
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The number of records replicated
+     */
+    public long getReplicatedCount() {
+        return replicated.get();
+    }
+
+    /**
+     * @return The number of batches shipped
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * @return The time (in milliseconds) between the creation of the oldest record of the last batch and
+     * the batch being shipped
+     */
+    public long getLastLag() {
+        return lastLag;
+    }
+
+    /**
+     * @return The largest lag (in milliseconds) of any batch shipped
+     */
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    private static int getIntEntry(final Configuration config, final String name, final int defaultValue) {
+        try {
+            return Config.getIntEntry(config, COMPONENT, name, defaultValue, 1, Integer.MAX_VALUE);
+        } catch(ConfigurationException e) {
+            logger.warn("Getting replicator {}, using {}", name, defaultValue, e);
+            return defaultValue;
+        }
+    }
+
+    private static long getLongEntry(final Configuration config, final String name, final long defaultValue) {
+        try {
+            return Config.getLongEntry(config, COMPONENT, name, defaultValue, 0, Long.MAX_VALUE);
+        } catch(ConfigurationException e) {
+            logger.warn("Getting replicator {}, using {}", name, defaultValue, e);
+            return defaultValue;
+        }
+    }
+
+    private static OverflowPolicy getOverflowPolicy(final Configuration config) {
+        try {
+            return (OverflowPolicy)config.getEntry(COMPONENT,
+                                                   "overflowPolicy",
+                                                   OverflowPolicy.class,
+                                                   OverflowPolicy.DROP_OLDEST);
+        } catch(ConfigurationException e) {
+            logger.warn("Getting replicator overflowPolicy, using {}", OverflowPolicy.DROP_OLDEST, e);
+            return OverflowPolicy.DROP_OLDEST;
         }
     }
 
-    private void readObject(ObjectInputStream oStream) throws ClassNotFoundException, IOException {
+    private void readObject(final ObjectInputStream oStream) throws ClassNotFoundException, IOException {
         oStream.defaultReadObject();
-        replicatorQ.clear();
         init();
     }
 
-    private synchronized void init() {
-        if(execService==null) {
-            execService = Executors.newCachedThreadPool();
-            execService.submit(new ReplicatorTask());
+    private void init() {
+        replicatorQ = new ArrayBlockingQueue<Calculable>(capacity);
+        drainState = new AtomicInteger(IDLE);
+        overflowed = new AtomicLong();
+        dropped = new AtomicLong();
+        replicated = new AtomicLong();
+        batches = new AtomicLong();
+        drainLock = new ReentrantLock();
+    }
+
+    /*
+     * Lazily creates the threads shared by all replicators
+     */
+    private static final class Shipper {
+        static final ScheduledThreadPoolExecutor EXECUTOR;
+        static {
+            final AtomicInteger threadNumber = new AtomicInteger(1);
+            EXECUTOR = new ScheduledThreadPoolExecutor(Math.max(1, Integer.getInteger(THREADS, 2)), runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("Watch-Replicator-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
         }
     }
 }
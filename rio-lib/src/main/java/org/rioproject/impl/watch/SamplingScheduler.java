@@ -0,0 +1,264 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.rioproject.impl.jmx.MBeanServerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process-wide scheduler that multiplexes all periodic watch sampling onto a small pool of threads.
+ *
+ * <p>Watches that have the same period are placed into the same tick group, and are sampled in one batch
+ * each time the group ticks. Ticks are aligned to multiples of the period, offset by a random jitter chosen
+ * when the group is created, so processes started together do not all sample at the same instant.</p>
+ *
+ * <p>The following system properties are supported:</p>
+ * <ul>
+ * <li><tt>org.rioproject.watch.sampler.threads</tt>: The number of sampling threads, defaults to 2</li>
+ * <li><tt>org.rioproject.watch.sampler.maxJitter</tt>: The maximum jitter, in milliseconds, applied
+ * to a tick group. The jitter will never be more than a tenth of the group's period. Defaults to 1000</li>
+ * </ul>
+ *
+ * <p>Each tick records how late it started and how long sampling took. A tick that starts more than a period
+ * late, or takes longer than the period to sample its watches, is counted as an overrun. These statistics are
+ * available through the {@link SamplingSchedulerMXBean}, registered as
+ * <tt>org.rioproject.watch:type=SamplingScheduler</tt>.</p>
+ */
+public final class SamplingScheduler implements SamplingSchedulerMXBean {
+    /** System property to set the number of sampling threads */
+    public static final String THREADS = "org.rioproject.watch.sampler.threads";
+    /** System property to set the maximum jitter (in milliseconds) applied to a tick group */
+    public static final String MAX_JITTER = "org.rioproject.watch.sampler.maxJitter";
+    /** The ObjectName the scheduler is registered with */
+    public static final String OBJECT_NAME = "org.rioproject.watch:type=SamplingScheduler";
+    private static final SamplingScheduler instance = new SamplingScheduler();
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentMap<Long, TickGroup> groups = new ConcurrentHashMap<Long, TickGroup>();
+    private final long maxJitter;
+    private static final Logger logger = LoggerFactory.getLogger(SamplingScheduler.class);
+
+    private SamplingScheduler() {
+        int threads = Math.max(1, Integer.getInteger(THREADS, 2));
+        maxJitter = Math.max(0, Long.getLong(MAX_JITTER, 1000));
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("Watch-Sampler-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        try {
+            MBeanServerFactory.getMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            logger.warn("Unable to register {}", OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Get the process-wide SamplingScheduler
+     *
+     * @return The SamplingScheduler
+     */
+    public static SamplingScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Schedule a periodic watch to be sampled at its period. The first sample is taken on the first
+     * tick of the watch's tick group that occurs at least one period after this method is called.
+     *
+     * @param watch The watch to sample
+     * @param period The sampling period, in milliseconds
+     *
+     * @return A {@code Registration} used to stop sampling
+     */
+    public Registration schedule(final PeriodicWatchMBean watch, final long period) {
+        if(watch == null)
+            throw new IllegalArgumentException("watch is null");
+        if(period <= 0)
+            throw new IllegalArgumentException("period must be greater than zero");
+        Registration registration = new Registration(watch, period, System.currentTimeMillis() + period);
+        while(true) {
+            TickGroup group = groups.computeIfAbsent(period, TickGroup::new);
+            if(group.add(registration))
+                break;
+            /* The group was closed after its last member left, retry with a new group */
+            groups.remove(period, group);
+        }
+        return registration;
+    }
+
+    private void remove(final Registration registration) {
+        TickGroup group = groups.get(registration.period);
+        if(group != null && group.remove(registration))
+            groups.remove(registration.period, group);
+    }
+
+    public int getPoolSize() {
+        return executor.getCorePoolSize();
+    }
+
+    public int getScheduledWatchCount() {
+        int count = 0;
+        for(TickGroup group : groups.values())
+            count += group.members.size();
+        return count;
+    }
+
+    public long getOverrunCount() {
+        long count = 0;
+        for(TickGroup group : groups.values())
+            count += group.overruns.get();
+        return count;
+    }
+
+    public TickStatistics[] getTickStatistics() {
+        List<TickStatistics> statistics = new ArrayList<TickStatistics>();
+        for(TickGroup group : groups.values())
+            statistics.add(group.getTickStatistics());
+        return statistics.toArray(new TickStatistics[0]);
+    }
+
+    /**
+     * A handle to a scheduled periodic watch
+     */
+    public final class Registration {
+        private final PeriodicWatchMBean watch;
+        private final long period;
+        private final long firstSample;
+        private volatile boolean cancelled;
+
+        private Registration(final PeriodicWatchMBean watch, final long period, final long firstSample) {
+            this.watch = watch;
+            this.period = period;
+            this.firstSample = firstSample;
+        }
+
+        /**
+         * Stop sampling the watch
+         */
+        public void cancel() {
+            if(!cancelled) {
+                cancelled = true;
+                remove(this);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getPeriod() {
+            return period;
+        }
+    }
+
+    /**
+     * All registrations sharing the same period
+     */
+    private class TickGroup implements Runnable {
+        private final long period;
+        private final long jitter;
+        private final List<Registration> members = new CopyOnWriteArrayList<Registration>();
+        private final AtomicLong ticks = new AtomicLong();
+        private final AtomicLong overruns = new AtomicLong();
+        private volatile long lastTickDuration;
+        private volatile long lastTickLag;
+        private volatile long maxTickLag;
+        private long nextTick;
+        private ScheduledFuture<?> future;
+        private boolean closed;
+
+        TickGroup(final long period) {
+            this.period = period;
+            long bound = Math.min(period / 10, maxJitter);
+            this.jitter = bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0;
+        }
+
+        synchronized boolean add(final Registration registration) {
+            if(closed)
+                return false;
+            members.add(registration);
+            if(future == null) {
+                long now = System.currentTimeMillis();
+                long initialDelay = period - (now % period) + jitter;
+                nextTick = now + initialDelay;
+                future = executor.scheduleAtFixedRate(this, initialDelay, period, TimeUnit.MILLISECONDS);
+                logger.debug("Created tick group for period {} ms, jitter {} ms", period, jitter);
+            }
+            return true;
+        }
+
+        /* Returns true if the group is now empty and has been closed */
+        synchronized boolean remove(final Registration registration) {
+            members.remove(registration);
+            if(members.isEmpty() && !closed) {
+                closed = true;
+                if(future != null)
+                    future.cancel(false);
+                logger.debug("Closed tick group for period {} ms", period);
+                return true;
+            }
+            return false;
+        }
+
+        public void run() {
+            long start = System.currentTimeMillis();
+            long lag = Math.max(0, start - nextTick);
+            nextTick += period;
+            for(Registration registration : members) {
+                if(registration.cancelled || start < registration.firstSample)
+                    continue;
+                try {
+                    registration.watch.checkValue();
+                } catch(Throwable t) {
+                    logger.warn("Sampling watch [{}]", registration.watch.getId(), t);
+                }
+            }
+            long duration = System.currentTimeMillis() - start;
+            ticks.incrementAndGet();
+            lastTickDuration = duration;
+            lastTickLag = lag;
+            if(lag > maxTickLag)
+                maxTickLag = lag;
+            if(lag > period || duration > period) {
+                overruns.incrementAndGet();
+                logger.debug("Tick group for period {} ms overran, lag: {} ms, duration: {} ms, watches: {}",
+                             period, lag, duration, members.size());
+            }
+        }
+
+        TickStatistics getTickStatistics() {
+            return new TickStatistics(period,
+                                      jitter,
+                                      members.size(),
+                                      ticks.get(),
+                                      overruns.get(),
+                                      lastTickDuration,
+                                      lastTickLag,
+                                      maxTickLag);
+        }
+    }
+}
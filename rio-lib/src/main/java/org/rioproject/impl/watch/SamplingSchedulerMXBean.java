@@ -0,0 +1,50 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+/**
+ * Provides management of the {@link SamplingScheduler}
+ */
+public interface SamplingSchedulerMXBean {
+    /**
+     * Get the number of threads used to sample watches
+     *
+     * @return The number of threads used to sample watches
+     */
+    int getPoolSize();
+
+    /**
+     * Get the number of watches being sampled
+     *
+     * @return The number of watches being sampled
+     */
+    int getScheduledWatchCount();
+
+    /**
+     * Get the total number of overruns across all tick groups. A tick overruns if it starts more than a period
+     * late, or takes longer than the period to sample its watches.
+     *
+     * @return The total number of overruns
+     */
+    long getOverrunCount();
+
+    /**
+     * Get the statistics for each tick group
+     *
+     * @return An array of {@link TickStatistics}, one for each period being sampled
+     */
+    TickStatistics[] getTickStatistics();
+}
@@ -25,16 +25,23 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * An implementation of a {@link PeriodicWatch} that samples a bean's method
+ * An implementation of a {@link PeriodicWatch} that samples a bean's method. The accessor is bound to the
+ * bean as a {@link MethodHandle} the first time it is sampled, avoiding the argument array and access checks
+ * of reflective invocation on each sample.
  */
 public class SamplingWatch extends PeriodicWatch {
     private String property;
-    private Object bean;
-    private Method accessor;
+    private volatile Object bean;
+    private volatile Method accessor;
+    private volatile MethodHandle handle;
+    private static final MethodType GETTER = MethodType.methodType(Object.class);
     private final AtomicInteger nullReturnCount = new AtomicInteger();
     private static final Logger logger = LoggerFactory.getLogger(SamplingWatch.class);
 
@@ -51,8 +58,10 @@ public class SamplingWatch extends PeriodicWatch {
     }
 
     public void setProperty(String property) {
-        if(this.property!=null && !this.property.equals(property))
+        if(this.property!=null && !this.property.equals(property)) {
             accessor = null;
+            handle = null;
+        }
         this.property = property;
     }
 
@@ -62,21 +71,33 @@ public class SamplingWatch extends PeriodicWatch {
 
     public void setBean(Object bean) {
         this.bean = bean;
+        handle = null;
     }
 
     public void setAccessor(Method accessor) {
         this.accessor = accessor;
+        handle = null;
     }
 
     public void checkValue() {
-        if(accessor==null) {
-            accessor = getAccessor();
-        }
-        if(accessor==null) {
-            return;
+        MethodHandle handle = this.handle;
+        Method accessor = this.accessor;
+        if(handle==null) {
+            if(accessor==null) {
+                accessor = getAccessor();
+                this.accessor = accessor;
+            }
+            if(accessor==null) {
+                return;
+            }
+            handle = bind(accessor);
+            if(handle==null) {
+                return;
+            }
+            this.handle = handle;
         }
         try {
-            Object value = accessor.invoke(bean, (Object[])null);
+            Object value = (Object)handle.invokeExact();
             if(value==null) {
                 int count = nullReturnCount.incrementAndGet();
                 if(count>3) {
@@ -97,7 +118,7 @@ public class SamplingWatch extends PeriodicWatch {
             if(value instanceof Calculable) {
                 metric = (Calculable)value;
             } else {
-                Double d = new Double(value.toString());
+                double d = value instanceof Number ? ((Number)value).doubleValue() : Double.parseDouble(value.toString());
                 metric = new Calculable(getId(), d, System.currentTimeMillis());
             }
             addWatchRecord(metric);
@@ -108,6 +129,30 @@ public class SamplingWatch extends PeriodicWatch {
         }
     }
 
+    /*
+     * Bind the accessor to the bean, as a handle that takes no arguments and returns an Object
+     */
+    private MethodHandle bind(Method accessor) {
+        if(bean==null)
+            return null;
+        try {
+            MethodHandle unbound;
+            try {
+                unbound = MethodHandles.publicLookup().unreflect(accessor);
+            } catch (IllegalAccessException e) {
+                /* The declaring class is not public */
+                accessor.setAccessible(true);
+                unbound = MethodHandles.lookup().unreflect(accessor);
+            }
+            return unbound.bindTo(bean).asType(GETTER);
+        } catch (Exception e) {
+            logger.warn("SamplingWatch [{}], Unable to bind [{}.{}]",
+                        getId(), bean.getClass().getName(), accessor.getName(), e);
+            this.accessor = null;
+            return null;
+        }
+    }
+
     private Method getAccessor() {
         BeanInfo bi = null;
         try {
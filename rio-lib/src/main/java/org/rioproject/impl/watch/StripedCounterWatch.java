@@ -0,0 +1,184 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import net.jini.config.Configuration;
+import org.rioproject.watch.CounterCalculable;
+import org.rioproject.watch.WatchDataSource;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link CounterWatch} for counters that are changed at a high rate from many threads.
+ *
+ * <p>Changing the counter only updates a striped {@link LongAdder} cell, no {@code Calculable} is created and
+ * no thresholds are checked. At each period the counter is flushed: a single {@link CounterCalculable} with the
+ * counter value and its rate of change during the interval is added to the watch, and thresholds are checked
+ * against the counter value. Intervals where the counter did not change do not add a
+ * {@code CounterCalculable}.</p>
+ *
+ * <p>{@link #getCounter()} always returns the current value, including changes not yet flushed. Details
+ * provided when changing the counter are not kept.</p>
+ *
+ * <p>The watch is sampled by the {@link SamplingScheduler} once {@link #start()} is called.</p>
+ */
+public class StripedCounterWatch extends CounterWatch implements StripedCounterWatchMBean {
+    private final LongAdder counter = new LongAdder();
+    private long lastFlushedCounter;
+    private long lastFlush = System.currentTimeMillis();
+    private long period = PeriodicWatch.DEFAULT_PERIOD;
+    private SamplingScheduler.Registration registration;
+
+    /**
+     * Create a new StripedCounterWatch
+     *
+     * @param id the identifier for this watch
+     */
+    public StripedCounterWatch(final String id) {
+        super(id);
+    }
+
+    /**
+     * Creates new StripedCounterWatch, creates and exports a WatchDataSourceImpl if the WatchDataSource is
+     * null using the Configuration object provided
+     *
+     * @param id The identifier for this watch
+     * @param config Configuration object used for constructing a WatchDataSource
+     */
+    public StripedCounterWatch(final String id, final Configuration config) {
+        super(id, config);
+    }
+
+    /**
+     * Create a new StripedCounterWatch
+     *
+     * @param watchDataSource the watch data source associated with this watch
+     * @param id the identifier for this watch
+     */
+    public StripedCounterWatch(final WatchDataSource watchDataSource, final String id) {
+        super(watchDataSource, id);
+    }
+
+    /**
+     * @see CounterWatchMBean#getCounter
+     */
+    @Override
+    public long getCounter() {
+        return counter.sum();
+    }
+
+    /**
+     * Set the counter. The new value is published at the next flush, concurrent changes to the counter are
+     * applied on top of the new value.
+     */
+    @Override
+    public void setCounter(final long value, final String detail) {
+        counter.add(value - counter.sum());
+    }
+
+    @Override
+    public void increment() {
+        counter.increment();
+    }
+
+    @Override
+    public void increment(final String detail) {
+        counter.increment();
+    }
+
+    @Override
+    public void increment(final long value) {
+        counter.add(value);
+    }
+
+    @Override
+    public void increment(final long value, final String detail) {
+        counter.add(value);
+    }
+
+    @Override
+    public void decrement() {
+        counter.decrement();
+    }
+
+    @Override
+    public void decrement(final String detail) {
+        counter.decrement();
+    }
+
+    @Override
+    public void decrement(final long value) {
+        counter.add(-value);
+    }
+
+    @Override
+    public void decrement(final long value, final String detail) {
+        counter.add(-value);
+    }
+
+    /**
+     * Flush the counter, publishing a {@link CounterCalculable} if the counter changed since the last flush
+     */
+    public synchronized void checkValue() {
+        long now = System.currentTimeMillis();
+        long current = counter.sum();
+        long delta = current - lastFlushedCounter;
+        if(delta == 0)
+            return;
+        long interval = now - lastFlush;
+        lastFlushedCounter = current;
+        lastFlush = now;
+        addWatchRecord(new CounterCalculable(id, current, delta, interval, now));
+    }
+
+    /**
+     * @see PeriodicWatchMBean#start
+     */
+    public synchronized void start() {
+        stop();
+        registration = SamplingScheduler.getInstance().schedule(this, period);
+    }
+
+    /**
+     * @see PeriodicWatchMBean#stop
+     */
+    public synchronized void stop() {
+        if(registration != null)
+            registration.cancel();
+    }
+
+    /**
+     * @see PeriodicWatchMBean#getPeriod
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * @see PeriodicWatchMBean#setPeriod
+     */
+    public synchronized void setPeriod(final long newPeriod) {
+        if(newPeriod == period)
+            return;
+        if(newPeriod <= 0)
+            throw new IllegalArgumentException("period cannot be less then or equal to zero");
+        this.period = newPeriod;
+        if(registration != null && !registration.isCancelled()) {
+            stop();
+            start();
+        }
+    }
+}
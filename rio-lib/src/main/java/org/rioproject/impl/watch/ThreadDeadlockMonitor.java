@@ -15,39 +15,48 @@
  */
 package org.rioproject.impl.watch;
 
+import org.rioproject.impl.system.measurable.jvm.JVMSampler;
 import org.rioproject.watch.Calculable;
 import org.rioproject.watch.WatchDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * Monitor thread deadlocks for a Java Virtual Machine.
+ * Monitor thread deadlocks for a Java Virtual Machine. Unless a
+ * {@link ThreadMXBean} is set, the current JVM is monitored using the
+ * deadlock detection of the shared {@link JVMSampler}.
  */
 public class ThreadDeadlockMonitor {
     public static final String ID = "thread-deadlock-monitor";
     public static final String ACCESSOR = "threadDeadlockCalculable";
+    private static final ThreadInfo[] NO_THREAD_INFO = new ThreadInfo[0];
     private ThreadMXBean threadMXBean;
-    private final Map<Long, ThreadInfo> deadlockedThreads = new HashMap<Long, ThreadInfo>();
+    /* ThreadInfo of the threads found deadlocked by the last check of the ThreadMXBean */
+    private Map<Long, ThreadInfo> deadlockedThreads = new HashMap<Long, ThreadInfo>();
     private static Logger logger = LoggerFactory.getLogger(ThreadDeadlockMonitor.class.getName());
 
+    /**
+     * Set the ThreadMXBean to monitor, for example the ThreadMXBean of a
+     * forked service's JVM
+     *
+     * @param threadMXBean The ThreadMXBean
+     */
     public void setThreadMXBean(ThreadMXBean threadMXBean) {
         this.threadMXBean = threadMXBean;
         if(logger.isInfoEnabled())
-            logger.info("ThreadMXBean set, monitoring current JVM for thread deadlocks");
+            logger.info("ThreadMXBean set, monitoring JVM for thread deadlocks");
     }
 
     public Calculable getThreadDeadlockCalculable() {
-        int deadlockCount = findDeadlockedThreads();
-        Calculable metric = new Calculable(ID, deadlockCount, System.currentTimeMillis());
-        if(deadlockCount>0) {
-            String detail = formatDeadlockedThreadInfo();
+        ThreadInfo[] deadlocked = findDeadlockedThreads();
+        Calculable metric = new Calculable(ID, deadlocked.length, System.currentTimeMillis());
+        if(deadlocked.length>0) {
+            String detail = formatDeadlockedThreadInfo(deadlocked);
             metric.setDetail(detail);
             if(logger.isTraceEnabled())
                 logger.trace(detail);
@@ -70,17 +79,13 @@ public class ThreadDeadlockMonitor {
         return new WatchDescriptor(ID, ACCESSOR, 5000);
     }
 
-    private String formatDeadlockedThreadInfo() {
+    private String formatDeadlockedThreadInfo(ThreadInfo[] deadlocked) {
         StringBuilder buff = new StringBuilder();
-        Set<Map.Entry<Long, ThreadInfo>> entrySet;
-        synchronized(deadlockedThreads) {
-            entrySet = deadlockedThreads.entrySet();
-        }
         buff.append("Deadlocked thread count: ");
-        buff.append(entrySet.size());
+        buff.append(deadlocked.length);
         buff.append("\n");
         int count=1;
-        for(Map.Entry<Long, ThreadInfo> entry : entrySet ) {
+        for(ThreadInfo ti : deadlocked) {
             buff.append("\n");
             buff.append("Deadlocked Thread #");
             buff.append(count++);
@@ -88,7 +93,6 @@ public class ThreadDeadlockMonitor {
             buff.append("------------------");
             buff.append("\n");
             buff.append("Name: ");
-            ThreadInfo ti = entry.getValue();
             buff.append(ti.getThreadName());
             buff.append("\n");
             buff.append("State: ");
@@ -111,29 +115,26 @@ public class ThreadDeadlockMonitor {
         return buff.toString();
     }
 
-    private int findDeadlockedThreads() {
-        if(threadMXBean==null) {
-            setThreadMXBean(ManagementFactory.getThreadMXBean());
+    private synchronized ThreadInfo[] findDeadlockedThreads() {
+        if(threadMXBean==null)
+            return JVMSampler.getInstance().sample(JVMSampler::getDeadlockedThreads);
+        long[] ids = threadMXBean.isSynchronizerUsageSupported()
+                     ? threadMXBean.findDeadlockedThreads()
+                     : threadMXBean.findMonitorDeadlockedThreads();
+        if(ids==null || ids.length==0) {
+            deadlockedThreads.clear();
+            return NO_THREAD_INFO;
         }
-        long[] ids = threadMXBean.findMonitorDeadlockedThreads();
-        if(ids != null && ids.length > 0) {
-            for(Long l : ids) {
-                if(!knowsAbout(l)) {
-                    ThreadInfo ti = threadMXBean.getThreadInfo(l, Integer.MAX_VALUE);
-                    synchronized(deadlockedThreads) {
-                        deadlockedThreads.put(l, ti);
-                    }
-                }
-            }
-        }
-        return ids==null?0:ids.length;
-    }
-
-    private boolean knowsAbout(long id) {
-        boolean has;
-        synchronized(deadlockedThreads) {
-            has = deadlockedThreads.containsKey(id);
+        /* Only fetch the ThreadInfo of threads that were not deadlocked at the last check */
+        Map<Long, ThreadInfo> current = new HashMap<Long, ThreadInfo>();
+        for(long id : ids) {
+            ThreadInfo ti = deadlockedThreads.get(id);
+            if(ti==null)
+                ti = threadMXBean.getThreadInfo(id, Integer.MAX_VALUE);
+            if(ti!=null)
+                current.put(id, ti);
         }
-        return has;
+        deadlockedThreads = current;
+        return current.values().toArray(new ThreadInfo[current.size()]);
     }
 }
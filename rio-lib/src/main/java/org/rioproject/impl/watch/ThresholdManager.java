@@ -21,8 +21,8 @@ import org.rioproject.watch.ThresholdValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The ThresholdManager is the keeper of ThresholdValues and determines when
@@ -30,13 +30,36 @@ import java.util.List;
  * ThresholdManager provides threshold management processing, providing specific
  * behavior that may be used to remedy the situation where a threshold has been
  * crossed
+ *
+ * <p>Registered ThresholdListeners are held in a copy-on-write list, so
+ * notifying listeners does not lock or copy.
+ * Listeners are given a snapshot of the ThresholdValues taken when the threshold
+ * was crossed, the snapshot is shared by the listeners and must not be modified.</p>
  */
 public abstract class ThresholdManager {
-    protected final transient List<ThresholdListener> thresholdListeners = new LinkedList<ThresholdListener>();
+    protected final transient List<ThresholdListener> thresholdListeners =
+        new CopyOnWriteArrayList<ThresholdListener>();
     /** Holds value of property thresholdValues */
     protected ThresholdValues thresholdValues = new ThresholdValues();
     static Logger logger = LoggerFactory.getLogger(ThresholdManager.class.getName());
 
+    /**
+     * Check a Calculable against a number of ThresholdManager instances. Each
+     * ThresholdManager that determines the value cannot cross any of its
+     * thresholds is skipped without further processing, so one sample can be
+     * checked against many ThresholdManagers cheaply
+     *
+     * @param calculable The Calculable to check
+     * @param thresholdManagers The ThresholdManagers to check against
+     */
+    public static void checkThresholds(Calculable calculable, ThresholdManager[] thresholdManagers) {
+        double value = calculable.getValue();
+        for (ThresholdManager thresholdManager : thresholdManagers) {
+            if(thresholdManager.mayCross(value))
+                thresholdManager.checkThreshold(calculable);
+        }
+    }
+
     /**
      * Check the threshold and determine if any action needs to occur
      *
@@ -44,6 +67,20 @@ public abstract class ThresholdManager {
      */
     public abstract void checkThreshold(Calculable calculable);
 
+    /**
+     * Determine if checking a value may result in a threshold being crossed.
+     * Used by {@link #checkThresholds(Calculable, ThresholdManager[])} to skip
+     * ThresholdManagers, implementations must not change state
+     *
+     * @param value The value to check
+     *
+     * @return False if checking the value will not notify listeners, true if
+     * it may. This implementation returns true
+     */
+    protected boolean mayCross(double value) {
+        return true;
+    }
+
     /**
      * Get the identifier for the  ThresholdManager
      */
@@ -85,8 +122,9 @@ public abstract class ThresholdManager {
      * @param type The type of threshold, breached or cleared
      */
     protected void notifyListeners(Calculable calculable, ThresholdType type) {
-        ThresholdListener[] tListeners = getThresholdListeners();
-        logger.trace("{} Notify ThresholdListeners, number to notify: {}", getID(), tListeners.length);
+        logger.trace("{} Notify ThresholdListeners, number to notify: {}", getID(), thresholdListeners.size());
+        if(thresholdListeners.isEmpty())
+            return;
         ThresholdValues thresholds = null;
         try {
             thresholds = (ThresholdValues)thresholdValues.clone();
@@ -94,7 +132,7 @@ public abstract class ThresholdManager {
             //
         }
 
-        for (ThresholdListener tListener : tListeners) {
+        for (ThresholdListener tListener : thresholdListeners) {
             tListener.notify(calculable, thresholds, type);
         }
     }
@@ -132,11 +170,7 @@ public abstract class ThresholdManager {
      * instances, a zero-length array will be returned
      */
     public ThresholdListener[] getThresholdListeners() {
-        ThresholdListener[] tListeners;
-        synchronized(thresholdListeners) {
-            tListeners = thresholdListeners.toArray(new ThresholdListener[thresholdListeners.size()]);
-        }
-        return (tListeners);
+        return thresholdListeners.toArray(new ThresholdListener[0]);
     }
 
     /**
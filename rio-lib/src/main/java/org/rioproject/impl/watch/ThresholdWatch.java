@@ -150,8 +150,20 @@ public class ThresholdWatch extends Watch implements ThresholdWatchMBean {
      */
     @Override
     public void addWatchRecord(final Calculable record) {
+        addWatchRecord(record, record);
+    }
+
+    /**
+     * Add a record to the watch, and check another Calculable against the
+     * thresholds. Used by subclasses that check a derived value, for example
+     * a smoothed value, while keeping the record as it was measured
+     *
+     * @param record The Calculable to add to the watch
+     * @param checked The Calculable to check against the thresholds
+     */
+    protected void addWatchRecord(final Calculable record, final Calculable checked) {
         super.addWatchRecord(record);
-        thresholdManager.checkThreshold(record);
+        thresholdManager.checkThreshold(checked);
     }
 
     /**
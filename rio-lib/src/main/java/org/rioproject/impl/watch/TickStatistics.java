@@ -0,0 +1,114 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Statistics for a {@link SamplingScheduler} tick group, all watches sampled at the same period.
+ */
+public class TickStatistics {
+    private final long period;
+    private final long jitter;
+    private final int watchCount;
+    private final long tickCount;
+    private final long overrunCount;
+    private final long lastTickDuration;
+    private final long lastTickLag;
+    private final long maxTickLag;
+
+    @ConstructorProperties({"period", "jitter", "watchCount", "tickCount", "overrunCount",
+                            "lastTickDuration", "lastTickLag", "maxTickLag"})
+    public TickStatistics(final long period,
+                          final long jitter,
+                          final int watchCount,
+                          final long tickCount,
+                          final long overrunCount,
+                          final long lastTickDuration,
+                          final long lastTickLag,
+                          final long maxTickLag) {
+        this.period = period;
+        this.jitter = jitter;
+        this.watchCount = watchCount;
+        this.tickCount = tickCount;
+        this.overrunCount = overrunCount;
+        this.lastTickDuration = lastTickDuration;
+        this.lastTickLag = lastTickLag;
+        this.maxTickLag = maxTickLag;
+    }
+
+    /**
+     * @return The period, in milliseconds, the watches are sampled at
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return The offset, in milliseconds, of the group's ticks from multiples of the period
+     */
+    public long getJitter() {
+        return jitter;
+    }
+
+    /**
+     * @return The number of watches sampled on each tick
+     */
+    public int getWatchCount() {
+        return watchCount;
+    }
+
+    /**
+     * @return The number of ticks that have run
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return The number of ticks that started more than a period late, or took longer than a period
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * @return How long, in milliseconds, the last tick took to sample its watches
+     */
+    public long getLastTickDuration() {
+        return lastTickDuration;
+    }
+
+    /**
+     * @return How late, in milliseconds, the last tick started
+     */
+    public long getLastTickLag() {
+        return lastTickLag;
+    }
+
+    /**
+     * @return The latest, in milliseconds, any tick has started
+     */
+    public long getMaxTickLag() {
+        return maxTickLag;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("period: %d, watches: %d, ticks: %d, overruns: %d, last duration: %d, last lag: %d, max lag: %d",
+                             period, watchCount, tickCount, overrunCount, lastTickDuration, lastTickLag, maxTickLag);
+    }
+}
@@ -19,6 +19,7 @@ import net.jini.config.Configuration;
 import net.jini.config.EmptyConfiguration;
 import org.rioproject.impl.jmx.JMXUtil;
 import org.rioproject.watch.Calculable;
+import org.rioproject.watch.CalculableBatch;
 import org.rioproject.watch.WatchDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -208,20 +209,27 @@ public class Watch implements WatchMBean {
      * @see WatchMBean#getLastCalculableValue
      */
     public double getLastCalculableValue() {
-        double value = 0;
+        Calculable lastCalculable = getLastCalculable();
+        return(lastCalculable == null ? 0 : lastCalculable.getValue());
+    }
+
+    /**
+     * Get the last Calculable recorded by the Watch
+     *
+     * @return The last Calculable in the history, or null if there is no
+     * history or it cannot be obtained
+     */
+    public Calculable getLastCalculable() {
+        Calculable lastCalculable = null;
         try {
-            Calculable lastCalculable;
             if(localRef != null)
                 lastCalculable = localRef.getLastCalculable();
-            else
+            else if(watchDataSource != null)
                 lastCalculable = watchDataSource.getLastCalculable();
-            if(lastCalculable != null) {
-                value = lastCalculable.getValue();
-            }
         } catch(Exception e) {
             logger.warn("Getting last calculable", e);
         }
-        return(value);
+        return(lastCalculable);
     }
 
     /**
@@ -234,7 +242,7 @@ public class Watch implements WatchMBean {
             if(localRef != null) {
                 calculables = localRef.getCalculable();
             } else {
-                calculables = watchDataSource.getCalculable();
+                calculables = CalculableBatch.getCalculable(watchDataSource, Long.MIN_VALUE, Long.MAX_VALUE);
             }
             CompositeType type = JMXUtil.createCompositeType(JMXUtil.toMap(calculables[0]), "Calculable", "Calculable");
             TabularType tabularType = new TabularType("Calculables", "Calculables", type, new String[]{"when"});
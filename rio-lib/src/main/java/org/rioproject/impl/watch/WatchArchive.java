@@ -0,0 +1,138 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The layout of a watch archive, shared by the {@link WatchArchiveReplicator} and {@link WatchArchiveReader}.
+ *
+ * <p>An archive is a directory of segment files, named <tt>&lt;sequence&gt;-&lt;start&gt;.wda</tt>, where
+ * <tt>start</tt> is the time of the first record in the segment. The segment names are the sparse time
+ * index of the archive. Each segment has a fixed size header followed by fixed-width records:</p>
+ * <pre>
+ * header  magic (int), version (int), record count (int), id length (short), id (UTF-8),
+ *         padded to {@link #HEADER_SIZE} bytes
+ * record  when (long), value (double)
+ * </pre>
+ * <p>Records in a segment are in time order, so a range within a segment is found with a binary search.</p>
+ */
+final class WatchArchive {
+    static final int MAGIC = 0x52574441;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 128;
+    static final int RECORD_SIZE = 16;
+    static final int COUNT_OFFSET = 8;
+    static final int ID_OFFSET = 12;
+    static final int MAX_ID_LENGTH = HEADER_SIZE - ID_OFFSET - 2;
+    static final String SUFFIX = ".wda";
+
+    private WatchArchive() {}
+
+    /**
+     * Get the segments of an archive, in the order they were written
+     */
+    static File[] segments(final File directory) {
+        File[] segments = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if(segments == null)
+            return new File[0];
+        Arrays.sort(segments, (f1, f2) -> f1.getName().compareTo(f2.getName()));
+        return segments;
+    }
+
+    static String segmentName(final long start, final long sequence) {
+        return String.format("%010d-%019d%s", sequence, Math.max(start, 0), SUFFIX);
+    }
+
+    static long segmentSequence(final File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(0, name.indexOf('-')));
+    }
+
+    static long segmentStart(final File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - SUFFIX.length()));
+    }
+
+    static void writeHeader(final ByteBuffer buffer, final String id) {
+        byte[] idBytes = id == null ? new byte[0] : id.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(idBytes.length, MAX_ID_LENGTH);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(COUNT_OFFSET, 0);
+        buffer.putShort(ID_OFFSET, (short)length);
+        for(int i = 0; i < length; i++)
+            buffer.put(ID_OFFSET + 2 + i, idBytes[i]);
+    }
+
+    static boolean isValid(final ByteBuffer buffer) {
+        return buffer.limit() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION;
+    }
+
+    static String readId(final ByteBuffer buffer) {
+        int length = Math.min(buffer.getShort(ID_OFFSET), MAX_ID_LENGTH);
+        byte[] idBytes = new byte[Math.max(length, 0)];
+        for(int i = 0; i < idBytes.length; i++)
+            idBytes[i] = buffer.get(ID_OFFSET + 2 + i);
+        return new String(idBytes, StandardCharsets.UTF_8);
+    }
+
+    static long when(final ByteBuffer buffer, final int record) {
+        return buffer.getLong(HEADER_SIZE + record * RECORD_SIZE);
+    }
+
+    static double value(final ByteBuffer buffer, final int record) {
+        return buffer.getDouble(HEADER_SIZE + record * RECORD_SIZE + 8);
+    }
+
+    /**
+     * Release the mapping of a buffer instead of waiting for it to be garbage collected, so the segment file
+     * can be deleted or replaced. This is best effort, if the JVM does not allow the mapping to be released it
+     * is released when the buffer is collected. The buffer must not be used afterwards.
+     */
+    static void unmap(final MappedByteBuffer buffer) {
+        if(buffer == null)
+            return;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch(NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+            if(invokeCleaner != null) {
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if(cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch(Exception e) {
+            /* Released when the buffer is collected */
+        }
+    }
+}
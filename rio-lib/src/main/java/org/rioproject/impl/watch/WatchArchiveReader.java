@@ -0,0 +1,187 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.rioproject.watch.Calculable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads records from a watch archive written by the {@link WatchArchiveReplicator}.
+ *
+ * <p>A range query uses the segment names and the last record of each segment to skip the segments outside
+ * of the range, binary searches each overlapping segment for its first record in the range, and then reads
+ * records sequentially until the end of the range. An archive may be read while it is being written.</p>
+ */
+public class WatchArchiveReader {
+    private final File directory;
+    /* The time of the last record of segments that are no longer written to */
+    private final Map<String, Long> sealed = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Create a WatchArchiveReader
+     *
+     * @param directory The directory of the archive
+     */
+    public WatchArchiveReader(final File directory) {
+        if(directory == null)
+            throw new IllegalArgumentException("directory is null");
+        this.directory = directory;
+    }
+
+    /**
+     * Get the records in a time range
+     *
+     * @param from The start of the range, inclusive
+     * @param to The end of the range, inclusive
+     *
+     * @return The records in the range, in time order. If there are no records in the range, an empty list
+     * is returned. A new list is created each time.
+     *
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Calculable> read(final long from, final long to) throws IOException {
+        List<Calculable> calculables = new ArrayList<Calculable>();
+        File[] segments = WatchArchive.segments(directory);
+        boolean ordered = true;
+        for(int i = 0; i < segments.length; i++) {
+            File segment = segments[i];
+            if(WatchArchive.segmentStart(segment) > to)
+                continue;
+            boolean last = i == segments.length - 1;
+            Long lastWhen = sealed.get(segment.getName());
+            if(lastWhen != null && lastWhen < from)
+                continue;
+            int before = calculables.size();
+            long segmentLast = read(segment, from, to, calculables);
+            if(!last && segmentLast != Long.MIN_VALUE)
+                sealed.put(segment.getName(), segmentLast);
+            /* Segments are only out of order if the clock was set back while writing */
+            if(before > 0 && calculables.size() > before &&
+               calculables.get(before).getWhen() < calculables.get(before - 1).getWhen())
+                ordered = false;
+        }
+        if(!ordered)
+            calculables.sort(Comparator.comparingLong(Calculable::getWhen));
+        return calculables;
+    }
+
+    /**
+     * Get all records in the archive
+     *
+     * @return All records in the archive, in time order
+     *
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Calculable> readAll() throws IOException {
+        return read(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the number of records in the archive
+     *
+     * @return The number of records in the archive
+     *
+     * @throws IOException if a segment cannot be read
+     */
+    public long size() throws IOException {
+        long size = 0;
+        for(File segment : WatchArchive.segments(directory)) {
+            try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+                MappedByteBuffer buffer = map(file);
+                if(buffer != null) {
+                    size += count(buffer, file);
+                    WatchArchive.unmap(buffer);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The directory of the archive
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /*
+     * Read the records of a segment within the range, returning the time of the last record in the segment
+     */
+    private long read(final File segment, final long from, final long to, final List<Calculable> calculables)
+        throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            MappedByteBuffer buffer = map(file);
+            if(buffer == null)
+                return Long.MIN_VALUE;
+            try {
+                return read(buffer, count(buffer, file), from, to, calculables);
+            } finally {
+                WatchArchive.unmap(buffer);
+            }
+        }
+    }
+
+    private static long read(final MappedByteBuffer buffer,
+                             final int count,
+                             final long from,
+                             final long to,
+                             final List<Calculable> calculables) {
+        if(count == 0)
+            return Long.MIN_VALUE;
+        String id = WatchArchive.readId(buffer);
+        int low = 0;
+        int high = count;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(WatchArchive.when(buffer, mid) < from)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        for(int record = low; record < count; record++) {
+            long when = WatchArchive.when(buffer, record);
+            if(when > to)
+                break;
+            calculables.add(new Calculable(id, WatchArchive.value(buffer, record), when));
+        }
+        return WatchArchive.when(buffer, count - 1);
+    }
+
+    private static MappedByteBuffer map(final RandomAccessFile file) throws IOException {
+        if(file.length() < WatchArchive.HEADER_SIZE)
+            return null;
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        if(WatchArchive.isValid(buffer))
+            return buffer;
+        WatchArchive.unmap(buffer);
+        return null;
+    }
+
+    private static int count(final MappedByteBuffer buffer, final RandomAccessFile file) throws IOException {
+        long available = (file.length() - WatchArchive.HEADER_SIZE) / WatchArchive.RECORD_SIZE;
+        return (int)Math.max(0, Math.min(buffer.getInt(WatchArchive.COUNT_OFFSET), available));
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.CalculablesFromLog;
+import org.rioproject.watch.WatchDataReplicator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link WatchDataReplicator} that appends records to a binary, memory-mapped watch archive. The archive is
+ * read using the {@link WatchArchiveReader}.
+ *
+ * <p>Records are written as fixed-width (time, value) pairs into segment files. A new segment is started when
+ * the current segment is full, when the current segment covers more than the segment duration, or when a
+ * record is older than the last record written. An existing archive is continued from its last segment if that
+ * segment was written with the same segment size. The mapping of a segment is released when the next segment is
+ * started and when the replicator is closed. Details of the archived {@code Calculable}s are not kept,
+ * and watch identifiers longer than 114 bytes are truncated.</p>
+ */
+public class WatchArchiveReplicator implements WatchDataReplicator<Calculable> {
+    /** The default maximum size of a segment file, 8 megabytes */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+    /** The default time covered by a segment, 1 hour */
+    public static final long DEFAULT_SEGMENT_DURATION = 60 * 60 * 1000;
+    private final File directory;
+    private final int capacity;
+    private final long segmentDuration;
+    private RandomAccessFile file;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long sequence;
+    private long lastWhen;
+    private int count;
+    private boolean closed;
+    private static final Logger logger = LoggerFactory.getLogger(WatchArchiveReplicator.class);
+
+    /**
+     * Create a WatchArchiveReplicator using the default segment size and duration
+     *
+     * @param directory The directory for the archive, created if it does not exist
+     *
+     * @throws IOException if the directory cannot be created or the last segment cannot be opened
+     */
+    public WatchArchiveReplicator(final File directory) throws IOException {
+        this(directory, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_SEGMENT_DURATION);
+    }
+
+    /**
+     * Create a WatchArchiveReplicator
+     *
+     * @param directory The directory for the archive, created if it does not exist
+     * @param maxSegmentSize The maximum size of a segment file, in bytes
+     * @param segmentDuration The maximum time covered by a segment, in milliseconds
+     *
+     * @throws IOException if the directory cannot be created or the last segment cannot be opened
+     */
+    public WatchArchiveReplicator(final File directory,
+                                  final long maxSegmentSize,
+                                  final long segmentDuration) throws IOException {
+        if(directory == null)
+            throw new IllegalArgumentException("directory is null");
+        if(maxSegmentSize < WatchArchive.HEADER_SIZE + WatchArchive.RECORD_SIZE)
+            throw new IllegalArgumentException("maxSegmentSize must hold at least one record");
+        if(segmentDuration <= 0)
+            throw new IllegalArgumentException("segmentDuration must be greater than zero");
+        if(!directory.exists() && !directory.mkdirs())
+            throw new IOException("Unable to create "+directory.getPath());
+        this.directory = directory;
+        this.capacity = (int)Math.min(Integer.MAX_VALUE / WatchArchive.RECORD_SIZE - 1,
+                                      (maxSegmentSize - WatchArchive.HEADER_SIZE) / WatchArchive.RECORD_SIZE);
+        this.segmentDuration = segmentDuration;
+        reopen();
+    }
+
+    /*
+     * Continue appending to the last segment of an existing archive. The segment is only continued if its header
+     * is valid and it has the size of a segment written by this replicator, otherwise it is left as it is and a
+     * new segment is started when the next record is added
+     */
+    private void reopen() throws IOException {
+        File[] segments = WatchArchive.segments(directory);
+        if(segments.length == 0)
+            return;
+        File last = segments[segments.length - 1];
+        sequence = WatchArchive.segmentSequence(last) + 1;
+        long size = WatchArchive.HEADER_SIZE + (long)capacity * WatchArchive.RECORD_SIZE;
+        RandomAccessFile lastFile = new RandomAccessFile(last, "rw");
+        int lastCount = -1;
+        if(lastFile.length() == size) {
+            byte[] header = new byte[WatchArchive.HEADER_SIZE];
+            lastFile.readFully(header);
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            if(WatchArchive.isValid(buffer))
+                lastCount = buffer.getInt(WatchArchive.COUNT_OFFSET);
+        }
+        if(lastCount < 0 || lastCount > capacity) {
+            logger.warn("Segment {} has an unrecognized format or size, starting a new segment", last.getPath());
+            lastFile.close();
+            return;
+        }
+        file = lastFile;
+        segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        count = lastCount;
+        segmentStart = WatchArchive.segmentStart(last);
+        lastWhen = count == 0 ? segmentStart : WatchArchive.when(segment, count - 1);
+    }
+
+    /**
+     * Append a record to the archive
+     *
+     * @param calculable The record to append
+     */
+    public synchronized void addCalculable(final Calculable calculable) {
+        if(closed || calculable == null)
+            return;
+        long when = calculable.getWhen();
+        try {
+            if(segment == null ||
+               count == capacity ||
+               when - segmentStart >= segmentDuration ||
+               (count > 0 && when < lastWhen))
+                roll(calculable.getId(), when);
+        } catch(IOException e) {
+            logger.warn("Unable to start a new segment in {}", directory.getPath(), e);
+            closeSegment();
+            return;
+        }
+        int position = WatchArchive.HEADER_SIZE + count * WatchArchive.RECORD_SIZE;
+        segment.putLong(position, when);
+        segment.putDouble(position + 8, calculable.getValue());
+        count++;
+        segment.putInt(WatchArchive.COUNT_OFFSET, count);
+        lastWhen = when;
+    }
+
+    private void roll(final String id, final long start) throws IOException {
+        closeSegment();
+        File next = new File(directory, WatchArchive.segmentName(start, sequence++));
+        file = new RandomAccessFile(next, "rw");
+        file.setLength(WatchArchive.HEADER_SIZE + (long)capacity * WatchArchive.RECORD_SIZE);
+        segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+        WatchArchive.writeHeader(segment, id);
+        segmentStart = Math.max(start, 0);
+        count = 0;
+    }
+
+    private void closeSegment() {
+        if(segment != null) {
+            segment.force();
+            WatchArchive.unmap(segment);
+        }
+        segment = null;
+        if(file != null) {
+            try {
+                file.close();
+            } catch(IOException e) {
+                logger.warn("Closing segment in {}", directory.getPath(), e);
+            }
+            file = null;
+        }
+    }
+
+    /**
+     * Flush the current segment and close the archive
+     */
+    public synchronized void close() {
+        closed = true;
+        closeSegment();
+    }
+
+    /**
+     * @return The directory of the archive
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Convert a text log of {@code Calculable}s, as parsed by {@link CalculablesFromLog}, into a watch archive
+     *
+     * @param log The location of the text log
+     * @param directory The directory of the archive, records are appended if the archive exists
+     *
+     * @return The number of records converted
+     *
+     * @throws IOException if the log cannot be read or the archive cannot be written
+     */
+    public static int convert(final URL log, final File directory) throws IOException {
+        WatchArchiveReplicator replicator = new WatchArchiveReplicator(directory);
+        int converted = 0;
+        try {
+            for(Calculable calculable : CalculablesFromLog.parse(log)) {
+                replicator.addCalculable(calculable);
+                converted++;
+            }
+        } finally {
+            replicator.close();
+        }
+        return converted;
+    }
+}
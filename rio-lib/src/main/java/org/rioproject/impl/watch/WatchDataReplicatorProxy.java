@@ -15,6 +15,7 @@
  */
 package org.rioproject.impl.watch;
 
+import net.jini.config.Configuration;
 import org.rioproject.watch.Calculable;
 import org.rioproject.watch.RemoteWatchDataReplicator;
 
@@ -34,11 +35,55 @@ public final class WatchDataReplicatorProxy extends QueuedReplicator {
         return new WatchDataReplicatorProxy(backend, uuid);
     }
 
+    /**
+     * Get a WatchDataReplicatorProxy whose queue is configured by the <tt>org.rioproject.watch.replicator</tt>
+     * entries of a Configuration, see {@link QueuedReplicator}
+     *
+     * @param backend The RemoteWatchDataReplicator records are replicated to
+     * @param uuid The identifier of the proxy
+     * @param config The Configuration to read, must not be null
+     *
+     * @return A WatchDataReplicatorProxy
+     */
+    public static WatchDataReplicatorProxy getInstance(final RemoteWatchDataReplicator backend,
+                                                       final UUID uuid,
+                                                       final Configuration config) {
+        return new WatchDataReplicatorProxy(backend, uuid, config);
+    }
+
+    public static WatchDataReplicatorProxy getInstance(final RemoteWatchDataReplicator backend,
+                                                       final UUID uuid,
+                                                       final int batchSize,
+                                                       final long maxDelay,
+                                                       final int capacity,
+                                                       final OverflowPolicy overflowPolicy) {
+        return new WatchDataReplicatorProxy(backend, uuid, batchSize, maxDelay, capacity, overflowPolicy);
+    }
+
     private WatchDataReplicatorProxy(final RemoteWatchDataReplicator backend, final UUID uuid) {
         this.backend = backend;
         this.uuid = uuid;
     }
 
+    private WatchDataReplicatorProxy(final RemoteWatchDataReplicator backend,
+                                     final UUID uuid,
+                                     final Configuration config) {
+        super(config);
+        this.backend = backend;
+        this.uuid = uuid;
+    }
+
+    private WatchDataReplicatorProxy(final RemoteWatchDataReplicator backend,
+                                     final UUID uuid,
+                                     final int batchSize,
+                                     final long maxDelay,
+                                     final int capacity,
+                                     final OverflowPolicy overflowPolicy) {
+        super(batchSize, maxDelay, capacity, overflowPolicy, DEFAULT_SAMPLE_RATE);
+        this.backend = backend;
+        this.uuid = uuid;
+    }
+
     protected void replicate(final Calculable calculable) throws IOException {
         backend.replicate(calculable);
     }
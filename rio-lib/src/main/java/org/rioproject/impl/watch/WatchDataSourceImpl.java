@@ -24,6 +24,9 @@ import net.jini.security.TrustVerifier;
 import net.jini.security.proxytrust.ServerProxyTrust;
 import org.rioproject.impl.config.ExporterConfig;
 import org.rioproject.watch.Calculable;
+import org.rioproject.watch.CalculableBatch;
+import org.rioproject.watch.CalculableBucket;
+import org.rioproject.watch.CalculableDownsampler;
 import org.rioproject.watch.ThresholdValues;
 import org.rioproject.watch.WatchDataReplicator;
 import org.rioproject.watch.WatchDataSource;
@@ -119,6 +122,40 @@ import java.util.List;
  </table>
  </li>
  </ul>
+ <ul>
+ <li><span
+ style="font-weight: bold; font-family: courier new,courier,monospace;">ringBufferHistory</span>
+ <br style="font-family: courier new,courier,monospace;">
+ <table cellpadding="2" cellspacing="2" border="0"
+ style="text-align: left; width: 100%;">
+ <tbody>
+ <tr>
+ <td
+ style="vertical-align: top; text-align: right; font-weight: bold;">Type:
+ <br>
+ </td>
+ <td style="vertical-align: top;">boolean</td>
+ </tr>
+ <tr>
+ <td
+ style="vertical-align: top; text-align: right; font-weight: bold;">Default:
+ <br>
+ </td>
+ <td style="vertical-align: top;">false</td>
+ </tr>
+ <tr>
+ <td
+ style="vertical-align: top; text-align: right; font-weight: bold;">Description:
+ <br>
+ </td>
+ <td style="vertical-align: top;">If true, the history is kept in a
+ fixed capacity ring buffer. Adding a record never shifts the history,
+ and readers of the history do not block the thread adding records.</td>
+ </tr>
+ </tbody>
+ </table>
+ </li>
+ </ul>
  <p>
  */
 public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
@@ -130,6 +167,10 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
     private int max = DEFAULT_COLLECTION_SIZE;
     /** The history */
     private final ArrayList<Calculable> history = new ArrayList<Calculable>();
+    /** The ring buffer history, used instead of the history list if configured */
+    private CalculableRingBuffer ring;
+    /** Whether the history is in time order, allowing time ranges to be found with a binary search */
+    private boolean timeOrdered = true;
     /** Holds value of property id. */
     private String id = null;
     /** The class name used to view the WatchDataSource */
@@ -205,8 +246,17 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
             logger.trace("Getting WatchDataSource collection size", e);
             collectionSize = DEFAULT_COLLECTION_SIZE;
         }
-        logger.trace("Watch [{}] history collection size={}", id, collectionSize);
+        boolean useRingBuffer;
+        try {
+            useRingBuffer = (Boolean)config.getEntry(COMPONENT, "ringBufferHistory", boolean.class, false);
+        } catch(ConfigurationException e) {
+            logger.trace("Getting WatchDataSource ringBufferHistory", e);
+            useRingBuffer = false;
+        }
+        logger.trace("Watch [{}] history collection size={}, ring buffer={}", id, collectionSize, useRingBuffer);
         max = collectionSize;
+        if(useRingBuffer)
+            ring = new CalculableRingBuffer(max);
         initialized = true;
     }
 
@@ -288,6 +338,12 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
      * @see WatchDataSource#setMaxSize
      */
     public void setMaxSize(int size) {
+        if(ring!=null) {
+            ring.resize(size);
+            this.max = size;
+            logger.trace("Watch [{}] history collection size={}", id, size);
+            return;
+        }
         synchronized(history) {
             if(size < this.max) {
                 // If the size is less then the current maximum, reset the maximum
@@ -307,8 +363,13 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
      * @see org.rioproject.watch.WatchDataSource#clear
      */
     public void clear() {
+        if(ring!=null) {
+            ring.clear();
+            return;
+        }
         synchronized(history) {
             history.clear();
+            timeOrdered = true;
         }
     }
 
@@ -340,6 +401,8 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
      * @see org.rioproject.watch.WatchDataSource#getCurrentSize
      */
     public int getCurrentSize() {
+        if(ring!=null)
+            return ring.size();
         int size;
         synchronized(history) {
             size = history.size();
@@ -365,11 +428,19 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
     }
 
     private void addToHistory(Calculable calculable) {
+        if(ring!=null) {
+            ring.add(calculable);
+            if(logger.isTraceEnabled())
+                logger.trace("[{}] Adding [{}] to history", id, calculable.toString());
+            return;
+        }
         synchronized(history) {
             if(history.size() == max)
                 trimHistory(1);
             if(history.size() > max)
                 trimHistory((history.size() - max) - 1);
+            if(timeOrdered && !history.isEmpty() && calculable.getWhen() < history.get(history.size() - 1).getWhen())
+                timeOrdered = false;
             history.add(calculable);
             if(logger.isTraceEnabled())
                 logger.trace("[{}] Adding [{}] to history", id, calculable.toString());
@@ -380,6 +451,8 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
      * @see org.rioproject.watch.WatchDataSource#getCalculable
      */
     public Calculable[] getCalculable() {
+        if(ring!=null)
+            return ring.toArray();
         Calculable[] calcs;
         synchronized(history) {
             calcs = history.toArray(new Calculable[history.size()]);
@@ -394,10 +467,7 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
         if(id==null)
             throw new IllegalArgumentException("id is null");
 
-        Calculable[] calcs;
-        synchronized(history) {
-            calcs = history.toArray(new Calculable[history.size()]);
-        }
+        Calculable[] calcs = getCalculable();
         List<Calculable> list = new ArrayList<Calculable>();
         for(Calculable c : calcs) {
             if(c.getId().equals(id))
@@ -410,22 +480,73 @@ public class WatchDataSourceImpl implements WatchDataSource, ServerProxyTrust {
      * @see org.rioproject.watch.WatchDataSource#getCalculable(long, long)
      */
     public Calculable[] getCalculable(long from, long to) {
-        List<Calculable> list = new ArrayList<Calculable>();
-        if(to>from) {
-            synchronized(history) {
-                for(Calculable calc : history) {
-                    if(calc.getWhen()>=from && calc.getWhen()<=to)
-                        list.add(calc);
-                }
+        if(ring!=null)
+            return to>from ? ring.range(from, to) : new Calculable[0];
+        if(to<=from)
+            return new Calculable[0];
+        synchronized(history) {
+            if(timeOrdered) {
+                int start = firstAtOrAfter(from);
+                int end = firstAtOrAfter(to == Long.MAX_VALUE ? to : to + 1);
+                return history.subList(start, end).toArray(new Calculable[end - start]);
             }
+            List<Calculable> list = new ArrayList<Calculable>();
+            for(Calculable calc : history) {
+                if(calc.getWhen()>=from && calc.getWhen()<=to)
+                    list.add(calc);
+            }
+            return list.toArray(new Calculable[list.size()]);
         }
-        return (list.toArray(new Calculable[list.size()]));
+    }
+
+    /*
+     * Binary search the time ordered history for the first record at or after a time. Must be called
+     * holding the history lock
+     */
+    private int firstAtOrAfter(long when) {
+        int low = 0;
+        int high = history.size();
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(history.get(mid).getWhen() < when)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @see org.rioproject.watch.WatchDataSource#getCalculableBatch
+     */
+    public CalculableBatch getCalculableBatch(long from, long to) {
+        return new CalculableBatch(getCalculable(from, to));
+    }
+
+    /**
+     * @see org.rioproject.watch.WatchDataSource#getAggregated
+     */
+    public CalculableBucket[] getAggregated(long from, long to, long bucketWidth) {
+        if(bucketWidth<=0)
+            throw new IllegalArgumentException("bucketWidth must be greater than zero");
+        return CalculableDownsampler.aggregate(getCalculable(from, to), from, to, bucketWidth);
+    }
+
+    /**
+     * @see org.rioproject.watch.WatchDataSource#getDownsampled
+     */
+    public Calculable[] getDownsampled(long from, long to, int maxPoints) {
+        if(maxPoints<3)
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        return CalculableDownsampler.lttb(getCalculable(from, to), maxPoints);
     }
 
     /**
      * @see org.rioproject.watch.WatchDataSource#getLastCalculable
      */
     public Calculable getLastCalculable() {
+        if(ring!=null)
+            return ring.last();
         Calculable c = null;
         try {
             synchronized(history) {
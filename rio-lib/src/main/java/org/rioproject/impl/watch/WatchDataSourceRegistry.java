@@ -47,8 +47,8 @@ public class WatchDataSourceRegistry implements WatchRegistry {
         watchRegistry.removeAll(Arrays.asList(watches));
         for (Watch watch : watches) {
             try {
-                if(watch instanceof PeriodicWatch)
-                    ((PeriodicWatch)watch).stop();
+                if(watch instanceof PeriodicWatchMBean)
+                    ((PeriodicWatchMBean)watch).stop();
                 watch.getWatchDataSource().close();
 
             } catch (NoSuchObjectException e) {
@@ -69,8 +69,8 @@ public class WatchDataSourceRegistry implements WatchRegistry {
         Watch[] watches = watchRegistry.toArray(new Watch[0]);
         for(Watch w : watches) {
             //unregisterJMX(w);
-            if(w instanceof PeriodicWatch)
-                ((PeriodicWatch)w).stop();
+            if(w instanceof PeriodicWatchMBean)
+                ((PeriodicWatchMBean)w).stop();
             try {
                 WatchDataSource wd = w.getWatchDataSource();
                 if (wd != null)
@@ -176,6 +176,13 @@ public class WatchDataSourceRegistry implements WatchRegistry {
         return watch;
     }
 
+    /**
+     * @see WatchRegistry#getWatches()
+     */
+    public Watch[] getWatches() {
+        return watchRegistry.toArray(new Watch[0]);
+    }
+
     /**
      * @see WatchRegistry#fetch()
      */
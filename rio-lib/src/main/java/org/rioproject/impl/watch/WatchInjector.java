@@ -17,14 +17,12 @@ package org.rioproject.impl.watch;
 
 import net.jini.config.Configuration;
 import org.rioproject.servicebean.ServiceBeanContext;
-import org.rioproject.impl.jmx.GenericMBeanInvoker;
 import org.rioproject.watch.WatchDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.management.MalformedObjectNameException;
-import javax.management.ObjectInstance;
-import javax.management.ObjectName;
+import javax.management.*;
+import javax.management.relation.MBeanServerNotificationFilter;
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
@@ -33,7 +31,11 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The WatchInjector provides support for declarative Watch management, by
@@ -80,6 +82,13 @@ import java.util.Set;
  * of <tt>entryCounter</tt>, which adds the value returned from the
  * <tt>getCount()</tt> method every 10 seconds.
  *
+ * <p>A WatchDescriptor that declares an MBean attribute creates its watch
+ * once the MBean has been registered, detected using an
+ * {@link MBeanServerNotification} listener. Watches for attributes of the
+ * same MBean with the same period share an {@link MBeanAttributeSampler},
+ * and the attributes are read in a single <tt>getAttributes</tt> call
+ * each time the watches are sampled.
+ *
  * @author Dennis Reedy
  */
 public class WatchInjector {
@@ -87,8 +96,11 @@ public class WatchInjector {
     private PropertyDescriptor[] pds;
     private ServiceBeanContext context;
     /** Collection of created Watch objects */
-    private final List<Watch> createdWatches = new ArrayList<>();
-    private final List<Thread> mbeanCheckThreads = new ArrayList<>();
+    private final List<Watch> createdWatches = new CopyOnWriteArrayList<>();
+    /** Listeners waiting for MBeans to be registered */
+    private final List<MBeanAvailability> pendingMBeans = new CopyOnWriteArrayList<>();
+    private final List<MBeanAttributeSampler> samplers = new ArrayList<>();
+    private final Map<Watch, MBeanAttributeSampler.Member> sampledAttributes = new ConcurrentHashMap<>();
     static final String COMPONENT = "org.rioproject.watch.WatchInjector";
     static final Logger logger = LoggerFactory.getLogger(COMPONENT);
 
@@ -221,12 +233,12 @@ public class WatchInjector {
         context = null;
         pds = null;        
         createdWatches.clear();
-        Thread[] threads =
-            mbeanCheckThreads.toArray(new Thread[0]);
-        for(Thread t : threads) {
-            if(t.isAlive())
-                t.interrupt();
+        for(MBeanAvailability pending : pendingMBeans)
+            pending.cancel();
+        synchronized(samplers) {
+            samplers.clear();
         }
+        sampledAttributes.clear();
     }
 
     protected Watch createWatch(WatchDescriptor wDesc,
@@ -252,9 +264,31 @@ public class WatchInjector {
                             wDesc.getObjectName(), System.getProperty("java.version"));
                 return null;
             }
-            Thread t = new MBeanVerification(wDesc, config);
-            t.start();
-            mbeanCheckThreads.add(t);
+            if(wDesc.getAttribute()==null) {
+                logger.warn("An attribute must be declared in order to create a Watch to monitor MBean [{}]",
+                            wDesc.getObjectName());
+                return null;
+            }
+            try {
+                MBeanAvailability availability = new MBeanAvailability(wDesc, config);
+                pendingMBeans.add(availability);
+                availability.start();
+            } catch (MalformedObjectNameException e) {
+                logger.warn("The value ["+wDesc.getObjectName()+"] cannot be " +
+                            "used to create an ObjectName. Please verify the " +
+                            "format of the value and retry. The service will " +
+                            "continue to execute, but the monitor you have " +
+                            "requested to be created to observe this MBean can " +
+                            "not be created",
+                            e);
+            } catch (IOException | JMException e) {
+                logger.warn("A connection exception has occurred communicating " +
+                            "to the attached MBeanServer for the exec'd service. " +
+                            "The service will continue to execute, " +
+                            "but the monitor you have requested to be created to " +
+                            "observe this MBean can not be created",
+                            e);
+            }
         } else {
             watch = new SamplingWatch(wDesc.getName(), config);
             watch.setBean(bean);
@@ -331,7 +365,18 @@ public class WatchInjector {
         }
         SamplingWatch sWatch = (SamplingWatch)watch;
         if(wDesc.getPeriod()!=sWatch.getPeriod()) {
+            MBeanAttributeSampler.Member member = sampledAttributes.get(watch);
+            if(member!=null) {
+                /* Move to the sampler for the new period */
+                MBeanAttributeSampler sampler = member.getSampler();
+                removeMember(watch);
+                member = addMember(sWatch, sampler.getConnection(), sampler.getObjectName(),
+                                   member.getAttribute(), wDesc.getPeriod());
+                sWatch.setBean(member);
+            }
             sWatch.setPeriod(wDesc.getPeriod());
+        } else if(sampledAttributes.containsKey(watch)) {
+            return;
         } else if(!(wDesc.getProperty().equals(sWatch.getProperty()))) {
             sWatch.setProperty(wDesc.getProperty());
         }
@@ -351,8 +396,10 @@ public class WatchInjector {
             logger.warn("Unable to remove Watch [{}], not created by the WatchInjector", wDesc.getName());
             return;
         }
-        if(createdWatches.remove(watch))
+        if(createdWatches.remove(watch)) {
+            removeMember(watch);
             context.getWatchRegistry().deregister(watch);
+        }
     }
 
     /**
@@ -368,82 +415,122 @@ public class WatchInjector {
             logger.warn("Unable to remove Watch [{}], not created by the WatchInjector", name);
             return;
         }
-        if(createdWatches.remove(watch))
+        if(createdWatches.remove(watch)) {
+            removeMember(watch);
             context.getWatchRegistry().deregister(watch);
+        }
+    }
+
+
+    /*
+     * Add an attribute to the sampler for the MBean and period, creating the sampler if needed
+     */
+    private MBeanAttributeSampler.Member addMember(Watch watch,
+                                                   MBeanServerConnection connection,
+                                                   ObjectName objectName,
+                                                   String attribute,
+                                                   long period) {
+        MBeanAttributeSampler.Member member;
+        synchronized(samplers) {
+            MBeanAttributeSampler sampler = null;
+            for(MBeanAttributeSampler s : samplers) {
+                if(s.getConnection()==connection && s.getObjectName().equals(objectName) && s.getPeriod()==period) {
+                    sampler = s;
+                    break;
+                }
+            }
+            if(sampler==null) {
+                sampler = new MBeanAttributeSampler(connection, objectName, period);
+                samplers.add(sampler);
+            }
+            member = sampler.add(attribute);
+        }
+        sampledAttributes.put(watch, member);
+        return member;
     }
 
+    private void removeMember(Watch watch) {
+        MBeanAttributeSampler.Member member = sampledAttributes.remove(watch);
+        if(member==null)
+            return;
+        synchronized(samplers) {
+            if(member.getSampler().remove(member))
+                samplers.remove(member.getSampler());
+        }
+    }
 
-    class MBeanVerification extends Thread {
-        WatchDescriptor wDesc;
+    /**
+     * Waits for an MBean to be registered, then creates the Watch for the
+     * WatchDescriptor
+     */
+    class MBeanAvailability implements NotificationListener {
+        final WatchDescriptor wDesc;
+        final Configuration config;
+        final MBeanServerConnection connection;
+        final AtomicBoolean done = new AtomicBoolean(false);
         ObjectName oName;
-        Configuration config;
-        boolean alive = true;
 
-        MBeanVerification(WatchDescriptor wDesc, Configuration config) {
+        MBeanAvailability(WatchDescriptor wDesc, Configuration config) {
             this.wDesc = wDesc;
             this.config = config;
+            this.connection = wDesc.getMBeanServerConnection();
         }
 
-        @Override
-        public void interrupt() {
-            alive = false;
-            super.interrupt();
+        /*
+         * Add the listener before checking whether the MBean is registered,
+         * so a registration between the two is not missed
+         */
+        void start() throws MalformedObjectNameException, IOException, JMException {
+            oName = new ObjectName(wDesc.getObjectName());
+            MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+            filter.disableAllTypes();
+            filter.enableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+            filter.enableAllObjectNames();
+            connection.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this, filter, null);
+            Set<ObjectName> names = connection.queryNames(oName, null);
+            if(names.isEmpty()) {
+                logger.info("Waiting for MBean [{}] to become available before injecting " +
+                            "watch and associated SLA monitoring", wDesc.getObjectName());
+            } else {
+                available(names.iterator().next());
+            }
         }
 
-        public void run() {
+        public void handleNotification(Notification notification, Object handback) {
+            if(notification instanceof MBeanServerNotification) {
+                ObjectName name = ((MBeanServerNotification)notification).getMBeanName();
+                if(oName.apply(name))
+                    available(name);
+            }
+        }
+
+        void available(ObjectName name) {
+            if(!done.compareAndSet(false, true))
+                return;
+            cancel();
+            if(context==null)
+                return;
+            createAndRegisterWatch(name);
+            logger.info("MBean [{}] is available, injecting watch [{}] and associated SLA monitoring",
+                        name, wDesc.getName());
+        }
+
+        void cancel() {
+            done.set(true);
+            pendingMBeans.remove(this);
             try {
-                boolean proceed = false;
-                oName = new ObjectName(wDesc.getObjectName());
-                int iterations = 0;
-                while(alive) {
-                    Set<ObjectInstance> instances = wDesc.getMBeanServerConnection().queryMBeans(oName, null);
-                    proceed = instances.size() > 0;
-                    if(!proceed) {
-                        try {
-                            if(iterations++%5==0)
-                                logger.info("Waiting for MBean [{}] to become available before injecting " +
-                                            "watch and associated SLA monitoring", wDesc.getObjectName());
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e) {
-                            break;
-                        }
-                    } else {
-                        break;
-                    }
-                }
-                if(proceed) {
-                    createAndRegisterWatch();
-                    logger.info("MBean [{}] is available, injecting watch [{}] and associated SLA monitoring",
-                                wDesc.getObjectName(), wDesc.getName());
-                }
-            } catch (MalformedObjectNameException e) {
-                logger.warn("The value ["+wDesc.getObjectName()+"] cannot be " +
-                            "used to create an ObjectName. Please verify the " +
-                            "format of the value and retry. The service will " +
-                            "continue to execute, but the monitor you have " +
-                            "requested to be created to observe this MBean can " +
-                            "not be created",
-                            e);
-            } catch (IOException e) {
-                logger.warn("A connection exception has occurred communicating " +
-                           "to the attached MBeanServer for the exec'd service. " +
-                           "The service will continue to execute, " +
-                           "but the monitor you have requested to be created to " +
-                           "observe this MBean can not be created",
-                           e);
-            } finally {
-                mbeanCheckThreads.remove(Thread.currentThread());
+                connection.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this);
+            } catch (ListenerNotFoundException e) {
+                /* Already removed */
+            } catch (Exception e) {
+                logger.debug("Removing MBeanServerNotification listener for [{}]", wDesc.getObjectName(), e);
             }
         }
 
-        void createAndRegisterWatch() {
+        void createAndRegisterWatch(ObjectName name) {
             SamplingWatch watch = new SamplingWatch(wDesc.getName(), config);
-            GenericMBeanInvoker mbi = new GenericMBeanInvoker();
-            mbi.setObjectName(oName);
-            mbi.setAttribute(wDesc.getAttribute());
-            mbi.setMBeanServerConnection(wDesc.getMBeanServerConnection());
-            watch.setBean(mbi);
-            watch.setProperty(GenericMBeanInvoker.GETTER);
+            watch.setBean(addMember(watch, connection, name, wDesc.getAttribute(), wDesc.getPeriod()));
+            watch.setProperty(MBeanAttributeSampler.Member.PROPERTY);
             watch.setPeriod(wDesc.getPeriod());
             watch.start();
             context.getWatchRegistry().register(watch);
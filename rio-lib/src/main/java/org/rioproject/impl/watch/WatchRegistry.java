@@ -75,6 +75,14 @@ public interface WatchRegistry {
      */
     Watch findWatch(String id);
 
+    /**
+     * Returns the registered Watch instances
+     *
+     * @return An array of the registered Watch instances. If there are no
+     * registered Watch instances, a zero-length array is returned
+     */
+    Watch[] getWatches();
+
     /**
      * Returns an array of WatchDataSource objects which provide a reference to
      * an implementation of WatchDataSource.
@@ -53,6 +53,8 @@ public class SLA extends ThresholdValues implements Serializable {
     private int maxServices = UNDEFINED;
     /** The class name of the SLAPolicyHandler to create */
     private String slaPolicyHandler;
+    /** How far ahead a forecast of the measured value may breach the upper threshold */
+    private long forecastHorizon;
 
     /**
      * Construct a SLA
@@ -201,6 +203,32 @@ public class SLA extends ThresholdValues implements Serializable {
         this.slaPolicyHandler = slaPolicyHandler;
     }    
 
+    /**
+     * Get the forecast horizon
+     *
+     * @return The number of milliseconds ahead of the last measured value
+     * that a forecast of the value is checked against the upper threshold.
+     * If the value is 0, only measured values are checked
+     */
+    public long getForecastHorizon() {
+        return forecastHorizon;
+    }
+
+    /**
+     * Set the forecast horizon. If the SLA is for a MeasurableCapability that
+     * forecasts its values, the upper threshold is breached when the value
+     * is forecast to cross it within the horizon, so that a scaling policy can
+     * act before the value itself crosses it.
+     *
+     * @param forecastHorizon The number of milliseconds ahead of the last
+     * measured value to forecast
+     */
+    public void setForecastHorizon(final long forecastHorizon) {
+        if(forecastHorizon<0)
+            throw new IllegalArgumentException("forecastHorizon must be >= 0");
+        this.forecastHorizon = forecastHorizon;
+    }
+
     public String toString() {
         StringBuilder toString = new StringBuilder();
         toString.append("SLA [");
@@ -210,6 +238,7 @@ public class SLA extends ThresholdValues implements Serializable {
         toString.append("upperThresholdDampeningTime: ").append(upperThresholdDampeningTime).append(", ");
         toString.append("lowerThresholdDampeningTime: ").append(lowerThresholdDampeningTime).append(", ");
         toString.append("maxServices: ").append(maxServices).append(", ");
+        toString.append("forecastHorizon: ").append(forecastHorizon).append(", ");
         toString.append("slaPolicyHandler: ").append(slaPolicyHandler).append("]");
         return toString.toString();
     }
@@ -167,6 +167,16 @@ public class ResourceCapability implements Comparable, Serializable {
         return (mRes);
     }
 
+    /**
+     * Get the ComputeResourceUtilization the MeasuredResource objects are
+     * obtained from
+     *
+     * @return The ComputeResourceUtilization of the compute resource
+     */
+    public ComputeResourceUtilization getComputeResourceUtilization() {
+        return resourceUtilization;
+    }
+
     /**
      * Determine if the ResourceCapability contains MeasuredResource instances
      * that have values which fall outside of their threshold declaration
@@ -21,14 +21,32 @@ package org.rioproject.system;
 public interface SystemWatchID {
     static final String SYSTEM_CPU = "CPU";
     static final String PROC_CPU = "CPU (Proc)";
+    static final String CPU_IOWAIT = "CPU I/O Wait";
+    static final String CPU_STEAL = "CPU Steal";
+    static final String CPU_THROTTLED = "CPU Throttled";
     static final String DISK_SPACE = "DiskSpace";
+    static final String DISK_IO = "Disk I/O";
+    static final String NETWORK = "Network";
     static final String SYSTEM_MEMORY = "System Memory";
     static final String JVM_MEMORY = "Process Memory";
     static final String JVM_PERM_GEN = "Perm Gen";
+    static final String MEMORY_PRESSURE = "Memory Pressure";
+    static final String PIDS = "PIDs";
+    static final String GC_PAUSE = "GC Pause";
+    static final String ALLOCATION_RATE = "Allocation Rate";
     static final String[] IDs = new String[]{SYSTEM_CPU,
                                              PROC_CPU,
+                                             CPU_IOWAIT,
+                                             CPU_STEAL,
+                                             CPU_THROTTLED,
                                              DISK_SPACE,
+                                             DISK_IO,
+                                             NETWORK,
                                              SYSTEM_MEMORY,
                                              JVM_MEMORY,
-                                             JVM_PERM_GEN};
+                                             JVM_PERM_GEN,
+                                             MEMORY_PRESSURE,
+                                             PIDS,
+                                             GC_PAUSE,
+                                             ALLOCATION_RATE};
 }
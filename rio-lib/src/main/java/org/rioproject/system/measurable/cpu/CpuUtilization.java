@@ -30,6 +30,9 @@ public class CpuUtilization extends MeasuredResource implements Serializable {
     private double user = Double.NaN;
     private double total = Double.NaN;
     private double load[] = new double[]{Double.NaN};
+    private double iowait = Double.NaN;
+    private double steal = Double.NaN;
+    private CpuUtilization[] cores;
     /** The number of available processors on the machine */
     private int availableProcessors;
 
@@ -74,6 +77,34 @@ public class CpuUtilization extends MeasuredResource implements Serializable {
         this.availableProcessors = availableProcessors;
     }
 
+    /**
+     * Construct a CpuUtilization with parameters
+     *
+     * @param identifier Identifier for the CpuUtilization
+     * @param system The cpu kernel usage, including time servicing interrupts
+     * @param user The cpu user usage
+     * @param iowait The time the cpu was idle waiting for I/O to complete
+     * @param steal The time stolen from the cpu by other virtual machines
+     * @param load The system load average
+     * @param availableProcessors The number of available processors on the machine
+     * @param cores The utilization of each processor, may be null
+     * @param tVals ThresholdValues for the CpuUtilization
+     */
+    public CpuUtilization(String identifier,
+                          double system,
+                          double user,
+                          double iowait,
+                          double steal,
+                          double[] load,
+                          int availableProcessors,
+                          CpuUtilization[] cores,
+                          ThresholdValues tVals) {
+        this(identifier, system, user, load, availableProcessors, tVals);
+        this.iowait = iowait;
+        this.steal = steal;
+        this.cores = cores;
+    }
+
     /**
      * Get the cpu kernel usage
      *
@@ -103,6 +134,38 @@ public class CpuUtilization extends MeasuredResource implements Serializable {
         return total;
     }
 
+    /**
+     * Get the time the cpu was idle while waiting for I/O to complete
+     *
+     * @return The I/O wait time as a percentage; or a Double.NaN if not
+     *         available.
+     */
+    public double getIowait() {
+        return iowait;
+    }
+
+    /**
+     * Get the time stolen from the cpu by the hypervisor to run other
+     * virtual machines
+     *
+     * @return The steal time as a percentage; or a Double.NaN if not
+     *         available.
+     */
+    public double getSteal() {
+        return steal;
+    }
+
+    /**
+     * Get the utilization of each processor
+     *
+     * @return The utilization of each processor, indexed by processor number;
+     *         or an empty array if not available. An offline processor has a
+     *         total of 0.
+     */
+    public CpuUtilization[] getCores() {
+        return cores==null ? new CpuUtilization[0] : cores;
+    }
+
     /**
      * Get the system load
      *
@@ -126,8 +189,11 @@ public class CpuUtilization extends MeasuredResource implements Serializable {
                "system=" + system +
                ", user=" + user +
                ", total=" + total +
+               ", iowait=" + iowait +
+               ", steal=" + steal +
                ", load=" + Arrays.toString(load) +
                ", availableProcessors=" + availableProcessors +
+               ", cores=" + (cores==null ? 0 : cores.length) +
                '}';
     }
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.system.measurable.disk;
+
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.Serializable;
+
+/**
+ * Measured disk I/O statistics. The value is the utilization of the busiest disk, the fraction of time it had
+ * I/O in progress.
+ */
+public class DiskIOUtilization extends MeasuredResource implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String device;
+    private double iops;
+    private double readBytesPerSecond;
+    private double writeBytesPerSecond;
+    private double await;
+    private DiskIOUtilization[] devices;
+
+    /**
+     * Construct a DiskIOUtilization with parameters
+     *
+     * @param identifier Identifier for the DiskIOUtilization
+     * @param utilization The disk utilization
+     * @param tVals ThresholdValues for the DiskIOUtilization
+     */
+    public DiskIOUtilization(String identifier, double utilization, ThresholdValues tVals) {
+        super(identifier, utilization, tVals);
+    }
+
+    /**
+     * Construct a DiskIOUtilization with parameters
+     *
+     * @param identifier Identifier for the DiskIOUtilization
+     * @param device The name of the device, or null for all disks
+     * @param utilization The fraction of time the disk (or for all disks, the busiest disk) had I/O in progress
+     * @param iops The number of reads and writes completed per second
+     * @param readBytesPerSecond The number of bytes read per second
+     * @param writeBytesPerSecond The number of bytes written per second
+     * @param await The average time in milliseconds a read or write took to complete, including the time it
+     * was queued
+     * @param devices The statistics of each disk, may be null
+     * @param tVals ThresholdValues for the DiskIOUtilization
+     */
+    public DiskIOUtilization(String identifier,
+                             String device,
+                             double utilization,
+                             double iops,
+                             double readBytesPerSecond,
+                             double writeBytesPerSecond,
+                             double await,
+                             DiskIOUtilization[] devices,
+                             ThresholdValues tVals) {
+        super(identifier, utilization, tVals);
+        this.device = device;
+        this.iops = iops;
+        this.readBytesPerSecond = readBytesPerSecond;
+        this.writeBytesPerSecond = writeBytesPerSecond;
+        this.await = await;
+        this.devices = devices;
+    }
+
+    /**
+     * @return The name of the device, or null for all disks
+     */
+    public String getDevice() {
+        return device;
+    }
+
+    public double getIops() {
+        return iops;
+    }
+
+    public double getReadBytesPerSecond() {
+        return readBytesPerSecond;
+    }
+
+    public double getWriteBytesPerSecond() {
+        return writeBytesPerSecond;
+    }
+
+    /**
+     * @return The number of bytes read and written per second
+     */
+    public double getThroughput() {
+        return readBytesPerSecond + writeBytesPerSecond;
+    }
+
+    /**
+     * @return The average time in milliseconds a read or write took to complete
+     */
+    public double getAwait() {
+        return await;
+    }
+
+    /**
+     * Get the statistics of each disk
+     *
+     * @return The statistics of each disk. If not available, a zero-length array
+     */
+    public DiskIOUtilization[] getDevices() {
+        return devices == null ? new DiskIOUtilization[0] : devices;
+    }
+
+    @Override public String toString() {
+        double MB = Math.pow(1024, 2);
+        return String.format("%sutilization=%.2f, iops=%.1f, read=%.2f MB/s, write=%.2f MB/s, await=%.2f ms",
+                             device == null ? "" : device+": ",
+                             getValue(),
+                             iops,
+                             readBytesPerSecond/MB,
+                             writeBytesPerSecond/MB,
+                             await);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.system.measurable.network;
+
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.Serializable;
+
+/**
+ * Measured network interface statistics. The value is the utilization of the busiest interface, the larger
+ * of its receive and transmit rates as a fraction of its bandwidth.
+ */
+public class NetworkUtilization extends MeasuredResource implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String networkInterface;
+    private double rxBytesPerSecond;
+    private double txBytesPerSecond;
+    private double rxPacketsPerSecond;
+    private double txPacketsPerSecond;
+    private double dropsPerSecond;
+    private NetworkUtilization[] interfaces;
+
+    /**
+     * Construct a NetworkUtilization with parameters
+     *
+     * @param identifier Identifier for the NetworkUtilization
+     * @param utilization The network utilization
+     * @param tVals ThresholdValues for the NetworkUtilization
+     */
+    public NetworkUtilization(String identifier, double utilization, ThresholdValues tVals) {
+        super(identifier, utilization, tVals);
+    }
+
+    /**
+     * Construct a NetworkUtilization with parameters
+     *
+     * @param identifier Identifier for the NetworkUtilization
+     * @param networkInterface The name of the interface, or null for all interfaces
+     * @param utilization The utilization of the interface (or for all interfaces, the busiest interface)
+     * @param rxBytesPerSecond The number of bytes received per second
+     * @param txBytesPerSecond The number of bytes transmitted per second
+     * @param rxPacketsPerSecond The number of packets received per second
+     * @param txPacketsPerSecond The number of packets transmitted per second
+     * @param dropsPerSecond The number of received and transmitted packets dropped per second
+     * @param interfaces The statistics of each interface, may be null
+     * @param tVals ThresholdValues for the NetworkUtilization
+     */
+    public NetworkUtilization(String identifier,
+                              String networkInterface,
+                              double utilization,
+                              double rxBytesPerSecond,
+                              double txBytesPerSecond,
+                              double rxPacketsPerSecond,
+                              double txPacketsPerSecond,
+                              double dropsPerSecond,
+                              NetworkUtilization[] interfaces,
+                              ThresholdValues tVals) {
+        super(identifier, utilization, tVals);
+        this.networkInterface = networkInterface;
+        this.rxBytesPerSecond = rxBytesPerSecond;
+        this.txBytesPerSecond = txBytesPerSecond;
+        this.rxPacketsPerSecond = rxPacketsPerSecond;
+        this.txPacketsPerSecond = txPacketsPerSecond;
+        this.dropsPerSecond = dropsPerSecond;
+        this.interfaces = interfaces;
+    }
+
+    /**
+     * @return The name of the interface, or null for all interfaces
+     */
+    public String getInterface() {
+        return networkInterface;
+    }
+
+    public double getRxBytesPerSecond() {
+        return rxBytesPerSecond;
+    }
+
+    public double getTxBytesPerSecond() {
+        return txBytesPerSecond;
+    }
+
+    public double getRxPacketsPerSecond() {
+        return rxPacketsPerSecond;
+    }
+
+    public double getTxPacketsPerSecond() {
+        return txPacketsPerSecond;
+    }
+
+    public double getDropsPerSecond() {
+        return dropsPerSecond;
+    }
+
+    /**
+     * Get the statistics of each interface
+     *
+     * @return The statistics of each interface. If not available, a zero-length array
+     */
+    public NetworkUtilization[] getInterfaces() {
+        return interfaces == null ? new NetworkUtilization[0] : interfaces;
+    }
+
+    @Override public String toString() {
+        double MB = Math.pow(1024, 2);
+        return String.format("%sutilization=%.2f, rx=%.2f MB/s, tx=%.2f MB/s, rx=%.0f pkt/s, tx=%.0f pkt/s, drops=%.1f/s",
+                             networkInterface == null ? "" : networkInterface+": ",
+                             getValue(),
+                             rxBytesPerSecond/MB,
+                             txBytesPerSecond/MB,
+                             rxPacketsPerSecond,
+                             txPacketsPerSecond,
+                             dropsPerSecond);
+    }
+}
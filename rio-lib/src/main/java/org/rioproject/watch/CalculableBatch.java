@@ -0,0 +1,299 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import java.io.*;
+import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
+import java.util.*;
+
+/**
+ * An immutable list of {@link Calculable} records with a compact, columnar serialized form, used to transfer
+ * watch history and replicated records.
+ *
+ * <p>Rather than serializing each {@code Calculable} with its class descriptor and strings, the batch writes
+ * each distinct identifier once and refers to it by index, writes timestamps as variable length deltas from
+ * the previous timestamp, and writes whole number values, such as counts and elapsed times, as variable
+ * length integers. Details are only written for the records that have one. {@code Calculable} and {@code StopWatchCalculable} records are encoded this way,
+ * records of any other class are written using default serialization.</p>
+ */
+public class CalculableBatch extends AbstractList<Calculable> implements RandomAccess, Externalizable {
+    static final long serialVersionUID = 1L;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte PLAIN = 0;
+    private static final byte STOP_WATCH = 1;
+    private static final byte SERIALIZED = 2;
+    private static final byte MIXED = 3;
+    /* Whole numbers up to this magnitude are exactly representable as a double */
+    private static final double MAX_EXACT = 1L << 53;
+    /* Strings longer than this may not fit in the modified UTF-8 form, records with them are serialized */
+    private static final int MAX_UTF_CHARS = 65535 / 3;
+    private Calculable[] calculables;
+
+    /**
+     * Create an empty CalculableBatch, used for deserialization
+     */
+    public CalculableBatch() {
+        calculables = new Calculable[0];
+    }
+
+    /**
+     * Create a CalculableBatch
+     *
+     * @param calculables The records in the batch, must not contain {@code null} elements
+     */
+    public CalculableBatch(final Collection<? extends Calculable> calculables) {
+        this(calculables.toArray(new Calculable[0]));
+    }
+
+    /**
+     * Create a CalculableBatch
+     *
+     * @param calculables The records in the batch, must not contain {@code null} elements. The array is not
+     * copied
+     */
+    public CalculableBatch(final Calculable[] calculables) {
+        for(Calculable calculable : calculables) {
+            if(calculable == null)
+                throw new IllegalArgumentException("calculables cannot contain null elements");
+        }
+        this.calculables = calculables;
+    }
+
+    @Override
+    public Calculable get(final int index) {
+        return calculables[index];
+    }
+
+    @Override
+    public int size() {
+        return calculables.length;
+    }
+
+    /**
+     * @return A new array of the records in the batch
+     */
+    @Override
+    public Calculable[] toArray() {
+        return calculables.clone();
+    }
+
+    /**
+     * Get Calculable records for the specified time range from a WatchDataSource using
+     * {@link WatchDataSource#getCalculableBatch(long, long)}. A WatchDataSource exported or compiled before that
+     * method was added does not have it, in which case the records are obtained using
+     * {@link WatchDataSource#getCalculable(long, long)}.
+     *
+     * @param watchDataSource The WatchDataSource
+     * @param from The start time
+     * @param to The end time
+     *
+     * @return An array of the Calculable records within the provided time range
+     *
+     * @throws RemoteException If communication errors occur
+     */
+    public static Calculable[] getCalculable(final WatchDataSource watchDataSource,
+                                             final long from,
+                                             final long to) throws RemoteException {
+        try {
+            return watchDataSource.getCalculableBatch(from, to).toArray();
+        } catch(UnmarshalException | AbstractMethodError | NoSuchMethodError e) {
+            /* An older export answers an unrecognized method with an UnmarshalException, an older local
+             * implementation does not have the method */
+            return watchDataSource.getCalculable(from, to);
+        }
+    }
+
+    public void writeExternal(final ObjectOutput out) throws IOException {
+        int size = calculables.length;
+        out.writeByte(FORMAT_VERSION);
+        writeVarLong(out, size);
+        if(size == 0)
+            return;
+
+        /* Identifier dictionary, index 0 is reserved for a null identifier */
+        Map<String, Integer> dictionary = new LinkedHashMap<String, Integer>();
+        int[] idIndex = new int[size];
+        byte[] kinds = new byte[size];
+        byte uniformKind = -1;
+        int detailCount = 0;
+        for(int i = 0; i < size; i++) {
+            Calculable calculable = calculables[i];
+            String id = calculable.getId();
+            if(id != null && !tooLong(id)) {
+                Integer index = dictionary.get(id);
+                if(index == null) {
+                    index = dictionary.size() + 1;
+                    dictionary.put(id, index);
+                }
+                idIndex[i] = index;
+            }
+            Class<?> type = calculable.getClass();
+            kinds[i] = type == Calculable.class ? PLAIN : type == StopWatchCalculable.class ? STOP_WATCH : SERIALIZED;
+            if(tooLong(id) || tooLong(calculable.getDetail()))
+                kinds[i] = SERIALIZED;
+            if(uniformKind == -1)
+                uniformKind = kinds[i];
+            else if(uniformKind != kinds[i])
+                uniformKind = MIXED;
+            if(kinds[i] != SERIALIZED && calculable.getDetail() != null)
+                detailCount++;
+        }
+        writeVarLong(out, dictionary.size());
+        for(String id : dictionary.keySet())
+            out.writeUTF(id);
+
+        out.writeByte(uniformKind);
+        if(uniformKind == MIXED)
+            out.write(kinds);
+
+        long previous = 0;
+        for(int i = 0; i < size; i++) {
+            if(kinds[i] == SERIALIZED)
+                continue;
+            writeVarLong(out, idIndex[i]);
+            long when = calculables[i].getWhen();
+            writeVarLong(out, zigZag(when - previous));
+            previous = when;
+        }
+        for(int i = 0; i < size; i++) {
+            if(kinds[i] != SERIALIZED)
+                writeValue(out, calculables[i].getValue());
+        }
+
+        writeVarLong(out, detailCount);
+        for(int i = 0; i < size && detailCount > 0; i++) {
+            if(kinds[i] != SERIALIZED && calculables[i].getDetail() != null) {
+                writeVarLong(out, i);
+                out.writeUTF(calculables[i].getDetail());
+            }
+        }
+
+        for(int i = 0; i < size && uniformKind != PLAIN && uniformKind != STOP_WATCH; i++) {
+            if(kinds[i] == SERIALIZED)
+                out.writeObject(calculables[i]);
+        }
+    }
+
+    public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+        byte version = in.readByte();
+        if(version != FORMAT_VERSION)
+            throw new InvalidObjectException("Unsupported CalculableBatch format "+version);
+        int size = (int)readVarLong(in);
+        Calculable[] read = new Calculable[size];
+        if(size == 0) {
+            calculables = read;
+            return;
+        }
+        String[] ids = new String[(int)readVarLong(in) + 1];
+        for(int i = 1; i < ids.length; i++)
+            ids[i] = in.readUTF();
+
+        byte[] kinds = new byte[size];
+        byte uniformKind = in.readByte();
+        if(uniformKind == MIXED)
+            in.readFully(kinds);
+        else if(uniformKind >= PLAIN && uniformKind <= SERIALIZED)
+            Arrays.fill(kinds, uniformKind);
+        else
+            throw new InvalidObjectException("Unknown record kind "+uniformKind);
+
+        String[] rowIds = new String[size];
+        long[] whens = new long[size];
+        long previous = 0;
+        for(int i = 0; i < size; i++) {
+            if(kinds[i] == SERIALIZED)
+                continue;
+            rowIds[i] = ids[(int)readVarLong(in)];
+            previous += unZigZag(readVarLong(in));
+            whens[i] = previous;
+        }
+        for(int i = 0; i < size; i++) {
+            if(kinds[i] == PLAIN)
+                read[i] = new Calculable(rowIds[i], readValue(in), whens[i]);
+            else if(kinds[i] == STOP_WATCH) {
+                double value = readValue(in);
+                read[i] = new StopWatchCalculable(rowIds[i], (long)value, whens[i]);
+                read[i].setValue(value);
+            }
+        }
+
+        long detailCount = readVarLong(in);
+        for(long i = 0; i < detailCount; i++) {
+            int index = (int)readVarLong(in);
+            read[index].setDetail(in.readUTF());
+        }
+
+        for(int i = 0; i < size; i++) {
+            if(kinds[i] == SERIALIZED)
+                read[i] = (Calculable)in.readObject();
+        }
+        calculables = read;
+    }
+
+    /*
+     * Whole numbers are written as a zig-zag variable length integer shifted left by one, any other value
+     * is written as a 1 followed by the bits of the double
+     */
+    private static void writeValue(final DataOutput out, final double value) throws IOException {
+        if(value == Math.rint(value) && Math.abs(value) <= MAX_EXACT &&
+           !(value == 0 && Double.doubleToRawLongBits(value) != 0)) {
+            writeVarLong(out, zigZag((long)value) << 1);
+        } else {
+            out.writeByte(1);
+            out.writeDouble(value);
+        }
+    }
+
+    private static double readValue(final DataInput in) throws IOException {
+        long encoded = readVarLong(in);
+        if(encoded == 1)
+            return in.readDouble();
+        return unZigZag(encoded >>> 1);
+    }
+
+    private static boolean tooLong(final String s) {
+        return s != null && s.length() > MAX_UTF_CHARS;
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long v = value;
+        while((v & ~0x7FL) != 0) {
+            out.writeByte((int)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+
+    private static long readVarLong(final DataInput in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long)(b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new InvalidObjectException("Malformed variable length value");
+    }
+}
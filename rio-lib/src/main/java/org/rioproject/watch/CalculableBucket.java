@@ -0,0 +1,102 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import java.io.Serializable;
+
+/**
+ * The aggregate of the {@link Calculable} records in a time bucket, as returned by
+ * {@link WatchDataSource#getAggregated(long, long, long)}.
+ */
+public class CalculableBucket implements Serializable {
+    static final long serialVersionUID = 1L;
+    private final long start;
+    private final long end;
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double last;
+    private final long lastWhen;
+
+    /**
+     * Create a CalculableBucket
+     *
+     * @param start The start time of the bucket, inclusive
+     * @param end The end time of the bucket, exclusive
+     * @param count The number of records in the bucket
+     * @param min The minimum value in the bucket
+     * @param max The maximum value in the bucket
+     * @param mean The mean value in the bucket
+     * @param last The value of the last record in the bucket
+     * @param lastWhen The time of the last record in the bucket
+     */
+    public CalculableBucket(final long start,
+                            final long end,
+                            final int count,
+                            final double min,
+                            final double max,
+                            final double mean,
+                            final double last,
+                            final long lastWhen) {
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.last = last;
+        this.lastWhen = lastWhen;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getLast() {
+        return last;
+    }
+
+    public long getLastWhen() {
+        return lastWhen;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("start: [%d], end: [%d], count: [%d], min: [%s], max: [%s], mean: [%s], last: [%s]",
+                             start, end, count, min, max, mean, last);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility methods that reduce a time-ordered array of {@link Calculable} records, either by aggregating them
+ * into fixed width time buckets, or by downsampling them for charting.
+ */
+public final class CalculableDownsampler {
+    private CalculableDownsampler() {}
+
+    /**
+     * Aggregate records into fixed width time buckets
+     *
+     * @param calculables Records in time order
+     * @param from The start time of the first bucket. If this is before the first record, such as
+     * {@code Long.MIN_VALUE} for an open lower bound, the first bucket starts at the first record
+     * @param to The end time, inclusive. Records after this time are ignored
+     * @param bucketWidth The width of each bucket, in milliseconds. Must be greater than zero
+     *
+     * @return The buckets that contain at least one record, in time order. If there are no records in the
+     * range, a zero-length array is returned
+     */
+    public static CalculableBucket[] aggregate(final Calculable[] calculables,
+                                               final long from,
+                                               final long to,
+                                               final long bucketWidth) {
+        if(bucketWidth <= 0)
+            throw new IllegalArgumentException("bucketWidth must be greater than zero");
+        List<CalculableBucket> buckets = new ArrayList<CalculableBucket>();
+        /* Clamp to the first record so that (when - origin) cannot overflow */
+        long origin = calculables.length > 0 ? Math.max(from, calculables[0].getWhen()) : from;
+        long bucketStart = 0;
+        int count = 0;
+        double min = 0, max = 0, sum = 0, last = 0;
+        long lastWhen = 0;
+        for(Calculable calculable : calculables) {
+            long when = calculable.getWhen();
+            if(when < from || when > to)
+                continue;
+            double value = calculable.getValue();
+            long start = origin + ((when - origin) / bucketWidth) * bucketWidth;
+            if(count > 0 && start != bucketStart) {
+                buckets.add(new CalculableBucket(bucketStart, bucketStart + bucketWidth, count, min, max, sum / count, last, lastWhen));
+                count = 0;
+            }
+            if(count == 0) {
+                bucketStart = start;
+                min = value;
+                max = value;
+                sum = 0;
+            }
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            last = value;
+            lastWhen = when;
+        }
+        if(count > 0)
+            buckets.add(new CalculableBucket(bucketStart, bucketStart + bucketWidth, count, min, max, sum / count, last, lastWhen));
+        return buckets.toArray(new CalculableBucket[0]);
+    }
+
+    /**
+     * Downsample records using the largest-triangle-three-buckets (LTTB) algorithm, which keeps the first and
+     * last records and, from each bucket in between, the record that forms the largest triangle with the
+     * records selected from its neighbouring buckets. The visual shape of the series, including its peaks, is
+     * kept.
+     *
+     * @param calculables Records in time order
+     * @param maxPoints The maximum number of records to return, must be at least 3
+     *
+     * @return The selected records, in time order. If there are no more than {@code maxPoints} records, the
+     * records are returned unchanged
+     */
+    public static Calculable[] lttb(final Calculable[] calculables, final int maxPoints) {
+        if(maxPoints < 3)
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        int size = calculables.length;
+        if(size <= maxPoints)
+            return calculables;
+        Calculable[] sampled = new Calculable[maxPoints];
+        int n = 0;
+        double bucketSize = (double)(size - 2) / (maxPoints - 2);
+        int selected = 0;
+        sampled[n++] = calculables[0];
+        for(int i = 0; i < maxPoints - 2; i++) {
+            /* The average of the next bucket is the third point of the triangle */
+            int nextStart = (int)Math.floor((i + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int)Math.floor((i + 2) * bucketSize) + 1, size);
+            double avgX = 0, avgY = 0;
+            for(int j = nextStart; j < nextEnd; j++) {
+                avgX += calculables[j].getWhen();
+                avgY += calculables[j].getValue();
+            }
+            int nextLength = nextEnd - nextStart;
+            avgX /= nextLength;
+            avgY /= nextLength;
+
+            int start = (int)Math.floor(i * bucketSize) + 1;
+            int end = (int)Math.floor((i + 1) * bucketSize) + 1;
+            double ax = calculables[selected].getWhen();
+            double ay = calculables[selected].getValue();
+            double maxArea = -1;
+            int next = start;
+            for(int j = start; j < end; j++) {
+                double area = Math.abs((ax - avgX) * (calculables[j].getValue() - ay) -
+                                       (ax - calculables[j].getWhen()) * (avgY - ay));
+                if(area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            sampled[n++] = calculables[next];
+            selected = next;
+        }
+        sampled[n] = calculables[size - 1];
+        return sampled;
+    }
+}
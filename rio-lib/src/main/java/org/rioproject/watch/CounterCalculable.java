@@ -0,0 +1,68 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+/**
+ * A {@code Calculable} that summarizes the changes made to a counter during an interval. The value of the
+ * {@code CounterCalculable} is the counter value at the end of the interval.
+ */
+public class CounterCalculable extends Calculable {
+    static final long serialVersionUID = 1L;
+    private final long delta;
+    private final long interval;
+
+    /**
+     * Create a CounterCalculable
+     *
+     * @param id The identifier for the Calculable
+     * @param counter The counter value at the end of the interval
+     * @param delta The amount the counter changed during the interval
+     * @param interval The length of the interval, in milliseconds
+     * @param when The time when the interval ended
+     */
+    public CounterCalculable(final String id, final long counter, final long delta, final long interval, final long when) {
+        super(id, counter, when);
+        this.delta = delta;
+        this.interval = interval;
+    }
+
+    /**
+     * @return The amount the counter changed during the interval
+     */
+    public long getDelta() {
+        return delta;
+    }
+
+    /**
+     * @return The length of the interval, in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return The rate of change of the counter during the interval, per second
+     */
+    public double getRate() {
+        return interval <= 0 ? 0 : delta * 1000.0 / interval;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - id: [%s], counter: [%s], delta: [%d], rate: [%.2f/s]",
+                             getFormattedDate(), getId(), (long)getValue(), delta, getRate());
+    }
+}
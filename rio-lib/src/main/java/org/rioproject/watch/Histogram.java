@@ -0,0 +1,323 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A fixed-memory, log-linear histogram of non-negative {@code long} values.
+ *
+ * <p>Values smaller than {@code 2^significantBits} are counted exactly. Larger values are counted in buckets
+ * whose width doubles with each power of two, with {@code 2^(significantBits-1)} buckets per power of two.
+ * The relative error of any reported value is therefore at most {@code 1/2^(significantBits-1)}. Values larger
+ * than the highest trackable value are counted in the last bucket, the maximum recorded value is always
+ * kept exactly.</p>
+ *
+ * <p>Histograms with the same layout (the same highest trackable value and significant bits) can be merged,
+ * allowing percentiles to be computed across multiple intervals or multiple service instances.</p>
+ *
+ * <p>A {@code Histogram} is not thread safe.</p>
+ */
+public class Histogram implements Serializable {
+    static final long serialVersionUID = 1L;
+    /** The default number of significant bits, giving a relative error under 2% */
+    public static final int DEFAULT_SIGNIFICANT_BITS = 7;
+    private final long highestTrackableValue;
+    private final int significantBits;
+    private transient long[] counts;
+    private long totalCount;
+    private long maxValue;
+    private long minValue = Long.MAX_VALUE;
+
+    /**
+     * Create a Histogram using {@link #DEFAULT_SIGNIFICANT_BITS}
+     *
+     * @param highestTrackableValue The highest value to track, must be at least 2
+     */
+    public Histogram(final long highestTrackableValue) {
+        this(highestTrackableValue, DEFAULT_SIGNIFICANT_BITS);
+    }
+
+    /**
+     * Create a Histogram
+     *
+     * @param highestTrackableValue The highest value to track, must be at least 2
+     * @param significantBits The number of significant bits kept for each value, between 2 and 16
+     */
+    public Histogram(final long highestTrackableValue, final int significantBits) {
+        if(highestTrackableValue < 2)
+            throw new IllegalArgumentException("highestTrackableValue must be at least 2");
+        if(significantBits < 2 || significantBits > 16)
+            throw new IllegalArgumentException("significantBits must be between 2 and 16");
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantBits = significantBits;
+        this.counts = new long[indexFor(highestTrackableValue) + 1];
+    }
+
+    /**
+     * Create an empty Histogram with the same layout as another Histogram
+     *
+     * @param layout The Histogram to copy the layout from
+     */
+    public Histogram(final Histogram layout) {
+        this(layout.highestTrackableValue, layout.significantBits);
+    }
+
+    /**
+     * @return The highest value tracked
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * @return The number of significant bits kept for each value
+     */
+    public int getSignificantBits() {
+        return significantBits;
+    }
+
+    /**
+     * @return The number of buckets in the histogram
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * Get the bucket a value is counted in
+     *
+     * @param value The value, values less than zero are counted as zero
+     *
+     * @return The index of the bucket the value is counted in
+     */
+    public int indexFor(final long value) {
+        long v = Math.min(Math.max(value, 0), highestTrackableValue);
+        int subBucketCount = 1 << significantBits;
+        if(v < subBucketCount)
+            return (int)v;
+        int subBucketHalfCount = subBucketCount >> 1;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exponent - significantBits + 1;
+        int subBucket = (int)(v >>> shift);
+        return subBucketCount + (shift - 1) * subBucketHalfCount + (subBucket - subBucketHalfCount);
+    }
+
+    /**
+     * Get the lowest value counted in a bucket
+     *
+     * @param index The bucket index
+     *
+     * @return The lowest value counted in the bucket
+     */
+    public long lowestValueAt(final int index) {
+        int subBucketCount = 1 << significantBits;
+        if(index < subBucketCount)
+            return index;
+        int subBucketHalfCount = subBucketCount >> 1;
+        int offset = index - subBucketCount;
+        int shift = offset / subBucketHalfCount + 1;
+        long subBucket = offset % subBucketHalfCount + subBucketHalfCount;
+        return subBucket << shift;
+    }
+
+    /**
+     * Get the highest value counted in a bucket
+     *
+     * @param index The bucket index
+     *
+     * @return The highest value counted in the bucket
+     */
+    public long highestValueAt(final int index) {
+        if(index + 1 >= counts.length)
+            return highestTrackableValue;
+        return lowestValueAt(index + 1) - 1;
+    }
+
+    /**
+     * Record a value
+     *
+     * @param value The value to record, values less than zero are recorded as zero
+     */
+    public void recordValue(final long value) {
+        long v = Math.max(value, 0);
+        recordCountAtIndex(indexFor(v), 1);
+        recordExtremes(v, v);
+    }
+
+    /**
+     * Add a count to a bucket. The minimum and maximum values are not changed, use
+     * {@link #recordExtremes(long, long)} to provide them.
+     *
+     * @param index The bucket index
+     * @param count The count to add
+     */
+    public void recordCountAtIndex(final int index, final long count) {
+        counts[index] += count;
+        totalCount += count;
+    }
+
+    /**
+     * Record the minimum and maximum values of counts added with {@link #recordCountAtIndex(int, long)}
+     *
+     * @param min The minimum value recorded
+     * @param max The maximum value recorded
+     */
+    public void recordExtremes(final long min, final long max) {
+        if(min < minValue)
+            minValue = min;
+        if(max > maxValue)
+            maxValue = max;
+    }
+
+    /**
+     * Get the count of a bucket
+     *
+     * @param index The bucket index
+     *
+     * @return The number of values counted in the bucket
+     */
+    public long getCountAtIndex(final int index) {
+        return counts[index];
+    }
+
+    /**
+     * Merge the counts from another Histogram into this Histogram
+     *
+     * @param other The Histogram to merge, it must have the same layout as this Histogram
+     */
+    public void merge(final Histogram other) {
+        if(other.highestTrackableValue != highestTrackableValue || other.significantBits != significantBits)
+            throw new IllegalArgumentException("Cannot merge histograms with different layouts");
+        for(int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        totalCount += other.totalCount;
+        if(other.totalCount > 0)
+            recordExtremes(other.minValue, other.maxValue);
+    }
+
+    /**
+     * @return The number of values recorded
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return The maximum value recorded, or 0 if no values have been recorded
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @return The minimum value recorded, or 0 if no values have been recorded
+     */
+    public long getMinValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    /**
+     * @return The mean of the recorded values, computed from the bucket mid-points
+     */
+    public double getMean() {
+        if(totalCount == 0)
+            return 0;
+        double total = 0;
+        for(int i = 0; i < counts.length; i++) {
+            if(counts[i] != 0)
+                total += counts[i] * ((lowestValueAt(i) + Math.min(highestValueAt(i), maxValue)) / 2.0);
+        }
+        return total / totalCount;
+    }
+
+    /**
+     * Get the value at a percentile
+     *
+     * @param percentile The percentile, between 0 and 100
+     *
+     * @return The highest value equivalent to the value at the percentile, never more than the
+     * maximum recorded value. If no values have been recorded, returns 0.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if(totalCount == 0)
+            return 0;
+        double p = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long)Math.ceil((p / 100) * totalCount));
+        long cumulative = 0;
+        for(int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if(cumulative >= countAtPercentile)
+                return Math.max(Math.min(highestValueAt(i), maxValue), getMinValue());
+        }
+        return maxValue;
+    }
+
+    /**
+     * Remove all recorded values
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+        minValue = Long.MAX_VALUE;
+    }
+
+    /*
+     * Only write the non-empty buckets
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int used = 0;
+        for(long count : counts) {
+            if(count != 0)
+                used++;
+        }
+        out.writeInt(used);
+        for(int i = 0; i < counts.length; i++) {
+            if(counts[i] != 0) {
+                out.writeInt(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        counts = new long[indexFor(highestTrackableValue) + 1];
+        int used = in.readInt();
+        for(int i = 0; i < used; i++) {
+            int index = in.readInt();
+            counts[index] = in.readLong();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count: [%d], min: [%d], p50: [%d], p90: [%d], p99: [%d], p999: [%d], max: [%d]",
+                             getTotalCount(),
+                             getMinValue(),
+                             getValueAtPercentile(50),
+                             getValueAtPercentile(90),
+                             getValueAtPercentile(99),
+                             getValueAtPercentile(99.9),
+                             getMaxValue());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import java.util.Collection;
+
+/**
+ * A {@code Calculable} that summarizes the values recorded during an interval in a {@link Histogram}.
+ *
+ * <p>The value of the {@code HistogramCalculable} is the value at the threshold percentile, allowing thresholds
+ * to be declared against a percentile (for example, breach if the 99th percentile is over 200ms). The counts of
+ * the non-empty buckets of the {@code Histogram} are carried with the summary, rather than the whole
+ * {@code Histogram}, so a history of summaries stays small while summaries from multiple intervals or multiple
+ * service instances can still be merged with {@link #merge(String, Collection, double)}.</p>
+ */
+public class HistogramCalculable extends Calculable {
+    static final long serialVersionUID = 2L;
+    /** The default percentile used for the value of the {@code HistogramCalculable} */
+    public static final double DEFAULT_THRESHOLD_PERCENTILE = 99;
+    private final double thresholdPercentile;
+    private final long count;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    private final double mean;
+    private final long highestTrackableValue;
+    private final int significantBits;
+    private final long min;
+    private final int[] bucketIndexes;
+    private final long[] bucketCounts;
+
+    /**
+     * Create a HistogramCalculable. The histogram is not referenced once the summary has been computed, so
+     * it may be reset and reused.
+     *
+     * @param id The identifier for the Calculable
+     * @param histogram The Histogram of values recorded during the interval
+     * @param thresholdPercentile The percentile used as the value of the Calculable
+     * @param when The time when the interval ended
+     */
+    public HistogramCalculable(final String id,
+                               final Histogram histogram,
+                               final double thresholdPercentile,
+                               final long when) {
+        super(id, histogram.getValueAtPercentile(thresholdPercentile), when);
+        if(thresholdPercentile < 0 || thresholdPercentile > 100)
+            throw new IllegalArgumentException("thresholdPercentile must be between 0 and 100");
+        this.thresholdPercentile = thresholdPercentile;
+        this.count = histogram.getTotalCount();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p90 = histogram.getValueAtPercentile(90);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.p999 = histogram.getValueAtPercentile(99.9);
+        this.max = histogram.getMaxValue();
+        this.mean = histogram.getMean();
+        this.highestTrackableValue = histogram.getHighestTrackableValue();
+        this.significantBits = histogram.getSignificantBits();
+        this.min = histogram.getMinValue();
+        int used = 0;
+        for(int i = 0; i < histogram.getBucketCount(); i++) {
+            if(histogram.getCountAtIndex(i) != 0)
+                used++;
+        }
+        bucketIndexes = new int[used];
+        bucketCounts = new long[used];
+        for(int i = 0, j = 0; i < histogram.getBucketCount(); i++) {
+            if(histogram.getCountAtIndex(i) != 0) {
+                bucketIndexes[j] = i;
+                bucketCounts[j++] = histogram.getCountAtIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Merge HistogramCalculables, for example from all instances of a service
+     *
+     * @param id The identifier for the merged Calculable
+     * @param calculables The HistogramCalculables to merge, all must have histograms with the same layout
+     * @param thresholdPercentile The percentile used as the value of the merged Calculable
+     *
+     * @return A HistogramCalculable whose histogram is the merge of all provided histograms, and whose time
+     * is the latest time of the provided calculables. If no calculables are provided, returns {@code null}
+     */
+    public static HistogramCalculable merge(final String id,
+                                            final Collection<HistogramCalculable> calculables,
+                                            final double thresholdPercentile) {
+        Histogram merged = null;
+        long when = 0;
+        for(HistogramCalculable calculable : calculables) {
+            if(merged == null)
+                merged = new Histogram(calculable.highestTrackableValue, calculable.significantBits);
+            merged.merge(calculable.getHistogram());
+            when = Math.max(when, calculable.getWhen());
+        }
+        return merged == null ? null : new HistogramCalculable(id, merged, thresholdPercentile, when);
+    }
+
+    /**
+     * @return A new Histogram of the values summarized
+     */
+    public Histogram getHistogram() {
+        Histogram histogram = new Histogram(highestTrackableValue, significantBits);
+        for(int i = 0; i < bucketIndexes.length; i++)
+            histogram.recordCountAtIndex(bucketIndexes[i], bucketCounts[i]);
+        if(count > 0)
+            histogram.recordExtremes(min, max);
+        return histogram;
+    }
+
+    public double getThresholdPercentile() {
+        return thresholdPercentile;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - id: [%s], p%s: [%s], count: [%d], p50: [%d], p90: [%d], p99: [%d], p999: [%d], max: [%d]",
+                             getFormattedDate(), getId(), thresholdPercentile, getValue(), count,
+                             p50, p90, p99, p999, max);
+    }
+}
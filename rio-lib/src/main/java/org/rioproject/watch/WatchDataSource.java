@@ -129,6 +129,52 @@ public interface WatchDataSource extends Remote {
      */
     Calculable[] getCalculable(long from, long to) throws RemoteException;
 
+    /**
+     * Get Calculable records from the Calculable history for the specified time range as a
+     * {@link CalculableBatch}, which has a much smaller serialized form than an array of Calculable records.
+     *
+     * @param from The start time
+     * @param to The end time
+     *
+     * @return A CalculableBatch of the Calculable records from the Calculable history within the provided
+     * time range. If there are no Calculable records in the range, an empty batch will be returned
+     *
+     * @throws RemoteException If communication errors occur
+     */
+    CalculableBatch getCalculableBatch(long from, long to) throws RemoteException;
+
+    /**
+     * Get the Calculable records from the Calculable history for the specified time range, aggregated into
+     * fixed width time buckets. Only the aggregates are returned, reducing the amount of data transferred when
+     * only trends are needed.
+     *
+     * @param from The start time, and the start of the first bucket
+     * @param to The end time
+     * @param bucketWidth The width of each bucket, in milliseconds. Must be greater than zero
+     *
+     * @return An array of buckets that contain at least one Calculable record, in time order. If there are no
+     * Calculable records in the range, a zero-length array will be returned
+     *
+     * @throws RemoteException If communication errors occur
+     */
+    CalculableBucket[] getAggregated(long from, long to, long bucketWidth) throws RemoteException;
+
+    /**
+     * Get Calculable records from the Calculable history for the specified time range, downsampled for
+     * charting using the largest-triangle-three-buckets algorithm.
+     *
+     * @param from The start time
+     * @param to The end time
+     * @param maxPoints The maximum number of Calculable records to return, must be at least 3
+     *
+     * @return An array of at most {@code maxPoints} Calculable records from the Calculable history within the
+     * provided time range, chosen to keep the visual shape of the history. If there are no Calculable records
+     * in the range, a zero-length array will be returned
+     *
+     * @throws RemoteException If communication errors occur
+     */
+    Calculable[] getDownsampled(long from, long to, int maxPoints) throws RemoteException;
+
     /**
      * Gets the last Calculable from the history
      *
@@ -0,0 +1,39 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.web;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Provides content generated for each request, served by a {@link WebsterService}.
+ */
+public interface ContentProvider {
+
+    /**
+     * @return The content type of the content, for example {@code text/plain; charset=utf-8}
+     */
+    String getContentType();
+
+    /**
+     * Write the content
+     *
+     * @param out The Writer to write the content to
+     *
+     * @throws IOException If the content cannot be written
+     */
+    void write(Writer out) throws IOException;
+}
@@ -29,6 +29,14 @@ public interface WebsterService {
      */
     WebsterService setRoots(String... roots);
 
+    /**
+     * Serve generated content.
+     *
+     * @param path The context path to serve the content from, for example {@code /metrics}.
+     * @param provider The ContentProvider that generates the content for each request.
+     */
+    WebsterService addContent(String path, ContentProvider provider);
+
     /**
      * @return The URI of the service, or null
      */
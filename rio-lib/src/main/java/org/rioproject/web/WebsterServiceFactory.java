@@ -71,5 +71,35 @@ public class WebsterServiceFactory {
         return (WebsterService) created.impl;
     }
 
+    /**
+     * Create a Jetty that only serves generated content over HTTP. Unlike the other Jetty instances created by
+     * this factory, the address of the server is not set as the webster system property.
+     *
+     * @param port The port to use, or 0 for an anonymous port.
+     * @param path The context path to serve the content from.
+     * @param provider The ContentProvider that generates the content.
+     *
+     * @return The started WebsterService.
+     *
+     * @throws Exception If the server cannot be created or started.
+     */
+    public static WebsterService createContentServer(int port, String path, ContentProvider provider) throws Exception {
+        String component = "org.rioproject.tools.jetty";
+        DynamicConfiguration config = new DynamicConfiguration();
+        config.setEntry(component, "port", int.class, port);
+        config.setEntry(component, "roots", String[].class, new String[0]);
+        config.setEntry(component, "secure", Boolean.class, false);
+        config.setEntry(component, "publish", Boolean.class, false);
 
+        String rioHome = System.getProperty("rio.home", RioHome.get());
+        if (rioHome == null)
+            throw new RuntimeException("rio.home property not declared or derivable");
+        String jetty = rioHome
+                + File.separator + "lib" + File.separator
+                + ServiceDescriptorUtil.createVersionedJar("webster-jetty");
+        ServiceDescriptor serviceDescriptor =
+                new ConfigurationServiceDescriptor(jetty, "org.rioproject.tools.jetty.Jetty", config);
+        RioServiceDescriptor.Created created = (Created) serviceDescriptor.create(EmptyConfiguration.INSTANCE);
+        return ((WebsterService) created.impl).addContent(path, provider);
+    }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system;
+
+import net.jini.id.UuidFactory;
+import net.jini.io.MarshalledInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.deploy.DeployedService;
+import org.rioproject.deploy.ResourceCapabilityUpdate;
+import org.rioproject.deploy.ServiceBeanInstance;
+import org.rioproject.opstring.ServiceBeanConfig;
+import org.rioproject.opstring.ServiceElement;
+import org.rioproject.system.ComputeResourceUtilization;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
+import org.rioproject.system.capability.platform.OperatingSystem;
+import org.rioproject.system.capability.platform.StorageCapability;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@code ResourceCapabilityEncoder} and applying the {@code ResourceCapabilityUpdate}s it creates
+ */
+public class ResourceCapabilityEncoderTest {
+    private final StorageCapability storage = new StorageCapability();
+    private final PlatformCapability[] platform = new PlatformCapability[]{new OperatingSystem(), storage};
+
+    @Test
+    public void testSnapshotThenDeltas() {
+        ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder(0.05, 2);
+        ResourceCapability rc = create(0.5, 0.2, 0.3);
+        ResourceCapabilityUpdate update = encoder.encode(rc, Collections.<DeployedService>emptyList(), 10);
+        Assert.assertTrue(update.isSnapshot());
+        Assert.assertEquals(1, update.getVersion());
+        Assert.assertSame(rc, update.apply(null));
+        ResourceCapability monitor = update.apply(null);
+
+        /* Changes below the significance are suppressed */
+        Assert.assertNull(encoder.encode(create(0.52, 0.2, 0.3), Collections.<DeployedService>emptyList(), 10));
+        Assert.assertNull(encoder.encode(create(0.53, 0.21, 0.3), Collections.<DeployedService>emptyList(), 10));
+        /* But not more than maxSuppressed times in a row */
+        update = encoder.encode(create(0.53, 0.21, 0.3), Collections.<DeployedService>emptyList(), 10);
+        Assert.assertFalse(update.isSnapshot());
+        Assert.assertEquals(2, update.getVersion());
+        Assert.assertEquals(1, update.getBaseVersion());
+        Assert.assertEquals(0, update.getChangedMeasuredResources().length);
+        monitor = update.apply(monitor);
+        Assert.assertEquals(0.5, get(monitor, "CPU").getValue(), 0);
+
+        /* The drift adds up until it is significant */
+        update = encoder.encode(create(0.56, 0.21, 0.3), Collections.<DeployedService>emptyList(), 10);
+        Assert.assertEquals(1, update.getChangedMeasuredResources().length);
+        monitor = update.apply(monitor);
+        Assert.assertEquals(0.56, get(monitor, "CPU").getValue(), 0);
+        Assert.assertEquals(0.2, get(monitor, "Memory").getValue(), 0);
+        Assert.assertEquals(3, monitor.getMeasuredResources().length);
+
+        /* Crossing a threshold is always sent */
+        update = encoder.encode(create(0.56, 0.21, 0.81), Collections.<DeployedService>emptyList(), 10);
+        Assert.assertEquals(1, update.getChangedMeasuredResources().length);
+        monitor = update.apply(monitor);
+        Assert.assertFalse(monitor.measuredResourcesWithinRange());
+        Assert.assertEquals(0.56, monitor.getUtilization(), 0);
+
+        /* A changed service limit is sent */
+        update = encoder.encode(create(0.56, 0.21, 0.81), Collections.<DeployedService>emptyList(), 20);
+        Assert.assertNotNull(update);
+        Assert.assertEquals(20, update.getServiceLimit());
+    }
+
+    @Test
+    public void testRemovedMeasuredResource() {
+        ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder();
+        ResourceCapability monitor = encoder.encode(create(0.5, 0.2, 0.3), Collections.<DeployedService>emptyList(), 10)
+                                            .apply(null);
+        List<MeasuredResource> measured = new ArrayList<>();
+        measured.add(new MeasuredResource("CPU", 0.5, new ThresholdValues(0, 1)));
+        ResourceCapabilityUpdate update = encoder.encode(create(0.5, measured), Collections.<DeployedService>emptyList(), 10);
+        monitor = update.apply(monitor);
+        Assert.assertEquals(1, monitor.getMeasuredResources().length);
+        Assert.assertEquals("CPU", monitor.getMeasuredResources()[0].getIdentifier());
+    }
+
+    @Test
+    public void testPlatformCapabilities() {
+        ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder();
+        storage.define(StorageCapability.CAPACITY, 1000d);
+        ResourceCapability monitor = encoder.encode(create(0.5, 0.2, 0.3), Collections.<DeployedService>emptyList(), 10)
+                                            .apply(null);
+        /* Capabilities change in place */
+        storage.define(StorageCapability.CAPACITY, 2000d);
+        ResourceCapabilityUpdate update = encoder.encode(create(0.5, 0.2, 0.3), Collections.<DeployedService>emptyList(), 10);
+        Assert.assertNotNull(update);
+        Assert.assertTrue(update.toString().contains("platform=1"));
+        monitor = update.apply(monitor);
+        Assert.assertEquals(2, monitor.getPlatformCapabilities().length);
+        Assert.assertEquals(2000d, monitor.getPlatformCapabilities()[1].getValue(StorageCapability.CAPACITY));
+
+        /* Adding a capability sends all of them */
+        PlatformCapability[] added = Arrays.copyOf(platform, 3);
+        added[2] = new StorageCapability("Other");
+        update = encoder.encode(create(0.5, added), Collections.<DeployedService>emptyList(), 10);
+        Assert.assertTrue(update.toString().contains("platform=all 3"));
+        Assert.assertEquals(3, update.apply(monitor).getPlatformCapabilities().length);
+    }
+
+    @Test
+    public void testDeployedServices() throws IOException {
+        ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder();
+        DeployedService first = deployed();
+        DeployedService second = deployed();
+        encoder.encode(create(0.5, 0.2, 0.3), Collections.singletonList(first), 10);
+        ResourceCapabilityUpdate update = encoder.encode(create(0.5, 0.2, 0.3), Collections.singletonList(second), 10);
+        Assert.assertEquals(Collections.singletonList(second), update.getAddedServices());
+        Assert.assertEquals(Collections.singletonList(first), update.getRemovedServices());
+        Assert.assertNull(update.getDeployedServices());
+    }
+
+    @Test
+    public void testDeployedServicesWithUtilization() throws IOException {
+        ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder();
+        ServiceBeanInstance instance = deployed().getServiceBeanInstance();
+        encoder.encode(create(0.5, 0.2, 0.3), Collections.singletonList(deployed(instance, 0.5)), 10);
+        /* The utilization of a deployed service is created for each update */
+        Assert.assertNull(encoder.encode(create(0.5, 0.2, 0.3), Collections.singletonList(deployed(instance, 0.6)), 10));
+        ResourceCapabilityUpdate update = encoder.encode(create(0.7, 0.2, 0.3),
+                                                         Collections.singletonList(deployed(instance, 0.7)),
+                                                         10);
+        Assert.assertNotNull(update);
+        Assert.assertTrue(update.getAddedServices().isEmpty());
+        Assert.assertTrue(update.getRemovedServices().isEmpty());
+    }
+
+    @Test
+    public void testReset() {
+        ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder();
+        encoder.encode(create(0.5, 0.2, 0.3), Collections.<DeployedService>emptyList(), 10);
+        encoder.reset();
+        ResourceCapabilityUpdate update = encoder.encode(create(0.5, 0.2, 0.3),
+                                                         Collections.<DeployedService>emptyList(),
+                                                         10);
+        Assert.assertTrue(update.isSnapshot());
+        Assert.assertEquals(2, update.getVersion());
+    }
+
+    private ResourceCapability create(double cpu, double memory, double disk) {
+        List<MeasuredResource> measured = new ArrayList<>();
+        measured.add(new MeasuredResource("CPU", cpu, new ThresholdValues(0, 1)));
+        measured.add(new MeasuredResource("Memory", memory, new ThresholdValues(0, 1)));
+        measured.add(new MeasuredResource("DiskSpace", disk, new ThresholdValues(0, 0.8)));
+        return create(cpu, measured);
+    }
+
+    private ResourceCapability create(double utilization, List<MeasuredResource> measured) {
+        return create(utilization, measured, platform);
+    }
+
+    private ResourceCapability create(double utilization, PlatformCapability[] pCaps) {
+        List<MeasuredResource> measured = new ArrayList<>();
+        measured.add(new MeasuredResource("CPU", 0.5, new ThresholdValues(0, 1)));
+        measured.add(new MeasuredResource("Memory", 0.2, new ThresholdValues(0, 1)));
+        measured.add(new MeasuredResource("DiskSpace", 0.3, new ThresholdValues(0, 0.8)));
+        return create(utilization, measured, pCaps);
+    }
+
+    private ResourceCapability create(double utilization, List<MeasuredResource> measured, PlatformCapability[] pCaps) {
+        return new ResourceCapability("10.0.0.1",
+                                      "node1",
+                                      false,
+                                      pCaps,
+                                      new ComputeResourceUtilization("node1", "node1", "10.0.0.1", utilization, measured));
+    }
+
+    private MeasuredResource get(ResourceCapability rc, String identifier) {
+        for(MeasuredResource mRes : rc.getMeasuredResources()) {
+            if(mRes.getIdentifier().equals(identifier))
+                return mRes;
+        }
+        return null;
+    }
+
+    private DeployedService deployed() throws IOException {
+        ServiceBeanConfig config = new ServiceBeanConfig();
+        config.setName("test");
+        ServiceBeanInstance instance = new ServiceBeanInstance(UuidFactory.generate(),
+                                                               new MarshalledInstance("proxy"),
+                                                               config,
+                                                               "node1",
+                                                               "10.0.0.1",
+                                                               UuidFactory.generate());
+        return new DeployedService(new ServiceElement(), instance, null);
+    }
+
+    private DeployedService deployed(ServiceBeanInstance instance, double utilization) {
+        List<MeasuredResource> measured = new ArrayList<>();
+        measured.add(new MeasuredResource("CPU", utilization, new ThresholdValues(0, 1)));
+        return new DeployedService(new ServiceElement(),
+                                   instance,
+                                   new ComputeResourceUtilization("node1", "node1", "10.0.0.1", utilization, measured));
+    }
+}
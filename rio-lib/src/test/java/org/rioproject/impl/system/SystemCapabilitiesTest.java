@@ -21,9 +21,17 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
 import org.rioproject.impl.system.measurable.MeasurableCapability;
+import org.rioproject.impl.system.measurable.cgroup.CGroupMeasurable;
+import org.rioproject.impl.system.measurable.cgroup.CGroupSampler;
 import org.rioproject.impl.system.measurable.cpu.CPU;
+import org.rioproject.impl.system.measurable.cpu.CPUState;
+import org.rioproject.impl.system.measurable.disk.DiskIO;
 import org.rioproject.impl.system.measurable.disk.DiskSpace;
+import org.rioproject.impl.system.measurable.jvm.JVMMeasurable;
+import org.rioproject.impl.system.measurable.network.Network;
+import org.rioproject.system.SystemWatchID;
 import org.rioproject.system.capability.PlatformCapability;
 import org.rioproject.system.capability.connectivity.TCPConnectivity;
 import org.rioproject.system.capability.platform.*;
@@ -59,7 +67,19 @@ public class SystemCapabilitiesTest {
     @Test
     public void testGetMeasurableCapabilities() throws Exception {
         MeasurableCapability[] mCaps = systemCapabilities.getMeasurableCapabilities(new DynamicConfiguration());
-        int expected = 5;
+        /* The JVM's garbage collection and allocation rate are measured. On Linux the CPU I/O wait and steal
+         * time, disk I/O and network are also measured */
+        boolean linux = LinuxProcSampler.isAvailable();
+        int expected = linux ? 11 : 7;
+        /* As are the limits of the cgroup, when running in a container */
+        CGroupSampler cgroup = CGroupSampler.getInstance();
+        boolean cpuLimited = cgroup.sample(CGroupSampler::isCpuLimited);
+        boolean memoryPressure = !Double.isNaN(cgroup.sample(CGroupSampler::getMemoryPressure));
+        boolean pidsLimited = cgroup.sample(CGroupSampler::getPidsLimit) > 0;
+        for(boolean measured : new boolean[]{cpuLimited, memoryPressure, pidsLimited}) {
+            if(measured)
+                expected++;
+        }
         for(MeasurableCapability m : mCaps)
         System.out.println("===> "+m.getId());
         Assert.assertEquals("Expected "+expected, expected, mCaps.length);
@@ -77,6 +97,21 @@ public class SystemCapabilitiesTest {
         Assert.assertNotNull(cpuProc);
         log(cpuProc);
 
+        Assert.assertNotNull(getCapability(JVMMeasurable.class, SystemWatchID.GC_PAUSE, mCaps));
+        Assert.assertNotNull(getCapability(JVMMeasurable.class, SystemWatchID.ALLOCATION_RATE, mCaps));
+
+        Assert.assertEquals(cpuLimited, getCapability(CGroupMeasurable.class, SystemWatchID.CPU_THROTTLED, mCaps) != null);
+        Assert.assertEquals(memoryPressure,
+                            getCapability(CGroupMeasurable.class, SystemWatchID.MEMORY_PRESSURE, mCaps) != null);
+        Assert.assertEquals(pidsLimited, getCapability(CGroupMeasurable.class, SystemWatchID.PIDS, mCaps) != null);
+
+        if(linux) {
+            Assert.assertNotNull(getCapability(CPUState.class, SystemWatchID.CPU_IOWAIT, mCaps));
+            Assert.assertNotNull(getCapability(CPUState.class, SystemWatchID.CPU_STEAL, mCaps));
+            Assert.assertNotNull(getCapability(DiskIO.class, mCaps));
+            Assert.assertNotNull(getCapability(Network.class, mCaps));
+        }
+
         DiskSpace diskSpace = getCapability(DiskSpace.class, mCaps);
         Assert.assertNotNull(diskSpace);
         log(diskSpace);
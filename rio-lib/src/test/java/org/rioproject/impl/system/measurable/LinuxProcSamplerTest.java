@@ -0,0 +1,213 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rioproject.impl.system.measurable.cpu.ProcStat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@code LinuxProcSampler} against a fake {@code /proc} root
+ */
+public class LinuxProcSamplerTest {
+    private static final String ROOT = "src/test/resources/proc";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParsing() {
+        LinuxProcSampler sampler = new LinuxProcSampler(ROOT);
+        try {
+            sampler.refresh();
+            Assert.assertTrue(sampler.isStatSampled());
+            Assert.assertEquals(3, sampler.getProcStat().getCpuCount());
+
+            Assert.assertEquals(16384000, sampler.getMemInfo(LinuxProcSampler.MEM_TOTAL));
+            Assert.assertEquals(4096000, sampler.getMemInfo(LinuxProcSampler.MEM_FREE));
+            Assert.assertEquals(8192000, sampler.getMemInfo(LinuxProcSampler.MEM_AVAILABLE));
+            Assert.assertEquals(3072000, sampler.getMemInfo(LinuxProcSampler.CACHED));
+            Assert.assertEquals(6144000, sampler.getMemInfo(LinuxProcSampler.ACTIVE));
+            Assert.assertEquals(1024000, sampler.getMemInfo(LinuxProcSampler.SWAP_FREE));
+
+            Assert.assertEquals(0.52, sampler.getLoadAverage(0), 1e-9);
+            Assert.assertEquals(0.41, sampler.getLoadAverage(1), 1e-9);
+            Assert.assertEquals(0.30, sampler.getLoadAverage(2), 1e-9);
+
+            Assert.assertEquals(9645062, sampler.getProcessStatus(LinuxProcSampler.VM_SIZE));
+            Assert.assertEquals(300000, sampler.getProcessStatus(LinuxProcSampler.VM_HWM));
+            Assert.assertEquals(262144, sampler.getProcessStatus(LinuxProcSampler.VM_RSS));
+            Assert.assertEquals(0, sampler.getProcessStatus(LinuxProcSampler.VM_SWAP));
+            Assert.assertEquals(42, sampler.getThreadCount());
+            Assert.assertEquals(200, sampler.getProcessTicks());
+
+            Assert.assertEquals(1.5, sampler.getPressure(LinuxProcSampler.PRESSURE_CPU, false, 0), 1e-9);
+            Assert.assertEquals(0.25, sampler.getPressure(LinuxProcSampler.PRESSURE_CPU, false, 2), 1e-9);
+            Assert.assertEquals(0.0, sampler.getPressure(LinuxProcSampler.PRESSURE_CPU, true, 0), 0);
+            Assert.assertEquals(0.15, sampler.getPressure(LinuxProcSampler.PRESSURE_MEMORY, true, 2), 1e-9);
+            Assert.assertTrue(Double.isNaN(sampler.getPressure(LinuxProcSampler.PRESSURE_IO, false, 0)));
+
+            ProcCounters disks = sampler.getDiskStats().getCounters();
+            Assert.assertEquals(6, disks.size());
+            Assert.assertEquals("sda", disks.getName(1));
+            Assert.assertEquals("dm-0", disks.getName(5));
+            /* Needs two samples */
+            Assert.assertFalse(disks.isPresent(1));
+            ProcCounters interfaces = sampler.getNetDev().getCounters();
+            Assert.assertEquals(3, interfaces.size());
+            Assert.assertEquals("lo", interfaces.getName(0));
+            Assert.assertEquals("eth0", interfaces.getName(1));
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testSharedSample() throws IOException {
+        File root = copyRoot();
+        LinuxProcSampler sampler = new LinuxProcSampler(root.getPath());
+        sampler.setMaxAge(60 * 1000);
+        try {
+            Assert.assertEquals(6144000, (long)sampler.sample(s -> s.getMemInfo(LinuxProcSampler.ACTIVE)));
+            write(root, "meminfo", "MemTotal: 16384000 kB\nActive: 1024000 kB\n");
+            /* The sample is shared until it is older than the maximum age */
+            Assert.assertEquals(6144000, (long)sampler.sample(s -> s.getMemInfo(LinuxProcSampler.ACTIVE)));
+            sampler.setMaxAge(0);
+            Assert.assertEquals(1024000, (long)sampler.sample(s -> s.getMemInfo(LinuxProcSampler.ACTIVE)));
+            Assert.assertEquals(-1, (long)sampler.sample(s -> s.getMemInfo(LinuxProcSampler.MEM_FREE)));
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testProcessCpuUtilization() throws IOException {
+        File root = copyRoot();
+        LinuxProcSampler sampler = new LinuxProcSampler(root.getPath());
+        LinuxProcSampler.Interval interval = sampler.createInterval();
+        try {
+            /* Needs two samples */
+            Assert.assertEquals(-1, sampler.sample(interval, LinuxProcSampler.Interval::getProcessCpuUtilization), 0);
+            Assert.assertEquals(0, interval.getElapsedNanos());
+            write(root, "stat", "cpu  1500 0 700 9000 100 0 0 500 0 0\n");
+            write(root, "self/stat", "4242 (java (main) ) S 1 4242 4242 0 -1 4194560 52643 0 12 0 350 100 0 0 20 0 42\n");
+            sampler.refresh();
+            /* 250 of the 1800 ticks elapsed on all CPUs */
+            Assert.assertEquals(250.0 / 1800,
+                                sampler.sample(interval, LinuxProcSampler.Interval::getProcessCpuUtilization),
+                                1e-9);
+            Assert.assertEquals(0.5 / 1.8, interval.getProcStat().getFraction(0, ProcStat.USER), 1e-9);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testIntervalPerConsumer() throws IOException {
+        File root = copyRoot();
+        AtomicLong nanos = new AtomicLong();
+        LinuxProcSampler sampler = new LinuxProcSampler(root.getPath(), nanos::get);
+        sampler.setMaxAge(1000);
+        LinuxProcSampler.Interval fast = sampler.createInterval();
+        LinuxProcSampler.Interval slow = sampler.createInterval();
+        try {
+            sampler.sample(fast, LinuxProcSampler.Interval::getElapsedNanos);
+            sampler.sample(slow, LinuxProcSampler.Interval::getElapsedNanos);
+
+            write(root, "stat", "cpu  1500 0 700 9000 100 0 0 500 0 0\n");
+            nanos.set(5000000000L);
+            Assert.assertEquals(5000000000L, (long)sampler.sample(fast, LinuxProcSampler.Interval::getElapsedNanos));
+            Assert.assertEquals(0.5 / 1.8, fast.getProcStat().getFraction(0, ProcStat.USER), 1e-9);
+
+            write(root, "stat", "cpu  1500 0 700 10800 100 0 0 500 0 0\n");
+            nanos.set(10000000000L);
+            /* Each Interval is computed since the sample it last read, not the sampler's previous sample */
+            Assert.assertEquals(10000000000L, (long)sampler.sample(slow, LinuxProcSampler.Interval::getElapsedNanos));
+            Assert.assertEquals(0.5 / 3.6, slow.getProcStat().getFraction(0, ProcStat.USER), 1e-9);
+            Assert.assertEquals(5000000000L, (long)sampler.sample(fast, LinuxProcSampler.Interval::getElapsedNanos));
+            Assert.assertEquals(0, fast.getProcStat().getFraction(0, ProcStat.USER), 0);
+
+            /* Reading the same sample again keeps the interval */
+            Assert.assertEquals(10000000000L, (long)sampler.sample(slow, LinuxProcSampler.Interval::getElapsedNanos));
+            Assert.assertEquals(0.5 / 3.6, slow.getProcStat().getFraction(0, ProcStat.USER), 1e-9);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testMissingRoot() {
+        LinuxProcSampler sampler = new LinuxProcSampler(new File(folder.getRoot(), "missing").getPath());
+        sampler.refresh();
+        Assert.assertFalse(sampler.isStatSampled());
+        Assert.assertEquals(-1, sampler.getMemInfo(LinuxProcSampler.MEM_TOTAL));
+        Assert.assertTrue(Double.isNaN(sampler.getLoadAverage(0)));
+        Assert.assertEquals(-1, sampler.getThreadCount());
+        LinuxProcSampler.Interval interval = sampler.createInterval();
+        Assert.assertEquals(-1, sampler.sample(interval, LinuxProcSampler.Interval::getProcessCpuUtilization), 0);
+        Assert.assertFalse(interval.isStatSampled());
+    }
+
+    @Test
+    public void testProc() {
+        Assume.assumeTrue(LinuxProcSampler.isAvailable());
+        LinuxProcSampler sampler = new LinuxProcSampler(LinuxProcSampler.PROC);
+        sampler.setMaxAge(0);
+        LinuxProcSampler.Interval interval = sampler.createInterval();
+        try {
+            sampler.sample(interval, LinuxProcSampler.Interval::getProcessCpuUtilization);
+            double utilization = sampler.sample(interval, LinuxProcSampler.Interval::getProcessCpuUtilization);
+            Assert.assertTrue(sampler.isStatSampled());
+            Assert.assertTrue(sampler.getMemInfo(LinuxProcSampler.MEM_TOTAL) > 0);
+            Assert.assertTrue(sampler.getProcessStatus(LinuxProcSampler.VM_RSS) > 0);
+            Assert.assertTrue(sampler.getThreadCount() > 0);
+            Assert.assertTrue(utilization >= 0 && utilization <= 1);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    private File copyRoot() throws IOException {
+        Path source = Paths.get(ROOT);
+        Path target = folder.newFolder("proc").toPath();
+        try (Stream<Path> paths = Files.walk(source)) {
+            for(Path path : (Iterable<Path>)paths::iterator) {
+                Path copy = target.resolve(source.relativize(path).toString());
+                if(Files.isDirectory(path))
+                    Files.createDirectories(copy);
+                else
+                    Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return target.toFile();
+    }
+
+    private void write(File root, String name, String content) throws IOException {
+        Files.write(new File(root, name).toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright to the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable;
+
+import net.jini.config.EmptyConfiguration;
+import org.junit.Test;
+import org.rioproject.impl.system.measurable.forecast.Forecaster;
+import org.rioproject.impl.system.measurable.forecast.HoltForecaster;
+import org.rioproject.impl.system.measurable.forecast.TimeToBreach;
+import org.rioproject.impl.watch.BoundedThresholdManager;
+import org.rioproject.impl.watch.ThresholdManager;
+import org.rioproject.sla.SLA;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.ThresholdType;
+import org.rioproject.watch.ThresholdValues;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the smoothing and forecasting of measured values by a {@link MeasurableCapability}
+ */
+public class MeasurableCapabilityTest {
+
+    @Test
+    public void testRecordsMeasuredValuesWithoutForecaster() {
+        Measurable measurable = new Measurable();
+        SimpleThresholdListener listener = addSLA(measurable, 60000);
+        measurable.addWatchRecord(new Calculable("test", 0.95, 1000));
+        assertEquals(0.95, measurable.getLastCalculable().getValue(), 0);
+        assertEquals(ThresholdType.BREACHED, listener.getType());
+        assertEquals(Forecaster.NO_BREACH, measurable.getTimeToBreach());
+        assertNull(measurable.getTimeToBreachCapability());
+    }
+
+    @Test
+    public void testSmoothsBeforeThresholdCheck() {
+        Measurable measurable = new Measurable();
+        measurable.setForecaster(new HoltForecaster(0.3, 0.1));
+        SimpleThresholdListener listener = addSLA(measurable, 0);
+        for(int i = 0; i < 10; i++)
+            measurable.addWatchRecord(new Calculable("test", 0.4, i * 1000));
+        /* A single spike does not breach the smoothed value */
+        measurable.addWatchRecord(new Calculable("test", 0.95, 10000));
+        assertEquals(0.95, measurable.getLastCalculable().getValue(), 0);
+        assertNull(listener.getType());
+        assertEquals(0, measurable.getThresholdValues().getThresholdBreachedCount());
+    }
+
+    @Test
+    public void testRecordsTypedCalculable() {
+        Measurable measurable = new Measurable();
+        measurable.setForecaster(new HoltForecaster(0.5, 0.3));
+        Measured record = new Measured(0.5, 1000);
+        measurable.addWatchRecord(record);
+        assertSame(record, measurable.getLastCalculable());
+    }
+
+    @Test
+    public void testRecordsTimeToBreach() {
+        Measurable measurable = new Measurable();
+        measurable.setForecaster(new HoltForecaster(0.5, 0.5));
+        TimeToBreach timeToBreach = measurable.getTimeToBreachCapability();
+        assertNotNull(timeToBreach);
+        assertEquals("test"+TimeToBreach.ID_SUFFIX, timeToBreach.getId());
+        assertNull(timeToBreach.getMeasuredResource());
+        measurable.addWatchRecord(new Calculable("test", 0.1, 0));
+        assertEquals(TimeToBreach.NO_BREACH, timeToBreach.getLastCalculable().getValue(), 0);
+        SLA sla = new SLA(timeToBreach.getId(), 30000, TimeToBreach.NO_BREACH);
+        ThresholdManager tMgr = new BoundedThresholdManager(timeToBreach.getId());
+        tMgr.setThresholdValues(sla);
+        SimpleThresholdListener listener = new SimpleThresholdListener();
+        tMgr.addThresholdListener(listener);
+        timeToBreach.addSecondaryThresholdManager(tMgr);
+        for(int i = 1; i <= 60 && listener.getType()==null; i++)
+            measurable.addWatchRecord(new Calculable("test", 0.1 + 0.01 * i, i * 1000));
+        assertEquals(ThresholdType.BREACHED, listener.getType());
+        assertEquals(measurable.getTimeToBreach(), timeToBreach.getLastCalculable().getValue(), 0);
+        assertTrue(timeToBreach.getLastCalculable().getValue() < 30000);
+    }
+
+    @Test
+    public void testForecastBreach() {
+        Measurable measurable = new Measurable();
+        measurable.setForecaster(new HoltForecaster(0.5, 0.5));
+        SimpleThresholdListener forecasting = addSLA(measurable, 30000);
+        SimpleThresholdListener measured = addSLA(measurable, 0);
+        long timeToBreach = Forecaster.NO_BREACH;
+        double last = 0;
+        for(int i = 0; i <= 60 && forecasting.getType()==null; i++) {
+            last = 0.01 * i;
+            measurable.addWatchRecord(new Calculable("test", last, i * 1000));
+            timeToBreach = measurable.getTimeToBreach();
+        }
+        assertEquals(ThresholdType.BREACHED, forecasting.getType());
+        assertNull(measured.getType());
+        assertEquals(last, measurable.getLastCalculable().getValue(), 0);
+        assertTrue(last < 0.8);
+        assertTrue("timeToBreach "+timeToBreach, timeToBreach > 0 && timeToBreach <= 30000);
+    }
+
+    private SimpleThresholdListener addSLA(MeasurableCapability measurable, long forecastHorizon) {
+        SLA sla = new SLA("test", 0, 0.8);
+        sla.setForecastHorizon(forecastHorizon);
+        ThresholdManager tMgr = new BoundedThresholdManager("test");
+        tMgr.setThresholdValues(sla);
+        SimpleThresholdListener listener = new SimpleThresholdListener();
+        tMgr.addThresholdListener(listener);
+        measurable.addSecondaryThresholdManager(tMgr);
+        return listener;
+    }
+
+    static class Measured extends Calculable {
+        Measured(double value, long when) {
+            super("test", value, when);
+        }
+    }
+
+    static class Measurable extends MeasurableCapability {
+        Measurable() {
+            super("test", "test", EmptyConfiguration.INSTANCE);
+            setThresholdValues(new ThresholdValues(0, 0.8));
+        }
+
+        public double getUtilization() {
+            return 0;
+        }
+
+        public void checkValue() {
+        }
+    }
+}
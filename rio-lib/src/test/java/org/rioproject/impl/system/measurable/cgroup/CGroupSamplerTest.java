@@ -0,0 +1,207 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cgroup;
+
+import net.jini.config.EmptyConfiguration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.system.measurable.cpu.CpuUtilization;
+import org.rioproject.system.measurable.memory.SystemMemoryUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@code CGroupSampler} and the cgroup monitors against fake cgroup trees
+ */
+public class CGroupSamplerTest {
+    private static final String FIXTURES = "src/test/resources/cgroup";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testV2() {
+        CGroupSampler sampler = new CGroupSampler(FIXTURES+"/v2", FIXTURES+"/v2-self");
+        try {
+            Assert.assertEquals(2, sampler.getVersion());
+            sampler.refresh();
+            Assert.assertTrue(sampler.isCpuLimited());
+            Assert.assertEquals(1.5, sampler.getCpuLimit(), 0);
+            Assert.assertTrue(sampler.isMemoryLimited());
+            Assert.assertEquals(1073741824, sampler.getMemoryLimit());
+            /* Inactive file cache is not counted */
+            Assert.assertEquals(536870912 - 134217728, sampler.getMemoryUsage());
+            Assert.assertEquals(2.5, sampler.getCpuPressure(), 1e-9);
+            Assert.assertEquals(12.5, sampler.getMemoryPressure(), 1e-9);
+            Assert.assertEquals(100, sampler.getPidsLimit());
+            Assert.assertEquals(25, sampler.getPidsCount());
+            /* Rates need two samples */
+            Assert.assertEquals(-1, sampler.getCpuUtilization(), 0);
+            Assert.assertEquals(-1, sampler.getThrottledFraction(), 0);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testV1() {
+        CGroupSampler sampler = new CGroupSampler(FIXTURES+"/v1", FIXTURES+"/v1-self");
+        try {
+            Assert.assertEquals(1, sampler.getVersion());
+            sampler.refresh();
+            Assert.assertEquals(0.5, sampler.getCpuLimit(), 0);
+            Assert.assertEquals(2147483648L, sampler.getMemoryLimit());
+            Assert.assertEquals(1073741824 - 268435456, sampler.getMemoryUsage());
+            Assert.assertTrue(Double.isNaN(sampler.getMemoryPressure()));
+            Assert.assertEquals(-1, sampler.getPidsLimit());
+            Assert.assertEquals(12, sampler.getPidsCount());
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testNoCGroup() {
+        CGroupSampler sampler = new CGroupSampler(new File(folder.getRoot(), "missing").getPath(),
+                                                  FIXTURES+"/v2-self");
+        Assert.assertEquals(0, sampler.getVersion());
+        Assert.assertFalse(sampler.sample(CGroupSampler::isCpuLimited));
+        Assert.assertFalse(sampler.sample(CGroupSampler::isMemoryLimited));
+        Assert.assertEquals(-1, sampler.getCpuUtilization(), 0);
+        Assert.assertEquals(-1, sampler.getPidsLimit());
+    }
+
+    @Test
+    public void testV2Rates() throws IOException {
+        File mount = copy("v2");
+        AtomicLong nanos = new AtomicLong();
+        CGroupSampler sampler = new CGroupSampler(mount.getPath(), FIXTURES+"/v2-self");
+        sampler.setClock(nanos::get);
+        sampler.setMaxAge(0);
+        CGroupCPUMonitor cpuMonitor = new CGroupCPUMonitor(sampler);
+        cpuMonitor.setID(SystemWatchID.SYSTEM_CPU);
+        cpuMonitor.setThresholdValues(new ThresholdValues(0, 1));
+        CGroupMemoryMonitor memoryMonitor = new CGroupMemoryMonitor(sampler);
+        memoryMonitor.setID(SystemWatchID.SYSTEM_MEMORY);
+        memoryMonitor.setThresholdValues(new ThresholdValues(0, 1));
+        try {
+            sampler.refresh();
+            write(mount, "cpu.stat", "usage_usec 1750000\nuser_usec 1350000\nsystem_usec 400000\n" +
+                                     "nr_periods 110\nnr_throttled 15\nthrottled_usec 300000\n");
+            nanos.set(1000000000L);
+            /* 0.75 seconds of CPU in 1 second, with a quota of 1.5 CPUs */
+            CpuUtilization cpu = cpuMonitor.getMeasuredResource();
+            Assert.assertEquals(0.5, cpu.getValue(), 1e-9);
+            Assert.assertEquals(0.4, cpu.getUser(), 1e-9);
+            Assert.assertEquals(0.1, cpu.getSystem(), 1e-9);
+            Assert.assertEquals(2, cpu.getAvailableProcessors());
+            Assert.assertEquals(0.5, sampler.getThrottledFraction(), 1e-9);
+            Assert.assertEquals(100000, sampler.getThrottledTime());
+
+            SystemMemoryUtilization memory = memoryMonitor.getMeasuredResource();
+            Assert.assertEquals(0.375, memory.getValue(), 1e-9);
+            Assert.assertEquals(1024, memory.getTotal(), 0);
+            Assert.assertEquals(384, memory.getUsed(), 0);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testV1Rates() throws IOException {
+        File mount = copy("v1");
+        AtomicLong nanos = new AtomicLong();
+        CGroupSampler sampler = new CGroupSampler(mount.getPath(), FIXTURES+"/v1-self");
+        sampler.setClock(nanos::get);
+        try {
+            sampler.refresh();
+            File cpu = new File(mount, "cpu,cpuacct/docker/abc");
+            write(cpu, "cpuacct.usage", "2500000000\n");
+            write(cpu, "cpuacct.stat", "user 330\nsystem 110\n");
+            write(cpu, "cpu.stat", "nr_periods 200\nnr_throttled 50\nthrottled_time 6000000000\n");
+            nanos.set(1000000000L);
+            sampler.refresh();
+            Assert.assertEquals(1.0, sampler.getCpuUtilization(), 1e-9);
+            Assert.assertEquals(0.75, sampler.getUserShare(), 1e-9);
+            Assert.assertEquals(0.25, sampler.getThrottledFraction(), 1e-9);
+            Assert.assertEquals(1000000, sampler.getThrottledTime());
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testMeasurables() throws IOException {
+        File mount = copy("v2");
+        AtomicLong nanos = new AtomicLong();
+        CGroupSampler sampler = new CGroupSampler(mount.getPath(), FIXTURES+"/v2-self");
+        sampler.setClock(nanos::get);
+        sampler.setMaxAge(0);
+        CGroupMeasurable pids = CGroupMeasurable.pids(EmptyConfiguration.INSTANCE, sampler);
+        CGroupMeasurable pressure = CGroupMeasurable.memoryPressure(EmptyConfiguration.INSTANCE, sampler);
+        CGroupMeasurable throttled = CGroupMeasurable.throttled(EmptyConfiguration.INSTANCE, sampler);
+        try {
+            pids.checkValue();
+            Assert.assertEquals(0.25, pids.getUtilization(), 1e-9);
+            Assert.assertEquals(SystemWatchID.PIDS, pids.getMeasuredResource().getIdentifier());
+            pressure.checkValue();
+            Assert.assertEquals(0.125, pressure.getUtilization(), 1e-9);
+
+            /* The counters have not changed since the previous sample */
+            throttled.checkValue();
+            Assert.assertEquals(0, throttled.getUtilization(), 0);
+            write(mount, "cpu.stat", "usage_usec 1000000\nnr_periods 200\nnr_throttled 60\n");
+            nanos.set(1000000000L);
+            throttled.checkValue();
+            Assert.assertEquals(0.5, throttled.getUtilization(), 1e-9);
+        } finally {
+            pids.stop();
+            pressure.stop();
+            throttled.stop();
+            sampler.close();
+        }
+    }
+
+    private File copy(String name) throws IOException {
+        Path source = Paths.get(FIXTURES, name);
+        Path target = folder.newFolder(name).toPath();
+        try (Stream<Path> paths = Files.walk(source)) {
+            for(Path path : (Iterable<Path>)paths::iterator) {
+                Path copy = target.resolve(source.relativize(path).toString());
+                if(Files.isDirectory(path))
+                    Files.createDirectories(copy);
+                else
+                    Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return target.toFile();
+    }
+
+    private void write(File dir, String name, String content) throws IOException {
+        Files.write(new File(dir, name).toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.cpu;
+
+import net.jini.config.EmptyConfiguration;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.system.measurable.cpu.CpuUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Tests {@code ProcStat} parsing, and the measurements made from it
+ */
+public class ProcStatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*                                  user nice system idle iowait irq softirq steal guest guest_nice */
+    private static final String FIRST = "cpu  1000 0 500 8000 100 0 0 400 0 0\n" +
+                                        "cpu0 500 0 250 4000 50 0 0 200 0 0\n" +
+                                        "cpu1 500 0 250 4000 50 0 0 200 0 0\n" +
+                                        "intr 12345 0 0 0 0 0\n" +
+                                        "ctxt 2438455\n";
+    private static final String SECOND = "cpu  1200 100 550 8400 200 25 25 500 10 0\n" +
+                                         "cpu0 650 100 275 4100 150 25 25 200 10 0\n" +
+                                         "cpu1 700 0 350 4450 50 0 0 450 0 0\n" +
+                                         "intr 12400 0 0 0 0 0\n" +
+                                         "ctxt 2438999\n";
+
+    @Test
+    public void testFractions() throws Exception {
+        File stat = write(FIRST);
+        ProcStat procStat = new ProcStat(stat.getPath());
+        try {
+            Assert.assertTrue(procStat.sample());
+            Assert.assertEquals(3, procStat.getCpuCount());
+            /* Since boot */
+            Assert.assertEquals(0.1, procStat.getFraction(0, ProcStat.USER), 1e-9);
+            Assert.assertEquals(0.04, procStat.getFraction(0, ProcStat.STEAL), 1e-9);
+
+            write(stat, SECOND);
+            Assert.assertTrue(procStat.sample());
+            /* The aggregate deltas total 1000 */
+            Assert.assertEquals(0.2, procStat.getFraction(0, ProcStat.USER), 1e-9);
+            Assert.assertEquals(0.1, procStat.getFraction(0, ProcStat.NICE), 1e-9);
+            Assert.assertEquals(0.4, procStat.getFraction(0, ProcStat.IDLE), 1e-9);
+            Assert.assertEquals(0.1, procStat.getFraction(0, ProcStat.IOWAIT), 1e-9);
+            Assert.assertEquals(0.1, procStat.getFraction(0, ProcStat.STEAL), 1e-9);
+            /* cpu1 deltas total 1000, a quarter stolen */
+            Assert.assertEquals(0.25, procStat.getFraction(2, ProcStat.STEAL), 1e-9);
+            Assert.assertEquals(0.0, procStat.getFraction(2, ProcStat.IOWAIT), 1e-9);
+
+            /* No time elapsed */
+            Assert.assertTrue(procStat.sample());
+            Assert.assertEquals(0.0, procStat.getFraction(0, ProcStat.USER), 0);
+        } finally {
+            procStat.close();
+        }
+    }
+
+    @Test
+    public void testManyCpusAndOffline() throws Exception {
+        StringBuilder first = new StringBuilder("cpu  0 0 0 0 0 0 0 0 0 0\n");
+        StringBuilder second = new StringBuilder("cpu  0 0 0 0 0 0 0 0 0 0\n");
+        for(int i = 0; i < 256; i++) {
+            first.append("cpu").append(i).append(" 100 0 100 1000 0 0 0 0 0 0\n");
+            /* cpu7 goes offline */
+            if(i != 7)
+                second.append("cpu").append(i).append(" 200 0 100 1100 0 0 0 0 0 0\n");
+        }
+        File stat = write(first.toString());
+        ProcStat procStat = new ProcStat(stat.getPath());
+        try {
+            Assert.assertTrue(procStat.sample());
+            Assert.assertEquals(257, procStat.getCpuCount());
+            write(stat, second.toString());
+            Assert.assertTrue(procStat.sample());
+            Assert.assertEquals(257, procStat.getCpuCount());
+            Assert.assertEquals(0.5, procStat.getFraction(256, ProcStat.USER), 1e-9);
+            Assert.assertEquals(0.0, procStat.getFraction(8, ProcStat.USER), 0);
+        } finally {
+            procStat.close();
+        }
+    }
+
+    @Test
+    public void testProcStat() {
+        Assume.assumeTrue(new File(ProcStat.PROC_STAT).canRead());
+        ProcStat procStat = new ProcStat();
+        try {
+            Assert.assertTrue(procStat.sample());
+            Assert.assertTrue(procStat.sample());
+            Assert.assertTrue(procStat.getCpuCount() > 1);
+            double total = 0;
+            for(int state = 0; state < ProcStat.STATES; state++)
+                total += procStat.getFraction(0, state);
+            Assert.assertTrue(total==0 || Math.abs(total - 1) < 1e-9);
+        } finally {
+            procStat.close();
+        }
+    }
+
+    @Test
+    public void testMissingFile() {
+        ProcStat procStat = new ProcStat(new File(folder.getRoot(), "missing").getPath());
+        Assert.assertFalse(procStat.sample());
+        Assert.assertEquals(0, procStat.getCpuCount());
+    }
+
+    @Test
+    public void testLinuxCPUMonitor() throws Exception {
+        File stat = write(FIRST);
+        LinuxProcSampler sampler = new LinuxProcSampler(folder.getRoot().getPath());
+        sampler.setMaxAge(0);
+        LinuxCPUMonitor monitor = new LinuxCPUMonitor(sampler);
+        monitor.setID(SystemWatchID.SYSTEM_CPU);
+        monitor.setThresholdValues(new ThresholdValues(0, 1));
+        try {
+            monitor.getMeasuredResource();
+            write(stat, SECOND);
+            CpuUtilization utilization = monitor.getMeasuredResource();
+            Assert.assertEquals(0.3, utilization.getUser(), 1e-9);
+            Assert.assertEquals(0.1, utilization.getSystem(), 1e-9);
+            Assert.assertEquals(0.4, utilization.getValue(), 1e-9);
+            Assert.assertEquals(0.1, utilization.getIowait(), 1e-9);
+            Assert.assertEquals(0.1, utilization.getSteal(), 1e-9);
+            CpuUtilization[] cores = utilization.getCores();
+            Assert.assertEquals(2, cores.length);
+            Assert.assertEquals(SystemWatchID.SYSTEM_CPU+".1", cores[1].getIdentifier());
+            Assert.assertEquals(0.25, cores[1].getSteal(), 1e-9);
+            Assert.assertEquals(0.3, cores[1].getValue(), 1e-9);
+        } finally {
+            monitor.terminate();
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testCPUState() throws Exception {
+        File stat = write(FIRST);
+        LinuxProcSampler sampler = new LinuxProcSampler(folder.getRoot().getPath());
+        sampler.setMaxAge(0);
+        CPUState steal = new CPUState(EmptyConfiguration.INSTANCE,
+                                      SystemWatchID.CPU_STEAL,
+                                      "org.rioproject.system.measurable.cpu.steal",
+                                      ProcStat.STEAL,
+                                      sampler);
+        try {
+            steal.checkValue();
+            write(stat, SECOND);
+            steal.checkValue();
+            Assert.assertEquals(0.1, steal.getUtilization(), 1e-9);
+            Assert.assertEquals(0.1, steal.getMeasuredResource().getValue(), 1e-9);
+            Assert.assertEquals(2, steal.getWatchDataSource().getCurrentSize());
+        } finally {
+            steal.stop();
+            sampler.close();
+        }
+    }
+
+    private File write(String content) throws Exception {
+        File file = folder.newFile("stat");
+        write(file, content);
+        return file;
+    }
+
+    private void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.disk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.system.measurable.disk.DiskIOUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests {@code DiskIOMonitor} against a fake {@code /proc/diskstats}
+ */
+public class DiskIOMonitorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIsDisk() {
+        Assert.assertTrue(DiskStats.isDisk("sda"));
+        Assert.assertTrue(DiskStats.isDisk("nvme0n1"));
+        Assert.assertTrue(DiskStats.isDisk("xvdf"));
+        Assert.assertFalse(DiskStats.isDisk("sda1"));
+        Assert.assertFalse(DiskStats.isDisk("nvme0n1p1"));
+        Assert.assertFalse(DiskStats.isDisk("mmcblk0p2"));
+        Assert.assertFalse(DiskStats.isDisk("loop0"));
+        Assert.assertFalse(DiskStats.isDisk("dm-0"));
+    }
+
+    @Test
+    public void testRates() throws IOException {
+        File root = folder.newFolder("proc");
+        Files.copy(Paths.get("src/test/resources/proc/diskstats"), new File(root, "diskstats").toPath());
+        AtomicLong nanos = new AtomicLong();
+        LinuxProcSampler sampler = new LinuxProcSampler(root.getPath(), nanos::get);
+        DiskIOMonitor monitor = new DiskIOMonitor(sampler);
+        monitor.setID("Disk I/O");
+        monitor.setThresholdValues(new ThresholdValues(0, 1));
+        try {
+            /* Needs two samples */
+            Assert.assertEquals(0, monitor.getMeasuredResource().getValue(), 0);
+
+            write(root, "diskstats",
+                  "   7       0 loop0 520 0 10400 130 0 0 0 0 0 140 130 0 0 0 0\n"+
+                  "   8       0 sda 1100 10 20000 700 2300 20 40000 1700 0 2800 2400 0 0 0 0 0 0\n"+
+                  "   8       1 sda1 1090 10 19800 695 2290 20 39900 1690 0 2790 2385 0 0 0 0 0 0\n"+
+                  " 259       0 nvme0n1 4800 0 72000 1800 1200 0 8000 1200 0 2500 3000 0 0 0 0 0 0\n");
+            nanos.set(2000000000L);
+            sampler.refresh();
+            DiskIOUtilization disks = monitor.getMeasuredResource();
+            Assert.assertEquals("Disk I/O", disks.getIdentifier());
+            Assert.assertNull(disks.getDevice());
+            /* The busiest disk */
+            Assert.assertEquals(0.8, disks.getValue(), 1e-9);
+            Assert.assertEquals(700, disks.getIops(), 1e-9);
+            Assert.assertEquals(3072000, disks.getReadBytesPerSecond(), 1e-9);
+            Assert.assertEquals(2048000, disks.getWriteBytesPerSecond(), 1e-9);
+            Assert.assertEquals(5120000, disks.getThroughput(), 1e-9);
+            Assert.assertEquals(2400.0 / 1400, disks.getAwait(), 1e-9);
+
+            /* Partitions, loop and device mapper devices are not counted */
+            Assert.assertEquals(2, disks.getDevices().length);
+            DiskIOUtilization sda = disks.getDevices()[0];
+            Assert.assertEquals("Disk I/O.sda", sda.getIdentifier());
+            Assert.assertEquals("sda", sda.getDevice());
+            Assert.assertEquals(0.5, sda.getValue(), 1e-9);
+            Assert.assertEquals(200, sda.getIops(), 1e-9);
+            Assert.assertEquals(1024000, sda.getReadBytesPerSecond(), 1e-9);
+            Assert.assertEquals(2048000, sda.getWriteBytesPerSecond(), 1e-9);
+            Assert.assertEquals(1, sda.getAwait(), 1e-9);
+            DiskIOUtilization nvme = disks.getDevices()[1];
+            Assert.assertEquals("nvme0n1", nvme.getDevice());
+            Assert.assertEquals(2, nvme.getAwait(), 1e-9);
+
+            monitor.setDevices("sda");
+            Assert.assertEquals(0.5, monitor.getMeasuredResource().getValue(), 1e-9);
+            Assert.assertEquals(1, monitor.getMeasuredResource().getDevices().length);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    private void write(File root, String name, String content) throws IOException {
+        Files.write(new File(root, name).toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright to the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.forecast;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the {@link Forecaster} implementations
+ */
+public class ForecasterTest {
+
+    @Test
+    public void testEWMA() {
+        Forecaster forecaster = new EWMAForecaster(0.5);
+        assertTrue(Double.isNaN(forecaster.getValue()));
+        assertEquals(Forecaster.NO_BREACH, forecaster.getTimeToBreach(1));
+        forecaster.add(0.2, 1000);
+        assertEquals(0.2, forecaster.getValue(), 0.0001);
+        forecaster.add(1.0, 2000);
+        assertEquals(0.6, forecaster.getValue(), 0.0001);
+        forecaster.add(0.6, 3000);
+        assertEquals(0.6, forecaster.getValue(), 0.0001);
+        assertEquals(0, forecaster.getTrend(), 0);
+        assertEquals(0.6, forecaster.forecast(60000), 0.0001);
+        assertEquals(Forecaster.NO_BREACH, forecaster.getTimeToBreach(0.8));
+        assertEquals(0, forecaster.getTimeToBreach(0.5));
+        forecaster.reset();
+        assertTrue(Double.isNaN(forecaster.getValue()));
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        Forecaster forecaster = new SlidingWindowForecaster(3);
+        forecaster.add(0.9, 0);
+        assertEquals(0, forecaster.getTrend(), 0);
+        assertEquals(0.9, forecaster.forecast(1000), 0.0001);
+        forecaster.add(0.1, 1000);
+        forecaster.add(0.2, 2000);
+        forecaster.add(0.3, 3000);
+        /* The oldest value has left the window */
+        assertEquals(0.2, forecaster.getValue(), 0.0001);
+        assertEquals(0.0001, forecaster.getTrend(), 0.000001);
+        /* The fitted line is at 0.3 at the time of the last value */
+        assertEquals(0.3, forecaster.forecast(0), 0.0001);
+        assertEquals(0.5, forecaster.forecast(2000), 0.0001);
+        assertEquals(5000, forecaster.getTimeToBreach(0.8), 1);
+        forecaster.reset();
+        assertTrue(Double.isNaN(forecaster.forecast(0)));
+    }
+
+    @Test
+    public void testHoltFollowsTrend() {
+        Forecaster forecaster = new HoltForecaster(0.5, 0.5);
+        for(int i = 0; i <= 50; i++)
+            forecaster.add(0.01 * i, i * 1000);
+        /* A steady linear rise of 0.01 a second is tracked without lag */
+        assertEquals(0.5, forecaster.getValue(), 0.001);
+        assertEquals(0.00001, forecaster.getTrend(), 0.0000001);
+        assertEquals(0.6, forecaster.forecast(10000), 0.001);
+        long timeToBreach = forecaster.getTimeToBreach(0.8);
+        assertTrue("timeToBreach "+timeToBreach, timeToBreach > 29000 && timeToBreach < 31000);
+    }
+
+    @Test
+    public void testHoltDampsSpike() {
+        Forecaster holt = new HoltForecaster(0.3, 0.1);
+        for(int i = 0; i < 20; i++)
+            holt.add(0.4, i * 1000);
+        holt.add(1.0, 20000);
+        assertTrue(holt.getValue() < 0.9);
+        for(int i = 21; i < 40; i++)
+            holt.add(0.4, i * 1000);
+        assertEquals(0.4, holt.getValue(), 0.02);
+        assertEquals(Forecaster.NO_BREACH, holt.getTimeToBreach(0.9));
+    }
+
+    @Test
+    public void testHoltUnevenIntervals() {
+        Forecaster forecaster = new HoltForecaster(0.5, 0.5);
+        long when = 0;
+        for(int i = 0; i < 50; i++) {
+            when += (i % 2 == 0) ? 500 : 1500;
+            forecaster.add(when / 100000d, when);
+        }
+        assertEquals(0.00001, forecaster.getTrend(), 0.000001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAlpha() {
+        new HoltForecaster(0, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new SlidingWindowForecaster(0);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright to the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.jvm;
+
+import net.jini.config.EmptyConfiguration;
+import org.junit.Test;
+import org.rioproject.impl.watch.ThreadDeadlockMonitor;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.watch.Calculable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.ThreadInfo;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the {@link JVMSampler} and {@link JVMMeasurable}
+ */
+public class JVMSamplerTest {
+    private static volatile Object sink;
+
+    @Test
+    public void testSample() {
+        AtomicLong clock = new AtomicLong();
+        JVMSampler sampler = new JVMSampler(clock::get);
+        sampler.refresh();
+        assertEquals(0, sampler.getElapsedNanos());
+        assertEquals(-1, sampler.getProcessCpuUtilization(), 0);
+        assertEquals(-1, sampler.getGcTimeFraction(), 0);
+        assertEquals(-1, sampler.getAllocationRate(), 0);
+        assertTrue(sampler.getThreadCount() > 0);
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            assertNotNull(pool.getName(), sampler.getMemoryPoolUsage(pool.getName()));
+        assertNull(sampler.getMemoryPoolUsage("no such pool"));
+
+        long gcCount = sampler.getGcCount();
+        for(int i = 0; i < 1000; i++)
+            sink = new byte[1024];
+        System.gc();
+        clock.addAndGet(1000000000L);
+        sampler.refresh();
+        assertEquals(1000000000L, sampler.getElapsedNanos());
+        assertTrue(sampler.getGcCount() > gcCount);
+        assertEquals(sampler.getGcCount() - gcCount, sampler.getGcCountDelta());
+        double gc = sampler.getGcTimeFraction();
+        assertTrue("gc "+gc, gc >= 0 && gc <= 1);
+        double cpu = sampler.getProcessCpuUtilization();
+        assertTrue("cpu "+cpu, cpu >= 0 && cpu <= 1);
+        assertTrue("allocationRate "+sampler.getAllocationRate(), sampler.getAllocationRate() >= 1000 * 1024);
+        assertEquals(0, sampler.getDeadlockedThreadCount());
+        assertEquals(0, sampler.getDeadlockedThreads().length);
+    }
+
+    @Test
+    public void testSampleIsShared() {
+        AtomicLong clock = new AtomicLong();
+        JVMSampler sampler = new JVMSampler(clock::get);
+        long first = sampler.sample(JVMSampler::getElapsedNanos);
+        clock.addAndGet(500000000L);
+        /* Within the maximum age the sample is not refreshed */
+        assertEquals(first, (long)sampler.sample(JVMSampler::getElapsedNanos));
+        clock.addAndGet(500000000L);
+        assertEquals(1000000000L, (long)sampler.sample(JVMSampler::getElapsedNanos));
+    }
+
+    @Test
+    public void testDeadlock() throws InterruptedException {
+        ReentrantLock lock1 = new ReentrantLock();
+        ReentrantLock lock2 = new ReentrantLock();
+        CountDownLatch locked = new CountDownLatch(2);
+        Thread t1 = new Thread(() -> deadlock(lock1, lock2, locked), "deadlock-1");
+        Thread t2 = new Thread(() -> deadlock(lock2, lock1, locked), "deadlock-2");
+        t1.setDaemon(true);
+        t2.setDaemon(true);
+        t1.start();
+        t2.start();
+        try {
+            locked.await();
+            JVMSampler sampler = new JVMSampler();
+            sampler.setMaxAge(0);
+            long deadline = System.currentTimeMillis() + 10000;
+            while(sampler.sample(JVMSampler::getDeadlockedThreadCount) < 2 && System.currentTimeMillis() < deadline)
+                Thread.sleep(50);
+            ThreadInfo[] deadlocked = sampler.getDeadlockedThreads();
+            assertEquals(2, deadlocked.length);
+            for(ThreadInfo info : deadlocked) {
+                assertTrue(info.getThreadName().startsWith("deadlock-"));
+                assertTrue(info.getStackTrace().length > 0);
+            }
+            /* The same set of deadlocked threads is not fetched again */
+            sampler.refresh();
+            assertEquals(2, sampler.getDeadlockedThreads().length);
+            assertSame(deadlocked[0], sampler.getDeadlockedThreads()[0]);
+
+            ThreadDeadlockMonitor monitor = new ThreadDeadlockMonitor();
+            monitor.setThreadMXBean(ManagementFactory.getThreadMXBean());
+            Calculable calculable = monitor.getThreadDeadlockCalculable();
+            assertEquals(2, calculable.getValue(), 0);
+            assertTrue(calculable.getDetail().contains("deadlock-1"));
+        } finally {
+            t1.interrupt();
+            t2.interrupt();
+        }
+        t1.join(5000);
+        t2.join(5000);
+        JVMSampler sampler = new JVMSampler();
+        assertEquals(0, sampler.sample(JVMSampler::getDeadlockedThreadCount).intValue());
+    }
+
+    @Test
+    public void testMeasurables() {
+        AtomicLong clock = new AtomicLong();
+        JVMSampler sampler = new JVMSampler(clock::get);
+        JVMMeasurable gcPause = JVMMeasurable.gcPause(EmptyConfiguration.INSTANCE, sampler);
+        JVMMeasurable allocationRate = JVMMeasurable.allocationRate(EmptyConfiguration.INSTANCE, sampler);
+        assertEquals(SystemWatchID.GC_PAUSE, gcPause.getId());
+        assertEquals(SystemWatchID.ALLOCATION_RATE, allocationRate.getId());
+        /* Nothing is recorded for the first sample */
+        gcPause.checkValue();
+        allocationRate.checkValue();
+        assertNull(gcPause.getLastCalculable());
+        for(int i = 0; i < 1000; i++)
+            sink = new byte[1024];
+        clock.addAndGet(1000000000L);
+        gcPause.checkValue();
+        allocationRate.checkValue();
+        assertNotNull(gcPause.getLastCalculable());
+        assertTrue(gcPause.getUtilization() >= 0 && gcPause.getUtilization() <= 1);
+        assertTrue(allocationRate.getUtilization() >= 1000 * 1024d / JVMMeasurable.DEFAULT_ALLOCATION_BUDGET);
+    }
+
+    private static void deadlock(ReentrantLock first, ReentrantLock second, CountDownLatch locked) {
+        try {
+            first.lockInterruptibly();
+            try {
+                locked.countDown();
+                locked.await();
+                second.lockInterruptibly();
+                second.unlock();
+            } finally {
+                first.unlock();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
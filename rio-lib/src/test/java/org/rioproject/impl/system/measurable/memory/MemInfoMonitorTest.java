@@ -17,6 +17,7 @@ package org.rioproject.impl.system.measurable.memory;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
 import org.rioproject.impl.system.measurable.memory.MemInfoMonitor;
 import org.rioproject.system.measurable.memory.SystemMemoryUtilization;
 import org.rioproject.watch.ThresholdValues;
@@ -28,10 +29,9 @@ import org.rioproject.watch.ThresholdValues;
 public class MemInfoMonitorTest {
     @Test
     public void testParsing() {
-        MemInfoMonitor memInfoMonitor = new MemInfoMonitor();
+        MemInfoMonitor memInfoMonitor = new MemInfoMonitor(new LinuxProcSampler("src/test/resources"));
         memInfoMonitor.setID("System Memory");
         memInfoMonitor.setThresholdValues(new ThresholdValues(0, 1.0));
-        memInfoMonitor.setMemInfoFile("src/test/resources/meminfo");
         SystemMemoryUtilization memoryUtilization = memInfoMonitor.getMeasuredResource();
         Assert.assertNotNull(memoryUtilization);
         System.out.println("Free:   "+memoryUtilization.getFree()+" MB");
@@ -0,0 +1,104 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.system.measurable.network;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rioproject.impl.system.measurable.LinuxProcSampler;
+import org.rioproject.system.measurable.network.NetworkUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests {@code NetworkMonitor} against a fake {@code /proc/net/dev} and {@code /sys/class/net}
+ */
+public class NetworkMonitorTest {
+    private static final String HEADER =
+        "Inter-|   Receive                                                |  Transmit\n"+
+        " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed\n";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRates() throws IOException {
+        File root = folder.newFolder("proc");
+        new File(root, "net").mkdir();
+        Files.copy(Paths.get("src/test/resources/proc/net/dev"), new File(root, "net/dev").toPath());
+        File sys = folder.newFolder("sys");
+        write(sys, "class/net/eth0/speed", "10000\n");
+        /* Interfaces that do not report a speed */
+        write(sys, "class/net/wlan0/speed", "-1\n");
+        AtomicLong nanos = new AtomicLong();
+        LinuxProcSampler sampler = new LinuxProcSampler(root.getPath(), nanos::get);
+        NetworkMonitor monitor = new NetworkMonitor(sampler, sys.getPath());
+        monitor.setID("Network");
+        monitor.setThresholdValues(new ThresholdValues(0, 1));
+        try {
+            /* Needs two samples */
+            Assert.assertEquals(0, monitor.getMeasuredResource().getValue(), 0);
+
+            write(root, "net/dev", HEADER+
+                  "    lo: 90000000   95000    0    0    0     0          0         0 90000000   95000    0    0    0     0       0          0\n"+
+                  "  eth0:1250000000 1000000    0   16    0     0          0       100 250000000  500000    0    5    0     0       0          0\n"+
+                  " wlan0: 50000000   40000    0    0    0     0          0         0  2000000    2000    0    0    0     0       0          0\n");
+            nanos.set(2000000000L);
+            sampler.refresh();
+            NetworkUtilization network = monitor.getMeasuredResource();
+            Assert.assertEquals("Network", network.getIdentifier());
+            Assert.assertNull(network.getInterface());
+            /* The busiest interface, wlan0 at 25 MB/s of an assumed 1 Gbit/s */
+            Assert.assertEquals(0.2, network.getValue(), 1e-9);
+            Assert.assertEquals(150000000, network.getRxBytesPerSecond(), 1e-9);
+            Assert.assertEquals(26000000, network.getTxBytesPerSecond(), 1e-9);
+            Assert.assertEquals(120000, network.getRxPacketsPerSecond(), 1e-9);
+            Assert.assertEquals(51000, network.getTxPacketsPerSecond(), 1e-9);
+            Assert.assertEquals(3, network.getDropsPerSecond(), 1e-9);
+
+            /* The loopback interface is not counted */
+            Assert.assertEquals(2, network.getInterfaces().length);
+            NetworkUtilization eth0 = network.getInterfaces()[0];
+            Assert.assertEquals("Network.eth0", eth0.getIdentifier());
+            Assert.assertEquals("eth0", eth0.getInterface());
+            /* 125 MB/s of 10 Gbit/s */
+            Assert.assertEquals(0.1, eth0.getValue(), 1e-9);
+            Assert.assertEquals(125000000, eth0.getRxBytesPerSecond(), 1e-9);
+            Assert.assertEquals(25000000, eth0.getTxBytesPerSecond(), 1e-9);
+            Assert.assertEquals(3, eth0.getDropsPerSecond(), 1e-9);
+
+            monitor.setInterfaces("eth0");
+            monitor.setBandwidth(250000000);
+            NetworkUtilization configured = monitor.getMeasuredResource();
+            Assert.assertEquals(1, configured.getInterfaces().length);
+            Assert.assertEquals(0.5, configured.getValue(), 1e-9);
+        } finally {
+            sampler.close();
+        }
+    }
+
+    private void write(File root, String name, String content) throws IOException {
+        File file = new File(root, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -184,6 +184,107 @@ public class BoundedThresholdManagerTest {
         Assert.assertEquals(2, listener.cleared.size());
     }
 
+    @Test
+    public void testBatchedCheckMatchesIndividualChecks() {
+        Random random = new Random(42);
+        int count = 50;
+        BoundedThresholdManager[] batched = new BoundedThresholdManager[count];
+        BoundedThresholdManager[] individual = new BoundedThresholdManager[count];
+        MyThresholdListener[] batchedListeners = new MyThresholdListener[count];
+        MyThresholdListener[] individualListeners = new MyThresholdListener[count];
+        for(int i = 0; i < count; i++) {
+            double low = random.nextDouble() * 0.4;
+            double high = 0.5 + random.nextDouble() * 0.4;
+            double[] range = i % 2 == 0 ? new double[]{low, high} : new double[]{low, high, 0.05};
+            batched[i] = new BoundedThresholdManager("batched-"+i);
+            batched[i].setThresholdValues(new ThresholdValues(range));
+            batchedListeners[i] = new MyThresholdListener();
+            batched[i].addThresholdListener(batchedListeners[i]);
+            individual[i] = new BoundedThresholdManager("individual-"+i);
+            individual[i].setThresholdValues(new ThresholdValues(range));
+            individualListeners[i] = new MyThresholdListener();
+            individual[i].addThresholdListener(individualListeners[i]);
+        }
+        for(int n = 0; n < 1000; n++) {
+            Calculable calculable = new Calculable("foo", random.nextDouble(), n);
+            ThresholdManager.checkThresholds(calculable, batched);
+            for(BoundedThresholdManager thresholdManager : individual)
+                thresholdManager.checkThreshold(calculable);
+        }
+        for(int i = 0; i < count; i++) {
+            Assert.assertTrue(batchedListeners[i].breached.size() > 0);
+            Assert.assertEquals(individualListeners[i].breached, batchedListeners[i].breached);
+            Assert.assertEquals(individualListeners[i].cleared, batchedListeners[i].cleared);
+            Assert.assertEquals(individual[i].getThresholdCrossed(), batched[i].getThresholdCrossed());
+            Assert.assertEquals(individual[i].getThresholdValues().getThresholdBreachedCount(),
+                                batched[i].getThresholdValues().getThresholdBreachedCount());
+        }
+    }
+
+    @Test
+    public void testListenerRemovedDuringNotification() {
+        final BoundedThresholdManager thresholdManager = new BoundedThresholdManager("foo");
+        thresholdManager.setThresholdValues(new ThresholdValues(0, 5));
+        final MyThresholdListener second = new MyThresholdListener();
+        ThresholdListener first = new ThresholdListener() {
+            @Override
+            public void notify(Calculable calculable, ThresholdValues thresholdValues, ThresholdType type) {
+                thresholdManager.removeThresholdListener(second);
+            }
+        };
+        thresholdManager.addThresholdListener(first);
+        thresholdManager.addThresholdListener(second);
+        thresholdManager.addThresholdListener(second);
+        Assert.assertEquals(2, thresholdManager.getThresholdListeners().length);
+        thresholdManager.checkThreshold(new Calculable("foo", 6));
+        /* The listeners registered when the threshold was crossed are notified */
+        Assert.assertEquals(1, second.breached.size());
+        Assert.assertEquals(1, thresholdManager.getThresholdListeners().length);
+        thresholdManager.checkThreshold(new Calculable("foo", 7));
+        Assert.assertEquals(1, second.breached.size());
+        thresholdManager.clear();
+        Assert.assertEquals(0, thresholdManager.getThresholdListeners().length);
+    }
+
+    @Test
+    public void testListenersGetSnapshot() {
+        BoundedThresholdManager thresholdManager = new BoundedThresholdManager("foo");
+        ThresholdValues thresholdValues = new ThresholdValues(0, 5);
+        thresholdManager.setThresholdValues(thresholdValues);
+        final List<ThresholdValues> notified = new ArrayList<ThresholdValues>();
+        thresholdManager.addThresholdListener(new ThresholdListener() {
+            @Override
+            public void notify(Calculable calculable, ThresholdValues thresholdValues, ThresholdType type) {
+                notified.add(thresholdValues);
+            }
+        });
+        thresholdManager.checkThreshold(new Calculable("foo", 6));
+        thresholdManager.checkThreshold(new Calculable("foo", 4));
+        Assert.assertEquals(2, notified.size());
+        Assert.assertNotSame(thresholdValues, notified.get(0));
+        Assert.assertEquals(1, notified.get(0).getThresholdBreachedCount());
+        Assert.assertEquals(0, notified.get(0).getThresholdClearedCount());
+        Assert.assertEquals(1, notified.get(1).getThresholdClearedCount());
+        Assert.assertEquals(6, thresholdValues.getCurrentHighThreshold(), 0);
+    }
+
+    @Test
+    public void testCurrentThresholdReset() {
+        BoundedThresholdManager thresholdManager = new BoundedThresholdManager("foo");
+        ThresholdValues thresholdValues = new ThresholdValues(0, 5, 2);
+        thresholdManager.setThresholdValues(thresholdValues);
+        MyThresholdListener listener = new MyThresholdListener();
+        thresholdManager.addThresholdListener(listener);
+        thresholdManager.checkThreshold(new Calculable("foo", 6));
+        thresholdManager.checkThreshold(new Calculable("foo", 9));
+        Assert.assertEquals(2, listener.breached.size());
+        /* Reset by the holder of the ThresholdValues, as the RedeployPolicyHandler does */
+        thresholdValues.resetHighThreshold();
+        thresholdManager.checkThreshold(new Calculable("foo", 7));
+        Assert.assertEquals(3, listener.breached.size());
+        Assert.assertEquals(7, thresholdValues.getCurrentHighThreshold(), 0);
+    }
+
     class MyThresholdListener implements ThresholdListener {
         final Map<Integer, Calculable> breached = new HashMap<Integer, Calculable>();
         final Map<Integer, Calculable> cleared = new HashMap<Integer, Calculable>();
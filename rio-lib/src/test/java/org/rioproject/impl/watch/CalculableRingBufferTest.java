@@ -0,0 +1,133 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.watch.Calculable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the {@code CalculableRingBuffer}
+ */
+public class CalculableRingBufferTest {
+
+    @Test
+    public void testWrap() {
+        CalculableRingBuffer ring = new CalculableRingBuffer(10);
+        Assert.assertEquals(0, ring.size());
+        Assert.assertNull(ring.last());
+        for(int i = 0; i < 25; i++)
+            ring.add(new Calculable("ring", i, i));
+        Assert.assertEquals(10, ring.size());
+        Calculable[] calculables = ring.toArray();
+        Assert.assertEquals(10, calculables.length);
+        for(int i = 0; i < calculables.length; i++)
+            Assert.assertEquals(15 + i, calculables[i].getValue(), 0);
+        Assert.assertEquals(24, ring.last().getValue(), 0);
+    }
+
+    @Test
+    public void testRange() {
+        CalculableRingBuffer ring = new CalculableRingBuffer(50);
+        for(int i = 0; i < 75; i++)
+            ring.add(new Calculable("ring", i, i * 10));
+        Calculable[] calculables = ring.range(300, 400);
+        Assert.assertEquals(11, calculables.length);
+        Assert.assertEquals(300, calculables[0].getWhen());
+        Assert.assertEquals(400, calculables[10].getWhen());
+        /* Records 0-24 have been overwritten */
+        Assert.assertEquals(0, ring.range(0, 240).length);
+    }
+
+    @Test
+    public void testRangeOutOfOrder() {
+        CalculableRingBuffer ring = new CalculableRingBuffer(10);
+        for(int i = 0; i < 10; i++)
+            ring.add(new Calculable("ring", i, i == 5 ? 1000 : i * 10));
+        Assert.assertEquals(2, ring.range(40, 60).length);
+        Assert.assertEquals(1, ring.range(1000, 1000).length);
+        /* Once the out of order record is overwritten the range is found with a binary search */
+        for(int i = 10; i < 20; i++)
+            ring.add(new Calculable("ring", i, 2000 + i * 10));
+        Calculable[] calculables = ring.range(2100, 2150);
+        Assert.assertEquals(6, calculables.length);
+        Assert.assertEquals(2100, calculables[0].getWhen());
+        Assert.assertEquals(2150, calculables[5].getWhen());
+    }
+
+    @Test
+    public void testResize() {
+        CalculableRingBuffer ring = new CalculableRingBuffer(10);
+        for(int i = 0; i < 15; i++)
+            ring.add(new Calculable("ring", i, i));
+        ring.resize(5);
+        Assert.assertEquals(5, ring.capacity());
+        Calculable[] calculables = ring.toArray();
+        Assert.assertEquals(5, calculables.length);
+        Assert.assertEquals(10, calculables[0].getValue(), 0);
+        Assert.assertEquals(14, calculables[4].getValue(), 0);
+
+        ring.resize(20);
+        for(int i = 15; i < 20; i++)
+            ring.add(new Calculable("ring", i, i));
+        calculables = ring.toArray();
+        Assert.assertEquals(10, calculables.length);
+        Assert.assertEquals(10, calculables[0].getValue(), 0);
+        Assert.assertEquals(19, ring.last().getValue(), 0);
+
+        ring.clear();
+        Assert.assertEquals(0, ring.size());
+        Assert.assertEquals(0, ring.toArray().length);
+    }
+
+    @Test
+    public void testConcurrentReaders() throws InterruptedException {
+        final CalculableRingBuffer ring = new CalculableRingBuffer(100);
+        final int count = 200000;
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                for(int i = 0; i < count; i++)
+                    ring.add(new Calculable("ring", i, i));
+                done.countDown();
+            }
+        });
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                while(done.getCount() > 0) {
+                    Calculable[] calculables = ring.toArray();
+                    for(int i = 1; i < calculables.length; i++) {
+                        if(calculables[i] == null ||
+                           calculables[i].getWhen() != calculables[i - 1].getWhen() + 1) {
+                            failure.set("Inconsistent history read at index " + i);
+                            return;
+                        }
+                    }
+                }
+            }
+        });
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join();
+        Assert.assertNull(failure.get(), failure.get());
+        Assert.assertEquals(count - 1, ring.last().getValue(), 0);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.HistogramCalculable;
+import org.rioproject.watch.ThresholdType;
+import org.rioproject.watch.ThresholdValues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the {@code HistogramStopWatch}
+ */
+public class HistogramStopWatchTest {
+
+    @Test
+    public void testSummaryPerPeriod() throws Exception {
+        HistogramStopWatch watch = new HistogramStopWatch("summary");
+        for(int i = 1; i <= 1000; i++)
+            watch.setElapsedTime(i);
+        Assert.assertEquals(0, watch.getWatchDataSource().getCurrentSize());
+        watch.checkValue();
+        watch.checkValue();
+        Calculable[] calcs = watch.getWatchDataSource().getCalculable();
+        Assert.assertEquals("Empty intervals are not recorded", 1, calcs.length);
+        HistogramCalculable summary = (HistogramCalculable)calcs[0];
+        Assert.assertEquals(1000, summary.getCount());
+        Assert.assertEquals(1000, summary.getMax());
+        Assert.assertEquals(990, summary.getValue(), 990 * 0.02);
+        Assert.assertEquals(500, summary.getP50(), 500 * 0.02);
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testMergeSummaries() throws Exception {
+        HistogramStopWatch fast = new HistogramStopWatch("fast");
+        HistogramStopWatch slow = new HistogramStopWatch("slow");
+        for(int i = 0; i < 990; i++)
+            fast.setElapsedTime(10);
+        for(int i = 0; i < 10; i++)
+            slow.setElapsedTime(500);
+        fast.checkValue();
+        slow.checkValue();
+        /* Merge the summaries the watch data sources hold, as a remote client would */
+        HistogramCalculable merged =
+            HistogramCalculable.merge("merged",
+                                      Arrays.asList((HistogramCalculable)fast.getWatchDataSource().getLastCalculable(),
+                                                    (HistogramCalculable)slow.getWatchDataSource().getLastCalculable()),
+                                      99.5);
+        Assert.assertEquals(1000, merged.getCount());
+        Assert.assertEquals(10, merged.getP99());
+        Assert.assertEquals(500, merged.getValue(), 500 * 0.02);
+        Assert.assertEquals(500, merged.getMax());
+        Utils.close(fast.getWatchDataSource());
+        Utils.close(slow.getWatchDataSource());
+    }
+
+    @Test
+    public void testStartStopTiming() throws Exception {
+        final HistogramStopWatch watch = new HistogramStopWatch("timing");
+        final CountDownLatch done = new CountDownLatch(4);
+        for(int i = 0; i < 4; i++) {
+            new Thread(() -> {
+                for(int j = 0; j < 25; j++) {
+                    watch.startTiming();
+                    watch.stopTiming();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        watch.checkValue();
+        HistogramCalculable summary = (HistogramCalculable)watch.getWatchDataSource().getLastCalculable();
+        Assert.assertEquals(100, summary.getCount());
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testPercentileThreshold() {
+        HistogramStopWatch watch = new HistogramStopWatch("sla");
+        watch.setThresholdValues(new ThresholdValues(0, 200));
+        final List<ThresholdType> types = new ArrayList<ThresholdType>();
+        watch.addThresholdListener((calculable, thresholdValues, type) -> types.add(type));
+
+        /* 2% of the elapsed times are slow, the 99th percentile breaches */
+        for(int i = 0; i < 980; i++)
+            watch.setElapsedTime(50);
+        for(int i = 0; i < 20; i++)
+            watch.setElapsedTime(400);
+        watch.checkValue();
+        Assert.assertEquals(1, types.size());
+        Assert.assertEquals(ThresholdType.BREACHED, types.get(0));
+
+        /* A single slow elapsed time in 1000 does not move the 99th percentile */
+        for(int i = 0; i < 999; i++)
+            watch.setElapsedTime(50);
+        watch.setElapsedTime(400);
+        watch.checkValue();
+        Assert.assertEquals(2, types.size());
+        Assert.assertEquals(ThresholdType.CLEARED, types.get(1));
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testSampledByScheduler() throws Exception {
+        HistogramStopWatch watch = new HistogramStopWatch("sampled");
+        watch.setPeriod(100);
+        for(int i = 0; i < 10; i++)
+            watch.setElapsedTime(i);
+        Utils.sleep(300);
+        Assert.assertEquals("Not sampled until started", 0, watch.getWatchDataSource().getCurrentSize());
+        watch.start();
+        Utils.sleep(500);
+        watch.stop();
+        Assert.assertTrue(watch.getWatchDataSource().getCurrentSize() > 0);
+        Utils.close(watch.getWatchDataSource());
+    }
+}
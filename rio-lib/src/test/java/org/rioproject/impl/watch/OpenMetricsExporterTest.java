@@ -0,0 +1,95 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.watch.Calculable;
+
+import java.io.StringWriter;
+import java.util.Collections;
+
+/**
+ * Tests the {@code OpenMetricsExporter} text format
+ */
+public class OpenMetricsExporterTest {
+
+    @Test
+    public void testWrite() throws Exception {
+        WatchDataSourceRegistry registry = new WatchDataSourceRegistry();
+        Watch gauge = new Watch("queue\"depth");
+        Watch empty = new Watch("empty");
+        HistogramStopWatch elapsed = new HistogramStopWatch("invoke");
+        try {
+            registry.register(gauge, empty, elapsed);
+            gauge.addWatchRecord(new Calculable("queue\"depth", 12, System.currentTimeMillis()));
+            elapsed.setElapsedTime(3);
+            elapsed.setElapsedTime(5);
+            elapsed.setElapsedTime(100);
+            elapsed.checkValue();
+
+            OpenMetricsExporter.Scope scope = new OpenMetricsExporter.Scope(registry, "ops", "Echo\\1", 1L);
+            OpenMetricsExporter exporter = new OpenMetricsExporter(null, () -> Collections.singletonList(scope));
+            StringWriter out = new StringWriter();
+            exporter.write(out);
+            String text = out.toString();
+
+            Assert.assertTrue(text, text.startsWith("# TYPE rio_watch gauge\n"));
+            Assert.assertTrue(text, text.contains(
+                "rio_watch{opstring=\"ops\",service=\"Echo\\\\1\",instance=\"1\",watch=\"queue\\\"depth\"} 12\n"));
+            Assert.assertFalse(text, text.contains("watch=\"empty\""));
+            Assert.assertTrue(text, text.contains("# TYPE rio_watch_elapsed_milliseconds histogram\n"));
+            String labels = "{opstring=\"ops\",service=\"Echo\\\\1\",instance=\"1\",watch=\"invoke\"";
+            Assert.assertTrue(text, text.contains("rio_watch_elapsed_milliseconds_bucket"+labels+",le=\"3.0\"} 1\n"));
+            Assert.assertTrue(text, text.contains("rio_watch_elapsed_milliseconds_bucket"+labels+",le=\"7.0\"} 2\n"));
+            Assert.assertTrue(text, text.contains("rio_watch_elapsed_milliseconds_bucket"+labels+",le=\"127.0\"} 3\n"));
+            Assert.assertTrue(text, text.contains("rio_watch_elapsed_milliseconds_bucket"+labels+",le=\"+Inf\"} 3\n"));
+            Assert.assertTrue(text, text.contains("rio_watch_elapsed_milliseconds_count"+labels+"} 3\n"));
+            Assert.assertTrue(text, text.contains("rio_watch_elapsed_milliseconds_sum"+labels+"} "));
+            Assert.assertFalse(text, text.contains("rio_compute_resource"));
+            Assert.assertTrue(text, text.endsWith("# EOF\n"));
+        } finally {
+            registry.deregister(gauge, empty, elapsed);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        OpenMetricsExporter exporter = new OpenMetricsExporter(null, Collections::emptyList);
+        StringWriter out = new StringWriter();
+        exporter.write(out);
+        Assert.assertEquals("# EOF\n", out.toString());
+        Assert.assertTrue(exporter.getContentType().startsWith("application/openmetrics-text"));
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        char[] buffer = new char[20];
+        StringWriter out = new StringWriter();
+        OpenMetricsExporter.writeDouble(out, 42, buffer);
+        out.write(' ');
+        OpenMetricsExporter.writeDouble(out, -7, buffer);
+        out.write(' ');
+        OpenMetricsExporter.writeDouble(out, 0.5, buffer);
+        out.write(' ');
+        OpenMetricsExporter.writeDouble(out, Double.NaN, buffer);
+        out.write(' ');
+        OpenMetricsExporter.writeDouble(out, Double.NEGATIVE_INFINITY, buffer);
+        out.write(' ');
+        OpenMetricsExporter.writeLong(out, Long.MAX_VALUE, buffer);
+        Assert.assertEquals("42 -7 0.5 NaN -Inf "+Long.MAX_VALUE, out.toString());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import net.jini.config.EmptyConfiguration;
+import org.junit.Test;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.watch.Calculable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the {@code QueuedReplicator}
+ */
+public class QueuedReplicatorTest {
+
+    @Test
+    public void testBatchedBySize() {
+        RecordingReplicator replicator = new RecordingReplicator(10, 60000, 100, QueuedReplicator.OverflowPolicy.DROP_OLDEST);
+        for(int i = 0; i < 30; i++)
+            replicator.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        waitFor(replicator, 30);
+        Assert.assertEquals(30, replicator.getReplicatedCount());
+        Assert.assertEquals(3, replicator.getBatchCount());
+        for(List<Calculable> batch : replicator.batches)
+            Assert.assertEquals(10, batch.size());
+        replicator.close();
+    }
+
+    @Test
+    public void testConfiguration() {
+        DynamicConfiguration config = new DynamicConfiguration();
+        config.setEntry(QueuedReplicator.COMPONENT, "batchSize", 20);
+        config.setEntry(QueuedReplicator.COMPONENT, "maxDelay", long.class, 500L);
+        config.setEntry(QueuedReplicator.COMPONENT, "capacity", 200);
+        config.setEntry(QueuedReplicator.COMPONENT,
+                        "overflowPolicy",
+                        QueuedReplicator.OverflowPolicy.class,
+                        QueuedReplicator.OverflowPolicy.SAMPLE);
+        WatchDataReplicatorProxy configured = WatchDataReplicatorProxy.getInstance(null, UUID.randomUUID(), config);
+        Assert.assertEquals(20, configured.getBatchSize());
+        Assert.assertEquals(500, configured.getMaxDelay());
+        Assert.assertEquals(200, configured.getCapacity());
+        Assert.assertEquals(QueuedReplicator.OverflowPolicy.SAMPLE, configured.getOverflowPolicy());
+
+        WatchDataReplicatorProxy defaults = WatchDataReplicatorProxy.getInstance(null,
+                                                                                 UUID.randomUUID(),
+                                                                                 EmptyConfiguration.INSTANCE);
+        Assert.assertEquals(QueuedReplicator.DEFAULT_BATCH_SIZE, defaults.getBatchSize());
+        Assert.assertEquals(QueuedReplicator.DEFAULT_MAX_DELAY, defaults.getMaxDelay());
+        Assert.assertEquals(QueuedReplicator.DEFAULT_CAPACITY, defaults.getCapacity());
+        Assert.assertEquals(QueuedReplicator.OverflowPolicy.DROP_OLDEST, defaults.getOverflowPolicy());
+    }
+
+    @Test
+    public void testBatchedByDelay() {
+        RecordingReplicator replicator = new RecordingReplicator(100, 200, 1000, QueuedReplicator.OverflowPolicy.DROP_OLDEST);
+        for(int i = 0; i < 5; i++)
+            replicator.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        Assert.assertEquals(0, replicator.getReplicatedCount());
+        waitFor(replicator, 5);
+        Assert.assertEquals(1, replicator.getBatchCount());
+        Assert.assertTrue(replicator.getLastLag() >= 150);
+        replicator.close();
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        RecordingReplicator replicator = blocked(QueuedReplicator.OverflowPolicy.DROP_OLDEST);
+        for(int i = 0; i < 100; i++)
+            replicator.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        Assert.assertEquals(10, replicator.getQueueSize());
+        replicator.release.countDown();
+        replicator.close();
+        Assert.assertEquals(101 - replicator.getReplicatedCount(), replicator.getDroppedCount());
+        Assert.assertEquals(99, last(replicator).getValue(), 0);
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        RecordingReplicator replicator = blocked(QueuedReplicator.OverflowPolicy.DROP_NEWEST);
+        for(int i = 0; i < 100; i++)
+            replicator.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        Assert.assertEquals(10, replicator.getQueueSize());
+        replicator.release.countDown();
+        replicator.close();
+        Assert.assertEquals(101 - replicator.getReplicatedCount(), replicator.getDroppedCount());
+        Assert.assertTrue(last(replicator).getValue() < 20);
+    }
+
+    @Test
+    public void testSample() throws Exception {
+        RecordingReplicator replicator = blocked(QueuedReplicator.OverflowPolicy.SAMPLE);
+        for(int i = 0; i < 1000; i++)
+            replicator.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        replicator.release.countDown();
+        replicator.close();
+        Assert.assertEquals(1001 - replicator.getReplicatedCount(), replicator.getDroppedCount());
+        Assert.assertTrue("Expected sampled records from the end of the run", last(replicator).getValue() > 900);
+    }
+
+    @Test
+    public void testCloseShipsQueued() {
+        RecordingReplicator replicator = new RecordingReplicator(10, 60000, 100, QueuedReplicator.OverflowPolicy.DROP_OLDEST);
+        for(int i = 0; i < 25; i++)
+            replicator.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        replicator.close();
+        Assert.assertEquals(25, replicator.getReplicatedCount());
+        Assert.assertTrue(replicator.resourceClosed);
+        replicator.addCalculable(new Calculable("id", 1, System.currentTimeMillis()));
+        Assert.assertEquals(0, replicator.getQueueSize());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        RecordingReplicator replicator = new RecordingReplicator(5, 100, 50, QueuedReplicator.OverflowPolicy.SAMPLE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(replicator);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        RecordingReplicator copy = (RecordingReplicator)in.readObject();
+        Assert.assertEquals(5, copy.getBatchSize());
+        Assert.assertEquals(50, copy.getCapacity());
+        Assert.assertEquals(QueuedReplicator.OverflowPolicy.SAMPLE, copy.getOverflowPolicy());
+        for(int i = 0; i < 5; i++)
+            copy.addCalculable(new Calculable("id", i, System.currentTimeMillis()));
+        copy.close();
+        Assert.assertEquals(5, copy.getReplicatedCount());
+    }
+
+    /*
+     * Create a replicator whose first batch blocks until released, so records back up in the queue
+     */
+    private RecordingReplicator blocked(final QueuedReplicator.OverflowPolicy policy) throws InterruptedException {
+        RecordingReplicator replicator = new RecordingReplicator(1, 0, 10, policy);
+        replicator.block = true;
+        replicator.addCalculable(new Calculable("id", -1, System.currentTimeMillis()));
+        replicator.blocked.await();
+        return replicator;
+    }
+
+    private Calculable last(final RecordingReplicator replicator) {
+        List<Calculable> batch = replicator.batches.get(replicator.batches.size() - 1);
+        return batch.get(batch.size() - 1);
+    }
+
+    private void waitFor(final QueuedReplicator replicator, final long count) {
+        long t0 = System.currentTimeMillis();
+        while(replicator.getReplicatedCount() < count && System.currentTimeMillis() - t0 < 10000)
+            Utils.sleep(10);
+    }
+
+    static class RecordingReplicator extends QueuedReplicator {
+        final List<List<Calculable>> batches = new ArrayList<List<Calculable>>();
+        transient CountDownLatch blocked = new CountDownLatch(1);
+        transient CountDownLatch release = new CountDownLatch(1);
+        boolean block;
+        boolean resourceClosed;
+
+        RecordingReplicator(final int batchSize, final long maxDelay, final int capacity, final OverflowPolicy policy) {
+            super(batchSize, maxDelay, capacity, policy, 10);
+        }
+
+        @Override
+        protected void replicate(final Calculable calculable) throws IOException {
+            List<Calculable> batch = new ArrayList<Calculable>();
+            batch.add(calculable);
+            bulkReplicate(batch);
+        }
+
+        @Override
+        protected void bulkReplicate(final Collection<Calculable> calculables) throws IOException {
+            if(block) {
+                block = false;
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            synchronized(batches) {
+                batches.add(new ArrayList<Calculable>(calculables));
+            }
+        }
+
+        @Override
+        protected void closeResource() {
+            resourceClosed = true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@code SamplingScheduler}
+ */
+public class SamplingSchedulerTest {
+
+    @Test
+    public void testSamePeriodSharesTickGroup() {
+        SamplingScheduler scheduler = SamplingScheduler.getInstance();
+        List<CountingWatch> watches = new ArrayList<CountingWatch>();
+        for(int i = 0; i < 20; i++) {
+            CountingWatch watch = new CountingWatch("watch-" + i, 0);
+            watch.setPeriod(250);
+            watch.start();
+            watches.add(watch);
+        }
+        TickStatistics statistics = getTickStatistics(scheduler, 250);
+        Assert.assertNotNull(statistics);
+        Assert.assertEquals(20, statistics.getWatchCount());
+        Assert.assertTrue(statistics.getJitter() < 25);
+
+        Utils.sleep(2000);
+        for(CountingWatch watch : watches) {
+            watch.stop();
+            Assert.assertTrue(watch.getId() + " sampled " + watch.count.get() + " times",
+                              watch.count.get() >= 5 && watch.count.get() <= 8);
+            Utils.close(watch.getWatchDataSource());
+        }
+        Assert.assertNull("Expected tick group to be removed", getTickStatistics(scheduler, 250));
+    }
+
+    @Test
+    public void testOverrun() {
+        SamplingScheduler scheduler = SamplingScheduler.getInstance();
+        CountingWatch watch = new CountingWatch("slow", 150);
+        watch.setPeriod(100);
+        watch.start();
+        Utils.sleep(1500);
+        TickStatistics statistics = getTickStatistics(scheduler, 100);
+        watch.stop();
+        Assert.assertNotNull(statistics);
+        Assert.assertTrue(statistics.getTickCount() > 0);
+        Assert.assertTrue("Expected overruns, " + statistics, statistics.getOverrunCount() > 0);
+        Assert.assertTrue(statistics.getLastTickDuration() >= 150);
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testMXBeanRegistered() throws Exception {
+        SamplingScheduler.getInstance();
+        ObjectName name = new ObjectName(SamplingScheduler.OBJECT_NAME);
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        Assert.assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TickStatistics"));
+    }
+
+    private TickStatistics getTickStatistics(SamplingScheduler scheduler, long period) {
+        for(TickStatistics statistics : scheduler.getTickStatistics()) {
+            if(statistics.getPeriod() == period)
+                return statistics;
+        }
+        return null;
+    }
+
+    private static class CountingWatch extends PeriodicWatch {
+        final AtomicInteger count = new AtomicInteger();
+        final long delay;
+
+        CountingWatch(String id, long delay) {
+            super(id);
+            this.delay = delay;
+        }
+
+        public void checkValue() {
+            count.incrementAndGet();
+            if(delay > 0)
+                Utils.sleep(delay);
+        }
+    }
+}
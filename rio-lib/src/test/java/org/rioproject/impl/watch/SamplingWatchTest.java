@@ -0,0 +1,89 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@code SamplingWatch} accessor binding
+ */
+public class SamplingWatchTest {
+
+    @Test
+    public void testSampleProperty() throws Exception {
+        SamplingWatch watch = new SamplingWatch("sampled");
+        Counter bean = new Counter();
+        watch.setBean(bean);
+        watch.setProperty("count");
+        try {
+            for(int i = 0; i < 3; i++)
+                watch.checkValue();
+            Assert.assertEquals(3, watch.getWatchDataSource().getCurrentSize());
+            Assert.assertEquals(3, watch.getLastCalculableValue(), 0);
+
+            watch.setProperty("ratio");
+            watch.checkValue();
+            Assert.assertEquals(0.5, watch.getLastCalculableValue(), 0);
+
+            /* A non-public class is bound as well */
+            watch.setBean(new Hidden());
+            watch.setProperty("value");
+            watch.checkValue();
+            Assert.assertEquals(42, watch.getLastCalculableValue(), 0);
+        } finally {
+            Utils.close(watch.getWatchDataSource());
+        }
+    }
+
+    @Test
+    public void testSetBean() throws Exception {
+        SamplingWatch watch = new SamplingWatch("rebound");
+        Counter first = new Counter();
+        watch.setBean(first);
+        watch.setAccessor(Counter.class.getMethod("getCount"));
+        try {
+            watch.checkValue();
+            Counter second = new Counter();
+            second.getCount();
+            second.getCount();
+            watch.setBean(second);
+            watch.checkValue();
+            Assert.assertEquals(3, watch.getLastCalculableValue(), 0);
+            Assert.assertEquals(1, first.count);
+        } finally {
+            Utils.close(watch.getWatchDataSource());
+        }
+    }
+
+    public static class Counter {
+        int count;
+
+        public int getCount() {
+            return ++count;
+        }
+
+        public Double getRatio() {
+            return 0.5;
+        }
+    }
+
+    static class Hidden {
+        public long getValue() {
+            return 42;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.watch.Calculable;
+import org.rioproject.watch.CounterCalculable;
+import org.rioproject.watch.ThresholdType;
+import org.rioproject.watch.ThresholdValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the {@code StripedCounterWatch}
+ */
+public class StripedCounterWatchTest {
+
+    @Test
+    public void testCounterMBeanMethods() throws Exception {
+        StripedCounterWatch watch = new StripedCounterWatch("watch");
+        watch.increment();
+        watch.increment(10);
+        watch.decrement();
+        watch.decrement(5, "detail");
+        Assert.assertEquals(5, watch.getCounter());
+        watch.setCounter(100);
+        Assert.assertEquals(100, watch.getCounter());
+        Assert.assertEquals("Changes are only published on flush", 0, watch.getWatchDataSource().getCurrentSize());
+        watch.checkValue();
+        watch.checkValue();
+        Calculable[] calcs = watch.getWatchDataSource().getCalculable();
+        Assert.assertEquals("Unchanged intervals are not recorded", 1, calcs.length);
+        Assert.assertEquals(100, calcs[0].getValue(), 0);
+        Assert.assertEquals(100, ((CounterCalculable)calcs[0]).getDelta());
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testConcurrentIncrement() throws Exception {
+        final StripedCounterWatch watch = new StripedCounterWatch("concurrent");
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for(int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for(int j = 0; j < 10000; j++)
+                    watch.increment();
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        watch.checkValue();
+        CounterCalculable calculable = (CounterCalculable)watch.getWatchDataSource().getLastCalculable();
+        Assert.assertEquals(threads * 10000, calculable.getValue(), 0);
+        Assert.assertTrue(calculable.getRate() > 0);
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testThresholdCheckedOnFlush() {
+        StripedCounterWatch watch = new StripedCounterWatch("threshold");
+        watch.setThresholdValues(new ThresholdValues(0, 50));
+        final List<ThresholdType> types = new ArrayList<ThresholdType>();
+        watch.addThresholdListener((calculable, thresholdValues, type) -> types.add(type));
+        for(int i = 0; i < 100; i++)
+            watch.increment();
+        Assert.assertEquals(0, types.size());
+        watch.checkValue();
+        Assert.assertEquals(1, types.size());
+        Assert.assertEquals(ThresholdType.BREACHED, types.get(0));
+        watch.decrement(90);
+        watch.checkValue();
+        Assert.assertEquals(ThresholdType.CLEARED, types.get(1));
+        Utils.close(watch.getWatchDataSource());
+    }
+
+    @Test
+    public void testFlushedByScheduler() throws Exception {
+        StripedCounterWatch watch = new StripedCounterWatch("flushed");
+        watch.setPeriod(100);
+        watch.increment(42);
+        Utils.sleep(300);
+        Assert.assertEquals("Not flushed until started", 0, watch.getWatchDataSource().getCurrentSize());
+        watch.start();
+        Utils.sleep(500);
+        watch.stop();
+        Assert.assertEquals(42, watch.getWatchDataSource().getLastCalculable().getValue(), 0);
+        Utils.close(watch.getWatchDataSource());
+    }
+}
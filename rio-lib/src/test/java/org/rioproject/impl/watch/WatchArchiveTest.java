@@ -0,0 +1,158 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rioproject.watch.Calculable;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Tests the {@code WatchArchiveReplicator} and {@code WatchArchiveReader}
+ */
+public class WatchArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRollBySize() throws Exception {
+        File dir = folder.newFolder("size");
+        /* 100 records per segment */
+        WatchArchiveReplicator replicator = new WatchArchiveReplicator(dir, 128 + 100 * 16, Long.MAX_VALUE);
+        for(int i = 0; i < 1050; i++)
+            replicator.addCalculable(new Calculable("watch", i, 1000 + i));
+        replicator.close();
+        Assert.assertEquals(11, WatchArchive.segments(dir).length);
+
+        WatchArchiveReader reader = new WatchArchiveReader(dir);
+        Assert.assertEquals(1050, reader.size());
+        List<Calculable> range = reader.read(1250, 1749);
+        Assert.assertEquals(500, range.size());
+        for(int i = 0; i < range.size(); i++) {
+            Assert.assertEquals("watch", range.get(i).getId());
+            Assert.assertEquals(1250 + i, range.get(i).getWhen());
+            Assert.assertEquals(250 + i, range.get(i).getValue(), 0);
+        }
+        Assert.assertEquals(1, reader.read(2049, 5000).size());
+        Assert.assertEquals(0, reader.read(3000, 5000).size());
+        Assert.assertEquals(1050, reader.readAll().size());
+    }
+
+    @Test
+    public void testRollByTime() throws Exception {
+        File dir = folder.newFolder("time");
+        WatchArchiveReplicator replicator = new WatchArchiveReplicator(dir, WatchArchiveReplicator.DEFAULT_MAX_SEGMENT_SIZE, 1000);
+        for(int i = 0; i < 100; i++)
+            replicator.addCalculable(new Calculable("watch", i, i * 100));
+        replicator.close();
+        Assert.assertEquals(10, WatchArchive.segments(dir).length);
+        List<Calculable> range = new WatchArchiveReader(dir).read(950, 2050);
+        Assert.assertEquals(11, range.size());
+        Assert.assertEquals(1000, range.get(0).getWhen());
+        Assert.assertEquals(2000, range.get(10).getWhen());
+    }
+
+    @Test
+    public void testReopenAndOutOfOrder() throws Exception {
+        File dir = folder.newFolder("reopen");
+        WatchArchiveReplicator replicator = new WatchArchiveReplicator(dir);
+        for(int i = 0; i < 10; i++)
+            replicator.addCalculable(new Calculable("watch", i, 1000 + i));
+        replicator.close();
+
+        replicator = new WatchArchiveReplicator(dir);
+        for(int i = 10; i < 20; i++)
+            replicator.addCalculable(new Calculable("watch", i, 1000 + i));
+        Assert.assertEquals("Expected to append to the existing segment", 1, WatchArchive.segments(dir).length);
+        /* The clock was set back */
+        replicator.addCalculable(new Calculable("watch", 20, 500));
+
+        WatchArchiveReader reader = new WatchArchiveReader(dir);
+        List<Calculable> all = reader.readAll();
+        replicator.close();
+        Assert.assertEquals(21, all.size());
+        Assert.assertEquals(2, WatchArchive.segments(dir).length);
+        Assert.assertEquals(500, all.get(0).getWhen());
+        for(int i = 1; i < all.size(); i++)
+            Assert.assertEquals(999 + i, all.get(i).getWhen());
+    }
+
+    @Test
+    public void testReopenWithDifferentSegmentSize() throws Exception {
+        File dir = folder.newFolder("resized");
+        WatchArchiveReplicator replicator = new WatchArchiveReplicator(dir, 128 + 100 * 16, Long.MAX_VALUE);
+        for(int i = 0; i < 50; i++)
+            replicator.addCalculable(new Calculable("watch", i, 1000 + i));
+        replicator.close();
+        File first = WatchArchive.segments(dir)[0];
+        long length = first.length();
+
+        /* A smaller segment size must not truncate the existing segment */
+        replicator = new WatchArchiveReplicator(dir, 128 + 10 * 16, Long.MAX_VALUE);
+        Assert.assertEquals(length, first.length());
+        for(int i = 50; i < 55; i++)
+            replicator.addCalculable(new Calculable("watch", i, 1000 + i));
+        replicator.close();
+        Assert.assertEquals(length, first.length());
+        Assert.assertEquals(2, WatchArchive.segments(dir).length);
+        List<Calculable> all = new WatchArchiveReader(dir).readAll();
+        Assert.assertEquals(55, all.size());
+        for(int i = 0; i < all.size(); i++)
+            Assert.assertEquals(1000 + i, all.get(i).getWhen());
+    }
+
+    @Test
+    public void testReopenUnrecognizedSegment() throws Exception {
+        File dir = folder.newFolder("foreign");
+        File foreign = new File(dir, WatchArchive.segmentName(1000, 0));
+        try (PrintWriter writer = new PrintWriter(new FileWriter(foreign))) {
+            writer.println("not a watch archive");
+        }
+        long length = foreign.length();
+        WatchArchiveReplicator replicator = new WatchArchiveReplicator(dir);
+        replicator.addCalculable(new Calculable("watch", 1, 2000));
+        replicator.close();
+        Assert.assertEquals(length, foreign.length());
+        Assert.assertEquals(2, WatchArchive.segments(dir).length);
+        Assert.assertEquals(1, new WatchArchiveReader(dir).readAll().size());
+    }
+
+    @Test
+    public void testConvert() throws Exception {
+        File log = folder.newFile("watch.log");
+        long now = System.currentTimeMillis();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(log))) {
+            for(int i = 0; i < 100; i++) {
+                Calculable calculable = new Calculable("watch", i, now + i);
+                if(i % 2 == 0)
+                    calculable.setDetail("detail-" + i);
+                writer.println(calculable.toString());
+            }
+        }
+        File dir = new File(folder.getRoot(), "converted");
+        Assert.assertEquals(100, WatchArchiveReplicator.convert(log.toURI().toURL(), dir));
+        List<Calculable> all = new WatchArchiveReader(dir).readAll();
+        Assert.assertEquals(100, all.size());
+        Assert.assertEquals(now + 99, all.get(99).getWhen());
+        Assert.assertEquals(99, all.get(99).getValue(), 0);
+    }
+}
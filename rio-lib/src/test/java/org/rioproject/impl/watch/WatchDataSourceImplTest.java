@@ -437,6 +437,34 @@ public class WatchDataSourceImplTest {
         impl.close();
     }
 
+    /**
+     * Tests the history when the <code>ringBufferHistory</code> entry is set.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test public void testRingBufferHistory() throws Exception {
+        DynamicConfiguration config = new DynamicConfiguration();
+        config.setEntry("org.rioproject.watch", "collectionSize", 10);
+        config.setEntry("org.rioproject.watch", "ringBufferHistory", boolean.class, true);
+        WatchDataSourceImpl impl = new WatchDataSourceImpl("watch", config);
+        assertAddCalculableWorks(impl, 10, true);
+
+        for (int j = 0; j < 25; j++) {
+            impl.addCalculable(new Calculable("watch", j, j));
+        }
+        Assert.assertEquals(10, impl.getCurrentSize());
+        Calculable[] calcs = impl.getCalculable();
+        Assert.assertEquals(15, calcs[0].getWhen());
+        Assert.assertEquals(24, impl.getLastCalculable().getWhen());
+        Assert.assertEquals(3, impl.getCalculable(20, 22).length);
+
+        impl.setMaxSize(5);
+        Assert.assertEquals(5, impl.getCurrentSize());
+        Assert.assertEquals(20, impl.getCalculable()[0].getWhen());
+
+        impl.close();
+    }
+
     /**
      * Tests the <code>getCurrentSize()</code> method.
      *
@@ -497,7 +525,7 @@ public class WatchDataSourceImplTest {
                 impl.setID("watch");
                 impl.setConfiguration(config);
                 if(wdrClass.equals(RemoteWDR.class.getName()))
-                    impl.addWatchDataReplicator(((RemoteWDR)wdr).getWatchDataReplicator());
+                    impl.addWatchDataReplicator(((RemoteWDR)wdr).getWatchDataReplicator(config));
                 else
                     impl.addWatchDataReplicator(wdr);
                 impl.initialize();
@@ -633,6 +661,53 @@ public class WatchDataSourceImplTest {
         impl.close();
     }
 
+    /**
+     * Tests the <code>getCalculable(long, long)</code>, <code>getAggregated</code> and
+     * <code>getDownsampled</code> methods.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test public void testRangeQueries() throws Exception {
+        for(boolean ringBufferHistory : new boolean[]{false, true}) {
+            DynamicConfiguration config = new DynamicConfiguration();
+            config.setEntry("org.rioproject.watch", "collectionSize", 1000);
+            config.setEntry("org.rioproject.watch", "ringBufferHistory", boolean.class, ringBufferHistory);
+            WatchDataSourceImpl impl = new WatchDataSourceImpl("watch", config);
+            for (int j = 0; j < 1000; j++)
+                impl.addCalculable(new Calculable("watch", j % 10, 1000 + j));
+            Calculable[] range = impl.getCalculable(1100, 1199);
+            Assert.assertEquals(100, range.length);
+            Assert.assertEquals(1100, range[0].getWhen());
+            Assert.assertEquals(1199, range[99].getWhen());
+
+            CalculableBucket[] buckets = impl.getAggregated(1000, 1999, 100);
+            Assert.assertEquals(10, buckets.length);
+            for(int i = 0; i < buckets.length; i++) {
+                Assert.assertEquals(1000 + i * 100, buckets[i].getStart());
+                Assert.assertEquals(100, buckets[i].getCount());
+                Assert.assertEquals(0, buckets[i].getMin(), 0);
+                Assert.assertEquals(9, buckets[i].getMax(), 0);
+                Assert.assertEquals(4.5, buckets[i].getMean(), 0.0001);
+                Assert.assertEquals(9, buckets[i].getLast(), 0);
+            }
+            Assert.assertEquals(0, impl.getAggregated(5000, 6000, 100).length);
+
+            Calculable[] downsampled = impl.getDownsampled(1000, 1999, 50);
+            Assert.assertEquals(50, downsampled.length);
+            Assert.assertEquals(1000, downsampled[0].getWhen());
+            Assert.assertEquals(1999, downsampled[49].getWhen());
+            impl.close();
+        }
+
+        /* History that is not in time order is scanned */
+        WatchDataSourceImpl impl = new WatchDataSourceImpl("watch", EmptyConfiguration.INSTANCE);
+        impl.addCalculable(new Calculable("watch", 1, 300));
+        impl.addCalculable(new Calculable("watch", 1, 100));
+        impl.addCalculable(new Calculable("watch", 1, 200));
+        Assert.assertEquals(2, impl.getCalculable(150, 350).length);
+        impl.close();
+    }
+
     /**
      * Tests the <code>getLastCalculable()<code> method.
      *
@@ -1002,13 +1077,13 @@ public class WatchDataSourceImplTest {
             super();
         }
 
-        WatchDataReplicator getWatchDataReplicator() throws ExportException {
+        WatchDataReplicator getWatchDataReplicator(Configuration config) throws ExportException {
             exporter = new BasicJeriExporter(TcpServerEndpoint.getInstance(0),
                                              new BasicILFactory(),
                                              false,
                                              true);
             RemoteWatchDataReplicator backend = (RemoteWatchDataReplicator)exporter.export(this);
-            return WatchDataReplicatorProxy.getInstance(backend, UUID.randomUUID());
+            return WatchDataReplicatorProxy.getInstance(backend, UUID.randomUUID(), config);
         }
 
         public void replicate(Calculable c) {
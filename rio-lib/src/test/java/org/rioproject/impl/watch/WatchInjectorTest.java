@@ -0,0 +1,128 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.impl.watch;
+
+import net.jini.config.EmptyConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.servicebean.ServiceBeanContext;
+import org.rioproject.watch.WatchDescriptor;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@code WatchInjector} MBean attribute watches
+ */
+public class WatchInjectorTest {
+
+    @Test
+    public void testMBeanWatches() throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        MBeanServerConnection connection = (MBeanServerConnection)Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class[]{MBeanServerConnection.class},
+            (proxy, method, args) -> {
+                calls.computeIfAbsent(method.getName(), k -> new AtomicInteger()).incrementAndGet();
+                try {
+                    return method.invoke(mbs, args);
+                } catch(InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        WatchDataSourceRegistry registry = new WatchDataSourceRegistry();
+        ServiceBeanContext context = (ServiceBeanContext)Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class[]{ServiceBeanContext.class},
+            (proxy, method, args) -> {
+                if(method.getName().equals("getWatchRegistry"))
+                    return registry;
+                if(method.getName().equals("getConfiguration"))
+                    return EmptyConfiguration.INSTANCE;
+                throw new UnsupportedOperationException(method.getName());
+            });
+        ObjectName name = new ObjectName("org.rioproject.test:type=WatchInjectorTest");
+        WatchInjector injector = new WatchInjector(new Object(), context);
+        try {
+            String[] attributes = {"Count", "Size", "Count"};
+            for(int i = 0; i < attributes.length; i++) {
+                WatchDescriptor descriptor = new WatchDescriptor("watch-"+i, 60 * 1000);
+                descriptor.setObjectName(name.toString());
+                descriptor.setAttribute(attributes[i]);
+                descriptor.setMBeanServerConnection(connection);
+                Assert.assertNull(injector.inject(descriptor));
+            }
+            Assert.assertEquals(0, injector.getWatchNames().length);
+
+            /* Registering the MBean creates the watches */
+            mbs.registerMBean(new Sample(), name);
+            Assert.assertEquals(3, injector.getWatchNames().length);
+            Assert.assertEquals(3, calls.get("addNotificationListener").get());
+            Assert.assertEquals(3, calls.get("removeNotificationListener").get());
+
+            for(int tick = 1; tick <= 3; tick++) {
+                for(int i = 0; i < attributes.length; i++)
+                    ((SamplingWatch)registry.findWatch("watch-"+i)).checkValue();
+                Assert.assertEquals("One read per tick", tick, calls.get("getAttributes").get());
+            }
+            Assert.assertNull(calls.get("getAttribute"));
+            Assert.assertEquals(3, registry.findWatch("watch-0").getLastCalculableValue(), 0);
+            Assert.assertEquals(10, registry.findWatch("watch-1").getLastCalculableValue(), 0);
+            Assert.assertEquals(3, registry.findWatch("watch-2").getLastCalculableValue(), 0);
+
+            /* An MBean that is already registered creates the watch immediately */
+            WatchDescriptor descriptor = new WatchDescriptor("registered", 60 * 1000);
+            descriptor.setObjectName(name.toString());
+            descriptor.setAttribute("Size");
+            descriptor.setMBeanServerConnection(connection);
+            injector.inject(descriptor);
+            Assert.assertNotNull(registry.findWatch("registered"));
+            Assert.assertEquals(calls.get("addNotificationListener").get(), calls.get("removeNotificationListener").get());
+        } finally {
+            for(String watchName : injector.getWatchNames()) {
+                ((SamplingWatch)registry.findWatch(watchName)).stop();
+                injector.remove(watchName);
+            }
+            injector.terminate();
+            mbs.unregisterMBean(name);
+        }
+    }
+
+    public interface SampleMBean {
+        int getCount();
+        long getSize();
+    }
+
+    public static class Sample implements SampleMBean {
+        private int count;
+
+        public int getCount() {
+            return ++count;
+        }
+
+        public long getSize() {
+            return 10;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.rmi.UnmarshalException;
+import java.util.Arrays;
+
+/**
+ * Tests the {@code CalculableBatch} serialized form
+ */
+public class CalculableBatchTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Calculable detailed = new Calculable("cpu", 0.25, 1000);
+        detailed.setDetail("detail");
+        StopWatchCalculable stopWatch = new StopWatchCalculable("elapsed", 42, 1005);
+        stopWatch.setValue(42.5);
+        Calculable[] calculables = new Calculable[] {
+            new Calculable("cpu", 0.5, 2000),
+            detailed,
+            new Calculable(null, 7, 900),
+            stopWatch,
+            new CounterCalculable("counter", 100, 10, 1000, 3000),
+            new Calculable("cpu", Double.NaN, Long.MIN_VALUE),
+            new Calculable("cpu", -0.0, 4000),
+            new Calculable("cpu", -5, 4001),
+            new Calculable("cpu", 1e300, 4002),
+            new Calculable("cpu", Double.NEGATIVE_INFINITY, 4003)
+        };
+        CalculableBatch batch = roundTrip(new CalculableBatch(calculables));
+        Assert.assertEquals(calculables.length, batch.size());
+        for(int i = 0; i < calculables.length; i++) {
+            Assert.assertSame(calculables[i].getClass(), batch.get(i).getClass());
+            Assert.assertEquals(calculables[i].getId(), batch.get(i).getId());
+            Assert.assertEquals(Double.doubleToLongBits(calculables[i].getValue()),
+                                Double.doubleToLongBits(batch.get(i).getValue()));
+            Assert.assertEquals(calculables[i].getWhen(), batch.get(i).getWhen());
+            Assert.assertEquals(calculables[i].getDetail(), batch.get(i).getDetail());
+        }
+        CounterCalculable counter = (CounterCalculable)batch.get(4);
+        Assert.assertEquals(10, counter.getDelta());
+        Assert.assertEquals(1000, counter.getInterval());
+        Assert.assertEquals(0, roundTrip(new CalculableBatch()).size());
+    }
+
+    @Test
+    public void testSmallerThanArray() throws Exception {
+        Calculable[] calculables = new Calculable[1000];
+        long now = System.currentTimeMillis();
+        for(int i = 0; i < calculables.length; i++)
+            calculables[i] = new StopWatchCalculable("org.rioproject.example.Service.invoke", i % 50, now + i * 10);
+        int arraySize = serialize(calculables).length;
+        int batchSize = serialize(new CalculableBatch(Arrays.asList(calculables))).length;
+        Assert.assertTrue("Expected batch "+batchSize+" to be less than a fifth of "+arraySize,
+                          batchSize * 5 < arraySize);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullElement() {
+        new CalculableBatch(new Calculable[] {new Calculable(), null});
+    }
+
+    @Test
+    public void testGetCalculableFromOlderExport() throws Exception {
+        final Calculable[] calculables = new Calculable[] {new Calculable("cpu", 0.5, 1000)};
+        WatchDataSource watchDataSource =
+            (WatchDataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                     new Class[]{WatchDataSource.class},
+                                                     (proxy, method, args) -> {
+                if(method.getName().equals("getCalculableBatch"))
+                    throw new UnmarshalException("unrecognized method hash");
+                if(method.getName().equals("getCalculable"))
+                    return calculables;
+                throw new UnsupportedOperationException(method.getName());
+            });
+        Assert.assertArrayEquals(calculables,
+                                 CalculableBatch.getCalculable(watchDataSource, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    private static byte[] serialize(final Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static CalculableBatch roundTrip(final CalculableBatch batch) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(batch)));
+        return (CalculableBatch)in.readObject();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@code CalculableDownsampler}
+ */
+public class CalculableDownsamplerTest {
+
+    @Test
+    public void testAggregateSkipsEmptyBuckets() {
+        Calculable[] calculables = new Calculable[] {
+            new Calculable("id", 1, 0), new Calculable("id", 3, 5), new Calculable("id", 10, 35)
+        };
+        CalculableBucket[] buckets = CalculableDownsampler.aggregate(calculables, 0, 100, 10);
+        Assert.assertEquals(2, buckets.length);
+        Assert.assertEquals(0, buckets[0].getStart());
+        Assert.assertEquals(10, buckets[0].getEnd());
+        Assert.assertEquals(2, buckets[0].getCount());
+        Assert.assertEquals(2, buckets[0].getMean(), 0);
+        Assert.assertEquals(3, buckets[0].getLast(), 0);
+        Assert.assertEquals(5, buckets[0].getLastWhen());
+        Assert.assertEquals(30, buckets[1].getStart());
+        Assert.assertEquals(1, buckets[1].getCount());
+    }
+
+    @Test
+    public void testAggregateOpenLowerBound() {
+        Calculable[] calculables = new Calculable[] {
+            new Calculable("id", 1, 1000), new Calculable("id", 3, 1005), new Calculable("id", 10, 1035)
+        };
+        CalculableBucket[] buckets = CalculableDownsampler.aggregate(calculables, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+        Assert.assertEquals(2, buckets.length);
+        Assert.assertEquals(1000, buckets[0].getStart());
+        Assert.assertEquals(1010, buckets[0].getEnd());
+        Assert.assertEquals(2, buckets[0].getCount());
+        Assert.assertEquals(2, buckets[0].getMean(), 0);
+        Assert.assertEquals(1030, buckets[1].getStart());
+        Assert.assertEquals(1, buckets[1].getCount());
+        Assert.assertEquals(10, buckets[1].getLast(), 0);
+    }
+
+    @Test
+    public void testLttbKeepsPeaks() {
+        Calculable[] calculables = new Calculable[10000];
+        for(int i = 0; i < calculables.length; i++)
+            calculables[i] = new Calculable("id", i == 4321 ? 1000 : Math.sin(i / 100.0), i);
+        Calculable[] sampled = CalculableDownsampler.lttb(calculables, 100);
+        Assert.assertEquals(100, sampled.length);
+        Assert.assertSame(calculables[0], sampled[0]);
+        Assert.assertSame(calculables[9999], sampled[99]);
+        boolean peak = false;
+        for(int i = 1; i < sampled.length; i++) {
+            Assert.assertTrue(sampled[i].getWhen() > sampled[i - 1].getWhen());
+            if(sampled[i].getValue() == 1000)
+                peak = true;
+        }
+        Assert.assertTrue("Expected the peak to be kept", peak);
+        Assert.assertSame(calculables, CalculableDownsampler.lttb(calculables, 20000));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Tests the {@code Histogram} and {@code HistogramCalculable}
+ */
+public class HistogramTest {
+
+    @Test
+    public void testIndexRoundTrip() {
+        Histogram histogram = new Histogram(3600000);
+        for(long value = 0; value < 3600000; value += 997) {
+            int index = histogram.indexFor(value);
+            Assert.assertTrue(value + " below bucket " + index, histogram.lowestValueAt(index) <= value);
+            Assert.assertTrue(value + " above bucket " + index, histogram.highestValueAt(index) >= value);
+        }
+        Assert.assertEquals(histogram.getBucketCount() - 1, histogram.indexFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentileAccuracy() {
+        Histogram histogram = new Histogram(3600000);
+        for(long value = 1; value <= 100000; value++)
+            histogram.recordValue(value);
+        Assert.assertEquals(100000, histogram.getTotalCount());
+        Assert.assertEquals(1, histogram.getMinValue());
+        Assert.assertEquals(100000, histogram.getMaxValue());
+        assertWithin(50000, histogram.getValueAtPercentile(50));
+        assertWithin(90000, histogram.getValueAtPercentile(90));
+        assertWithin(99000, histogram.getValueAtPercentile(99));
+        assertWithin(99900, histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(100000, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(50000.5, histogram.getMean(), 50000.5 * 0.02);
+    }
+
+    @Test
+    public void testMerge() {
+        Histogram fast = new Histogram(3600000);
+        Histogram slow = new Histogram(3600000);
+        for(int i = 0; i < 990; i++)
+            fast.recordValue(10);
+        for(int i = 0; i < 10; i++)
+            slow.recordValue(500);
+        HistogramCalculable merged = HistogramCalculable.merge("merged",
+                                                               Arrays.asList(new HistogramCalculable("a", fast, 99, 1),
+                                                                             new HistogramCalculable("b", slow, 99, 2)),
+                                                               99.5);
+        Assert.assertNotNull(merged);
+        Assert.assertEquals(1000, merged.getCount());
+        Assert.assertEquals(2, merged.getWhen());
+        Assert.assertEquals(10, merged.getP50());
+        Assert.assertEquals(10, merged.getP99());
+        assertWithin(500, (long)merged.getValue());
+        Assert.assertEquals(500, merged.getMax());
+        Assert.assertNull(HistogramCalculable.merge("empty", Arrays.<HistogramCalculable>asList(), 99));
+        try {
+            fast.merge(new Histogram(1000));
+            Assert.fail("Expected IllegalArgumentException merging different layouts");
+        } catch(IllegalArgumentException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Histogram histogram = new Histogram(3600000);
+        for(long value = 0; value < 5000; value += 3)
+            histogram.recordValue(value);
+        HistogramCalculable calculable = new HistogramCalculable("id", histogram, 99, System.currentTimeMillis());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(calculable);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        HistogramCalculable copy = (HistogramCalculable)in.readObject();
+        Assert.assertEquals(calculable.getValue(), copy.getValue(), 0);
+        Assert.assertEquals(calculable.getCount(), copy.getCount());
+        Assert.assertEquals(calculable.getP50(), copy.getP50());
+        Assert.assertEquals(calculable.getP999(), copy.getP999());
+        Assert.assertEquals(calculable.getMax(), copy.getMax());
+        Assert.assertEquals(calculable.getMean(), copy.getMean(), 0);
+        Histogram copied = copy.getHistogram();
+        for(int i = 0; i < histogram.getBucketCount(); i++)
+            Assert.assertEquals(histogram.getCountAtIndex(i), copied.getCountAtIndex(i));
+        Assert.assertEquals(histogram.getMinValue(), copied.getMinValue());
+        Assert.assertEquals(histogram.getMaxValue(), copied.getMaxValue());
+        /* Only the non-empty buckets are carried */
+        Assert.assertTrue(bytes.size() < histogram.getBucketCount() * 8);
+    }
+
+    private void assertWithin(final long expected, final long actual) {
+        Assert.assertEquals(expected, actual, expected * 0.02);
+    }
+}
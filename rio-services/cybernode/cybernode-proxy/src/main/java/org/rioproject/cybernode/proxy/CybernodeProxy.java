@@ -96,6 +96,12 @@ public class CybernodeProxy extends AbstractProxy implements Cybernode, Serializ
         return (cybernodeProxy.instantiate(event));
     }
 
+    /** @see org.rioproject.deploy.ServiceBeanInstantiator#instantiate(ServiceProvisionEvent[]) */
+    public DeployedService[] instantiate(final ServiceProvisionEvent[] events)
+    throws ServiceBeanInstantiationException, UnknownEventException, RemoteException {
+        return (cybernodeProxy.instantiate(events));
+    }
+
     /** @see org.rioproject.deploy.ServiceBeanInstantiator#getServiceStatements */
     public ServiceStatement[] getServiceStatements() throws RemoteException {
         return (cybernodeProxy.getServiceStatements());
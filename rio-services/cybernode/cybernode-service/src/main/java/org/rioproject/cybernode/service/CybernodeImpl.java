@@ -64,6 +64,7 @@ import org.rioproject.impl.system.SystemCapabilities;
 import org.rioproject.impl.system.measurable.MeasurableCapability;
 import org.rioproject.impl.util.BannerProvider;
 import org.rioproject.impl.util.BannerProviderImpl;
+import org.rioproject.impl.watch.OpenMetricsExporter;
 import org.rioproject.impl.watch.ThreadDeadlockMonitor;
 import org.rioproject.impl.watch.ThresholdListener;
 import org.rioproject.impl.watch.ThresholdWatch;
@@ -86,6 +87,8 @@ import org.rioproject.watch.Calculable;
 import org.rioproject.watch.ThresholdType;
 import org.rioproject.watch.ThresholdValues;
 import org.rioproject.watch.WatchDescriptor;
+import org.rioproject.web.WebsterService;
+import org.rioproject.web.WebsterServiceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -103,8 +106,14 @@ import java.rmi.RemoteException;
 import java.rmi.registry.Registry;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.rioproject.config.Constants.REGISTRY_PORT;
@@ -156,6 +165,8 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
     //PersistentStore store;
     /** ThreadPool for SLAThresholdEvent processing */
     private Executor thresholdTaskPool;
+    /** ThreadPool for starting the instances of a batched instantiate request */
+    private ExecutorService instantiationPool;
     private ComputeResourcePolicyHandler computeResourcePolicyHandler;
     /** This flag indicates whether the Cybernode has been configured to install
      * external software  defined by ServiceBean instances */
@@ -175,6 +186,9 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
     private ServiceRecordUpdateTask serviceRecordUpdateTask;
     private int registryPort;
     private String instantiatorID;
+    /** Serves the watches in the OpenMetrics text format, if configured */
+    private WebsterService metricsEndpoint;
+    private OpenMetricsExporter.Scope metricsScope;
 
     /**
      * Create a Cybernode
@@ -215,6 +229,8 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
             if (computeResourcePolicyHandler!=null) {
                 computeResourcePolicyHandler.terminate();
             }
+            if (metricsEndpoint!=null)
+                metricsEndpoint.terminate();
             /* Shutdown the ComputeResource */
             if (computeResource!=null)
                 computeResource.shutdown();
@@ -241,6 +257,8 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
         /* Stop the timer */
         if (taskTimer!=null)
             taskTimer.cancel();
+        if (instantiationPool!=null)
+            instantiationPool.shutdownNow();
         try {
             unadvertise();
         } catch (IOException e) {
@@ -629,7 +647,6 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
             threadDeadlockDescriptor.setPeriod(threadDeadlockCheck);
             Method getThreadDeadlockCalculable = ThreadDeadlockMonitor.class.getMethod("getThreadDeadlockCalculable");
             ThreadDeadlockMonitor threadDeadlockMonitor = new ThreadDeadlockMonitor();
-            threadDeadlockMonitor.setThreadMXBean(ManagementFactory.getThreadMXBean());
 
             WatchInjector watchInjector = new WatchInjector(this, context);
             ThresholdWatch watch = (ThresholdWatch)watchInjector.inject(threadDeadlockDescriptor,
@@ -779,6 +796,28 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
          * Create a thread pool for processing SLAThresholdEvent
          */
         thresholdTaskPool = Executors.newCachedThreadPool();
+        /*
+         * Create a bounded thread pool for starting the instances of batched
+         * instantiate requests
+         */
+        int maxConcurrentInstantiations = 4;
+        try {
+            maxConcurrentInstantiations = Config.getIntEntry(config,
+                                                             getConfigComponent(),
+                                                             "maxConcurrentInstantiations",
+                                                             maxConcurrentInstantiations,
+                                                             1,
+                                                             Integer.MAX_VALUE);
+        } catch(Throwable t) {
+            logger.warn("Exception getting maxConcurrentInstantiations", t);
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrentInstantiations,
+                                                         maxConcurrentInstantiations,
+                                                         60,
+                                                         TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        instantiationPool = pool;
         /*
          * Create event descriptor for the SLAThresholdEvent and add it as
          * an attribute
@@ -825,6 +864,23 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
                                                                         makeServiceBeanInstance());
         computeResource.addThresholdListener(computeResourcePolicyHandler);
 
+        /* Get the port to serve watches from for OpenMetrics scraping. A
+         * negative value (the default) disables the endpoint, zero uses an
+         * anonymous port */
+        int metricsPort = Config.getIntEntry(config, getConfigComponent(), "metricsPort", -1, -1, 65535);
+        if (metricsPort!=-1) {
+            ServiceElement elem = context.getServiceElement();
+            metricsScope = new OpenMetricsExporter.Scope(getWatchRegistry(),
+                                                         elem.getOperationalStringName(),
+                                                         elem.getName(),
+                                                         elem.getServiceBeanConfig().getInstanceID());
+            metricsEndpoint = WebsterServiceFactory.createContentServer(metricsPort,
+                                                                        "/metrics",
+                                                                        new OpenMetricsExporter(computeResource,
+                                                                                                this::getMetricsScopes));
+            logger.info("Serving OpenMetrics from {}", metricsEndpoint.getURI().resolve("/metrics"));
+        }
+
         /* Ensure we have a serviceID */
         if (serviceID == null) {
             serviceID = new ServiceID(getUuid().getMostSignificantBits(), getUuid().getLeastSignificantBits());
@@ -975,6 +1031,26 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
         }
     }
 
+    /*
+     * Get the watch registries of the Cybernode and of each service instantiated
+     * in this JVM. Forked services are not included, their watches are in
+     * another JVM
+     */
+    private Collection<OpenMetricsExporter.Scope> getMetricsScopes() {
+        List<OpenMetricsExporter.Scope> scopes = new ArrayList<>();
+        scopes.add(metricsScope);
+        if (container instanceof ServiceBeanContainerImpl) {
+            for (ServiceBeanDelegate delegate : ((ServiceBeanContainerImpl)container).getDelegates()) {
+                if (!(delegate instanceof ServiceBeanDelegateImpl))
+                    continue;
+                OpenMetricsExporter.Scope scope = ((ServiceBeanDelegateImpl)delegate).getMetricsScope();
+                if (scope!=null)
+                    scopes.add(scope);
+            }
+        }
+        return scopes;
+    }
+
     /**
      * Get the enlisted state
      */
@@ -1103,6 +1179,42 @@ public class CybernodeImpl extends ServiceBeanAdapter implements Cybernode,
         return container;
     }
 
+    /**
+     * Instantiate a group of services. The first instance is created on the
+     * calling thread, resolving the service's artifacts, if it cannot be
+     * created no other instances are created. The remaining instances are
+     * created concurrently on a bounded thread pool, and use the artifacts
+     * resolved for the first
+     *
+     * @see org.rioproject.deploy.ServiceBeanInstantiator#instantiate(ServiceProvisionEvent[])
+     */
+    public DeployedService[] instantiate(ServiceProvisionEvent[] events)
+        throws ServiceBeanInstantiationException, UnknownEventException {
+        DeployedService[] deployedServices = new DeployedService[events.length];
+        if (events.length == 0)
+            return deployedServices;
+        loaderLogger.info("Instantiating {} instances of {}", events.length, ServiceLogUtil.logName(events[0]));
+        /* The first instance resolves the service's artifacts, if it fails the batch fails */
+        deployedServices[0] = instantiate(events[0]);
+        List<Future<DeployedService>> futures = new ArrayList<>();
+        for (int i = 1; i < events.length; i++) {
+            final ServiceProvisionEvent event = events[i];
+            futures.add(instantiationPool.submit(() -> instantiate(event)));
+        }
+        for (int i = 1; i < events.length; i++) {
+            try {
+                deployedServices[i] = futures.get(i - 1).get();
+            } catch (ExecutionException e) {
+                logger.warn("Instantiating {}: {}", ServiceLogUtil.logName(events[i]), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted waiting for {}", ServiceLogUtil.logName(events[i]));
+                break;
+            }
+        }
+        return deployedServices;
+    }
+
     /**
      * @see org.rioproject.deploy.ServiceBeanInstantiator#instantiate
      */
@@ -23,6 +23,7 @@ import net.jini.config.ConfigurationException;
 import net.jini.core.event.EventRegistration;
 import net.jini.core.lease.Lease;
 import net.jini.core.lease.LeaseDeniedException;
+import net.jini.core.lease.UnknownLeaseException;
 import net.jini.core.lookup.ServiceID;
 import net.jini.core.lookup.ServiceItem;
 import net.jini.core.lookup.ServiceTemplate;
@@ -33,10 +34,12 @@ import net.jini.security.BasicProxyPreparer;
 import net.jini.security.ProxyPreparer;
 import org.rioproject.deploy.DeployedService;
 import org.rioproject.deploy.ProvisionManager;
+import org.rioproject.deploy.ResourceCapabilityUpdate;
 import org.rioproject.impl.client.LookupCachePool;
 import org.rioproject.impl.client.ServiceDiscoveryAdapter;
 import org.rioproject.impl.system.ComputeResource;
 import org.rioproject.impl.system.ResourceCapabilityChangeListener;
+import org.rioproject.impl.system.ResourceCapabilityEncoder;
 import org.rioproject.impl.util.ThrowableUtil;
 import org.rioproject.impl.util.TimeConstants;
 import org.rioproject.system.MeasuredResource;
@@ -90,6 +93,21 @@ public class ProvisionManagerHandler extends ServiceDiscoveryAdapter {
     private final long provisionerRetryDelay;
     /** ProxyPreparer for ProvisionManager proxies */
     private final ProxyPreparer provisionerPreparer;
+    /**
+     * Whether ProvisionManager instances are updated with the changes since
+     * the last update, or with the complete ResourceCapability and deployed
+     * services
+     */
+    private final boolean resourceUpdateDeltas;
+    /**
+     * The least change of a measured value that is sent to ProvisionManager
+     * instances
+     */
+    private final double resourceUpdateSignificance;
+    /**
+     * The number of updates in a row that are not sent if nothing changed
+     */
+    private final int maxSuppressedResourceUpdates;
     /** Observer for ComputeResource changes */
     private final ComputeResourceObserver computeResourceObserver;
     /* Flag to indicate we are destroyed */
@@ -154,6 +172,25 @@ public class ProvisionManagerHandler extends ServiceDiscoveryAdapter {
                                                              ProxyPreparer.class,
                                                              new BasicProxyPreparer());
         logger.trace("ProxyPreparer={}", provisionerPreparer);
+        resourceUpdateDeltas = (Boolean)config.getEntry(CONFIG_COMPONENT,
+                                                         "resourceUpdateDeltas",
+                                                         Boolean.class,
+                                                         Boolean.TRUE);
+        resourceUpdateSignificance = (Double)config.getEntry(CONFIG_COMPONENT,
+                                                             "resourceUpdateSignificance",
+                                                             Double.class,
+                                                             ResourceCapabilityEncoder.DEFAULT_SIGNIFICANCE);
+        if (resourceUpdateSignificance < 0) {
+            throw new ConfigurationException("The resourceUpdateSignificance must not be negative");
+        }
+        maxSuppressedResourceUpdates = Config.getIntEntry(config,
+                                                          CONFIG_COMPONENT,
+                                                          "maxSuppressedResourceUpdates",
+                                                          ResourceCapabilityEncoder.DEFAULT_MAX_SUPPRESSED,
+                                                          0,
+                                                          Integer.MAX_VALUE);
+        logger.trace("ResourceUpdateDeltas={}, ResourceUpdateSignificance={}, MaxSuppressedResourceUpdates={}",
+                     resourceUpdateDeltas, resourceUpdateSignificance, maxSuppressedResourceUpdates);
         this.serviceLimit = serviceLimit;
         computeResourceObserver = new ComputeResourceObserver(adapter.getComputeResource());
     }
@@ -369,11 +406,17 @@ public class ProvisionManagerHandler extends ServiceDiscoveryAdapter {
 
         for (ProvisionLeaseManager mgr : leaseTable.values()) {
             try {
-                logger.trace("Updating ProvisionMonitor with ResourceCapability. Number of deployed services: {}",
-                             deployedServices.size());
-                mgr.provisioner.update(adapter.getInstantiator(), resourceCapability, deployedServices, serviceLimit);
+                if (resourceUpdateDeltas && mgr.deltasSupported) {
+                    update(mgr, resourceCapability, deployedServices);
+                } else {
+                    logger.trace("Updating ProvisionMonitor with ResourceCapability. Number of deployed services: {}",
+                                 deployedServices.size());
+                    mgr.provisioner.update(adapter.getInstantiator(), resourceCapability, deployedServices, serviceLimit);
+                }
             } catch (Exception e) {
                 logger.warn("Failed updating ProvisionManager", e);
+                /* The ProvisionManager may not have the update, start over with a snapshot */
+                mgr.encoder.reset();
                 boolean connected = false;
 
                 StringBuilder logMessage = new StringBuilder();
@@ -394,6 +437,36 @@ public class ProvisionManagerHandler extends ServiceDiscoveryAdapter {
         }
     }
     
+    /*
+     * Send a ProvisionManager what changed since its last update. If it does
+     * not have the version the changes are based on, send a snapshot. If it
+     * is from a release that does not accept changes, send it the full
+     * ResourceCapability from now on
+     */
+    private void update(final ProvisionLeaseManager mgr,
+                        final ResourceCapability resourceCapability,
+                        final List<DeployedService> deployedServices) throws UnknownLeaseException, RemoteException {
+        ResourceCapabilityUpdate update = mgr.encoder.encode(resourceCapability, deployedServices, serviceLimit);
+        if (update == null) {
+            logger.trace("No significant change, update to ProvisionMonitor suppressed");
+            return;
+        }
+        logger.trace("Updating ProvisionMonitor with {}", update);
+        try {
+            if (!mgr.provisioner.update(adapter.getInstantiator(), update)) {
+                mgr.encoder.reset();
+                update = mgr.encoder.encode(resourceCapability, deployedServices, serviceLimit);
+                logger.debug("ProvisionMonitor does not have the base version, updating with {}", update);
+                mgr.provisioner.update(adapter.getInstantiator(), update);
+            }
+        } catch (AbstractMethodError | NoSuchMethodError e) {
+            logger.info("ProvisionMonitor does not accept ResourceCapability changes, sending full updates");
+            mgr.deltasSupported = false;
+            mgr.encoder.reset();
+            mgr.provisioner.update(adapter.getInstantiator(), resourceCapability, deployedServices, serviceLimit);
+        }
+    }
+
     /**
      * Attempt to connect to the ProvisionMonitor
      * 
@@ -485,6 +558,10 @@ public class ProvisionManagerHandler extends ServiceDiscoveryAdapter {
         Lease lease;
         final ProvisionManager provisioner;
         final ServiceID serviceID;
+        /* Whether the ProvisionManager accepts ResourceCapabilityUpdates */
+        volatile boolean deltasSupported = true;
+        final ResourceCapabilityEncoder encoder = new ResourceCapabilityEncoder(resourceUpdateSignificance,
+                                                                                maxSuppressedResourceUpdates);
 
         ProvisionLeaseManager(final Lease lease, final ProvisionManager provisioner, final ServiceID serviceID) {
             super("ProvisionLeaseManager");
@@ -575,6 +652,8 @@ public class ProvisionManagerHandler extends ServiceDiscoveryAdapter {
             }
             this.lease = connect(provisioner);
             boolean connected = (lease != null);
+            /* A new registration only has the ResourceCapability it was registered with */
+            encoder.reset();
             /* If we're not connected, set keepAlive flag to false */
             if (!connected) {
                 keepAlive = false;
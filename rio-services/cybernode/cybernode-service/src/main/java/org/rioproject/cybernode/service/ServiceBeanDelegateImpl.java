@@ -50,6 +50,7 @@ import org.rioproject.opstring.OperationalStringManager;
 import org.rioproject.opstring.ServiceElement;
 import org.rioproject.sla.SLAThresholdEvent;
 import org.rioproject.impl.system.ComputeResource;
+import org.rioproject.impl.watch.OpenMetricsExporter;
 import org.rioproject.system.ComputeResourceUtilization;
 import org.rioproject.system.capability.PlatformCapability;
 import org.slf4j.Logger;
@@ -102,6 +103,8 @@ public class ServiceBeanDelegateImpl implements ServiceBeanDelegate {
     private final StagedDataManager stagedDataManager;
     /** The ServiceBeanContext */
     private ServiceBeanContext context;
+    /** The scope used to export the watches of the service */
+    private volatile OpenMetricsExporter.Scope metricsScope;
     /** EventHandler for SLAThresholdEvent processing */
     private EventHandler slaEventHandler;
     /* Manage declared SLAs */
@@ -698,6 +701,26 @@ public class ServiceBeanDelegateImpl implements ServiceBeanDelegate {
         return loadResult;
     }
 
+    /*
+     * Get the scope used to export the watches of the service. Returns null if the service has not been
+     * started, has been terminated, or was forked (its watches are in another JVM)
+     */
+    OpenMetricsExporter.Scope getMetricsScope() {
+        ServiceBeanContext ctx = context;
+        if(ctx==null || ctx.getWatchRegistry()==null) {
+            metricsScope = null;
+            return null;
+        }
+        if(metricsScope==null) {
+            ServiceElement elem = ctx.getServiceElement();
+            metricsScope = new OpenMetricsExporter.Scope(ctx.getWatchRegistry(),
+                                                         elem.getOperationalStringName(),
+                                                         elem.getName(),
+                                                         elem.getServiceBeanConfig().getInstanceID());
+        }
+        return metricsScope;
+    }
+
     /*
      * Register any PlatformCapability mbeans we created for
      * the ServiceBean
@@ -12,6 +12,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.rioproject.config.DynamicConfiguration;
 import org.rioproject.deploy.ProvisionManager;
+import org.rioproject.deploy.ResourceCapabilityUpdate;
 import org.rioproject.deploy.ServiceBeanInstantiator;
 import org.rioproject.impl.system.ComputeResource;
 import org.rioproject.impl.watch.WatchRegistry;
@@ -27,6 +28,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.rmi.RemoteException;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -97,13 +99,44 @@ public class ProvisionManagerHandlerTest {
         assertEquals(0, provisionManagerHandler.getProvisionerMap().size());
     }
 
+    @Test
+    public void testUpdateProvisionManagerWithoutDeltas() {
+        AtomicInteger deltaUpdates = new AtomicInteger();
+        AtomicInteger fullUpdates = new AtomicInteger();
+        /* A ProvisionManager from a release that does not accept ResourceCapabilityUpdates */
+        ServiceItem item = createProvisionManagerServiceItem(new IH() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws RemoteException {
+                if (method.getName().equals("update")) {
+                    if (args[1] instanceof ResourceCapabilityUpdate) {
+                        deltaUpdates.incrementAndGet();
+                        throw new AbstractMethodError(method.getName());
+                    }
+                    fullUpdates.incrementAndGet();
+                    return null;
+                }
+                return super.invoke(proxy, method, args);
+            }
+        });
+        provisionManagerHandler.serviceAdded(new ServiceDiscoveryEvent(this, null, item));
+        provisionManagerHandler.updateMonitors();
+        provisionManagerHandler.updateMonitors();
+        assertEquals(1, deltaUpdates.get());
+        assertEquals(2, fullUpdates.get());
+        assertEquals(1, provisionManagerHandler.getLeaseTable().size());
+    }
+
     private ServiceItem createProvisionManagerServiceItem() {
+        return createProvisionManagerServiceItem(new IH());
+    }
+
+    private ServiceItem createProvisionManagerServiceItem(IH handler) {
         Uuid uuid = UuidFactory.generate();
         ServiceID serviceID = new ServiceID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
         ProvisionManager provisionManager =
                 (ProvisionManager) Proxy.newProxyInstance(ProvisionManager.class.getClassLoader(),
                                new Class[]{ProvisionManager.class, Administrable.class},
-                               new IH());
+                               handler);
         return new ServiceItem(serviceID, provisionManager,null);
     }
 
@@ -28,6 +28,7 @@ import net.jini.security.proxytrust.SingletonProxyTrustIterator;
 import net.jini.security.proxytrust.TrustEquivalence;
 import org.rioproject.deploy.DeployedService;
 import org.rioproject.deploy.ServiceBeanInstantiator;
+import org.rioproject.deploy.ResourceCapabilityUpdate;
 import org.rioproject.monitor.ProvisionMonitor;
 import org.rioproject.proxy.service.AbstractProxy;
 import org.rioproject.system.ResourceCapability;
@@ -142,6 +143,12 @@ public class ProvisionMonitorProxy extends AbstractProxy implements ProvisionMon
         monitorProxy.update(instantiator, resourceCapability, deployedServices, serviceLimit);
     }
 
+    /** @see org.rioproject.deploy.ProvisionManager#update */
+    public boolean update(ServiceBeanInstantiator instantiator,
+                          ResourceCapabilityUpdate update) throws UnknownLeaseException, RemoteException {
+        return monitorProxy.update(instantiator, update);
+    }
+
     /**
      * A subclass of ProvisionMonitorProxy that implements RemoteMethodControl.
      */
@@ -0,0 +1,153 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import net.jini.core.lease.Lease;
+import net.jini.id.UuidFactory;
+import org.openjdk.jmh.annotations.*;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.deploy.SystemComponent;
+import org.rioproject.deploy.SystemRequirements;
+import org.rioproject.impl.service.LandlordLessor;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.InstantiatorResource;
+import org.rioproject.monitor.service.ProvisionRequest;
+import org.rioproject.opstring.ClassBundle;
+import org.rioproject.opstring.ServiceBeanConfig;
+import org.rioproject.opstring.ServiceElement;
+import org.rioproject.sla.ServiceLevelAgreements;
+import org.rioproject.system.ComputeResourceUtilization;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
+import org.rioproject.system.capability.connectivity.TCPConnectivity;
+import org.rioproject.system.capability.platform.OperatingSystem;
+import org.rioproject.system.capability.platform.ProcessorArchitecture;
+import org.rioproject.system.capability.software.SoftwareSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the Cybernodes that can instantiate a service among 1000 simulated instantiators, for a
+ * service that requires Windows on x86_64 and a software component found on 1 in 20 Cybernodes. The
+ * {@code scan} benchmark runs {@code canProvision} on every instantiator, {@code indexed} narrows the
+ * candidates with the {@code CapabilityIndex} first.
+ *
+ * <pre>
+ * gradle :monitor-service:jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SelectionBenchmark {
+    private static final String[] OPERATING_SYSTEMS = {"Linux", "Linux", "Mac OS X", "Windows"};
+    private static final String[] ARCHITECTURES = {"x86_64", "aarch64"};
+    @Param({"1000"})
+    private int instantiators;
+    private ServiceResourceSelector selector;
+    private ServiceResource[] resources;
+    private ProvisionRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        LandlordLessor landlord = new LandlordLessor(new DynamicConfiguration());
+        selector = new RoundRobinSelector();
+        selector.setLandlordLessor(landlord);
+        for (int i = 0; i < instantiators; i++) {
+            InstantiatorResource ir = createInstantiatorResource(i);
+            ir.setDynamicEnabledOn();
+            landlord.newLease(new ServiceResource(ir), Lease.FOREVER);
+        }
+        resources = selector.getServiceResources();
+        request = new ProvisionRequest(createServiceElement(), null, null, null);
+    }
+
+    @Benchmark
+    public int scan() throws Exception {
+        int count = 0;
+        for (ServiceResource resource : resources) {
+            if (((InstantiatorResource) resource.getResource()).canProvision(request))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int indexed() throws Exception {
+        return selector.getServiceResources(request).length;
+    }
+
+    private InstantiatorResource createInstantiatorResource(int i) throws Exception {
+        String address = "10.0."+(i / 250)+"."+(i % 250 + 1);
+        String hostName = "host-"+i;
+        List<PlatformCapability> platformCapabilities = new ArrayList<>();
+        OperatingSystem operatingSystem = new OperatingSystem();
+        operatingSystem.define(PlatformCapability.NAME, OPERATING_SYSTEMS[i % OPERATING_SYSTEMS.length]);
+        platformCapabilities.add(operatingSystem);
+        ProcessorArchitecture architecture = new ProcessorArchitecture();
+        architecture.define(ProcessorArchitecture.ARCHITECTURE, ARCHITECTURES[(i / 4) % ARCHITECTURES.length]);
+        platformCapabilities.add(architecture);
+        TCPConnectivity tcpConnectivity = new TCPConnectivity();
+        tcpConnectivity.define(TCPConnectivity.HOST_ADDRESS, address);
+        tcpConnectivity.define(TCPConnectivity.HOST_NAME, hostName);
+        platformCapabilities.add(tcpConnectivity);
+        if (i % 20 == 3) {
+            SoftwareSupport software = new SoftwareSupport();
+            software.define(PlatformCapability.NAME, "Tomcat");
+            software.define(PlatformCapability.VERSION, "9.0");
+            platformCapabilities.add(software);
+        }
+        ResourceCapability resourceCapability =
+            new ResourceCapability(address,
+                                   hostName,
+                                   false,
+                                   platformCapabilities.toArray(new PlatformCapability[0]),
+                                   new ComputeResourceUtilization(hostName,
+                                                                  address,
+                                                                  hostName,
+                                                                  new ArrayList<MeasuredResource>()));
+        return new InstantiatorResource(null, null, hostName, UuidFactory.generate(), null, resourceCapability, 100);
+    }
+
+    private ServiceElement createServiceElement() {
+        ServiceElement sElem = new ServiceElement();
+        sElem.setExportBundles(new ClassBundle(Object.class.getName()));
+        sElem.setComponentBundle(new ClassBundle(""));
+        ServiceBeanConfig sbc = new ServiceBeanConfig();
+        sbc.setName("benchmark");
+        sbc.setOperationalStringName("benchmark");
+        sElem.setServiceBeanConfig(sbc);
+        sElem.setPlanned(1);
+        SystemRequirements systemRequirements = new SystemRequirements();
+        SystemComponent operatingSystem = new SystemComponent(OperatingSystem.ID, OperatingSystem.class.getName());
+        operatingSystem.put(OperatingSystem.NAME, "Windows");
+        systemRequirements.addSystemComponent(operatingSystem);
+        SystemComponent architecture = new SystemComponent(ProcessorArchitecture.ID,
+                                                           ProcessorArchitecture.class.getName());
+        architecture.put(ProcessorArchitecture.ARCHITECTURE, "x86_64");
+        systemRequirements.addSystemComponent(architecture);
+        SystemComponent software = new SystemComponent("Tomcat");
+        software.put(PlatformCapability.VERSION, "9.0");
+        systemRequirements.addSystemComponent(software);
+        ServiceLevelAgreements slas = new ServiceLevelAgreements();
+        slas.setServiceRequirements(systemRequirements);
+        sElem.setServiceLevelAgreements(slas);
+        return sElem;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service;
+
+import org.rioproject.deploy.SystemComponent;
+import org.rioproject.opstring.ServiceElement;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
+import org.rioproject.system.capability.connectivity.TCPConnectivity;
+import org.rioproject.system.capability.platform.OperatingSystem;
+import org.rioproject.system.capability.platform.ProcessorArchitecture;
+
+import java.util.*;
+
+/**
+ * Inverted indexes from the qualitative {@link PlatformCapability} components and the addresses of
+ * {@link InstantiatorResource}s to the instantiators that have them, used to narrow the candidates for a
+ * {@link ServiceElement} before the quantitative checks of
+ * {@link InstantiatorResource#canProvision(ProvisionRequest)} are run.
+ *
+ * <p>Each instantiator is assigned a bit, and each distinct {@code PlatformCapability} maps to the set of
+ * instantiators that have it. The system requirements of a service are evaluated once per distinct
+ * capability rather than once per instantiator, and the matching sets are intersected. Only requirements that
+ * {@code canProvision} would reject outright are used to narrow the candidates:</p>
+ * <ul>
+ * <li>The processor architecture, operating system and machine address requirements</li>
+ * <li>The cluster declared for the service, by host address or host name</li>
+ * <li>Other requirements that cannot be satisfied by provisioning software, that is requirements that are not
+ * exclusions and have no {@code StagedSoftware}</li>
+ * </ul>
+ * <p>Instantiators that do not declare a processor architecture, operating system or TCP connectivity are
+ * always candidates for the corresponding requirement, and are left to {@code canProvision}.</p>
+ *
+ * <p>Instances are thread safe.</p>
+ */
+public class CapabilityIndex {
+    private final Map<InstantiatorResource, Indexed> indexed = new HashMap<>();
+    private final List<InstantiatorResource> slots = new ArrayList<>();
+    private final BitSet freeSlots = new BitSet();
+    private final Map<PlatformCapability, BitSet> capabilities = new HashMap<>();
+    private final Map<String, BitSet> addresses = new HashMap<>();
+    private final Map<String, BitSet> hostNames = new HashMap<>();
+    private final BitSet noArchitecture = new BitSet();
+    private final BitSet noOperatingSystem = new BitSet();
+    private final BitSet noConnectivity = new BitSet();
+
+    /**
+     * Index an {@code InstantiatorResource}, or re-index it if its {@code ResourceCapability} has changed
+     *
+     * @param ir The InstantiatorResource
+     */
+    public synchronized void add(final InstantiatorResource ir) {
+        ResourceCapability resourceCapability = ir.getResourceCapability();
+        PlatformCapability[] platformCapabilities = resourceCapability.getPlatformCapabilities();
+        Indexed current = indexed.get(ir);
+        if (current != null) {
+            if (Arrays.equals(current.platformCapabilities, platformCapabilities)
+                && Objects.equals(current.address, resourceCapability.getAddress())
+                && Objects.equals(current.hostName, resourceCapability.getHostName()))
+                return;
+            unindex(current);
+        }
+        int slot;
+        if (current != null) {
+            slot = current.slot;
+        } else if (freeSlots.isEmpty()) {
+            slot = slots.size();
+            slots.add(ir);
+        } else {
+            slot = freeSlots.nextSetBit(0);
+            freeSlots.clear(slot);
+            slots.set(slot, ir);
+        }
+        Indexed entry = new Indexed(slot,
+                                    platformCapabilities,
+                                    resourceCapability.getAddress(),
+                                    resourceCapability.getHostName());
+        boolean architecture = false;
+        boolean operatingSystem = false;
+        boolean connectivity = false;
+        for (PlatformCapability platformCapability : platformCapabilities) {
+            capabilities.computeIfAbsent(platformCapability, k -> new BitSet()).set(slot);
+            architecture |= platformCapability instanceof ProcessorArchitecture;
+            operatingSystem |= platformCapability instanceof OperatingSystem;
+            connectivity |= platformCapability instanceof TCPConnectivity;
+        }
+        noArchitecture.set(slot, !architecture);
+        noOperatingSystem.set(slot, !operatingSystem);
+        noConnectivity.set(slot, !connectivity);
+        if (entry.address != null)
+            addresses.computeIfAbsent(entry.address, k -> new BitSet()).set(slot);
+        if (entry.hostName != null)
+            hostNames.computeIfAbsent(entry.hostName.toLowerCase(), k -> new BitSet()).set(slot);
+        indexed.put(ir, entry);
+    }
+
+    /**
+     * Remove an {@code InstantiatorResource} from the index
+     *
+     * @param ir The InstantiatorResource
+     */
+    public synchronized void remove(final InstantiatorResource ir) {
+        Indexed entry = indexed.remove(ir);
+        if (entry == null)
+            return;
+        unindex(entry);
+        slots.set(entry.slot, null);
+        freeSlots.set(entry.slot);
+    }
+
+    /**
+     * Get the number of indexed {@code InstantiatorResource}s
+     *
+     * @return The number of indexed InstantiatorResources
+     */
+    public synchronized int size() {
+        return indexed.size();
+    }
+
+    /**
+     * Get the {@code InstantiatorResource}s that meet the qualitative requirements of a {@code ServiceElement}
+     * that can be evaluated from the index
+     *
+     * @param sElem The ServiceElement
+     *
+     * @return The candidate InstantiatorResources, or null if the ServiceElement declares no requirements
+     * that narrow the candidates
+     */
+    public synchronized Set<InstantiatorResource> getCandidates(final ServiceElement sElem) {
+        BitSet candidates = null;
+        String[] cluster = sElem.getCluster();
+        if (cluster != null && cluster.length > 0) {
+            BitSet inCluster = new BitSet();
+            for (String machine : cluster) {
+                or(inCluster, addresses.get(machine));
+                or(inCluster, hostNames.get(machine.toLowerCase()));
+            }
+            candidates = inCluster;
+        }
+
+        List<SystemComponent> architectures = new ArrayList<>();
+        List<SystemComponent> operatingSystems = new ArrayList<>();
+        List<SystemComponent> machineAddresses = new ArrayList<>();
+        List<SystemComponent> remaining = new ArrayList<>();
+        for (SystemComponent requirement : sElem.getServiceLevelAgreements().getSystemRequirements().getSystemComponents()) {
+            if (InstantiatorResource.isOperatingSystem(requirement)) {
+                operatingSystems.add(requirement);
+            } else if (InstantiatorResource.isArchitecture(requirement)) {
+                architectures.add(requirement);
+            } else if (InstantiatorResource.isMachineAddress(requirement)) {
+                machineAddresses.add(requirement);
+            } else if (!requirement.exclude() && requirement.getStagedSoftware() == null) {
+                remaining.add(requirement);
+            }
+        }
+        if (!architectures.isEmpty())
+            candidates = and(candidates, matching(ProcessorArchitecture.class, architectures, noArchitecture));
+        if (!operatingSystems.isEmpty())
+            candidates = and(candidates, matching(OperatingSystem.class, operatingSystems, noOperatingSystem));
+        if (!machineAddresses.isEmpty())
+            candidates = and(candidates, matching(TCPConnectivity.class, machineAddresses, noConnectivity));
+        for (SystemComponent requirement : remaining) {
+            BitSet supported = new BitSet();
+            for (Map.Entry<PlatformCapability, BitSet> entry : capabilities.entrySet()) {
+                if (entry.getKey().supports(requirement))
+                    supported.or(entry.getValue());
+            }
+            candidates = and(candidates, supported);
+        }
+        if (candidates == null)
+            return null;
+        Set<InstantiatorResource> matched = new HashSet<>();
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1))
+            matched.add(slots.get(slot));
+        return matched;
+    }
+
+    /*
+     * The instantiators with a capability of the type that meets the requirements, and those without one
+     */
+    private BitSet matching(final Class<? extends PlatformCapability> type,
+                            final List<SystemComponent> requirements,
+                            final BitSet without) {
+        BitSet matched = (BitSet) without.clone();
+        for (Map.Entry<PlatformCapability, BitSet> entry : capabilities.entrySet()) {
+            if (type.isInstance(entry.getKey()) && InstantiatorResource.check(entry.getKey(), requirements).supported)
+                matched.or(entry.getValue());
+        }
+        return matched;
+    }
+
+    private void unindex(final Indexed entry) {
+        for (PlatformCapability platformCapability : entry.platformCapabilities)
+            clear(capabilities, platformCapability, entry.slot);
+        if (entry.address != null)
+            clear(addresses, entry.address, entry.slot);
+        if (entry.hostName != null)
+            clear(hostNames, entry.hostName.toLowerCase(), entry.slot);
+        noArchitecture.clear(entry.slot);
+        noOperatingSystem.clear(entry.slot);
+        noConnectivity.clear(entry.slot);
+    }
+
+    private static <K> void clear(final Map<K, BitSet> index, final K key, final int slot) {
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty())
+                index.remove(key);
+        }
+    }
+
+    private static void or(final BitSet target, final BitSet bits) {
+        if (bits != null)
+            target.or(bits);
+    }
+
+    private static BitSet and(final BitSet candidates, final BitSet bits) {
+        if (candidates == null)
+            return bits;
+        candidates.and(bits);
+        return candidates;
+    }
+
+    private static class Indexed {
+        final int slot;
+        final PlatformCapability[] platformCapabilities;
+        final String address;
+        final String hostName;
+
+        Indexed(final int slot,
+                final PlatformCapability[] platformCapabilities,
+                final String address,
+                final String hostName) {
+            this.slot = slot;
+            this.platformCapabilities = platformCapabilities;
+            this.address = address;
+            this.hostName = hostName;
+        }
+    }
+}
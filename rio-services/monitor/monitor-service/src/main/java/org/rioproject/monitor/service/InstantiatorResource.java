@@ -39,12 +39,21 @@ import java.rmi.MarshalledObject;
 import java.rmi.RemoteException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An {@code InstantiatorResource} is the object being leased and controlled by the
  * {@code ServiceResource}, and represents an available {@link ServiceBeanInstantiator} service
  * that can be used to instantiate a service.
+ *
+ * <p>The number of instances of each {@code ServiceElement} the {@code ServiceBeanInstantiator} has
+ * instantiated is kept locally, from provision results, the removal of instances and the
+ * {@code ServiceBeanInstantiator}'s periodic deployment report, so that selecting a
+ * {@code ServiceBeanInstantiator} does not make remote calls. If a count may have diverged, for example when
+ * the outcome of a provision attempt is not known, it is reconciled with the
+ * {@code ServiceBeanInstantiator} asynchronously, see {@link #scheduleReconcile(ServiceElement)}.</p>
  * 
  * @see org.rioproject.servicebean.ServiceBean
  * @see org.rioproject.deploy.ServiceBeanInstantiator
@@ -78,6 +87,11 @@ public class InstantiatorResource {
      * A Copy of the ResourceCapability object from the ServiceBeanInstantiator
      */
     private ResourceCapability resourceCapability;
+    /**
+     * The version of the last update applied to the resourceCapability, 0
+     * until an update is applied
+     */
+    private volatile long resourceCapabilityVersion;
     //private final Object resourceCapabilityLock = new Object();
     /**
      * Whether the instantiator is ready to accept requests for the
@@ -89,6 +103,10 @@ public class InstantiatorResource {
      * has instantiated
      */
     private final Map<ServiceElement, List<DeployedService>> serviceElementMap = new ConcurrentHashMap<>();
+    /** ServiceElements with a reconciliation scheduled */
+    private final Set<ServiceElement> reconciling = ConcurrentHashMap.newKeySet();
+    /** Executor for reconciling instance counts, if null counts are not reconciled */
+    private volatile Executor reconciler;
     /** Table of in process ServiceElement instances */
     private final Map<ServiceElement, Integer> inProcessMap = new ConcurrentHashMap<>();
     /**
@@ -145,17 +163,13 @@ public class InstantiatorResource {
      */
     public void addDeployedService(DeployedService newDeployedService) {
         ServiceElement sElem = newDeployedService.getServiceElement();
-        if (serviceElementMap.containsKey(sElem)) {
-            List<DeployedService> list = serviceElementMap.get(sElem);
-            if (!list.contains(newDeployedService)) {
+        serviceElementMap.compute(sElem, (key, list) -> {
+            if (list == null)
+                list = new CopyOnWriteArrayList<>();
+            if (!list.contains(newDeployedService))
                 list.add(newDeployedService);
-                serviceElementMap.put(sElem, list);
-            }
-        } else {
-            List<DeployedService> list = new ArrayList<>();
-            list.add(newDeployedService);
-            serviceElementMap.put(sElem, list);
-        }
+            return list;
+        });
     }
 
     /**
@@ -164,10 +178,16 @@ public class InstantiatorResource {
      * @param deployedServices List of active & deployed services
      */
     void setDeployedServices(List<DeployedService> deployedServices) {
-        serviceElementMap.clear();
+        /* Replace the recorded instances element by element, so counts are never seen as empty in between */
+        Map<ServiceElement, List<DeployedService>> deployed = new HashMap<>();
         for (DeployedService deployedService : deployedServices) {
-            addDeployedService(deployedService);
+            List<DeployedService> list = deployed.computeIfAbsent(deployedService.getServiceElement(),
+                                                                  key -> new CopyOnWriteArrayList<>());
+            if (!list.contains(deployedService))
+                list.add(deployedService);
         }
+        serviceElementMap.keySet().retainAll(deployed.keySet());
+        serviceElementMap.putAll(deployed);
     }
 
     /**
@@ -312,25 +332,20 @@ public class InstantiatorResource {
      * @return The removed ServiceBeanInstance, or null if the instance was removed
      */
     ServiceBeanInstance removeServiceElementInstance(ServiceElement sElem, Uuid uuid) {
-        ServiceBeanInstance removedInstance = null;
-        if (serviceElementMap.containsKey(sElem)) {
-            List<DeployedService> list = serviceElementMap.get(sElem);
+        ServiceBeanInstance[] removedInstance = new ServiceBeanInstance[1];
+        serviceElementMap.computeIfPresent(sElem, (key, list) -> {
             list.removeIf(Objects::isNull);
             for (DeployedService deployedService : list) {
                 if (deployedService.getServiceBeanInstance() != null
                         && deployedService.getServiceBeanInstance().getServiceBeanID().equals(uuid)) {
                     list.remove(deployedService);
-                    removedInstance = deployedService.getServiceBeanInstance();
+                    removedInstance[0] = deployedService.getServiceBeanInstance();
                     break;
                 }
             }
-            if (list.isEmpty()) {
-                serviceElementMap.remove(sElem);
-            } else {
-                serviceElementMap.put(sElem, list);
-            }
-        }
-        return removedInstance;
+            return list.isEmpty() ? null : list;
+        });
+        return removedInstance[0];
     }
 
     ServiceElement[] getServiceElements() {
@@ -348,30 +363,77 @@ public class InstantiatorResource {
      * @param sElem The ServiceElement to count
      * 
      * @return The number of instances of the ServiceElement the
-     * ServiceBeanInstantiator has instantiated. If not found return 0
+     * ServiceBeanInstantiator has instantiated. If not found return 0. The
+     * count is kept locally, the ServiceBeanInstantiator is not consulted
      */
     public int getServiceElementCount(ServiceElement sElem) {
-        int numInstances = 0;
-        if (serviceElementMap.containsKey(sElem)) {
-            List<DeployedService> list = serviceElementMap.get(sElem);
-            numInstances = list.size();
+        List<DeployedService> list = serviceElementMap.get(sElem);
+        return list == null ? 0 : list.size();
+    }
+
+    /**
+     * Set the Executor used to reconcile instance counts with the
+     * ServiceBeanInstantiator
+     *
+     * @param reconciler The Executor, if null counts are not reconciled
+     */
+    void setReconciler(Executor reconciler) {
+        this.reconciler = reconciler;
+    }
+
+    /**
+     * Schedule the reconciliation of the number of instances of a
+     * ServiceElement with the ServiceBeanInstantiator. This should be called
+     * when the local count may have diverged, for example if the result of a
+     * provision attempt is not known. If a reconciliation of the
+     * ServiceElement is already scheduled, this method does nothing
+     *
+     * @param sElem The ServiceElement to reconcile
+     */
+    public void scheduleReconcile(ServiceElement sElem) {
+        Executor executor = reconciler;
+        if (executor == null || !reconciling.add(sElem))
+            return;
+        try {
+            executor.execute(() -> {
+                reconciling.remove(sElem);
+                reconcile(sElem);
+            });
+        } catch (RuntimeException e) {
+            reconciling.remove(sElem);
+            logger.debug("Unable to schedule reconciliation of [{}] on {}: {}",
+                         LoggingUtil.getLoggingName(sElem), getName(), e.toString());
         }
+    }
+
+    /**
+     * Reconcile the number of instances of a ServiceElement with the
+     * ServiceBeanInstantiator, replacing the recorded instances if they differ
+     *
+     * @param sElem The ServiceElement to reconcile
+     *
+     * @return The number of instances of the ServiceElement
+     */
+    int reconcile(ServiceElement sElem) {
+        int numInstances = getServiceElementCount(sElem);
         try {
             ServiceBeanInstance[] instances = instantiator.getServiceBeanInstances(sElem);
             if (numInstances != instances.length) {
-                logger.warn("Discrepancy in instances for [{}], recorded: {}, actual: {}",
-                            LoggingUtil.getLoggingName(sElem), numInstances, instances.length);
+                logger.warn("Discrepancy in instances for [{}] on {}, recorded: {}, actual: {}",
+                            LoggingUtil.getLoggingName(sElem), getName(), numInstances, instances.length);
                 numInstances = instances.length;
-                serviceElementMap.remove(sElem);
+                List<DeployedService> list = new CopyOnWriteArrayList<>();
                 for (ServiceBeanInstance instance : instances) {
-                    addDeployedService(new DeployedService(sElem, instance, null));
+                    list.add(new DeployedService(sElem, instance, null));
                 }
+                if (list.isEmpty())
+                    serviceElementMap.remove(sElem);
+                else
+                    serviceElementMap.put(sElem, list);
             }
         } catch (IOException e) {
-            logger.warn("Issue communicating to [{}]", LoggingUtil.getLoggingName(sElem), e);
+            logger.warn("Issue communicating to {} reconciling [{}]", getName(), LoggingUtil.getLoggingName(sElem), e);
         }
-        logger.trace("Get service element count for [{}], {} has {} instances",
-                     LoggingUtil.getLoggingName(sElem), getName(), numInstances);
         return numInstances;
     }
 
@@ -461,6 +523,25 @@ public class InstantiatorResource {
         this.resourceCapability = resourceCapability;
     }
 
+    /**
+     * Get the version of the last update applied to the ResourceCapability
+     *
+     * @return The version, 0 if only the ResourceCapability the
+     * ServiceBeanInstantiator registered with is known
+     */
+    long getResourceCapabilityVersion() {
+        return resourceCapabilityVersion;
+    }
+
+    /**
+     * Set the version of the last update applied to the ResourceCapability
+     *
+     * @param resourceCapabilityVersion The version
+     */
+    void setResourceCapabilityVersion(long resourceCapabilityVersion) {
+        this.resourceCapabilityVersion = resourceCapabilityVersion;
+    }
+
     /**
      * Set the serviceLimit property
      * 
@@ -540,11 +621,11 @@ public class InstantiatorResource {
     /**
      * Get all in process elements, excluding the element passed in
      *
-     * @param exclude The ServiceElement to exclude
+     * @param exclude The ServiceElement to exclude, may be null
      *
      * @return An array of ServiceElements
      */
-    ServiceElement[] getServiceElementsInprocess(ServiceElement exclude) {
+    public ServiceElement[] getServiceElementsInprocess(ServiceElement exclude) {
         ArrayList<ServiceElement> list = new ArrayList<>();
         Set<ServiceElement> keys = inProcessMap.keySet();
         for (ServiceElement element : keys) {
@@ -1102,8 +1183,8 @@ public class InstantiatorResource {
         return unsupportedRequirements;
     }
 
-    private Result check(final PlatformCapability platformCapability,
-                         final List<SystemComponent> systemComponents) {
+    static Result check(final PlatformCapability platformCapability,
+                        final List<SystemComponent> systemComponents) {
         Result result = new Result();
         boolean supported = false;
         for (SystemComponent serviceRequirement : systemComponents) {
@@ -1126,7 +1207,7 @@ public class InstantiatorResource {
         return result;
     }
 
-    private static class Result {
+    static class Result {
         boolean supported;
         List<SystemComponent> excluded = new ArrayList<>();
     }
@@ -1172,7 +1253,7 @@ public class InstantiatorResource {
         return failureReason;
     }
 
-    private boolean isOperatingSystem(SystemComponent systemComponent) {
+    static boolean isOperatingSystem(SystemComponent systemComponent) {
         String name = systemComponent.getName();
         String className = systemComponent.getClassName();
         if (className==null) {
@@ -1181,7 +1262,7 @@ public class InstantiatorResource {
         return systemComponent.getClassName().equals(OperatingSystem.class.getName());
     }
 
-    private boolean isArchitecture(SystemComponent systemComponent) {
+    static boolean isArchitecture(SystemComponent systemComponent) {
         String name = systemComponent.getName();
         String className = systemComponent.getClassName();
         if (className==null) {
@@ -1190,7 +1271,7 @@ public class InstantiatorResource {
         return systemComponent.getClassName().equals(ProcessorArchitecture.class.getName());
     }
 
-    private boolean isMachineAddress(SystemComponent systemComponent) {
+    static boolean isMachineAddress(SystemComponent systemComponent) {
         String name = systemComponent.getName();
         String className = systemComponent.getClassName();
         if (className==null) {
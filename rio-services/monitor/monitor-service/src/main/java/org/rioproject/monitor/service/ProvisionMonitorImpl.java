@@ -37,8 +37,6 @@ import org.rioproject.event.EventDescriptor;
 import org.rioproject.event.EventHandler;
 import org.rioproject.impl.client.JiniClient;
 import org.rioproject.impl.event.DispatchEventHandler;
-import org.rioproject.impl.jmx.JMXUtil;
-import org.rioproject.impl.jmx.MBeanServerFactory;
 import org.rioproject.impl.opstring.OAR;
 import org.rioproject.impl.opstring.OpStringLoader;
 import org.rioproject.impl.service.ServiceResource;
@@ -49,6 +47,7 @@ import org.rioproject.impl.system.ComputeResource;
 import org.rioproject.impl.util.BannerProvider;
 import org.rioproject.impl.util.BannerProviderImpl;
 import org.rioproject.impl.watch.GaugeWatch;
+import org.rioproject.impl.watch.OpenMetricsExporter;
 import org.rioproject.impl.watch.PeriodicWatch;
 import org.rioproject.impl.watch.ThreadDeadlockMonitor;
 import org.rioproject.loader.ServiceClassLoader;
@@ -66,6 +65,7 @@ import org.rioproject.monitor.service.tasks.TaskTimer;
 import org.rioproject.opstring.OperationalString;
 import org.rioproject.opstring.OperationalStringException;
 import org.rioproject.opstring.OperationalStringManager;
+import org.rioproject.opstring.ServiceElement;
 import org.rioproject.resolver.Artifact;
 import org.rioproject.resolver.Resolver;
 import org.rioproject.resolver.ResolverException;
@@ -75,14 +75,13 @@ import org.rioproject.servicebean.ServiceBeanContext;
 import org.rioproject.system.ResourceCapability;
 import org.rioproject.util.RioHome;
 import org.rioproject.util.TimeUtil;
+import org.rioproject.web.WebsterService;
+import org.rioproject.web.WebsterServiceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.management.MBeanServer;
 import javax.management.openmbean.*;
 import java.io.File;
-import java.lang.management.ManagementFactory;
-import java.lang.management.ThreadMXBean;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
@@ -112,6 +111,9 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
     private OpStringLoader opStringLoader;
     /** A watch to track how long it takes to provision services */
     private GaugeWatch provisionWatch;
+    /** Watches to track the number of pending provision requests and how long they wait */
+    private GaugeWatch pendingDepthWatch;
+    private GaugeWatch pendingWaitWatch;
     /** Handles discovery and synchronization with other ProvisionMonitors */
     private ProvisionMonitorPeer provisionMonitorPeer;
     private final OpStringManagerController opStringMangerController = new OpStringManagerController();
@@ -121,6 +123,8 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
     private TaskTimer taskTimer;
     private LifeCycle lifeCycle;
     private DeployHandlerMonitor deployMonitor;
+    /** Serves the watches in the OpenMetrics text format, if configured */
+    private WebsterService metricsEndpoint;
 
     /**
      * Create a ProvisionMonitor
@@ -187,9 +191,15 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
         if (provisionWatch != null) {
             getWatchRegistry().deregister(provisionWatch);
         }
+        if (pendingDepthWatch != null) {
+            getWatchRegistry().deregister(pendingDepthWatch, pendingWaitWatch);
+        }
         if (taskTimer != null) {
             taskTimer.cancel();
         }
+        if (metricsEndpoint != null) {
+            metricsEndpoint.terminate();
+        }
         /* stop the provisionMonitorPeer */
         if (provisionMonitorPeer != null) {
             provisionMonitorPeer.terminate();
@@ -655,6 +665,38 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
         return tabularDataSupport;
     }
 
+    /*
+     * @see org.rioproject.monitor.ProvisionMonitorImplMBean#getProvisioning
+     */
+    public TabularData getProvisioning() {
+        String[] itemNames = new String[] {"Cybernode", "Address", "Uuid", "In Flight", "Queued"};
+        OpenType<?>[] itemTypes = new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.STRING,
+                                                 SimpleType.INTEGER, SimpleType.INTEGER};
+        TabularDataSupport tabularDataSupport = null;
+        try {
+            CompositeType row = new CompositeType("Provisioning", "Provisioning", itemNames, itemNames, itemTypes);
+
+            TabularType tabularType = new TabularType("Provisioning", "Provisioning", row, new String[]{"Uuid"});
+            tabularDataSupport = new TabularDataSupport(tabularType);
+            ProvisionThrottle throttle = provisioner.getProvisionThrottle();
+            for (ServiceResource resource : provisioner.getServiceResourceSelector().getServiceResources()) {
+                InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+                Object[] data = new Object[]{ir.getName(),
+                                             ir.getHostAddress(),
+                                             ir.getInstantiatorUuid().toString(),
+                                             throttle.getInFlight(ir.getInstantiatorUuid()),
+                                             throttle.getQueued(ir.getInstantiatorUuid())};
+                CompositeData compositeData = new CompositeDataSupport(row, itemNames, data);
+                tabularDataSupport.put(compositeData);
+            }
+
+        } catch(OpenDataException e) {
+            logger.warn(e.toString(), e);
+        }
+
+        return tabularDataSupport;
+    }
+
     /*
      * @see org.rioproject.monitor.ProvisionMonitor#getPeerInfo
      */
@@ -718,6 +760,15 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
         provisioner.handleFeedback(instantiator, resourceCapability, deployedServices, serviceLimit);
     }
 
+    /*
+     * @see org.rioproject.deploy.ProvisionManager#update
+     */
+    public boolean update(ServiceBeanInstantiator instantiator,
+                          ResourceCapabilityUpdate update) throws UnknownLeaseException, RemoteException {
+        /* delegate to provisioner */
+        return provisioner.handleFeedback(instantiator, update);
+    }
+
     public Collection<MarshalledObject<ServiceBeanInstantiator>> getWrappedServiceBeanInstantiators() {
         Collection<MarshalledObject<ServiceBeanInstantiator>> marshalledWrappers =
             new ArrayList<>();
@@ -793,6 +844,11 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
             //registerEventAdapters();
 
             provisioner = new ServiceProvisioner(config, getEventProxy(), failureHandler, provisionWatch);
+            pendingDepthWatch = new GaugeWatch("Pending Provision Requests", config);
+            pendingWaitWatch = new GaugeWatch("Pending Wait Time", config);
+            getWatchRegistry().register(pendingDepthWatch, pendingWaitWatch);
+            provisioner.getPendingManager().setQueueDepthWatch(pendingDepthWatch);
+            provisioner.getPendingManager().setWaitTimeWatch(pendingWaitWatch);
 
             opStringMangerController.setConfig(config);
             opStringMangerController.setEventProcessor(eventProcessor);
@@ -891,6 +947,22 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
             } else {
                 logger.info("OAR hot deploy capabilities have been disabled");
             }
+            /* Get the port to serve watches from for OpenMetrics scraping. A negative value (the
+             * default) disables the endpoint, zero uses an anonymous port */
+            int metricsPort = Config.getIntEntry(config, CONFIG_COMPONENT, "metricsPort", -1, -1, 65535);
+            if (metricsPort != -1) {
+                ServiceElement elem = context.getServiceElement();
+                OpenMetricsExporter.Scope scope = new OpenMetricsExporter.Scope(getWatchRegistry(),
+                                                                                elem.getOperationalStringName(),
+                                                                                elem.getName(),
+                                                                                elem.getServiceBeanConfig().getInstanceID());
+                metricsEndpoint = WebsterServiceFactory.createContentServer(metricsPort,
+                                                                            "/metrics",
+                                                                            new OpenMetricsExporter(computeResource,
+                                                                                                    () -> Collections.singletonList(scope)));
+                logger.info("Serving OpenMetrics from {}", metricsEndpoint.getURI().resolve("/metrics"));
+            }
+
             /* Get the timeout value for loading OperationalStrings */
             long initialOpStringLoadDelay = TimeUnit.SECONDS.toMillis(5);
             try {
@@ -951,12 +1023,7 @@ public class ProvisionMonitorImpl extends ServiceBeanAdapter implements Provisio
             if (store != null)
                 store.snapshot();
 
-            MBeanServer mbs = MBeanServerFactory.getMBeanServer();
             final ThreadDeadlockMonitor threadDeadlockMonitor = new ThreadDeadlockMonitor();
-            ThreadMXBean threadMXBean = JMXUtil.getPlatformMXBeanProxy(mbs,
-                                                                       ManagementFactory.THREAD_MXBEAN_NAME,
-                                                                       ThreadMXBean.class);
-            threadDeadlockMonitor.setThreadMXBean(threadMXBean);
             PeriodicWatch p = new PeriodicWatch("Thread Deadlock", config) {
                 public void checkValue() {
                     threadDeadlockMonitor.getThreadDeadlockCalculable();
@@ -80,4 +80,13 @@ public interface ProvisionMonitorImplMBean extends ServiceBeanAdapterMBean {
      * deployment name, the role of the Provisioner, and the time deployed
      */
     TabularData getDeployments();
+
+    /**
+     * Get the provisioning activity for each registered Cybernode
+     *
+     * @return The provisioning activity in a tabular form, containing the
+     * Cybernode name, host address and Uuid, the number of provision requests
+     * in flight to the Cybernode, and the number queued waiting for them
+     */
+    TabularData getProvisioning();
 }
@@ -54,6 +54,10 @@ public class ProvisionRequest {
     /** The time the ProvisionRequest was created */
     private final long timestamp;
     private final List<String> failureReasons = new ArrayList<>();
+    /** The number of failed provision attempts */
+    private int failedAttempts;
+    /** The time before which the request should not be retried */
+    private volatile long retryAfter;
 
     /**
      * Create a ProvisionRequest 
@@ -164,6 +168,34 @@ public class ProvisionRequest {
         return timestamp;
     }
 
+    /**
+     * Record a failed provision attempt
+     *
+     * @return The number of failed provision attempts, including this one
+     */
+    public synchronized int incrementFailedAttempts() {
+        return ++failedAttempts;
+    }
+
+    /**
+     * Get the time before which the request should not be retried
+     *
+     * @return The time in milliseconds, 0 if the request can be retried
+     * immediately
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Set the time before which the request should not be retried
+     *
+     * @param retryAfter The time in milliseconds
+     */
+    public void setRetryAfter(long retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
     public void setServiceProvisionListener(ServiceProvisionListener svcProvisionListener) {
         this.svcProvisionListener = svcProvisionListener;
     }
@@ -0,0 +1,211 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service;
+
+import net.jini.id.Uuid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Runs provisioning tasks with a bound on the number of instances in flight
+ * for each {@link InstantiatorResource}, and on the number of tasks in flight
+ * overall.
+ *
+ * <p>Each instantiator has a queue of tasks. A task counts as the number of
+ * instances it provisions, at most {@code maxInFlightPerInstantiator}
+ * instances for an instantiator are in flight in tasks submitted to a fixed
+ * size executor of {@code maxThreads} threads, the remainder wait in its queue
+ * and are submitted in order as the tasks in flight complete. The executor's
+ * own queue is therefore bounded by the number of instantiators times
+ * {@code maxInFlightPerInstantiator}.</p>
+ */
+public class ProvisionThrottle {
+    private final ThreadPoolExecutor executor;
+    private final int maxInFlightPerInstantiator;
+    private final Map<Uuid, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Create a ProvisionThrottle
+     *
+     * @param maxThreads The maximum number of tasks in flight overall
+     * @param maxInFlightPerInstantiator The maximum number of instances in flight
+     * for each InstantiatorResource
+     */
+    public ProvisionThrottle(final int maxThreads, final int maxInFlightPerInstantiator) {
+        if (maxThreads < 1)
+            throw new IllegalArgumentException("maxThreads must be at least 1");
+        if (maxInFlightPerInstantiator < 1)
+            throw new IllegalArgumentException("maxInFlightPerInstantiator must be at least 1");
+        this.maxInFlightPerInstantiator = maxInFlightPerInstantiator;
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run a task for an InstantiatorResource, or queue it if the
+     * InstantiatorResource has the maximum number of tasks in flight
+     *
+     * @param ir The InstantiatorResource the task provisions to
+     * @param task The task
+     *
+     * @throws RejectedExecutionException if the ProvisionThrottle has been
+     * shut down
+     */
+    public void execute(final InstantiatorResource ir, final Runnable task) {
+        execute(ir, task, 1);
+    }
+
+    /**
+     * Run a task that provisions a number of instances to an
+     * InstantiatorResource, or queue it if the instances would take the
+     * InstantiatorResource past the maximum number of instances in flight. A
+     * task for more instances than the maximum runs when the
+     * InstantiatorResource has nothing in flight
+     *
+     * @param ir The InstantiatorResource the task provisions to
+     * @param task The task
+     * @param instances The number of instances the task provisions
+     *
+     * @throws RejectedExecutionException if the ProvisionThrottle has been
+     * shut down
+     */
+    public void execute(final InstantiatorResource ir, final Runnable task, final int instances) {
+        if (instances < 1)
+            throw new IllegalArgumentException("instances must be at least 1");
+        Lane lane = lanes.computeIfAbsent(ir.getInstantiatorUuid(), k -> new Lane());
+        Entry entry = new Entry(task, instances);
+        synchronized (lane) {
+            if (!lane.queued.isEmpty() || !lane.fits(entry)) {
+                lane.queued.add(entry);
+                return;
+            }
+            lane.inFlight += instances;
+        }
+        submit(lane, entry);
+    }
+
+    /**
+     * Get the maximum number of instances in flight for each
+     * InstantiatorResource
+     *
+     * @return The maximum number of instances in flight for each
+     * InstantiatorResource
+     */
+    public int getMaxInFlightPerInstantiator() {
+        return maxInFlightPerInstantiator;
+    }
+
+    /**
+     * Get the number of instances in flight for an InstantiatorResource
+     *
+     * @param uuid The Uuid of the InstantiatorResource
+     *
+     * @return The number of instances in flight
+     */
+    public int getInFlight(final Uuid uuid) {
+        Lane lane = lanes.get(uuid);
+        if (lane == null)
+            return 0;
+        synchronized (lane) {
+            return lane.inFlight;
+        }
+    }
+
+    /**
+     * Get the number of tasks queued for an InstantiatorResource
+     *
+     * @param uuid The Uuid of the InstantiatorResource
+     *
+     * @return The number of tasks waiting for a task in flight to complete
+     */
+    public int getQueued(final Uuid uuid) {
+        Lane lane = lanes.get(uuid);
+        if (lane == null)
+            return 0;
+        synchronized (lane) {
+            return lane.queued.size();
+        }
+    }
+
+    /**
+     * Stop tracking an InstantiatorResource. Tasks in flight and queued for
+     * it still run
+     *
+     * @param uuid The Uuid of the InstantiatorResource
+     */
+    public void remove(final Uuid uuid) {
+        lanes.remove(uuid);
+    }
+
+    /**
+     * Attempt to stop all tasks in flight and discard queued tasks
+     */
+    public void shutdownNow() {
+        executor.shutdownNow();
+        lanes.clear();
+    }
+
+    private void submit(final Lane lane, final Entry entry) {
+        try {
+            executor.execute(() -> {
+                try {
+                    entry.task.run();
+                } finally {
+                    List<Entry> next = new ArrayList<>();
+                    synchronized (lane) {
+                        lane.inFlight -= entry.instances;
+                        while (!lane.queued.isEmpty() && lane.fits(lane.queued.peek())) {
+                            Entry queued = lane.queued.poll();
+                            lane.inFlight += queued.instances;
+                            next.add(queued);
+                        }
+                    }
+                    for (Entry queued : next)
+                        submit(lane, queued);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (lane) {
+                lane.inFlight -= entry.instances;
+            }
+            throw e;
+        }
+    }
+
+    private class Lane {
+        int inFlight;
+        final Deque<Entry> queued = new ArrayDeque<>();
+
+        boolean fits(final Entry entry) {
+            return inFlight == 0 || inFlight + entry.instances <= maxInFlightPerInstantiator;
+        }
+    }
+
+    private static class Entry {
+        final Runnable task;
+        final int instances;
+
+        Entry(final Runnable task, final int instances) {
+            this.task = task;
+            this.instances = instances;
+        }
+    }
+}
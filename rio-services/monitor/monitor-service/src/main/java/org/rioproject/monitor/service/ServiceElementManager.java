@@ -1356,11 +1356,10 @@ public class ServiceElementManager implements InstanceIDManager {
         if(svcElement.getProvisionType()!=ProvisionType.DYNAMIC)
             return;
         /*
-         * Dispatch each ProvisionRequest 
+         * Dispatch the ProvisionRequests, instances of the service are
+         * placed and instantiated as a group
          */
-        for (ProvisionRequest request : requests) {
-            provisioner.dispatch(request);
-        }
+        provisioner.dispatch(requests);
     }
 
     /**
@@ -1549,12 +1548,8 @@ public class ServiceElementManager implements InstanceIDManager {
                 break;
             }
         }
-        /*
-        if(provisioner.getPendingManager().getCount(svcElement)>0) {
-            logger.info("PENDING MANAGER PROCESS!!!!!!");
-            provisioner.getPendingManager().process();
-        }
-        */
+        /* The removed instance may have freed capacity for pending services */
+        provisioner.getPendingManager().process();
         services.remove(proxy);
         if(idleServiceManager.get()!=null && proxy instanceof ServiceActivityProvider) {
             idleServiceManager.get().removeService((ServiceActivityProvider)proxy);
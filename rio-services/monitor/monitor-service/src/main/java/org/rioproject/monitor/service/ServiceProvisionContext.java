@@ -31,7 +31,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class ServiceProvisionContext {
     private final ServiceResourceSelector selector;
-    private final ThreadPoolExecutor provisioningPool;
+    private final ProvisionThrottle provisionThrottle;
     private final List<ServiceElement> inProcess;
     private ProvisionRequest request;
     private ServiceResource svcResource;
@@ -43,7 +43,7 @@ public class ServiceProvisionContext {
     private final AtomicInteger serviceProvisionEventSequenceNumber;
 
     public ServiceProvisionContext(final ServiceResourceSelector selector,
-                                   final ThreadPoolExecutor provisioningPool,
+                                   final ProvisionThrottle provisionThrottle,
                                    final List<ServiceElement> inProcess,
                                    final Object eventSource,
                                    final GaugeWatch watch,
@@ -52,7 +52,7 @@ public class ServiceProvisionContext {
                                    final EventHandler failureHandler,
                                    final AtomicInteger serviceProvisionEventSequenceNumber) {
         this.selector = selector;
-        this.provisioningPool = provisioningPool;
+        this.provisionThrottle = provisionThrottle;
         this.inProcess = inProcess;
         this.eventSource = eventSource;
         this.watch = watch;
@@ -74,8 +74,8 @@ public class ServiceProvisionContext {
         return selector;
     }
 
-    public ThreadPoolExecutor getProvisioningPool() {
-        return provisioningPool;
+    public ProvisionThrottle getProvisionThrottle() {
+        return provisionThrottle;
     }
 
     public List<ServiceElement> getInProcess() {
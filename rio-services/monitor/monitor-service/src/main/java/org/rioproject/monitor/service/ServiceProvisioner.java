@@ -30,14 +30,17 @@ import net.jini.security.BasicProxyPreparer;
 import net.jini.security.ProxyPreparer;
 import org.rioproject.deploy.DeployedService;
 import org.rioproject.deploy.ServiceBeanInstantiator;
+import org.rioproject.deploy.ResourceCapabilityUpdate;
 import org.rioproject.deploy.ServiceProvisionEvent;
 import org.rioproject.event.EventHandler;
 import org.rioproject.monitor.ProvisionFailureEvent;
 import org.rioproject.monitor.service.managers.FixedServiceManager;
 import org.rioproject.monitor.service.managers.PendingManager;
+import org.rioproject.monitor.service.selectors.PlacementPlan;
 import org.rioproject.monitor.service.selectors.RoundRobinSelector;
 import org.rioproject.monitor.service.selectors.Selector;
 import org.rioproject.monitor.service.selectors.ServiceResourceSelector;
+import org.rioproject.monitor.service.tasks.GangProvisionTask;
 import org.rioproject.monitor.service.tasks.ProvisionFailureEventTask;
 import org.rioproject.monitor.service.tasks.ProvisionTask;
 import org.rioproject.monitor.service.util.FailureReasonFormatter;
@@ -56,10 +59,14 @@ import java.io.IOException;
 import java.rmi.MarshalledObject;
 import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -89,10 +96,12 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
     private final Object eventSource;
     /** EventHandler to fire ProvisionFailureEvent notifications */
     private final EventHandler failureHandler;
-    /** Executor for provision processing */
-    private final ThreadPoolExecutor provisioningPool;
+    /** Bounds the provisioning in flight, overall and to each Cybernode */
+    private final ProvisionThrottle provisionThrottle;
     /** Executor for provision failure event processing */
     private final ThreadPoolExecutor provisionFailurePool;
+    /** Executor for reconciling InstantiatorResource instance counts */
+    private final ExecutorService reconcilePool;
     /** Collection of in-process provision attempts */
     private final List<ServiceElement> inProcess = new CopyOnWriteArrayList<>();
     /** A Watch to measure provision time */
@@ -105,7 +114,12 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
     private final ServiceResourceSelector selector;
     /** ProxyPreparer for ServiceInstantiator proxies */
     private final ProxyPreparer instantiatorPreparer;
+    /** Whether the instances of a service are placed and instantiated as a group */
+    private final boolean gangProvisioning;
     private static final String CONFIG_COMPONENT = "org.rioproject.monitor";
+    private static final int DEFAULT_PROVISIONING_POOL_MAX_THREADS = 32;
+    private static final int DEFAULT_MAX_IN_FLIGHT_PER_INSTANTIATOR = 4;
+    private static final int DEFAULT_PROVISION_FAILURE_POOL_MAX_THREADS = 4;
     /** Logger instance */
     private static final Logger logger = LoggerFactory.getLogger(ServiceProvisioner.class);
     private boolean terminating = false;
@@ -148,13 +162,40 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
                                                               ProxyPreparer.class,
                                                               new BasicProxyPreparer());
 
-        /* Create a ThreadPool for provisioning notification */
-        //provisioningPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(provisioningPoolMaxThreads);
-        provisioningPool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
-
-        /* Create a ThreadPool for provision failure notification */
-        //provisionFailurePool = (ThreadPoolExecutor) Executors.newFixedThreadPool(provisioningPoolMaxThreads);
-        provisionFailurePool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        /* Bound the provisioning in flight, overall and to each Cybernode */
+        int provisioningPoolMaxThreads = Config.getIntEntry(config,
+                                                            CONFIG_COMPONENT,
+                                                            "provisioningPoolMaxThreads",
+                                                            DEFAULT_PROVISIONING_POOL_MAX_THREADS,
+                                                            1,
+                                                            Integer.MAX_VALUE);
+        int maxInFlightPerInstantiator = Config.getIntEntry(config,
+                                                            CONFIG_COMPONENT,
+                                                            "maxInFlightPerInstantiator",
+                                                            DEFAULT_MAX_IN_FLIGHT_PER_INSTANTIATOR,
+                                                            1,
+                                                            Integer.MAX_VALUE);
+        provisionThrottle = new ProvisionThrottle(provisioningPoolMaxThreads, maxInFlightPerInstantiator);
+
+        /* Place and instantiate the instances of a service as a group */
+        gangProvisioning = (Boolean)config.getEntry(CONFIG_COMPONENT, "gangProvisioning", Boolean.class, true);
+
+        /* Create a bounded ThreadPool for provision failure notification */
+        int provisionFailurePoolMaxThreads = Config.getIntEntry(config,
+                                                                CONFIG_COMPONENT,
+                                                                "provisionFailurePoolMaxThreads",
+                                                                DEFAULT_PROVISION_FAILURE_POOL_MAX_THREADS,
+                                                                1,
+                                                                Integer.MAX_VALUE);
+        provisionFailurePool = new ThreadPoolExecutor(provisionFailurePoolMaxThreads,
+                                                      provisionFailurePoolMaxThreads,
+                                                      60,
+                                                      TimeUnit.SECONDS,
+                                                      new LinkedBlockingQueue<>());
+        provisionFailurePool.allowCoreThreadTimeOut(true);
+
+        /* Create a single thread to reconcile instance counts, off the provisioning path */
+        reconcilePool = Executors.newSingleThreadExecutor();
 
         /* Create the LandlordLessor */
         landlord = new LandlordLessor(config, provisionerLeasePolicy);
@@ -179,7 +220,7 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
     private ServiceProvisionContext getServiceProvisionContext(final ProvisionRequest request,
                                                                final ServiceResource serviceResource) {
         ServiceProvisionContext context = new ServiceProvisionContext(selector,
-                                                                      provisioningPool,
+                                                                      provisionThrottle,
                                                                       inProcess,
                                                                       eventSource,
                                                                       watch,
@@ -198,8 +239,10 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
     void terminate() {
         terminating = true;
         landlord.stop(true);
-        provisioningPool.shutdownNow();
+        provisionThrottle.shutdownNow();
         provisionFailurePool.shutdownNow();
+        reconcilePool.shutdownNow();
+        pendingMgr.terminate();
         terminated = true;
     }
 
@@ -210,6 +253,13 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
         return selector;
     }
 
+    /**
+     * @return The ProvisionThrottle
+     */
+    ProvisionThrottle getProvisionThrottle() {
+        return provisionThrottle;
+    }
+
     /**
      * @return The PendingManager
      */
@@ -289,6 +339,7 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
             throw new LeaseDeniedException("Getting ServiceRecords");
         }
 
+        resource.setReconciler(reconcilePool);
         ServiceResource serviceResource = new ServiceResource(resource);
 
         /* Add ServiceResource to landlord */
@@ -325,6 +376,26 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
                         final ResourceCapability updatedCapabilities,
                         final List<DeployedService> deployedServices,
                         final int serviceLimit) throws UnknownLeaseException, RemoteException {
+        handleFeedback(resource, ResourceCapabilityUpdate.snapshot(0, updatedCapabilities, deployedServices, serviceLimit));
+    }
+
+    /**
+     * Get the corresponding InstantiatorResource by iterating through all
+     * known ServiceResource instances and apply an update to it. If not found
+     * or the lease is not valid throw an UnknownLeaseException
+     *
+     * @param resource The ServiceBeanInstantiator
+     * @param update A snapshot, or the changes since a previous update
+     *
+     * @return True if the update was applied, false if the update is a delta
+     * and the InstantiatorResource does not have its base version
+     *
+     * @throws UnknownLeaseException If the Lease is unknown
+     * @throws RemoteException if the ServiceBeanInstantiator proxy fails
+     * preparation
+     */
+    boolean handleFeedback(final ServiceBeanInstantiator resource,
+                           final ResourceCapabilityUpdate update) throws UnknownLeaseException, RemoteException {
         ServiceBeanInstantiator preparedResource = resource;
         if (resource instanceof RemoteMethodControl)
             preparedResource = (ServiceBeanInstantiator)instantiatorPreparer.prepareProxy(resource);
@@ -343,27 +414,20 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
             InstantiatorResource ir = (InstantiatorResource) svcResource.getResource();
             logger.trace("Checking for InstantiatorResource match");
             if (ir.getInstantiator().equals(preparedResource)) {
-                logger.trace("Update from {}, current serviceCount {}, serviceLimit {}",
+                logger.trace("Update from {}, {}, current serviceCount {}, serviceLimit {}",
                              ir.getName(),
-                             deployedServices.size(),
-                             serviceLimit);
+                             update,
+                             ir.getServiceCount(),
+                             update.getServiceLimit());
                 logger.trace("Matched InstantiatorResource");
                 if (!landlord.ensure(svcResource)) {
                     couldNotEnsureLease = svcResource;
                     break;
                 }
+                if (!applyUpdate(ir, update))
+                    return false;
+                selector.resourceCapabilityUpdated(svcResource);
                 updated = true;
-                logger.trace("Set updated resource capabilities");
-                ir.setResourceCapability(updatedCapabilities);
-                logger.trace("Set serviceLimit to {}", serviceLimit);
-                ir.setServiceLimit(serviceLimit);
-                try {
-                    logger.trace("Set deployedServices, was: {}, updated count is now: {}",
-                                  ir.getServiceCount(), deployedServices.size());
-                    ir.setDeployedServices(deployedServices);
-                } catch (Throwable t) {
-                    logger.warn("Getting ServiceRecords from {}", ir.getName(), t);
-                }
                 /* Process all provision types of Fixed first */
                 fixedServiceManager.process(svcResource);
                 /* See if any dynamic provision types are pending */
@@ -383,6 +447,45 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
             logger.warn("Update failed, no matching registration found for {}", resource.getName());
             throw new UnknownLeaseException("Update failed, no matching registration found");
         }
+        return true;
+    }
+
+    /*
+     * Apply an update to an InstantiatorResource. A delta is only applied to
+     * the version it was computed against
+     */
+    private boolean applyUpdate(final InstantiatorResource ir, final ResourceCapabilityUpdate update) {
+        if (!update.isSnapshot() && ir.getResourceCapabilityVersion() != update.getBaseVersion()) {
+            logger.debug("Update from {} is based on version {}, have version {}, request a snapshot",
+                         ir.getName(), update.getBaseVersion(), ir.getResourceCapabilityVersion());
+            return false;
+        }
+        try {
+            logger.trace("Set updated resource capabilities");
+            ir.setResourceCapability(update.apply(ir.getResourceCapability()));
+        } catch (IllegalStateException e) {
+            logger.debug("Update from {} does not apply, request a snapshot: {}", ir.getName(), e.getMessage());
+            return false;
+        }
+        logger.trace("Set serviceLimit to {}", update.getServiceLimit());
+        ir.setServiceLimit(update.getServiceLimit());
+        try {
+            if (update.isSnapshot()) {
+                logger.trace("Set deployedServices, was: {}, updated count is now: {}",
+                             ir.getServiceCount(), update.getDeployedServices().size());
+                ir.setDeployedServices(update.getDeployedServices());
+            } else {
+                for (DeployedService removed : update.getRemovedServices())
+                    ir.removeServiceElementInstance(removed.getServiceElement(),
+                                                    removed.getServiceBeanInstance().getServiceBeanID());
+                for (DeployedService added : update.getAddedServices())
+                    ir.addDeployedService(added);
+            }
+        } catch (Throwable t) {
+            logger.warn("Getting ServiceRecords from {}", ir.getName(), t);
+        }
+        ir.setResourceCapabilityVersion(update.getVersion());
+        return true;
     }
 
     /**
@@ -396,6 +499,76 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
         dispatch(request, resource, 0);
     }
 
+    /**
+     * Dispatch a group of provision requests for the same ServiceElement with
+     * a provision type of DYNAMIC. If gang provisioning is enabled the requests
+     * are placed in one selection pass, and the requests placed on each
+     * Cybernode are sent to it in batched instantiate requests of at most
+     * <tt>maxInFlightPerInstantiator</tt> instances. Requests
+     * that cannot be placed are handled as {@link #dispatch(ProvisionRequest)}
+     * handles a request that cannot be placed.
+     *
+     * @param requests The ProvisionRequests
+     */
+    public void dispatch(final ProvisionRequest[] requests) {
+        if (!gangProvisioning || requests.length < 2) {
+            for (ProvisionRequest request : requests)
+                dispatch(request);
+            return;
+        }
+        if (terminating || terminated) {
+            logger.info("Request to dispatch [{}] instances of {} ignored, utility has terminated",
+                        requests.length, LoggingUtil.getLoggingName(requests[0]));
+            return;
+        }
+        List<ProvisionRequest> gang = new ArrayList<>();
+        for (ProvisionRequest request : requests) {
+            /* Requests for a specific Cybernode are not placed as a group */
+            if (request.getRequestedUuid() != null || request.getExcludeUuid() != null)
+                dispatch(request);
+            else
+                gang.add(request);
+        }
+        if (gang.isEmpty())
+            return;
+        PlacementPlan plan = Selector.acquirePlacementPlan(gang.toArray(new ProvisionRequest[0]), selector);
+        logger.debug("Placed [{}] of [{}] instances of {} on [{}] Cybernodes",
+                     plan.getPlacedCount(), gang.size(), LoggingUtil.getLoggingName(gang.get(0)),
+                     plan.getServiceResources().size());
+        int maxBatch = provisionThrottle.getMaxInFlightPerInstantiator();
+        for (ServiceResource resource : plan.getServiceResources()) {
+            List<ProvisionRequest> placed = plan.getProvisionRequests(resource);
+            /* Each instance counts against the Cybernode's in flight limit, so batches are no larger than it */
+            for (int i = 0; i < placed.size(); i += maxBatch)
+                dispatch(resource, placed.subList(i, Math.min(i + maxBatch, placed.size())));
+        }
+        for (ProvisionRequest request : plan.getUnplaced())
+            dispatch(request, null, 0);
+    }
+
+    private void dispatch(final ServiceResource resource, final List<ProvisionRequest> batch) {
+        InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+        GangProvisionTask task = new GangProvisionTask(resource);
+        for (ProvisionRequest request : batch) {
+            inProcess.add(request.getServiceElement());
+            task.add(new ProvisionTask(getServiceProvisionContext(request, resource), pendingMgr));
+        }
+        try {
+            provisionThrottle.execute(ir, task, batch.size());
+        } catch (Throwable t) {
+            logger.warn("Dispatching [{}] instances of {} to {}",
+                        batch.size(), LoggingUtil.getLoggingName(batch.get(0)), ir.getName(), t);
+            for (ProvisionRequest request : batch) {
+                inProcess.remove(request.getServiceElement());
+                ir.decrementProvisionCounter(request.getServiceElement());
+            }
+            processProvisionFailure(new ProvisionFailureEvent(eventSource,
+                                                              batch.get(0).getServiceElement(),
+                                                              t.getClass().getName()+":"+t.getLocalizedMessage(),
+                                                              t));
+        }
+    }
+
     /**
      * Provision a pending ServiceElement with a provision type of DYNAMIC with an 
      * index into the Collection of pending ServiceElement instances managed by the 
@@ -415,9 +588,10 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
         try {
             if (resource != null) {
                 inProcess.add(request.getServiceElement());
-                provisioningPool.execute(new ProvisionTask(getServiceProvisionContext(request, resource),
-                                                           pendingMgr,
-                                                           index));
+                provisionThrottle.execute((InstantiatorResource) resource.getResource(),
+                                          new ProvisionTask(getServiceProvisionContext(request, resource),
+                                                            pendingMgr,
+                                                            index));
             } else {
                 logger.warn(FailureReasonFormatter.format(request, selector));
 
@@ -478,6 +652,7 @@ public class ServiceProvisioner implements ServiceProvisionDispatcher {
 
         private void remove(final LeasedResource resource) {
             InstantiatorResource ir = (InstantiatorResource)((ServiceResource)resource).getResource();
+            provisionThrottle.remove(ir.getInstantiatorUuid());
             int instantiatorCount = landlord.total();
             logger.info("{} @ {} removed, count now [{}]",
                         ir.getName(), ir.getResourceCapability().getAddress(), instantiatorCount);
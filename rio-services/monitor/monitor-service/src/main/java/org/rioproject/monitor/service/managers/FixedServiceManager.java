@@ -222,7 +222,7 @@ public class FixedServiceManager extends PendingServiceElementManager {
                 spc.setServiceResource(resource);
                 InstantiatorResource ir = (InstantiatorResource) resource.getResource();
                 ir.incrementProvisionCounter(request.getServiceElement());
-                spc.getProvisioningPool().execute(new ProvisionTask(spc, null));
+                spc.getProvisionThrottle().execute(ir, new ProvisionTask(spc, null));
 
             }
             logger.debug(b.toString());
@@ -270,7 +270,7 @@ public class FixedServiceManager extends PendingServiceElementManager {
 
     private ServiceProvisionContext getServiceProvisionContext() {
         return new ServiceProvisionContext(context.getSelector(),
-                                           context.getProvisioningPool(),
+                                           context.getProvisionThrottle(),
                                            context.getInProcess(),
                                            context.getEventSource(),
                                            context.getWatch(),
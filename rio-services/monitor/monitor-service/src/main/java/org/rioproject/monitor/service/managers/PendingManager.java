@@ -1,12 +1,12 @@
 /*
  * Copyright to the original author or authors.
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *         http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,8 +15,11 @@
  */
 package org.rioproject.monitor.service.managers;
 
+import org.rioproject.impl.watch.GaugeWatch;
+import org.rioproject.monitor.service.InstantiatorResource;
 import org.rioproject.monitor.service.ProvisionRequest;
 import org.rioproject.monitor.service.ServiceProvisionContext;
+import org.rioproject.monitor.service.selectors.CandidateSnapshot;
 import org.rioproject.monitor.service.selectors.Selector;
 import org.rioproject.monitor.service.util.FailureReasonFormatter;
 import org.rioproject.opstring.ServiceElement;
@@ -24,14 +27,32 @@ import org.rioproject.impl.service.ServiceResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class is used to manage the provisioning of pending ServiceElement
  * objects that have a ServiceProvisionManagement type of DYNAMIC.
+ *
+ * <p>Pending requests are dispatched by a single thread, which is woken
+ * by {@link #process()} when a Cybernode registers, a Cybernode updates its
+ * capabilities or a service instance is removed. Wake-ups received while a
+ * batch is being dispatched are coalesced into one more batch. Each batch
+ * processes the pending requests in priority order, taking requests from
+ * each OperationalString in turn, and stops selecting for a ServiceElement
+ * once a request for it cannot be placed. Requests that are backing off
+ * after a failed provision attempt are skipped until their retry time.</p>
  */
 public class PendingManager extends PendingServiceElementManager {
     private final Logger logger = LoggerFactory.getLogger(PendingManager.class.getName());
+    private final ScheduledExecutorService dispatcher;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile GaugeWatch queueDepthWatch;
+    private volatile GaugeWatch waitTimeWatch;
 
     /**
      * Create a PendingManager
@@ -40,6 +61,46 @@ public class PendingManager extends PendingServiceElementManager {
      */
     public PendingManager(ServiceProvisionContext context) {
         super("Dynamic-Service TestManager", context);
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PendingManager");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Set the watch that records the number of pending requests after each
+     * batch
+     *
+     * @param queueDepthWatch The GaugeWatch, may be null
+     */
+    public void setQueueDepthWatch(GaugeWatch queueDepthWatch) {
+        this.queueDepthWatch = queueDepthWatch;
+    }
+
+    /**
+     * Set the watch that records how long, in milliseconds, each dispatched
+     * request was pending
+     *
+     * @param waitTimeWatch The GaugeWatch, may be null
+     */
+    public void setWaitTimeWatch(GaugeWatch waitTimeWatch) {
+        this.waitTimeWatch = waitTimeWatch;
+    }
+
+    @Override
+    public long addProvisionRequest(ProvisionRequest request, long index) {
+        long keyIndex = super.addProvisionRequest(request, index);
+        recordQueueDepth();
+        long delay = request.getRetryAfter() - System.currentTimeMillis();
+        if (delay > 0) {
+            try {
+                dispatcher.schedule(this::process, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.debug("{} has been terminated, retry not scheduled", getType());
+            }
+        }
+        return keyIndex;
     }
 
     /**
@@ -57,52 +118,112 @@ public class PendingManager extends PendingServiceElementManager {
     }
 
     /**
-     * Process the pending collection
+     * Wake the dispatcher to process the pending collection. This method
+     * returns immediately
      */
     public void process() {
-        int pendingSize = getSize();
-        dumpCollection();
-        if (pendingSize == 0)
+        if (getSize() == 0 || !scheduled.compareAndSet(false, true))
             return;
         try {
-            Key[] keys;
-            synchronized (collection) {
-                Set<Key> keySet = collection.keySet();
-                keys = keySet.toArray(new Key[keySet.size()]);
-            }
-            for (Key key : keys) {
-                ProvisionRequest request;
-                ServiceResource resource = null;
-                synchronized (collection) {
-                    request = collection.get(key);
-                    if (request != null && request.getServiceElement() != null) {
-                        request.getFailureReasons().clear();
-                        resource = Selector.acquireServiceResource(request, context.getSelector());
-                        if (resource != null) {
-                            synchronized (collection) {
-                                collection.remove(key);
-                            }
-                        } else {
-                            logger.warn(FailureReasonFormatter.format(request, context.getSelector()));
-                        }
-                    }
-                }
+            dispatcher.execute(this::dispatchPending);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            logger.debug("{} has been terminated, pending requests not processed", getType());
+        }
+    }
 
+    /**
+     * Stop dispatching pending requests
+     */
+    public void terminate() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Process the pending collection as one batch
+     *
+     * @return The number of requests dispatched
+     */
+    int dispatchPending() {
+        scheduled.set(false);
+        dumpCollection();
+        int dispatched = 0;
+        try {
+            Set<ServiceElement> unplaceable = new HashSet<>();
+            /* Select the resources of the batch from one snapshot of the candidates */
+            CandidateSnapshot snapshot = context.getSelector().getCandidateSnapshot();
+            long now = System.currentTimeMillis();
+            for (Key key : getDispatchOrder()) {
+                ProvisionRequest request = collection.get(key);
+                if (request == null || request.getServiceElement() == null)
+                    continue;
+                /* Backing off after a failed attempt, a wake up is scheduled */
+                if (request.getRetryAfter() > now)
+                    continue;
+                ServiceElement sElem = request.getServiceElement();
+                if (unplaceable.contains(sElem))
+                    continue;
+                request.getFailureReasons().clear();
+                ServiceResource resource = Selector.acquireServiceResource(request, snapshot);
                 if (resource == null) {
+                    /* Requests that exclude a Cybernode are more constrained
+                     * than the ones that follow, do not skip those */
+                    if (request.getExcludeUuid() == null)
+                        unplaceable.add(sElem);
+                    logger.warn(FailureReasonFormatter.format(request, context.getSelector()));
+                    continue;
+                }
+                if (collection.remove(key) == null) {
+                    /* Removed while the resource was selected */
+                    ((InstantiatorResource) resource.getResource()).decrementProvisionCounter(sElem);
                     continue;
                 }
+                GaugeWatch waitTime = waitTimeWatch;
+                if (waitTime != null)
+                    waitTime.addValue(System.currentTimeMillis() - key.added);
                 try {
                     context.getDispatcher().dispatch(request, resource, key.index);
+                    dispatched++;
                 } catch (Exception e) {
                     logger.trace("Dispatching Pending Collection Element", e);
                 }
-                /* Slow the dispatching down, this will avoid pummeling
-                 * a single InstantiatorResource */
-                Thread.sleep(500);
             }
         } catch (Throwable t) {
             logger.warn("Processing Pending Collection", t);
         }
+        recordQueueDepth();
+        return dispatched;
+    }
+
+    /*
+     * Order the pending keys by priority, and within a priority take keys from each OperationalString in turn,
+     * keeping the order of the collection for each OperationalString
+     */
+    private List<Key> getDispatchOrder() {
+        Map<Integer, Map<String, Deque<Key>>> byPriority = new TreeMap<>(Comparator.reverseOrder());
+        for (Key key : collection.keySet()) {
+            byPriority.computeIfAbsent(key.priority, k -> new LinkedHashMap<>())
+                      .computeIfAbsent(key.sElem.getOperationalStringName(), k -> new ArrayDeque<>())
+                      .add(key);
+        }
+        List<Key> order = new ArrayList<>(getSize());
+        for (Map<String, Deque<Key>> byOpString : byPriority.values()) {
+            Collection<Deque<Key>> queues = byOpString.values();
+            while (!queues.isEmpty()) {
+                for (Iterator<Deque<Key>> iterator = queues.iterator(); iterator.hasNext(); ) {
+                    Deque<Key> queue = iterator.next();
+                    order.add(queue.poll());
+                    if (queue.isEmpty())
+                        iterator.remove();
+                }
+            }
+        }
+        return order;
     }
-} // End PendingManager
 
+    private void recordQueueDepth() {
+        GaugeWatch queueDepth = queueDepthWatch;
+        if (queueDepth != null)
+            queueDepth.addValue(getSize());
+    }
+} // End PendingManager
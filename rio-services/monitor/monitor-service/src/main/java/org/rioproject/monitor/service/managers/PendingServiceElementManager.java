@@ -62,6 +62,8 @@ public abstract class PendingServiceElementManager {
         ServiceElement sElem;
         long index;
         long timestamp;
+        /* The time the key was added to the collection */
+        final long added = System.currentTimeMillis();
         
         Key(ServiceElement sElem, long index, long timestamp) {
             this.sElem = sElem;
@@ -78,11 +80,11 @@ public abstract class PendingServiceElementManager {
                 return 0;
             int comparison;
             long now = System.currentTimeMillis();
-            /* The priority is the high order bit, if not set then check if
+            /* The priority is the high order bit, if equal then check if
              * the ServiceElement objects are equal, if they are, make sure
              * instanceIDs are sorted. If the ServiceElement instances dont match,
              * compare on the timestamp, then the index */
-            if(this.priority==0 && that.priority==0) {
+            if(this.priority==that.priority) {
                 if(this.sElem.equals(that.sElem)) {
                     Long thisInstanceID = this.sElem.getServiceBeanConfig().getInstanceID();
                     Long thatInstanceID = that.sElem.getServiceBeanConfig().getInstanceID();
@@ -134,6 +136,9 @@ public abstract class PendingServiceElementManager {
     public long addProvisionRequest(ProvisionRequest request, long index) {
         long keyIndex = (index == 0 ? collectionIndex++ : index);
         Key key = new Key(request.getServiceElement(), keyIndex, request.getTimestamp());
+        /* Instances being relocated were running, restore them first */
+        if(request.getType()==ProvisionRequest.Type.RELOCATE)
+            key.priority = 1;
         collection.put(key, request);
         return keyIndex;
     }
@@ -0,0 +1,176 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import org.rioproject.deploy.SystemComponent;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.InstantiatorResource;
+import org.rioproject.monitor.service.ProvisionRequest;
+import org.rioproject.opstring.ServiceElement;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.system.capability.PlatformCapability;
+import org.rioproject.system.capability.platform.ByteOrientedDevice;
+import org.rioproject.system.capability.platform.ProcessorArchitecture;
+import org.rioproject.system.capability.platform.SystemMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A <code>ServiceResourceSelector</code> that packs services onto as few
+ * compute resources as possible, leaving whole compute resources free for
+ * services with large requirements.
+ * <p>
+ * The demand of a service is the system memory and number of processors
+ * declared as the <code>Available</code> attribute of its
+ * <code>SystemMemory</code> and <code>ProcessorArchitecture</code> system
+ * requirements. The free share of a compute resource is the available system
+ * memory and the unused processors, less the demand of services it is in the
+ * process of instantiating, relative to its capacity. Resources are considered
+ * fullest first, ordered by their dominant free share (the largest free share
+ * of the two), and resources the demand of a service does not fit on are not
+ * considered for it. Resources that do not declare their memory or processors
+ * are considered last.
+ */
+public class BinPackingSelector extends PrioritySelector {
+    private static final Logger logger = LoggerFactory.getLogger(BinPackingSelector.class);
+
+    /**
+     * Construct a BinPackingSelector
+     */
+    public BinPackingSelector() {
+        super();
+    }
+
+    @Override
+    protected ServiceResource[] filterAvailable(final ProvisionRequest provisionRequest,
+                                                final ServiceResource... filtered) {
+        ServiceElement sElem = provisionRequest.getServiceElement();
+        double memory = getMemoryDemand(sElem);
+        double processors = getProcessorDemand(sElem);
+        if (memory == 0 && processors == 0)
+            return filtered;
+        List<ServiceResource> candidateList = new ArrayList<>(filtered.length);
+        for (ServiceResource candidate : filtered) {
+            Capacity capacity = getCapacity((InstantiatorResource) candidate.getResource());
+            if ((capacity.memory == 0 || memory <= capacity.freeMemory)
+                && (capacity.processors == 0 || processors <= capacity.freeProcessors))
+                candidateList.add(candidate);
+        }
+        if (candidateList.isEmpty() && filtered.length > 0) {
+            provisionRequest.addFailureReason(String.format("There are no Cybernodes with enough free memory and processors for %s",
+                                                            sElem.getName()));
+        }
+        return candidateList.toArray(new ServiceResource[0]);
+    }
+
+    @Override
+    protected double score(final InstantiatorResource ir) {
+        Capacity capacity = getCapacity(ir);
+        double score = -1;
+        if (capacity.memory > 0)
+            score = Math.max(score, capacity.freeMemory / capacity.memory);
+        if (capacity.processors > 0)
+            score = Math.max(score, capacity.freeProcessors / capacity.processors);
+        return score < 0 ? 1 : Math.max(score, 0);
+    }
+
+    /*
+     * The capacity and free memory and processors of an InstantiatorResource, less the demand of the services it
+     * is in the process of instantiating
+     */
+    private Capacity getCapacity(final InstantiatorResource ir) {
+        Capacity capacity = new Capacity();
+        for (PlatformCapability platformCapability : ir.getResourceCapability().getPlatformCapabilities()) {
+            if (platformCapability instanceof SystemMemory) {
+                Object total = platformCapability.getValue(ByteOrientedDevice.CAPACITY);
+                Object available = platformCapability.getValue(ByteOrientedDevice.AVAILABLE);
+                if (total instanceof Number && available instanceof Number) {
+                    capacity.memory = ((Number) total).doubleValue();
+                    capacity.freeMemory = ((Number) available).doubleValue();
+                }
+            } else if (platformCapability instanceof ProcessorArchitecture) {
+                capacity.processors = toDouble(platformCapability.getValue(ProcessorArchitecture.AVAILABLE));
+            }
+        }
+        double utilization = 0;
+        for (MeasuredResource measured : ir.getResourceCapability().getMeasuredResources()) {
+            if (SystemWatchID.SYSTEM_CPU.equals(measured.getIdentifier()) && measured.getValue() > 0)
+                utilization = Math.min(measured.getValue(), 1);
+        }
+        capacity.freeProcessors = capacity.processors * (1 - utilization);
+        for (ServiceElement inProcess : ir.getServiceElementsInprocess(null)) {
+            int count = ir.getInProcessCounter(inProcess);
+            capacity.freeMemory -= count * getMemoryDemand(inProcess);
+            capacity.freeProcessors -= count * getProcessorDemand(inProcess);
+        }
+        return capacity;
+    }
+
+    private static double getMemoryDemand(final ServiceElement sElem) {
+        SystemComponent requirement = getRequirement(sElem, SystemMemory.ID);
+        return requirement == null ? 0 : toDouble(requirement.getAttributes().get(ByteOrientedDevice.AVAILABLE));
+    }
+
+    private static double getProcessorDemand(final ServiceElement sElem) {
+        SystemComponent requirement = getRequirement(sElem, ProcessorArchitecture.ID);
+        return requirement == null ? 0 : toDouble(requirement.getAttributes().get(ProcessorArchitecture.AVAILABLE));
+    }
+
+    private static SystemComponent getRequirement(final ServiceElement sElem, final String name) {
+        for (SystemComponent requirement : sElem.getServiceLevelAgreements().getSystemRequirements().getSystemComponents()) {
+            if (!requirement.exclude() && name.equals(requirement.getName()))
+                return requirement;
+        }
+        return null;
+    }
+
+    /*
+     * Convert a number, or a size ending in 'k', 'm', 'g' or 't', to a double
+     */
+    private static double toDouble(final Object value) {
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        if (!(value instanceof String) || ((String) value).isEmpty())
+            return 0;
+        String s = ((String) value).trim();
+        double multiplier = 1;
+        switch (Character.toLowerCase(s.charAt(s.length() - 1))) {
+            case 'k': multiplier = ByteOrientedDevice.KB; break;
+            case 'm': multiplier = ByteOrientedDevice.MB; break;
+            case 'g': multiplier = ByteOrientedDevice.GB; break;
+            case 't': multiplier = ByteOrientedDevice.TB; break;
+        }
+        if (multiplier > 1)
+            s = s.substring(0, s.length() - 1);
+        try {
+            return Double.parseDouble(s) * multiplier;
+        } catch (NumberFormatException e) {
+            logger.warn("Unable to parse [{}] as a size", value);
+            return 0;
+        }
+    }
+
+    private static class Capacity {
+        double memory;
+        double freeMemory;
+        double processors;
+        double freeProcessors;
+    }
+}
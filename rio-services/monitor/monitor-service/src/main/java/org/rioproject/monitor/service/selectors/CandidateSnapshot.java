@@ -0,0 +1,121 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import net.jini.id.Uuid;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.InstantiatorResource;
+import org.rioproject.monitor.service.ProvisionException;
+import org.rioproject.monitor.service.ProvisionRequest;
+import org.rioproject.opstring.ServiceElement;
+
+import java.util.*;
+
+/**
+ * The {@link ServiceResource} candidates of a {@link ServiceResourceSelector},
+ * taken once to select resources for a batch of {@link ProvisionRequest}s.
+ *
+ * <p>The ServiceResources are read from the selector when the snapshot is
+ * created, and the candidates that meet the system requirements of a
+ * ServiceElement are looked up in the capability index once, for the first
+ * request of the ServiceElement that is selected. As resources are selected
+ * the snapshot is ordered the way the selector orders its resources, so
+ * selections follow the policy of the selector without reading its resources
+ * for each request. Resources registered after the snapshot was taken are
+ * considered by the next snapshot.</p>
+ */
+public class CandidateSnapshot {
+    private final ServiceResourceSelector selector;
+    private final List<ServiceResource> candidates;
+    private final Map<ServiceElement, Set<InstantiatorResource>> matches = new HashMap<>();
+
+    CandidateSnapshot(final ServiceResourceSelector selector, final ServiceResource[] candidates) {
+        this.selector = selector;
+        this.candidates = new ArrayList<>(Arrays.asList(candidates));
+    }
+
+    /**
+     * Select a ServiceResource that meets the operational requirements of a
+     * ProvisionRequest. If the request has a requested Uuid and that resource
+     * cannot be used, any resource is selected. If the request has an
+     * excluded Uuid that resource is not selected.
+     *
+     * @param request The ProvisionRequest
+     *
+     * @return The selected ServiceResource, or <code>null</code> if one
+     * cannot be selected
+     *
+     * @throws ProvisionException If the service cannot be provisioned
+     */
+    public ServiceResource select(final ProvisionRequest request) throws ProvisionException {
+        ServiceResource resource;
+        if (request.getRequestedUuid() != null) {
+            resource = select(request, request.getRequestedUuid(), true);
+            /* If the returned resource is null, then try to get any resource */
+            if (resource == null)
+                resource = select(request, null, false);
+        } else if (request.getExcludeUuid() != null) {
+            resource = select(request, request.getExcludeUuid(), false);
+        } else {
+            resource = select(request, null, false);
+        }
+        if (resource != null)
+            selector.orderCandidates(candidates, resource);
+        return resource;
+    }
+
+    private ServiceResource select(final ProvisionRequest request,
+                                   final Uuid uuid,
+                                   final boolean inclusive) throws ProvisionException {
+        ServiceElement sElem = request.getServiceElement();
+        ServiceResource[] svcResources;
+        if (uuid == null) {
+            if (candidates.isEmpty()) {
+                request.addFailureReason(String.format("There are no registered Cybernodes, unable to provision %s",
+                                                       sElem.getName()));
+                return null;
+            }
+            svcResources = candidates.toArray(new ServiceResource[0]);
+        } else {
+            List<ServiceResource> list = new ArrayList<>();
+            for (ServiceResource candidate : candidates) {
+                InstantiatorResource ir = (InstantiatorResource) candidate.getResource();
+                if (ir.getInstantiatorUuid().equals(uuid) == inclusive)
+                    list.add(candidate);
+            }
+            svcResources = list.toArray(new ServiceResource[0]);
+        }
+        return selector.selectServiceResource(request, this, svcResources);
+    }
+
+    /*
+     * The ServiceResources of the snapshot, in selection order
+     */
+    List<ServiceResource> getServiceResources() {
+        return candidates;
+    }
+
+    /*
+     * The InstantiatorResources that meet the qualitative requirements of the ServiceElement, looked up once
+     */
+    Set<InstantiatorResource> getCapabilityMatches(final ServiceElement sElem) {
+        if (matches.containsKey(sElem))
+            return matches.get(sElem);
+        Set<InstantiatorResource> matched = selector.getCapabilityMatches(sElem);
+        matches.put(sElem, matched);
+        return matched;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import org.rioproject.monitor.service.InstantiatorResource;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.SystemWatchID;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A <code>ServiceResourceSelector</code> that selects the least loaded
+ * <code>ServiceResource</code>. The load of a compute resource is the
+ * weighted mean of the values of its <code>MeasuredResource</code>s, each
+ * between 0 and 1, and of the number of active and in-process services
+ * relative to its service limit.
+ * <p>
+ * By default the system CPU and system memory utilization have a weight of
+ * 1, the disk space utilization and the service count have a weight of 0.5.
+ * The weight of any <code>MeasuredResource</code>, including custom ones, is
+ * set by its identifier, a weight of 0 ignores it. For example, in the
+ * configuration of the Provision Monitor:
+ * <pre>
+ * serviceResourceSelector = new LeastLoadedSelector(["CPU": 2.0, "System Memory": 1.0, "Services": 0.0])
+ * </pre>
+ */
+public class LeastLoadedSelector extends PrioritySelector {
+    /** The identifier used to weight the service count */
+    public static final String SERVICES = "Services";
+    private final Map<String, Double> weights = new HashMap<>();
+
+    /**
+     * Construct a LeastLoadedSelector with the default weights
+     */
+    public LeastLoadedSelector() {
+        weights.put(SystemWatchID.SYSTEM_CPU, 1.0);
+        weights.put(SystemWatchID.SYSTEM_MEMORY, 1.0);
+        weights.put(SystemWatchID.DISK_SPACE, 0.5);
+        weights.put(SERVICES, 0.5);
+    }
+
+    /**
+     * Construct a LeastLoadedSelector
+     *
+     * @param weights Weights by <code>MeasuredResource</code> identifier, or
+     * {@link #SERVICES}, that replace the defaults
+     */
+    public LeastLoadedSelector(final Map<String, ? extends Number> weights) {
+        this();
+        for (Map.Entry<String, ? extends Number> entry : weights.entrySet())
+            setWeight(entry.getKey(), entry.getValue().doubleValue());
+    }
+
+    /**
+     * Set the weight of a <code>MeasuredResource</code>
+     *
+     * @param identifier The identifier of the MeasuredResource, or
+     * {@link #SERVICES}
+     * @param weight The weight, 0 to ignore it
+     */
+    public void setWeight(final String identifier, final double weight) {
+        if (weight < 0)
+            throw new IllegalArgumentException("weight must not be negative");
+        synchronized (weights) {
+            weights.put(identifier, weight);
+        }
+    }
+
+    @Override
+    protected double score(final InstantiatorResource ir) {
+        double load = 0;
+        double total = 0;
+        synchronized (weights) {
+            for (MeasuredResource measured : ir.getResourceCapability().getMeasuredResources()) {
+                Double weight = weights.get(measured.getIdentifier());
+                double value = measured.getValue();
+                if (weight == null || weight == 0 || value < 0 || Double.isNaN(value))
+                    continue;
+                load += weight * Math.min(value, 1);
+                total += weight;
+            }
+            Double weight = weights.get(SERVICES);
+            if (weight != null && weight > 0 && ir.getServiceLimit() > 0) {
+                load += weight * Math.min((double) ir.getServiceCount() / ir.getServiceLimit(), 1);
+                total += weight;
+            }
+        }
+        return total == 0 ? 0 : load / total;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.ProvisionRequest;
+
+import java.util.*;
+
+/**
+ * The placement of a group of {@link ProvisionRequest}s for the same
+ * ServiceElement, computed by
+ * {@link ServiceResourceSelector#getPlacementPlan(ProvisionRequest...)}.
+ * Requests are grouped by the {@link ServiceResource} they were placed on,
+ * requests that could not be placed are kept separately.
+ */
+public class PlacementPlan {
+    private final Map<ServiceResource, List<ProvisionRequest>> placements = new LinkedHashMap<>();
+    private final List<ProvisionRequest> unplaced = new ArrayList<>();
+
+    void place(final ProvisionRequest request, final ServiceResource resource) {
+        placements.computeIfAbsent(resource, k -> new ArrayList<>()).add(request);
+    }
+
+    void unplaced(final ProvisionRequest request) {
+        unplaced.add(request);
+    }
+
+    /**
+     * Get the ServiceResources that requests were placed on, in the order
+     * they were first selected
+     *
+     * @return An unmodifiable collection of ServiceResources
+     */
+    public Collection<ServiceResource> getServiceResources() {
+        return Collections.unmodifiableSet(placements.keySet());
+    }
+
+    /**
+     * Get the requests placed on a ServiceResource
+     *
+     * @param resource The ServiceResource
+     *
+     * @return An unmodifiable list of the requests placed on the
+     * ServiceResource, empty if there are none
+     */
+    public List<ProvisionRequest> getProvisionRequests(final ServiceResource resource) {
+        List<ProvisionRequest> requests = placements.get(resource);
+        return requests == null ? Collections.emptyList() : Collections.unmodifiableList(requests);
+    }
+
+    /**
+     * Get the requests that could not be placed
+     *
+     * @return An unmodifiable list of the requests that could not be placed
+     */
+    public List<ProvisionRequest> getUnplaced() {
+        return Collections.unmodifiableList(unplaced);
+    }
+
+    /**
+     * Get the number of requests that were placed
+     *
+     * @return The number of requests that were placed
+     */
+    public int getPlacedCount() {
+        int count = 0;
+        for (List<ProvisionRequest> requests : placements.values())
+            count += requests.size();
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import com.sun.jini.landlord.LeasedResource;
+import net.jini.id.Uuid;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.InstantiatorResource;
+
+import java.util.*;
+
+/**
+ * A <code>ServiceResourceSelector</code> that keeps <code>ServiceResource</code>
+ * objects ordered by a score computed from their
+ * <code>InstantiatorResource</code>, lowest score first. Candidates are
+ * considered for selection in that order.
+ * <p>
+ * The ordering is maintained incrementally. A resource is re-scored, and
+ * moved within the ordering, when its <code>ResourceCapability</code> is
+ * updated, when its lease is renewed, and after it has been selected. Scores
+ * are recomputed lazily, before the next snapshot of the resources is taken,
+ * so a resource selected for a service is re-scored with the service counted
+ * as in-process.
+ */
+public abstract class PrioritySelector extends ServiceResourceSelector {
+    private final Map<LeasedResource, Double> scores = new HashMap<>();
+    private final Set<LeasedResource> stale = new HashSet<>();
+
+    /**
+     * Construct a PrioritySelector
+     */
+    protected PrioritySelector() {
+        collection = new TreeSet<>(this::compare);
+    }
+
+    /**
+     * Compute the score of an <code>InstantiatorResource</code>
+     *
+     * @param ir The InstantiatorResource
+     *
+     * @return The score, resources with lower scores are considered first
+     */
+    protected abstract double score(InstantiatorResource ir);
+
+    /**
+     * Get the score a <code>ServiceResource</code> is currently ordered by
+     *
+     * @param resource The ServiceResource
+     *
+     * @return The score, or <code>Double.NaN</code> if the resource is not
+     * known
+     */
+    public synchronized double getScore(final ServiceResource resource) {
+        Double score = scores.get(resource);
+        return score == null ? Double.NaN : score;
+    }
+
+    @Override
+    public synchronized ServiceResource[] getServiceResources() {
+        if (!stale.isEmpty()) {
+            for (LeasedResource resource : stale) {
+                if (collection.remove(resource)) {
+                    scores.put(resource, score(getInstantiatorResource(resource)));
+                    collection.add(resource);
+                }
+            }
+            stale.clear();
+        }
+        return super.getServiceResources();
+    }
+
+    @Override
+    public synchronized void serviceResourceSelected(final ServiceResource resource) {
+        stale.add(resource);
+    }
+
+    /**
+     * Re-score the selected resource and move it within the candidates, as
+     * it will be moved within the ordering before the next snapshot
+     */
+    @Override
+    protected synchronized void orderCandidates(final List<ServiceResource> candidates,
+                                                final ServiceResource selected) {
+        if (!candidates.remove(selected))
+            return;
+        double score = score(getInstantiatorResource(selected));
+        int index = 0;
+        while (index < candidates.size()
+               && compare(candidates.get(index), getScore(candidates.get(index)), selected, score) < 0)
+            index++;
+        candidates.add(index, selected);
+    }
+
+    @Override
+    protected synchronized void utilizationUpdated(final ServiceResource resource) {
+        stale.add(resource);
+    }
+
+    @Override
+    protected synchronized void add(final LeasedResource resource) {
+        if (scores.containsKey(resource))
+            return;
+        scores.put(resource, score(getInstantiatorResource(resource)));
+        collection.add(resource);
+    }
+
+    @Override
+    protected synchronized void remove(final LeasedResource resource) {
+        if (resource != null && scores.containsKey(resource)) {
+            collection.remove(resource);
+            scores.remove(resource);
+            stale.remove(resource);
+        }
+    }
+
+    @Override
+    protected synchronized void update(final LeasedResource resource) {
+        if (scores.containsKey(resource))
+            stale.add(resource);
+    }
+
+    private int compare(final LeasedResource r1, final LeasedResource r2) {
+        return compare(r1, scores.get(r1), r2, scores.get(r2));
+    }
+
+    private static int compare(final LeasedResource r1, final double score1,
+                               final LeasedResource r2, final double score2) {
+        int result = Double.compare(score1, score2);
+        if (result == 0) {
+            Uuid u1 = getInstantiatorResource(r1).getInstantiatorUuid();
+            Uuid u2 = getInstantiatorResource(r2).getInstantiatorUuid();
+            result = Long.compare(u1.getMostSignificantBits(), u2.getMostSignificantBits());
+            if (result == 0)
+                result = Long.compare(u1.getLeastSignificantBits(), u2.getLeastSignificantBits());
+        }
+        return result;
+    }
+
+    private static InstantiatorResource getInstantiatorResource(final LeasedResource resource) {
+        return (InstantiatorResource) ((ServiceResource) resource).getResource();
+    }
+}
@@ -19,6 +19,7 @@ import com.sun.jini.landlord.LeasedResource;
 import org.rioproject.impl.service.ServiceResource;
 
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * This class provides an implementation of a
@@ -55,6 +56,12 @@ public class RoundRobinSelector extends ServiceResourceSelector {
     /**
      * Override parent's update method to provide proper LinkedList behavior
      */
+    @Override
+    protected void orderCandidates(List<ServiceResource> candidates, ServiceResource selected) {
+        if(candidates.remove(selected))
+            candidates.add(selected);
+    }
+
     @Override
     protected void update(LeasedResource resource) {
         LinkedList<LeasedResource> list = (LinkedList<LeasedResource>)collection;
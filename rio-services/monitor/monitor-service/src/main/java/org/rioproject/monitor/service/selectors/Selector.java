@@ -39,21 +39,24 @@ public class Selector {
      */
     public static ServiceResource acquireServiceResource(final ProvisionRequest request,
                                                          final ServiceResourceSelector selector) {
+        return acquireServiceResource(request, selector.getCandidateSnapshot());
+    }
+
+    /**
+     * Get a ServiceBeanInstantiator that meets the operational requirements of a
+     * ServiceElement from a snapshot of the candidates of a selector, used to
+     * select resources for a batch of requests
+     *
+     * @param request  The ProvisionRequest
+     * @param snapshot A CandidateSnapshot taken for the batch
+     * @return A ServiceResource that contains an InstantiatorResource that meets the operational criteria of the
+     * ServiceElement
+     */
+    public static ServiceResource acquireServiceResource(final ProvisionRequest request,
+                                                         final CandidateSnapshot snapshot) {
         ServiceResource resource = null;
         try {
-            if (request.getRequestedUuid() != null) {
-                resource = selector.getServiceResource(request, request.getRequestedUuid(), true);
-                /* If the returned resource is null, then try to get any resource */
-                if (resource == null) {
-                    resource = selector.getServiceResource(request);
-                }
-
-            } else if (request.getExcludeUuid() != null) {
-                resource = selector.getServiceResource(request, request.getExcludeUuid(), false);
-            } else {
-                resource = selector.getServiceResource(request);
-            }
-
+            resource = snapshot.select(request);
             if (resource != null) {
                 InstantiatorResource ir = (InstantiatorResource) resource.getResource();
                 ir.incrementProvisionCounter(request.getServiceElement());
@@ -69,4 +72,33 @@ public class Selector {
         return resource;
     }
 
+    /**
+     * Get the placement of a group of ProvisionRequests for the same
+     * ServiceElement, acquiring the ServiceResources they are placed on
+     *
+     * @param requests The ProvisionRequests
+     * @param selector A selector
+     * @return The PlacementPlan. If the ServiceElement cannot be provisioned
+     * all requests are unplaced
+     */
+    public static PlacementPlan acquirePlacementPlan(final ProvisionRequest[] requests,
+                                                     final ServiceResourceSelector selector) {
+        try {
+            return selector.getPlacementPlan(requests);
+        } catch (ProvisionException e) {
+            for (ProvisionRequest request : requests) {
+                if (e.isUninstantiable()) {
+                    request.setType(ProvisionRequest.Type.UNINSTANTIABLE);
+                    request.getListener().uninstantiable(request);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Getting PlacementPlan", e);
+        }
+        PlacementPlan plan = new PlacementPlan();
+        for (ProvisionRequest request : requests)
+            plan.unplaced(request);
+        return plan;
+    }
+
 }
@@ -16,8 +16,8 @@
 package org.rioproject.monitor.service.selectors;
 
 import com.sun.jini.landlord.LeasedResource;
-import net.jini.id.Uuid;
 import org.rioproject.monitor.service.AssociationMatcher;
+import org.rioproject.monitor.service.CapabilityIndex;
 import org.rioproject.monitor.service.InstantiatorResource;
 import org.rioproject.monitor.service.ProvisionException;
 import org.rioproject.monitor.service.ProvisionRequest;
@@ -54,6 +54,11 @@ import java.util.*;
  * <code>LandlordLessor</code>. The object that implements this interface
  * should define the actions to take upon receipt of such notifications
  * <p>
+ * The qualitative platform capabilities and addresses of the
+ * <code>InstantiatorResource</code> instances are kept in a
+ * {@link CapabilityIndex}, so that selection only runs the remaining checks
+ * on the instantiators that meet the hard system requirements of a service
+ * <p>
  * Concrete implementations of this class must provide a zero-argument
  * constructor in order to be instantiated by the ProvisionMonitor
  *
@@ -70,6 +75,8 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * notification events
      */
     private LandlordLessor landlord;
+    /** Index of the qualitative capabilities of the managed InstantiatorResources */
+    private final CapabilityIndex capabilityIndex = new CapabilityIndex();
 
     /**
      * Set the <code>LandlordLessor</code> the
@@ -83,46 +90,166 @@ public abstract class ServiceResourceSelector implements LeaseListener {
     }
 
     /**
-     * This method will attempt to identify an available
-     * <code>ServiceResource</code> based on the operational criteria
-     * specified by a ServiceBean
-     * 
+     * Take a snapshot of the <code>ServiceResource</code> candidates to
+     * select from for a batch of provision requests
+     *
+     * @return A CandidateSnapshot of the managed ServiceResources
+     */
+    public CandidateSnapshot getCandidateSnapshot() {
+        return new CandidateSnapshot(this, getServiceResources());
+    }
+
+    /**
+     * Notify the selector that the <code>ResourceCapability</code> of a
+     * <code>ServiceResource</code> has been updated
+     *
+     * @param resource The ServiceResource
+     */
+    public void resourceCapabilityUpdated(final ServiceResource resource) {
+        capabilityIndex.add((InstantiatorResource) resource.getResource());
+        utilizationUpdated(resource);
+    }
+
+    /**
+     * This method allows concrete implementations of this class to order the
+     * Collection of ServiceResource instances based on the updated
+     * utilization of a ServiceResource
+     *
+     * @param resource The ServiceResource whose ResourceCapability has been
+     * updated
+     */
+    protected void utilizationUpdated(final ServiceResource resource) {
+    }
+
+    /**
+     * This method allows concrete implementations of this class that order
+     * the Collection of ServiceResource instances based on a ServiceResource
+     * being selected to order a {@link CandidateSnapshot} the same way
+     *
+     * @param candidates The ServiceResource instances of a CandidateSnapshot,
+     * in selection order
+     * @param selected The ServiceResource that was selected from the
+     * candidates
+     */
+    protected void orderCandidates(final List<ServiceResource> candidates, final ServiceResource selected) {
+    }
+
+    /**
+     * Narrow <code>ServiceResource</code> candidates to those whose
+     * <code>InstantiatorResource</code> meets the qualitative requirements of
+     * the <code>ServiceElement</code> that can be evaluated from the
+     * {@link CapabilityIndex}, and that have the capacity available for it
+     *
      * @param provisionRequest The ProvisionRequest
-     * @return If a <code>ServiceResource</code> object can
-     * be identified, return the <code>ServiceResource</code>, otherwise 
-     * return <code>null</code>
+     * @param candidates The candidate ServiceResource instances
      *
-     * @throws Exception If there are errors getting a ServiceResource
+     * @return An array of ServiceResource instances that may meet the
+     * requirements
      */
-    ServiceResource getServiceResource(final ProvisionRequest provisionRequest) throws Exception {
-        ServiceResource[] svcResources = getServiceResources();
-        if(svcResources.length==0) {
-            provisionRequest.addFailureReason(String.format("There are no registered Cybernodes, unable to provision %s",
+    public ServiceResource[] filterCandidates(final ProvisionRequest provisionRequest,
+                                              final ServiceResource... candidates) {
+        return filterCandidates(provisionRequest, getCapabilityMatches(provisionRequest.getServiceElement()), candidates);
+    }
+
+    /**
+     * Narrow <code>ServiceResource</code> candidates that meet the system
+     * requirements of the <code>ServiceElement</code> to those that currently
+     * have the capacity available for it
+     *
+     * @param provisionRequest The ProvisionRequest
+     * @param candidates The candidate ServiceResource instances
+     *
+     * @return An array of ServiceResource instances that have the capacity
+     * available. This implementation returns the candidates
+     */
+    protected ServiceResource[] filterAvailable(final ProvisionRequest provisionRequest,
+                                                final ServiceResource... candidates) {
+        return candidates;
+    }
+
+    /*
+     * The InstantiatorResources that meet the qualitative requirements of the ServiceElement, or null if none are
+     * declared
+     */
+    Set<InstantiatorResource> getCapabilityMatches(final ServiceElement sElem) {
+        return capabilityIndex.getCandidates(sElem);
+    }
+
+    private ServiceResource[] filterCandidates(final ProvisionRequest provisionRequest,
+                                               final Set<InstantiatorResource> matched,
+                                               final ServiceResource... candidates) {
+        if (matched == null)
+            return candidates.length == 0 ? candidates : filterAvailable(provisionRequest, candidates);
+        List<ServiceResource> candidateList = new ArrayList<>(Math.min(matched.size(), candidates.length));
+        for (ServiceResource candidate : candidates) {
+            if (matched.contains((InstantiatorResource) candidate.getResource()))
+                candidateList.add(candidate);
+        }
+        if (candidateList.isEmpty()) {
+            provisionRequest.addFailureReason(String.format("There are no Cybernodes that meet the system requirements of %s",
                                                             provisionRequest.getServiceElement().getName()));
-            return null;
         }
-        return selectServiceResource(provisionRequest, svcResources);
+        logger.trace("{} of {} Cybernodes meet the system requirements of {}",
+                     candidateList.size(), candidates.length, provisionRequest.getServiceElement().getName());
+        ServiceResource[] filtered = candidateList.toArray(new ServiceResource[0]);
+        return filtered.length == 0 ? filtered : filterAvailable(provisionRequest, filtered);
     }
 
     /**
-     * This method will attempt to identify an available
-     * <code>ServiceResource</code> based on the operational criteria
-     * specified by a ServiceBean
-     * 
-     * @param provisionRequest The ProvisionRequest
-     * @param uuid The Uuid of the InstantiatorResource to either include or
-     * not include
-     * @param inclusive Either include or exclude the uuid from the selection.
-     * If true, include the uuid otherwise exclude the uuid
-     * @return If a <code>ServiceResource</code> object can
-     * be identified, otherwise return <code>null</code>
+     * Compute the placement of a group of provision requests for the same
+     * ServiceElement in one selection pass. The requests are placed from one
+     * {@link CandidateSnapshot}, so the candidates that meet the system
+     * requirements of the ServiceElement are determined once, each request is
+     * then placed on one of them in selection order.
+     *
+     * <p>The provision counter of the InstantiatorResource a request is
+     * placed on is incremented as the request is placed, as
+     * {@link Selector#acquireServiceResource(ProvisionRequest, ServiceResourceSelector)}
+     * does, so the placement of each request accounts for the requests placed
+     * before it when applying the service limit, planned, maxPerMachine,
+     * machine boundary, cluster, colocation and opposed constraints. Once a
+     * request cannot be placed the remaining requests are not placed either.</p>
      *
-     * @throws ProvisionException if any errors occur selecting a resource
+     * @param requests The ProvisionRequests, all for the same ServiceElement
+     * and without a requested or excluded Uuid
+     *
+     * @return The PlacementPlan
+     *
+     * @throws ProvisionException if the service cannot be provisioned. No
+     * requests are placed
      */
-    ServiceResource getServiceResource(final ProvisionRequest provisionRequest,
-                                       final Uuid uuid,
-                                       final boolean inclusive) throws ProvisionException {
-        return selectServiceResource(provisionRequest, getServiceResources(uuid, inclusive));
+    public PlacementPlan getPlacementPlan(final ProvisionRequest... requests) throws ProvisionException {
+        PlacementPlan plan = new PlacementPlan();
+        if (requests.length == 0)
+            return plan;
+        CandidateSnapshot snapshot = getCandidateSnapshot();
+        ProvisionRequest last = null;
+        try {
+            for (ProvisionRequest request : requests) {
+                ServiceResource resource = null;
+                if (last == null)
+                    resource = snapshot.select(request);
+                if (resource == null) {
+                    /* Requests for the same service that follow fail for the same reasons */
+                    if (last == null)
+                        last = request;
+                    else
+                        request.getFailureReasons().addAll(last.getFailureReasons());
+                    plan.unplaced(request);
+                    continue;
+                }
+                ((InstantiatorResource) resource.getResource()).incrementProvisionCounter(request.getServiceElement());
+                plan.place(request, resource);
+            }
+        } catch (ProvisionException e) {
+            for (ServiceResource resource : plan.getServiceResources()) {
+                InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+                for (ProvisionRequest request : plan.getProvisionRequests(resource))
+                    ir.decrementProvisionCounter(request.getServiceElement());
+            }
+            throw e;
+        }
+        return plan;
     }
 
     /**
@@ -130,6 +257,7 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * the operational criteria of a ServiceBean
      *
      * @param provisionRequest The ProvisionRequest
+     * @param snapshot The CandidateSnapshot the candidates were taken from
      * @param svcResources Array ServiceResource candidates
      * @return If a <code>ServiceResource</code> object can
      * be identified, otherwise return <code>null</code>
@@ -137,19 +265,29 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * @throws org.rioproject.monitor.service.ProvisionException If there are unrecoverable errors
      * provisioning the service
      */
-    private ServiceResource selectServiceResource(final ProvisionRequest provisionRequest,
-                                                  final ServiceResource[] svcResources) throws ProvisionException {
+    ServiceResource selectServiceResource(final ProvisionRequest provisionRequest,
+                                          final CandidateSnapshot snapshot,
+                                          final ServiceResource[] svcResources) throws ProvisionException {
         if(svcResources.length==0) {
             provisionRequest.addFailureReason(String.format("There are no available Cybernodes, unable to provision %s",
                                                             provisionRequest.getServiceElement().getName()));
             return null;
         }
 
+        /* Only consider resources that meet the hard system requirements */
+        ServiceElement sElem = provisionRequest.getServiceElement();
+        ServiceResource[] filteredResources =
+            filterCandidates(provisionRequest, snapshot.getCapabilityMatches(sElem), svcResources);
+        if(filteredResources.length==0)
+            return null;
+
         /* Filter out isolated associations and max per machine levels set
          * at the physical level */
-        ServiceResource[] filteredResources = filterMachineBoundaries(provisionRequest, svcResources);
+        filteredResources = filterMachineBoundaries(provisionRequest, filteredResources);
         if(filteredResources.length > 0) {
-            filteredResources = filterIsolated(provisionRequest, filteredResources);
+            filteredResources = filterIsolated(provisionRequest,
+                                               getInstantiatorResources(snapshot.getServiceResources(), sElem, true),
+                                               filteredResources);
         } else {
             provisionRequest.addFailureReason(String.format("There are no available Cybernodes, unable to provision %s",
                                                             provisionRequest.getServiceElement().getName()));
@@ -162,7 +300,6 @@ public abstract class ServiceResourceSelector implements LeaseListener {
              * Make sure the InstantiatorResource has not reached it's
              * serviceLimit
              */
-            ServiceElement sElem = provisionRequest.getServiceElement();
             int serviceLimit = ir.getServiceLimit();
             int total = ir.getServiceElementCount() + ir.getInProcessCounter();
             if (total >= serviceLimit) {
@@ -228,10 +365,17 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * @return An array of suitable ServiceResource instances
      */
     public ServiceResource[] filterIsolated(final ProvisionRequest provisionRequest, final ServiceResource... candidates) {
+        InstantiatorResource[] known = getInstantiatorResources(Arrays.asList(getServiceResources()),
+                                                                provisionRequest.getServiceElement(),
+                                                                true);
+        return filterIsolated(provisionRequest, known, candidates);
+    }
+
+    private ServiceResource[] filterIsolated(final ProvisionRequest provisionRequest,
+                                             final InstantiatorResource[] known,
+                                             final ServiceResource... candidates) {
         /* For the set of candidate instantiator resources, remove the
          * candidate instantiator resources that have the same host name */
-        InstantiatorResource[] known = getInstantiatorResources(provisionRequest.getServiceElement(), true);
-
         List<ServiceResource> candidateList = new ArrayList<>(Arrays.asList(candidates));
         for (ServiceResource candidate1 : candidates) {
             InstantiatorResource candidate = (InstantiatorResource) candidate1.getResource();
@@ -343,7 +487,7 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * provisioning the service
      */
     public ServiceResource[] getServiceResources(final ProvisionRequest provisionRequest) throws ProvisionException {
-        ServiceResource[] svcResources = getServiceResources();
+        ServiceResource[] svcResources = filterCandidates(provisionRequest, getServiceResources());
         ArrayList<ServiceResource> list = new ArrayList<>();
         for (ServiceResource svcResource : svcResources) {
             InstantiatorResource ir = (InstantiatorResource) svcResource.getResource();
@@ -365,35 +509,6 @@ public abstract class ServiceResourceSelector implements LeaseListener {
         return list.toArray(new ServiceResource[0]);
     }
 
-    /**
-     * Get all available <code>ServiceResource</code> instances that match the
-     * Uuid provided
-     * 
-     * @param uuid A uuid address to match
-     * @param inclusive Either include or exclude the resource. If true,
-     * include the resource if it matches the uuid, otherwise exclude the
-     * resource
-     * @return Array of ServiceResource instances that match
-     * the host address
-     */
-    private ServiceResource[] getServiceResources(final Uuid uuid, final boolean inclusive) {
-        ServiceResource[] svcResources = getServiceResources();
-        ArrayList<ServiceResource> list = new ArrayList<>();
-        for (ServiceResource svcResource : svcResources) {
-            InstantiatorResource ir = (InstantiatorResource) svcResource.getResource();
-            if (ir.getInstantiatorUuid().equals(uuid)) {
-                if (inclusive) {
-                    list.add(svcResource);
-                }
-            } else {
-                if (!inclusive) {
-                    list.add(svcResource);
-                }
-            }
-        } 
-        return list.toArray(new ServiceResource[0]);
-    }
-
     /**
      * Get all available <code>ServiceResource</code> instances that match the
      * host address provided
@@ -447,6 +562,7 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * @param resource The ServiceResource
      */
     public void dropServiceResource(final ServiceResource resource) {
+        unindex(resource);
         remove(resource);
         try {
             landlord.cancel(resource.getCookie());
@@ -483,6 +599,7 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      */
     public void expired(final LeasedResource resource) {
         if(resource != null) {
+            unindex(resource);
             remove(resource);
         }
     }
@@ -494,6 +611,7 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      */
     public void removed(final LeasedResource resource) {
         if(resource != null) {
+            unindex(resource);
             remove(resource);
         }
     }
@@ -504,6 +622,7 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * @param resource The resource associated with the new Lease.
      */
     public void register(final LeasedResource resource) {
+        capabilityIndex.add((InstantiatorResource) ((ServiceResource) resource).getResource());
         add(resource);
     }
 
@@ -524,6 +643,10 @@ public abstract class ServiceResourceSelector implements LeaseListener {
         }
     }
 
+    private void unindex(final LeasedResource resource) {
+        capabilityIndex.remove((InstantiatorResource) ((ServiceResource) resource).getResource());
+    }
+
     /**
      * If the <code>Collection</code> backed by the concrete class requires
      * processing other then that defined by <code>Collection.add</code>
@@ -580,20 +703,22 @@ public abstract class ServiceResourceSelector implements LeaseListener {
      * the ServiceElement
      */
     public InstantiatorResource[] getInstantiatorResources(final ServiceElement sElem) {
-        return getInstantiatorResources(sElem, false);
+        return getInstantiatorResources(Arrays.asList(getServiceResources()), sElem, false);
     }
 
     /**
      * Get all <code>InstantiatorResource</code> instances that have
      * instantiated instances of the ServiceElement
      *
+     * @param svcResources The ServiceResource instances to check
      * @param sElem The ServiceElement
      * @param includeInProcess Whether to include in process elements
      * @return Array of InstantiatorResource instances that have instantiated
      * the ServiceElement
      */
-    private InstantiatorResource[] getInstantiatorResources(final ServiceElement sElem, final boolean includeInProcess) {
-        ServiceResource[] svcResources = getServiceResources();
+    private static InstantiatorResource[] getInstantiatorResources(final Collection<ServiceResource> svcResources,
+                                                                   final ServiceElement sElem,
+                                                                   final boolean includeInProcess) {
         ArrayList<InstantiatorResource> list = new ArrayList<>();
         for (ServiceResource svcResource : svcResources) {
             InstantiatorResource ir = (InstantiatorResource) svcResource.getResource();
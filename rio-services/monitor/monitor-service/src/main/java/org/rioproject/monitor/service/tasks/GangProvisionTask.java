@@ -0,0 +1,99 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.tasks;
+
+import org.rioproject.deploy.DeployedService;
+import org.rioproject.deploy.ServiceProvisionEvent;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.InstantiatorResource;
+import org.rioproject.monitor.service.util.LoggingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GangProvisionTask provisions the requests of a
+ * {@link org.rioproject.monitor.service.selectors.PlacementPlan} that were
+ * placed on the same Cybernode with one batched instantiate request.
+ *
+ * <p>Each request is completed by its own {@link ProvisionTask}. Requests for
+ * instances that were not instantiated are resubmitted to the
+ * {@link org.rioproject.monitor.service.managers.PendingManager}, the
+ * instances that were instantiated are kept.</p>
+ */
+public class GangProvisionTask implements Runnable {
+    private final ServiceResource serviceResource;
+    private final List<ProvisionTask> tasks = new ArrayList<>();
+    private final Logger logger = LoggerFactory.getLogger(GangProvisionTask.class);
+
+    /**
+     * Create a GangProvisionTask
+     *
+     * @param serviceResource The ServiceResource the requests were placed on
+     */
+    public GangProvisionTask(ServiceResource serviceResource) {
+        this.serviceResource = serviceResource;
+    }
+
+    /**
+     * Add the ProvisionTask of a request placed on the ServiceResource
+     *
+     * @param task The ProvisionTask
+     */
+    public void add(ProvisionTask task) {
+        tasks.add(task);
+    }
+
+    public void run() {
+        InstantiatorResource ir = (InstantiatorResource) serviceResource.getResource();
+        long start = System.currentTimeMillis();
+        ServiceProvisionEvent[] events = new ServiceProvisionEvent[tasks.size()];
+        DeployedService[] deployedServices = null;
+        Throwable thrown = null;
+        try {
+            for (int i = 0; i < events.length; i++)
+                events[i] = tasks.get(i).createServiceProvisionEvent();
+            logger.debug("Allocating [{}] instances of [{}] to {}...",
+                         events.length, LoggingUtil.getLoggingName(events[0].getServiceElement()), ir.getName());
+            deployedServices = ir.getInstantiator().instantiate(events);
+        } catch (Throwable t) {
+            thrown = t;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        int allocated = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            ProvisionTask task = tasks.get(i);
+            int result = 0;
+            try {
+                if (thrown != null) {
+                    result = task.provisionFailed(thrown, i == 0);
+                } else if (deployedServices != null && i < deployedServices.length && deployedServices[i] != null) {
+                    task.provisioned(deployedServices[i]);
+                    allocated++;
+                }
+            } catch (Throwable t) {
+                logger.warn("Recording provision result on {}", ir.getName(), t);
+            }
+            task.complete(result, elapsed);
+        }
+        if (thrown == null && allocated < tasks.size()) {
+            logger.debug("{} at [{}] allocated [{}] of [{}] instances, the remainder will be retried",
+                         ir.getName(), ir.getHostAddress(), allocated, tasks.size());
+        }
+    }
+}
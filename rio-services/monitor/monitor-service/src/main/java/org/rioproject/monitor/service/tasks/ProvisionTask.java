@@ -26,6 +26,7 @@ import org.rioproject.monitor.service.ProvisionRequest;
 import org.rioproject.monitor.service.ServiceProvisionContext;
 import org.rioproject.monitor.service.ServiceProvisioner;
 import org.rioproject.monitor.service.managers.PendingManager;
+import org.rioproject.monitor.service.util.Backoff;
 import org.rioproject.monitor.service.util.LoggingUtil;
 import org.rioproject.impl.service.ServiceResource;
 import org.rioproject.impl.util.ThrowableUtil;
@@ -40,6 +41,10 @@ import java.util.concurrent.RejectedExecutionException;
  * The ProvisionTask is created to process and provision dispatch request
  */
 public class ProvisionTask implements Runnable {
+    /** The delay before retrying a request after its first failure */
+    static final long RETRY_BASE_DELAY = 1000;
+    /** The maximum delay before retrying a failed request */
+    static final long RETRY_MAX_DELAY = 60 * 1000;
     private long index;
     private ServiceBeanInstance serviceBeanInstance = null;
     private Throwable thrown = null;
@@ -75,84 +80,105 @@ public class ProvisionTask implements Runnable {
     public void run() {
         try {
             serviceBeanInstance = null;
-            int result = doProvision(context.getProvisionRequest(), context.getServiceResource());
-            if ((result & ServiceProvisioner.PROVISION_FAILURE) != 0) {
-                boolean resubmitted = true;
-                logger.debug("Provision attempt failed for [{}]", LoggingUtil.getLoggingName(context.getProvisionRequest()));
-                if ((result & ServiceProvisioner.UNINSTANTIABLE_JSB) != 0) {
-                    InstantiatorResource ir = (InstantiatorResource) context.getServiceResource().getResource();
-                    ir.addUninstantiable(context.getProvisionRequest().getServiceElement());
-                    /* Notify ServiceProvisionListener of failure */
-                    context.getProvisionRequest().getListener().uninstantiable(context.getProvisionRequest());
-                    resubmitted = false;
-                    logger.debug("Service [{}] is un-instantiable, do not resubmit",
-                                LoggingUtil.getLoggingName(context.getProvisionRequest()));
-                } else if ((result & ServiceProvisioner.BAD_CYBERNODE) != 0) {
-                    /* Provision request encountered a bad Cybernode,
-                     * dispatch another request immediately. Note the
-                     * subsequent provision request occurs in a separate
-                     * thread */
-                    context.getDispatcher().dispatch(context.getProvisionRequest());
-                    return;
-                } else {
-                    resubmit();
-                }
-                /* Send a ProvisionFailureEvent */
-                if (thrown != null || result != 0) {
-                    try {
-                        processProvisionFailure(new ProvisionFailureEvent(context.getEventSource(),
-                                                                          context.getProvisionRequest().getServiceElement(),
-                                                                          failureReason,
-                                                                          thrown));
-                    } catch (RejectedExecutionException e) {
-                        logger.warn("RejectedExecutionException: Unable to submit ProvisionFailureEvent for {}." +
-                                    "Provision Failure reason: {}.",
-                                    LoggingUtil.getLoggingName(context.getProvisionRequest()), failureReason, thrown);
-                    }
+            processResult(doProvision(context.getProvisionRequest(), context.getServiceResource()));
+        } finally {
+            context.getInProcess().remove(context.getProvisionRequest().getServiceElement());
+        }
+    }
+
+    /*
+     * Complete a provision attempt made by a GangProvisionTask
+     */
+    void complete(int result, long elapsed) {
+        try {
+            InstantiatorResource ir = (InstantiatorResource) context.getServiceResource().getResource();
+            ir.decrementProvisionCounter(context.getProvisionRequest().getServiceElement());
+            context.getWatch().addValue(elapsed);
+            processResult(result);
+        } finally {
+            context.getInProcess().remove(context.getProvisionRequest().getServiceElement());
+        }
+    }
+
+    /*
+     * Notify listeners of the result of a provision attempt, and resubmit or
+     * re-dispatch a failed request
+     */
+    private void processResult(int result) {
+        if ((result & ServiceProvisioner.PROVISION_FAILURE) != 0) {
+            boolean resubmitted = true;
+            logger.debug("Provision attempt failed for [{}]", LoggingUtil.getLoggingName(context.getProvisionRequest()));
+            if ((result & ServiceProvisioner.UNINSTANTIABLE_JSB) != 0) {
+                InstantiatorResource ir = (InstantiatorResource) context.getServiceResource().getResource();
+                ir.addUninstantiable(context.getProvisionRequest().getServiceElement());
+                /* Notify ServiceProvisionListener of failure */
+                context.getProvisionRequest().getListener().uninstantiable(context.getProvisionRequest());
+                resubmitted = false;
+                logger.debug("Service [{}] is un-instantiable, do not resubmit",
+                            LoggingUtil.getLoggingName(context.getProvisionRequest()));
+            } else if ((result & ServiceProvisioner.BAD_CYBERNODE) != 0) {
+                /* Provision request encountered a bad Cybernode,
+                 * dispatch another request immediately. Note the
+                 * subsequent provision request occurs in a separate
+                 * thread */
+                context.getDispatcher().dispatch(context.getProvisionRequest());
+                return;
+            } else {
+                resubmit();
+            }
+            /* Send a ProvisionFailureEvent */
+            if (thrown != null || result != 0) {
+                try {
+                    processProvisionFailure(new ProvisionFailureEvent(context.getEventSource(),
+                                                                      context.getProvisionRequest().getServiceElement(),
+                                                                      failureReason,
+                                                                      thrown));
+                } catch (RejectedExecutionException e) {
+                    logger.warn("RejectedExecutionException: Unable to submit ProvisionFailureEvent for {}." +
+                                "Provision Failure reason: {}.",
+                                LoggingUtil.getLoggingName(context.getProvisionRequest()), failureReason, thrown);
                 }
-                /* If we have a ServiceProvisionListener,
-                 * notify the listener */
-                if (context.getProvisionRequest().getServiceProvisionListener() != null) {
-                    try {
-                        context.getProvisionRequest().getServiceProvisionListener()
-                            .failed(context.getProvisionRequest().getServiceElement(), resubmitted);
-                    } catch (Exception e) {
-                        Throwable t = e;
-                        if (e.getCause() != null)
-                            t = e.getCause();
-                        logger.trace("Error Notifying ServiceProvisionListeners on failure " +
-                                      "[{}:{}], this is usually a benign error and indicates " +
-                                      "that the ServiceProvisionListener gave up listening",
-                                      t.getClass().getName(), t.getLocalizedMessage());
-                    }
+            }
+            /* If we have a ServiceProvisionListener,
+             * notify the listener */
+            if (context.getProvisionRequest().getServiceProvisionListener() != null) {
+                try {
+                    context.getProvisionRequest().getServiceProvisionListener()
+                        .failed(context.getProvisionRequest().getServiceElement(), resubmitted);
+                } catch (Exception e) {
+                    Throwable t = e;
+                    if (e.getCause() != null)
+                        t = e.getCause();
+                    logger.trace("Error Notifying ServiceProvisionListeners on failure " +
+                                  "[{}:{}], this is usually a benign error and indicates " +
+                                  "that the ServiceProvisionListener gave up listening",
+                                  t.getClass().getName(), t.getLocalizedMessage());
                 }
-            } else {
-                if (serviceBeanInstance == null) {
-                    if (logger.isDebugEnabled()) {
-                        String addr = ((InstantiatorResource) context.getServiceResource().getResource()).getHostAddress();
-                        String name = ((InstantiatorResource) context.getServiceResource().getResource()).getName();
-                        logger.debug("{} at [{}] did not allocate [{}], service limit assumed to have been met",
-                                     name, addr, LoggingUtil.getLoggingName(context.getProvisionRequest()));
-                    }
-                    resubmit();
-                    return;
+            }
+        } else {
+            if (serviceBeanInstance == null) {
+                if (logger.isDebugEnabled()) {
+                    String addr = ((InstantiatorResource) context.getServiceResource().getResource()).getHostAddress();
+                    String name = ((InstantiatorResource) context.getServiceResource().getResource()).getName();
+                    logger.debug("{} at [{}] did not allocate [{}], service limit assumed to have been met",
+                                 name, addr, LoggingUtil.getLoggingName(context.getProvisionRequest()));
                 }
-                /* Notify ServiceProvisionListener of success */
-                context.getProvisionRequest().getListener()
-                    .serviceProvisioned(serviceBeanInstance,
-                                        (InstantiatorResource) context.getServiceResource().getResource());
-                /* If we have an ServiceBeanInstantiatorListener,
-                 * notify the listener */
-                if (context.getProvisionRequest().getServiceProvisionListener() != null) {
-                    try {
-                        context.getProvisionRequest().getServiceProvisionListener().succeeded(serviceBeanInstance);
-                    } catch (Exception e) {
-                        logger.trace("Notifying ServiceProvisionListeners on success.", e);
-                    }
+                resubmit();
+                return;
+            }
+            /* Notify ServiceProvisionListener of success */
+            context.getProvisionRequest().getListener()
+                .serviceProvisioned(serviceBeanInstance,
+                                    (InstantiatorResource) context.getServiceResource().getResource());
+            /* If we have an ServiceBeanInstantiatorListener,
+             * notify the listener */
+            if (context.getProvisionRequest().getServiceProvisionListener() != null) {
+                try {
+                    context.getProvisionRequest().getServiceProvisionListener().succeeded(serviceBeanInstance);
+                } catch (Exception e) {
+                    logger.trace("Notifying ServiceProvisionListeners on success.", e);
                 }
             }
-        } finally {
-            context.getInProcess().remove(context.getProvisionRequest().getServiceElement());
         }
     }
 
@@ -161,106 +187,43 @@ public class ProvisionTask implements Runnable {
         int result = 0;
         InstantiatorResource ir = (InstantiatorResource) serviceResource.getResource();
         try {
-            //ir.incrementProvisionCounter(request.getServiceElement());
-            try {
-                ServiceProvisionEvent event = new ServiceProvisionEvent(context.getEventSource(),
-                                                                        request.getOpStringManager(),
-                                                                        request.getServiceElement());
-                event.setSequenceNumber(context.getServiceProvisionEventSequenceNumber().incrementAndGet());
-                event.setHandback(ir.getHandback());
-                /*
-                * Put the instantiate invocation in a for loop, the
-                * Cybernode may return null if there is a race-condition
-                * where a service is terminated, the FDH notifies the
-                * ServiceElementManager of the failure, the
-                * ProvisionRequest is dispatched (we get to this point),
-                * and the Cybernode is in the process of doing
-                * housekeeping related to service termination. If we get
-                * a null returned, wait the specified time and retry
-                */
-                int numProvisionRetries = 3;
-                for (int i = 0; i < numProvisionRetries; i++) {
-                    if (logger.isDebugEnabled()) {
-                        String retry = (i == 0 ? "" : ", retry (" + i + ") ");
-                        logger.debug("Allocating {} [{}] to {}...",
-                                     retry, LoggingUtil.getLoggingName(request), ir.getInstantiator().getName());
-                    }
-                    DeployedService deployedService = ir.getInstantiator().instantiate(event);
-                    if (deployedService != null) {
-                        serviceBeanInstance = deployedService.getServiceBeanInstance();
-                        ir.addDeployedService(deployedService);
-                        if (logger.isDebugEnabled()) {
-                            logger.info("Allocated [{}] on {}",
-                                        LoggingUtil.getLoggingName(request),
-                                        ir.getInstantiator().getName());
-                        }
-                        if (logger.isTraceEnabled()) {
-                            Object service = serviceBeanInstance.getService();
-                            Class<?> serviceClass = service.getClass();
-                            logger.trace("{} ServiceBeanInstance {}, Annotation {}",
-                                          LoggingUtil.getLoggingName(request),
-                                         serviceBeanInstance,
-                                          RMIClassLoader.getClassAnnotation(serviceClass));
-                        }
-                        break;
-                    } else {
-                        logger.debug("{} at [{}] did not allocate [{}], retry ...",
-                                     ir.getName(), ir.getHostAddress(), LoggingUtil.getLoggingName(request));
-                        long retryWait = 1000;
-                        try {
-                            Thread.sleep(retryWait);
-                        } catch (InterruptedException ie) {
-                            logger.trace("Interrupted while sleeping [{}] milliseconds for provision retry",
-                                          retryWait);
-                        }
-                    }
+            ServiceProvisionEvent event = createServiceProvisionEvent();
+            /*
+            * Put the instantiate invocation in a for loop, the
+            * Cybernode may return null if there is a race-condition
+            * where a service is terminated, the FDH notifies the
+            * ServiceElementManager of the failure, the
+            * ProvisionRequest is dispatched (we get to this point),
+            * and the Cybernode is in the process of doing
+            * housekeeping related to service termination. If we get
+            * a null returned, wait the specified time and retry
+            */
+            int numProvisionRetries = 3;
+            for (int i = 0; i < numProvisionRetries; i++) {
+                if (logger.isDebugEnabled()) {
+                    String retry = (i == 0 ? "" : ", retry (" + i + ") ");
+                    logger.debug("Allocating {} [{}] to {}...",
+                                 retry, LoggingUtil.getLoggingName(request), ir.getInstantiator().getName());
                 }
-
-            } catch (UnknownEventException e) {
-                result = ServiceProvisioner.PROVISION_FAILURE;
-                failureReason = e.getLocalizedMessage();
-                logger.error(failureReason);
-                thrown = e;
-                context.getSelector().dropServiceResource(serviceResource);
-            } catch (RemoteException e) {
-                result = ServiceProvisioner.PROVISION_FAILURE;
-                Throwable t = ThrowableUtil.getRootCause(e);
-                failureReason = t.getLocalizedMessage();
-                thrown = e;
-            } catch (ServiceBeanInstantiationException e) {
-                if (e.isUninstantiable())
-                    result = ServiceProvisioner.PROVISION_FAILURE | ServiceProvisioner.UNINSTANTIABLE_JSB;
-                else
-                    result = ServiceProvisioner.PROVISION_FAILURE;
-                thrown = e;
-                Throwable t = ThrowableUtil.getRootCause(e);
-                failureReason = t.getLocalizedMessage();
-            } catch (Throwable t) {
-                result = ServiceProvisioner.PROVISION_FAILURE | ServiceProvisioner.UNINSTANTIABLE_JSB;
-                thrown = t;
-                t = ThrowableUtil.getRootCause(t);
-                failureReason = t.getLocalizedMessage();
-            }
-        } finally {
-            if (thrown != null) {
-                if (!ThrowableUtil.isRetryable(thrown)) {
-                    logger.warn("Drop {} {} from collection, reason: {}",
-                                ir.getName(), ir.getInstantiator(), failureReason, thrown);
-                    context.getSelector().dropServiceResource(serviceResource);
-                    result = ServiceProvisioner.PROVISION_FAILURE | ServiceProvisioner.BAD_CYBERNODE;
+                DeployedService deployedService = ir.getInstantiator().instantiate(event);
+                if (deployedService != null) {
+                    provisioned(deployedService);
+                    break;
                 } else {
-                    if (logger.isTraceEnabled())
-                        logger.warn("Provisioning failed [{}] to [{}]",
-                                   LoggingUtil.getLoggingName(request), ir.getHostAddress(), thrown);
-                    else
-                        logger.warn("Provisioning failed [{}] to [{}], {}: {}",
-                                    LoggingUtil.getLoggingName(request),
-                                    ir.getHostAddress(),
-                                    thrown.getClass().getName(),
-                                    thrown.getLocalizedMessage());
+                    logger.debug("{} at [{}] did not allocate [{}], retry ...",
+                                 ir.getName(), ir.getHostAddress(), LoggingUtil.getLoggingName(request));
+                    long retryWait = Backoff.getDelay(i + 1, 1000, 4000);
+                    try {
+                        Thread.sleep(retryWait);
+                    } catch (InterruptedException ie) {
+                        logger.trace("Interrupted while sleeping [{}] milliseconds for provision retry",
+                                      retryWait);
+                    }
                 }
-
             }
+        } catch (Throwable t) {
+            result = provisionFailed(t, true);
+        } finally {
             ir.decrementProvisionCounter(request.getServiceElement());
             long stop = System.currentTimeMillis();
             context.getWatch().addValue(stop - start);
@@ -268,6 +231,98 @@ public class ProvisionTask implements Runnable {
         return result;
     }
 
+    /*
+     * Create the ServiceProvisionEvent sent to the ServiceBeanInstantiator
+     */
+    ServiceProvisionEvent createServiceProvisionEvent() {
+        InstantiatorResource ir = (InstantiatorResource) context.getServiceResource().getResource();
+        ServiceProvisionEvent event = new ServiceProvisionEvent(context.getEventSource(),
+                                                                context.getProvisionRequest().getOpStringManager(),
+                                                                context.getProvisionRequest().getServiceElement());
+        event.setSequenceNumber(context.getServiceProvisionEventSequenceNumber().incrementAndGet());
+        event.setHandback(ir.getHandback());
+        return event;
+    }
+
+    /*
+     * Record a service the ServiceBeanInstantiator instantiated
+     */
+    void provisioned(DeployedService deployedService) {
+        ProvisionRequest request = context.getProvisionRequest();
+        InstantiatorResource ir = (InstantiatorResource) context.getServiceResource().getResource();
+        serviceBeanInstance = deployedService.getServiceBeanInstance();
+        ir.addDeployedService(deployedService);
+        if (logger.isDebugEnabled()) {
+            logger.info("Allocated [{}] on {}",
+                        LoggingUtil.getLoggingName(request),
+                        ir.getName());
+        }
+        if (logger.isTraceEnabled()) {
+            try {
+                Object service = serviceBeanInstance.getService();
+                Class<?> serviceClass = service.getClass();
+                logger.trace("{} ServiceBeanInstance {}, Annotation {}",
+                              LoggingUtil.getLoggingName(request),
+                             serviceBeanInstance,
+                              RMIClassLoader.getClassAnnotation(serviceClass));
+            } catch (Exception e) {
+                logger.trace("Getting service for {}", LoggingUtil.getLoggingName(request), e);
+            }
+        }
+    }
+
+    /*
+     * Determine the result of a failed provision attempt. If applyToResource is false the ServiceResource is not
+     * dropped or reconciled, the failure has already been applied to it for another request of the same attempt
+     */
+    int provisionFailed(Throwable thrown, boolean applyToResource) {
+        ProvisionRequest request = context.getProvisionRequest();
+        ServiceResource serviceResource = context.getServiceResource();
+        InstantiatorResource ir = (InstantiatorResource) serviceResource.getResource();
+        int result;
+        this.thrown = thrown;
+        if (thrown instanceof UnknownEventException) {
+            result = ServiceProvisioner.PROVISION_FAILURE;
+            failureReason = thrown.getLocalizedMessage();
+            logger.error(failureReason);
+            if (applyToResource)
+                context.getSelector().dropServiceResource(serviceResource);
+        } else if (thrown instanceof RemoteException) {
+            result = ServiceProvisioner.PROVISION_FAILURE;
+            failureReason = ThrowableUtil.getRootCause(thrown).getLocalizedMessage();
+            /* The service may have been instantiated even though the result was not received */
+            if (applyToResource)
+                ir.scheduleReconcile(request.getServiceElement());
+        } else if (thrown instanceof ServiceBeanInstantiationException) {
+            if (((ServiceBeanInstantiationException) thrown).isUninstantiable())
+                result = ServiceProvisioner.PROVISION_FAILURE | ServiceProvisioner.UNINSTANTIABLE_JSB;
+            else
+                result = ServiceProvisioner.PROVISION_FAILURE;
+            failureReason = ThrowableUtil.getRootCause(thrown).getLocalizedMessage();
+        } else {
+            result = ServiceProvisioner.PROVISION_FAILURE | ServiceProvisioner.UNINSTANTIABLE_JSB;
+            failureReason = ThrowableUtil.getRootCause(thrown).getLocalizedMessage();
+        }
+        if (!ThrowableUtil.isRetryable(thrown)) {
+            logger.warn("Drop {} {} from collection, reason: {}",
+                        ir.getName(), ir.getInstantiator(), failureReason, thrown);
+            if (applyToResource)
+                context.getSelector().dropServiceResource(serviceResource);
+            result = ServiceProvisioner.PROVISION_FAILURE | ServiceProvisioner.BAD_CYBERNODE;
+        } else {
+            if (logger.isTraceEnabled())
+                logger.warn("Provisioning failed [{}] to [{}]",
+                           LoggingUtil.getLoggingName(request), ir.getHostAddress(), thrown);
+            else
+                logger.warn("Provisioning failed [{}] to [{}], {}: {}",
+                            LoggingUtil.getLoggingName(request),
+                            ir.getHostAddress(),
+                            thrown.getClass().getName(),
+                            thrown.getLocalizedMessage());
+        }
+        return result;
+    }
+
     /*
      * Helper method to dispatch a ProvisionFailureEventTask and send a ProvisionFailureEvent
      */
@@ -277,11 +332,16 @@ public class ProvisionTask implements Runnable {
 
     void resubmit() {
         if (pendingManager != null) {
-            if (context.getProvisionRequest().getType() == ProvisionRequest.Type.PROVISION) {
-                pendingManager.addProvisionRequest(context.getProvisionRequest(), index);
-                logger.debug("Re-submitted [{}] to {}",
-                             LoggingUtil.getLoggingName(context.getProvisionRequest()),
-                             pendingManager.getType());
+            ProvisionRequest request = context.getProvisionRequest();
+            if (request.getType() == ProvisionRequest.Type.PROVISION) {
+                /* Back off, so failed requests do not retry in lock step */
+                long delay = Backoff.getDelay(request.incrementFailedAttempts(), RETRY_BASE_DELAY, RETRY_MAX_DELAY);
+                request.setRetryAfter(System.currentTimeMillis() + delay);
+                pendingManager.addProvisionRequest(request, index);
+                logger.debug("Re-submitted [{}] to {}, retry in {} ms",
+                             LoggingUtil.getLoggingName(request),
+                             pendingManager.getType(),
+                             delay);
             }
         }
     }
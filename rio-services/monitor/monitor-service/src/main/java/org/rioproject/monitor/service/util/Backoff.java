@@ -0,0 +1,45 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Utility for computing the delay before retrying a failed operation
+ */
+public class Backoff {
+
+    /**
+     * Get the delay before a retry. The delay doubles with each attempt up to
+     * a maximum, and a random jitter of up to half the delay is subtracted
+     * from it so that retries that failed together do not retry together
+     *
+     * @param attempt The number of failed attempts, starting at 1
+     * @param baseMillis The delay after the first failed attempt
+     * @param maxMillis The maximum delay
+     *
+     * @return The delay in milliseconds, between half and all of
+     * <code>min(maxMillis, baseMillis * 2^(attempt-1))</code>
+     */
+    public static long getDelay(int attempt, long baseMillis, long maxMillis) {
+        int shift = Math.min(Math.max(attempt, 1) - 1, 30);
+        long delay = Math.min(maxMillis, baseMillis << shift);
+        if (delay <= 0)
+            return 0;
+        long half = delay / 2;
+        return delay - ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
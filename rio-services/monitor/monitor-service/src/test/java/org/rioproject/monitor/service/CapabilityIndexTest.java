@@ -0,0 +1,231 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rioproject.deploy.SystemComponent;
+import org.rioproject.deploy.SystemRequirements;
+import org.rioproject.opstring.ServiceElement;
+import org.rioproject.sla.ServiceLevelAgreements;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
+import org.rioproject.system.capability.connectivity.TCPConnectivity;
+import org.rioproject.system.capability.platform.OperatingSystem;
+import org.rioproject.system.capability.platform.ProcessorArchitecture;
+import org.rioproject.system.capability.software.SoftwareSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class CapabilityIndexTest {
+    private static final String[] OPERATING_SYSTEMS = {"Linux", "Mac OS X", "Windows"};
+    private static final String[] ARCHITECTURES = {"x86_64", "aarch64"};
+    private final List<InstantiatorResource> instantiatorResources = new ArrayList<>();
+    private CapabilityIndex index;
+
+    @Before
+    public void setup() throws Exception {
+        index = new CapabilityIndex();
+        for (int i = 0; i < 60; i++) {
+            InstantiatorResource ir = createInstantiatorResource(i,
+                                                                 OPERATING_SYSTEMS[i % OPERATING_SYSTEMS.length],
+                                                                 ARCHITECTURES[i % ARCHITECTURES.length],
+                                                                 i % 10 == 0 ? "2.1" : null);
+            instantiatorResources.add(ir);
+            index.add(ir);
+        }
+    }
+
+    @Test
+    public void testNoRequirements() {
+        ServiceElement sElem = TestUtil.makeServiceElement("foo", "test");
+        Assert.assertNull(index.getCandidates(sElem));
+    }
+
+    @Test
+    public void testOperatingSystem() {
+        ServiceElement sElem = createServiceElement(operatingSystem("Windows", false));
+        Set<InstantiatorResource> candidates = index.getCandidates(sElem);
+        Assert.assertEquals(20, candidates.size());
+        for (InstantiatorResource ir : candidates)
+            Assert.assertEquals("Windows", getCapability(ir, OperatingSystem.class).getName());
+        verify(sElem);
+    }
+
+    @Test
+    public void testExcludedOperatingSystem() {
+        ServiceElement sElem = createServiceElement(operatingSystem("Windows", true));
+        Assert.assertEquals(40, index.getCandidates(sElem).size());
+        verify(sElem);
+    }
+
+    @Test
+    public void testArchitectureAndOperatingSystem() {
+        ServiceElement sElem = createServiceElement(operatingSystem("Linux", false), architecture("aarch64"));
+        Assert.assertEquals(10, index.getCandidates(sElem).size());
+        verify(sElem);
+    }
+
+    @Test
+    public void testMachineAddressAndCluster() {
+        ServiceElement sElem = createServiceElement(machineAddress("10.0.0.7"));
+        Assert.assertEquals(1, index.getCandidates(sElem).size());
+        verify(sElem);
+        sElem = TestUtil.makeServiceElement("foo", "test");
+        sElem.setCluster("10.0.0.3", "HOST-4", "10.0.9.9");
+        Assert.assertEquals(2, index.getCandidates(sElem).size());
+        verify(sElem);
+    }
+
+    @Test
+    public void testSoftware() {
+        ServiceElement sElem = createServiceElement(software("2.1", false));
+        Assert.assertEquals(6, index.getCandidates(sElem).size());
+        verify(sElem);
+        /* Exclusions do not narrow the candidates */
+        Assert.assertNull(index.getCandidates(createServiceElement(software("2.1", true))));
+    }
+
+    @Test
+    public void testUpdateAndRemove() throws Exception {
+        ServiceElement sElem = createServiceElement(software("2.1", false));
+        InstantiatorResource ir = instantiatorResources.get(1);
+        Assert.assertFalse(index.getCandidates(sElem).contains(ir));
+        InstantiatorResource updated = createInstantiatorResource(1, "Mac OS X", "aarch64", "2.1");
+        ir.setResourceCapability(updated.getResourceCapability());
+        index.add(ir);
+        Assert.assertEquals(60, index.size());
+        Assert.assertTrue(index.getCandidates(sElem).contains(ir));
+        index.remove(ir);
+        Assert.assertEquals(59, index.size());
+        Assert.assertFalse(index.getCandidates(sElem).contains(ir));
+        /* A new instantiator takes the free slot */
+        InstantiatorResource added = createInstantiatorResource(60, "Linux", "x86_64", "2.1");
+        index.add(added);
+        Assert.assertTrue(index.getCandidates(sElem).contains(added));
+        Assert.assertEquals(7, index.getCandidates(sElem).size());
+    }
+
+    @Test
+    public void testCandidatesMatchRequirementChecks() {
+        Random random = new Random(7);
+        for (int n = 0; n < 50; n++) {
+            List<SystemComponent> requirements = new ArrayList<>();
+            if (random.nextBoolean())
+                requirements.add(operatingSystem(OPERATING_SYSTEMS[random.nextInt(OPERATING_SYSTEMS.length)],
+                                                 random.nextInt(4) == 0));
+            if (random.nextBoolean())
+                requirements.add(architecture(ARCHITECTURES[random.nextInt(ARCHITECTURES.length)]));
+            if (random.nextInt(4) == 0)
+                requirements.add(machineAddress("10.0.0."+random.nextInt(70)));
+            if (random.nextInt(3) == 0)
+                requirements.add(software(random.nextBoolean() ? "2.1" : "2.*", false));
+            verify(createServiceElement(requirements.toArray(new SystemComponent[0])));
+        }
+    }
+
+    /*
+     * The candidates are exactly the instantiators that meet the general and qualitative requirements
+     */
+    private void verify(ServiceElement sElem) {
+        Set<InstantiatorResource> candidates = index.getCandidates(sElem);
+        for (InstantiatorResource ir : instantiatorResources) {
+            ProvisionRequest request = new ProvisionRequest(sElem, null, null, null);
+            boolean meets = ir.meetsGeneralRequirements(request) && ir.meetsQualitativeRequirements(request).isEmpty();
+            Assert.assertEquals(ir.getName(), meets, candidates == null || candidates.contains(ir));
+        }
+    }
+
+    private InstantiatorResource createInstantiatorResource(int i,
+                                                            String os,
+                                                            String architecture,
+                                                            String softwareVersion) throws Exception {
+        String address = "10.0.0."+i;
+        List<PlatformCapability> platformCapabilities = new ArrayList<>();
+        OperatingSystem operatingSystem = new OperatingSystem();
+        operatingSystem.define(PlatformCapability.NAME, os);
+        platformCapabilities.add(operatingSystem);
+        ProcessorArchitecture processorArchitecture = new ProcessorArchitecture();
+        processorArchitecture.define(ProcessorArchitecture.ARCHITECTURE, architecture);
+        platformCapabilities.add(processorArchitecture);
+        TCPConnectivity tcpConnectivity = new TCPConnectivity();
+        tcpConnectivity.define(TCPConnectivity.HOST_ADDRESS, address);
+        tcpConnectivity.define(TCPConnectivity.HOST_NAME, "host-"+i);
+        platformCapabilities.add(tcpConnectivity);
+        if (softwareVersion != null) {
+            SoftwareSupport software = new SoftwareSupport();
+            software.define(PlatformCapability.NAME, "Tomcat");
+            software.define(PlatformCapability.VERSION, softwareVersion);
+            platformCapabilities.add(software);
+        }
+        ResourceCapability resourceCapability =
+            TestUtil.createResourceCapability(address,
+                                              "host-"+i,
+                                              new ArrayList<>(),
+                                              platformCapabilities.toArray(new PlatformCapability[0]));
+        return TestUtil.createInstantiatorResource(null, resourceCapability);
+    }
+
+    private ServiceElement createServiceElement(SystemComponent... requirements) {
+        ServiceElement sElem = TestUtil.makeServiceElement("foo", "test");
+        ServiceLevelAgreements slas = new ServiceLevelAgreements();
+        SystemRequirements systemRequirements = new SystemRequirements();
+        for (SystemComponent requirement : requirements)
+            systemRequirements.addSystemComponent(requirement);
+        slas.setServiceRequirements(systemRequirements);
+        sElem.setServiceLevelAgreements(slas);
+        return sElem;
+    }
+
+    private SystemComponent operatingSystem(String name, boolean exclude) {
+        SystemComponent systemComponent = new SystemComponent(OperatingSystem.ID, OperatingSystem.class.getName());
+        systemComponent.put(OperatingSystem.NAME, name);
+        systemComponent.setExclude(exclude);
+        return systemComponent;
+    }
+
+    private SystemComponent architecture(String architecture) {
+        SystemComponent systemComponent = new SystemComponent(ProcessorArchitecture.ID,
+                                                              ProcessorArchitecture.class.getName());
+        systemComponent.put(ProcessorArchitecture.ARCHITECTURE, architecture);
+        return systemComponent;
+    }
+
+    private SystemComponent machineAddress(String address) {
+        SystemComponent systemComponent = new SystemComponent(TCPConnectivity.ID);
+        systemComponent.put(TCPConnectivity.HOST_ADDRESS, address);
+        return systemComponent;
+    }
+
+    private SystemComponent software(String version, boolean exclude) {
+        SystemComponent systemComponent = new SystemComponent("Tomcat");
+        systemComponent.put(PlatformCapability.VERSION, version);
+        systemComponent.setExclude(exclude);
+        return systemComponent;
+    }
+
+    private <T extends PlatformCapability> T getCapability(InstantiatorResource ir, Class<T> type) {
+        for (PlatformCapability platformCapability : ir.getResourceCapability().getPlatformCapabilities()) {
+            if (type.isInstance(platformCapability))
+                return type.cast(platformCapability);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service;
+
+import net.jini.id.UuidFactory;
+import net.jini.io.MarshalledInstance;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.deploy.DeployedService;
+import org.rioproject.deploy.ServiceBeanInstance;
+import org.rioproject.deploy.ServiceBeanInstantiator;
+import org.rioproject.deploy.ServiceProvisionEvent;
+import org.rioproject.impl.service.LandlordLessor;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.impl.servicebean.ServiceElementUtil;
+import org.rioproject.impl.watch.GaugeWatch;
+import org.rioproject.monitor.service.managers.PendingManager;
+import org.rioproject.monitor.service.selectors.PlacementPlan;
+import org.rioproject.monitor.service.selectors.RoundRobinSelector;
+import org.rioproject.monitor.service.selectors.Selector;
+import org.rioproject.monitor.service.tasks.GangProvisionTask;
+import org.rioproject.monitor.service.tasks.ProvisionTask;
+import org.rioproject.opstring.ServiceElement;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GangProvisioningTest {
+    private final List<ServiceBeanInstance> provisioned = new CopyOnWriteArrayList<>();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final List<ServiceElement> inProcess = new CopyOnWriteArrayList<>();
+    private LandlordLessor landlord;
+    private RoundRobinSelector selector;
+    private PendingManager pendingManager;
+
+    @Before
+    public void setup() throws Exception {
+        landlord = new LandlordLessor(new DynamicConfiguration());
+        selector = new RoundRobinSelector();
+        selector.setLandlordLessor(landlord);
+        pendingManager = new PendingManager(createContext(null, null));
+    }
+
+    @After
+    public void teardown() {
+        pendingManager.terminate();
+    }
+
+    @Test
+    public void testPlanRespectsMaxPerMachine() throws Exception {
+        addCybernodes(4);
+        ServiceElement service = TestUtil.makeServiceElement("gang", "test", 10);
+        service.setMaxPerMachine(2);
+        ProvisionRequest[] requests = createProvisionRequests(service, 10);
+        PlacementPlan plan = Selector.acquirePlacementPlan(requests, selector);
+        Assert.assertEquals(8, plan.getPlacedCount());
+        Assert.assertEquals(4, plan.getServiceResources().size());
+        for (ServiceResource resource : plan.getServiceResources()) {
+            InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+            Assert.assertEquals(2, plan.getProvisionRequests(resource).size());
+            Assert.assertEquals(2, ir.getInProcessCounter(service));
+        }
+        Assert.assertEquals(2, plan.getUnplaced().size());
+        for (ProvisionRequest request : plan.getUnplaced())
+            Assert.assertFalse(request.getFailureReasons().isEmpty());
+    }
+
+    @Test
+    public void testPlanSpreadsInstances() throws Exception {
+        addCybernodes(3);
+        ServiceElement service = TestUtil.makeServiceElement("spread", "test", 6);
+        PlacementPlan plan = Selector.acquirePlacementPlan(createProvisionRequests(service, 6), selector);
+        Assert.assertEquals(6, plan.getPlacedCount());
+        Assert.assertTrue(plan.getUnplaced().isEmpty());
+        for (ServiceResource resource : plan.getServiceResources())
+            Assert.assertEquals(2, plan.getProvisionRequests(resource).size());
+    }
+
+    @Test
+    public void testPartialFailureReturnsToPending() throws Exception {
+        addCybernodes(1);
+        ServiceElement service = TestUtil.makeServiceElement("partial", "test", 4);
+        PlacementPlan plan = Selector.acquirePlacementPlan(createProvisionRequests(service, 4), selector);
+        Assert.assertEquals(4, plan.getPlacedCount());
+        ServiceResource resource = plan.getServiceResources().iterator().next();
+        InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+        GangProvisionTask task = new GangProvisionTask(resource);
+        for (ProvisionRequest request : plan.getProvisionRequests(resource)) {
+            inProcess.add(request.getServiceElement());
+            task.add(new ProvisionTask(createContext(request, resource), pendingManager));
+        }
+        task.run();
+        Assert.assertEquals(1, batchCalls.get());
+        Assert.assertEquals(0, singleCalls.get());
+        /* The instantiator allocates every other instance */
+        Assert.assertEquals(2, provisioned.size());
+        Assert.assertEquals(2, ir.getServiceElementCount(service));
+        Assert.assertEquals(0, ir.getInProcessCounter(service));
+        Assert.assertTrue(inProcess.isEmpty());
+        Assert.assertEquals(2, pendingManager.getCount(service));
+    }
+
+    private ServiceProvisionContext createContext(ProvisionRequest request, ServiceResource resource) {
+        ServiceProvisionContext context = new ServiceProvisionContext(selector,
+                                                                      null,
+                                                                      inProcess,
+                                                                      "monitor",
+                                                                      new GaugeWatch("provision"),
+                                                                      null,
+                                                                      null,
+                                                                      null,
+                                                                      new AtomicInteger());
+        context.setProvisionRequest(request);
+        context.setServiceResource(resource);
+        return context;
+    }
+
+    private ProvisionRequest[] createProvisionRequests(ServiceElement service, int count) {
+        ProvisionRequest[] requests = new ProvisionRequest[count];
+        for (int i = 0; i < count; i++) {
+            requests[i] = new ProvisionRequest(ServiceElementUtil.prepareInstanceID(service, i + 1),
+                                               new ProvisionListener() {
+                                                   public void serviceProvisioned(ServiceBeanInstance instance,
+                                                                                  InstantiatorResource resource) {
+                                                       provisioned.add(instance);
+                                                   }
+
+                                                   public void uninstantiable(ProvisionRequest request) {
+                                                   }
+                                               },
+                                               null,
+                                               null);
+        }
+        return requests;
+    }
+
+    private void addCybernodes(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            String address = "10.0.0."+(i + 1);
+            TestUtil.register(landlord, TestUtil.createInstantiatorResource(address, createInstantiator(address)));
+        }
+    }
+
+    /*
+     * A ServiceBeanInstantiator that instantiates every other instance of a batch
+     */
+    private ServiceBeanInstantiator createInstantiator(String address) {
+        return TestUtil.createServiceBeanInstantiator((proxy, method, args) -> {
+            if (!method.getName().equals("instantiate"))
+                return null;
+            if (args[0] instanceof ServiceProvisionEvent) {
+                singleCalls.incrementAndGet();
+                return null;
+            }
+            batchCalls.incrementAndGet();
+            ServiceProvisionEvent[] events = (ServiceProvisionEvent[]) args[0];
+            DeployedService[] deployed = new DeployedService[events.length];
+            for (int i = 0; i < events.length; i += 2) {
+                ServiceElement elem = events[i].getServiceElement();
+                ServiceBeanInstance instance = new ServiceBeanInstance(UuidFactory.generate(),
+                                                                       new MarshalledInstance("proxy"),
+                                                                       elem.getServiceBeanConfig(),
+                                                                       address,
+                                                                       address,
+                                                                       UuidFactory.generate());
+                deployed[i] = new DeployedService(elem, instance, null);
+            }
+            return deployed;
+        });
+    }
+}
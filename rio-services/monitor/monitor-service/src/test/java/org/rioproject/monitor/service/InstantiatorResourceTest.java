@@ -18,6 +18,7 @@ package org.rioproject.monitor.service;
 import net.jini.config.Configuration;
 import net.jini.id.Uuid;
 import net.jini.id.UuidFactory;
+import net.jini.io.MarshalledInstance;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -222,6 +223,64 @@ public class InstantiatorResourceTest {
         assertTrue(instantiatorResource.canProvision(request));
     }
 
+    @Test
+    public void testServiceElementCountIsLocal() throws IOException {
+        SBI sbi = (SBI) instantiatorResource.getInstantiator();
+        instantiatorResource.addDeployedService(new DeployedService(service, createServiceBeanInstance(), null));
+        instantiatorResource.addDeployedService(new DeployedService(service, createServiceBeanInstance(), null));
+        assertEquals(2, instantiatorResource.getServiceElementCount(service));
+        assertEquals(0, sbi.instanceRequests);
+    }
+
+    @Test
+    public void testReconcile() throws IOException {
+        SBI sbi = (SBI) instantiatorResource.getInstantiator();
+        ServiceBeanInstance instance = createServiceBeanInstance();
+        instantiatorResource.addDeployedService(new DeployedService(service, instance, null));
+        /* Without a reconciler the count is not reconciled */
+        instantiatorResource.scheduleReconcile(service);
+        assertEquals(1, instantiatorResource.getServiceElementCount(service));
+        assertEquals(0, sbi.instanceRequests);
+
+        List<Runnable> scheduled = new ArrayList<>();
+        instantiatorResource.setReconciler(scheduled::add);
+        instantiatorResource.scheduleReconcile(service);
+        instantiatorResource.scheduleReconcile(service);
+        assertEquals(1, scheduled.size());
+        scheduled.get(0).run();
+        /* The SBI has no instances */
+        assertEquals(1, sbi.instanceRequests);
+        assertEquals(0, instantiatorResource.getServiceElementCount(service));
+        Assert.assertNull(instantiatorResource.removeServiceElementInstance(service, instance.getServiceBeanID()));
+    }
+
+    @Test
+    public void testSetDeployedServices() throws IOException {
+        ServiceElement other = TestUtil.makeServiceElement("bar", "test", 1);
+        instantiatorResource.addDeployedService(new DeployedService(other, createServiceBeanInstance(), null));
+        List<DeployedService> deployed = new ArrayList<>();
+        deployed.add(new DeployedService(service, createServiceBeanInstance(), null));
+        deployed.add(new DeployedService(service, createServiceBeanInstance(), null));
+        instantiatorResource.setDeployedServices(deployed);
+        assertEquals(2, instantiatorResource.getServiceElementCount(service));
+        assertEquals(0, instantiatorResource.getServiceElementCount(other));
+        assertEquals(2, instantiatorResource.getServiceElementCount());
+        ServiceBeanInstance removed =
+            instantiatorResource.removeServiceElementInstance(service,
+                                                              deployed.get(0).getServiceBeanInstance().getServiceBeanID());
+        assertEquals(deployed.get(0).getServiceBeanInstance(), removed);
+        assertEquals(1, instantiatorResource.getServiceElementCount(service));
+    }
+
+    private ServiceBeanInstance createServiceBeanInstance() throws IOException {
+        return new ServiceBeanInstance(UuidFactory.generate(),
+                                       new MarshalledInstance("proxy"),
+                                       service.getServiceBeanConfig(),
+                                       null,
+                                       null,
+                                       instantiatorResource.getInstantiatorUuid());
+    }
+
     private ServiceElement createServiceElement() {
         ServiceElement serviceElement = TestUtil.makeServiceElement("foo", "test", 1);
         serviceElement.setServiceLevelAgreements(createServiceLevelAgreements(true, true));
@@ -303,6 +362,7 @@ public class InstantiatorResourceTest {
     static class SBI implements ServiceBeanInstantiator, Serializable {
         final Uuid uuid = UuidFactory.generate();
         final InetAddress inetAddress;
+        int instanceRequests;
 
         SBI() throws UnknownHostException {
             inetAddress = InetAddress.getLocalHost();
@@ -328,6 +388,7 @@ public class InstantiatorResourceTest {
         }
 
         public ServiceBeanInstance[] getServiceBeanInstances(ServiceElement element) {
+            instanceRequests++;
             return new ServiceBeanInstance[0];
         }
 
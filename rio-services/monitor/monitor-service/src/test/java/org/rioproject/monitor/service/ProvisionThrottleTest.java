@@ -0,0 +1,142 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProvisionThrottleTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Map<InstantiatorResource, AtomicInteger> running = new HashMap<>();
+    private final Map<InstantiatorResource, AtomicInteger> maxRunning = new HashMap<>();
+    private final AtomicInteger totalRunning = new AtomicInteger();
+    private final AtomicInteger maxTotalRunning = new AtomicInteger();
+    private ProvisionThrottle throttle;
+
+    @After
+    public void teardown() {
+        release.countDown();
+        throttle.shutdownNow();
+    }
+
+    @Test
+    public void testInFlightPerInstantiator() throws Exception {
+        throttle = new ProvisionThrottle(16, 2);
+        InstantiatorResource ir = createInstantiatorResource(1);
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++)
+            throttle.execute(ir, createTask(ir, done));
+        waitFor(() -> running.get(ir).get() == 2);
+        Assert.assertEquals(2, throttle.getInFlight(ir.getInstantiatorUuid()));
+        Assert.assertEquals(8, throttle.getQueued(ir.getInstantiatorUuid()));
+        release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        waitFor(() -> throttle.getInFlight(ir.getInstantiatorUuid()) == 0);
+        Assert.assertEquals(0, throttle.getQueued(ir.getInstantiatorUuid()));
+        Assert.assertEquals(2, maxRunning.get(ir).get());
+    }
+
+    @Test
+    public void testInstancesCountAgainstLimit() throws Exception {
+        throttle = new ProvisionThrottle(16, 4);
+        InstantiatorResource ir = createInstantiatorResource(1);
+        CountDownLatch done = new CountDownLatch(3);
+        throttle.execute(ir, createTask(ir, done), 3);
+        throttle.execute(ir, createTask(ir, done), 2);
+        /* Queued behind the batch of 2 even though it fits */
+        throttle.execute(ir, createTask(ir, done), 1);
+        waitFor(() -> running.get(ir).get() == 1);
+        Assert.assertEquals(3, throttle.getInFlight(ir.getInstantiatorUuid()));
+        Assert.assertEquals(2, throttle.getQueued(ir.getInstantiatorUuid()));
+        release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        waitFor(() -> throttle.getInFlight(ir.getInstantiatorUuid()) == 0);
+        Assert.assertEquals(0, throttle.getQueued(ir.getInstantiatorUuid()));
+        Assert.assertTrue(maxRunning.get(ir).get() <= 2);
+    }
+
+    @Test
+    public void testGlobalLimit() throws Exception {
+        throttle = new ProvisionThrottle(3, 4);
+        CountDownLatch done = new CountDownLatch(20);
+        for (int n = 0; n < 5; n++) {
+            InstantiatorResource ir = createInstantiatorResource(n);
+            for (int i = 0; i < 4; i++)
+                throttle.execute(ir, createTask(ir, done));
+        }
+        waitFor(() -> totalRunning.get() == 3);
+        Thread.sleep(100);
+        release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, maxTotalRunning.get());
+    }
+
+    @Test
+    public void testFailedTaskReleasesSlot() throws Exception {
+        throttle = new ProvisionThrottle(4, 1);
+        InstantiatorResource ir = createInstantiatorResource(1);
+        CountDownLatch done = new CountDownLatch(1);
+        throttle.execute(ir, () -> {
+            throw new IllegalStateException("failed");
+        });
+        throttle.execute(ir, done::countDown);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        waitFor(() -> throttle.getInFlight(ir.getInstantiatorUuid()) == 0);
+    }
+
+    private Runnable createTask(InstantiatorResource ir, CountDownLatch done) {
+        return () -> {
+            int current = running.get(ir).incrementAndGet();
+            maxRunning.get(ir).accumulateAndGet(current, Math::max);
+            maxTotalRunning.accumulateAndGet(totalRunning.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.get(ir).decrementAndGet();
+                totalRunning.decrementAndGet();
+                done.countDown();
+            }
+        };
+    }
+
+    private InstantiatorResource createInstantiatorResource(int i) {
+        InstantiatorResource ir = TestUtil.createInstantiatorResource("10.0.0."+i);
+        running.put(ir, new AtomicInteger());
+        maxRunning.put(ir, new AtomicInteger());
+        return ir;
+    }
+
+    private void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.met()) {
+            Assert.assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service;
+
+import net.jini.id.UuidFactory;
+import net.jini.io.MarshalledInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.deploy.DeployedService;
+import org.rioproject.deploy.ServiceBeanInstance;
+import org.rioproject.deploy.SystemComponent;
+import org.rioproject.deploy.SystemRequirements;
+import org.rioproject.impl.service.LandlordLessor;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.selectors.*;
+import org.rioproject.opstring.ServiceElement;
+import org.rioproject.sla.ServiceLevelAgreements;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.SystemWatchID;
+import org.rioproject.system.capability.platform.ByteOrientedDevice;
+import org.rioproject.system.capability.platform.ProcessorArchitecture;
+import org.rioproject.system.capability.platform.SystemMemory;
+import org.rioproject.system.measurable.cpu.CpuUtilization;
+import org.rioproject.watch.ThresholdValues;
+
+import java.util.*;
+
+/**
+ * Simulates deploying small services followed by large services onto a fixed set of Cybernodes, updating the
+ * utilization each Cybernode reports as services are instantiated, and compares where the selectors place them.
+ */
+public class SelectorSimulationTest {
+    private static final int CYBERNODES = 20;
+    private static final int MEMORY_GB = 16;
+    private static final int PROCESSORS = 8;
+
+    @Test
+    public void testBinPackingLeavesRoomForLargeServices() throws Exception {
+        Placement roundRobin = simulate(new RoundRobinSelector());
+        Placement leastLoaded = simulate(new LeastLoadedSelector());
+        Placement binPacking = simulate(new BinPackingSelector());
+
+        Assert.assertEquals(CYBERNODES, roundRobin.nodesUsedBySmall);
+        Assert.assertEquals(CYBERNODES, leastLoaded.nodesUsedBySmall);
+        /* 8 small services use all the processors of a Cybernode */
+        Assert.assertEquals(5, binPacking.nodesUsedBySmall);
+        Assert.assertEquals(0, roundRobin.large);
+        Assert.assertEquals(0, leastLoaded.large);
+        Assert.assertEquals(CYBERNODES - 5, binPacking.large);
+    }
+
+    @Test
+    public void testLeastLoadedSpreadsServices() throws Exception {
+        Map<InstantiatorResource, Integer> counts = new HashMap<>();
+        ServiceSimulation simulation = new ServiceSimulation(new LeastLoadedSelector());
+        ServiceElement small = createServiceElement("small", 1, 1, 40);
+        for (int i = 0; i < 40; i++)
+            counts.merge(simulation.provision(small), 1, Integer::sum);
+        Assert.assertEquals(CYBERNODES, counts.size());
+        for (int count : counts.values())
+            Assert.assertEquals(2, count);
+    }
+
+    @Test
+    public void testLeastLoadedWeights() throws Exception {
+        LeastLoadedSelector selector = new LeastLoadedSelector(Collections.singletonMap(SystemWatchID.SYSTEM_CPU, 0));
+        ServiceSimulation simulation = new ServiceSimulation(selector);
+        InstantiatorResource ir = simulation.instantiatorResources.get(0);
+        simulation.report(ir, 2, 4);
+        ServiceResource resource = simulation.getServiceResource(ir);
+        /* System memory 2/16 with a weight of 1, services 0 with a weight of 0.5 */
+        selector.getServiceResources();
+        Assert.assertEquals((2.0 / 16) / 1.5, selector.getScore(resource), 0.0001);
+    }
+
+    private Placement simulate(ServiceResourceSelector selector) throws Exception {
+        ServiceSimulation simulation = new ServiceSimulation(selector);
+        Placement placement = new Placement();
+        ServiceElement small = createServiceElement("small", 1, 1, 40);
+        Set<InstantiatorResource> used = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            InstantiatorResource ir = simulation.provision(small);
+            Assert.assertNotNull("Small service "+i+" was not placed", ir);
+            used.add(ir);
+        }
+        placement.nodesUsedBySmall = used.size();
+        ServiceElement large = createServiceElement("large", 15, 1, CYBERNODES);
+        while (simulation.provision(large) != null)
+            placement.large++;
+        return placement;
+    }
+
+    private ServiceElement createServiceElement(String name, int memoryGb, int processors, int planned) {
+        ServiceElement sElem = TestUtil.makeServiceElement(name, "simulation", planned);
+        SystemRequirements systemRequirements = new SystemRequirements();
+        systemRequirements.addSystemComponent(new SystemComponent(SystemMemory.ID,
+                                                                  SystemMemory.class.getName(),
+                                                                  Collections.singletonMap(ByteOrientedDevice.AVAILABLE,
+                                                                                           (Object) (memoryGb + "g"))));
+        systemRequirements.addSystemComponent(new SystemComponent(ProcessorArchitecture.ID,
+                                                                  ProcessorArchitecture.class.getName(),
+                                                                  Collections.singletonMap(ProcessorArchitecture.AVAILABLE,
+                                                                                           (Object) Integer.toString(processors))));
+        ServiceLevelAgreements slas = new ServiceLevelAgreements();
+        slas.setServiceRequirements(systemRequirements);
+        sElem.setServiceLevelAgreements(slas);
+        return sElem;
+    }
+
+    private static class Placement {
+        int nodesUsedBySmall;
+        int large;
+    }
+
+    /*
+     * Cybernodes that report their memory and processor use as services are instantiated on them
+     */
+    private static class ServiceSimulation {
+        final ServiceResourceSelector selector;
+        final List<InstantiatorResource> instantiatorResources = new ArrayList<>();
+        final Map<InstantiatorResource, double[]> used = new HashMap<>();
+
+        ServiceSimulation(ServiceResourceSelector selector) throws Exception {
+            this.selector = selector;
+            LandlordLessor landlord = new LandlordLessor(new DynamicConfiguration());
+            selector.setLandlordLessor(landlord);
+            for (int i = 0; i < CYBERNODES; i++) {
+                String address = "10.0.0."+(i + 1);
+                InstantiatorResource ir = TestUtil.createInstantiatorResource(TestUtil.createServiceBeanInstantiator(),
+                                                                              createResourceCapability(address, 0, 0));
+                instantiatorResources.add(ir);
+                used.put(ir, new double[2]);
+                TestUtil.register(landlord, ir);
+            }
+        }
+
+        InstantiatorResource provision(ServiceElement sElem) throws Exception {
+            ProvisionRequest request = new ProvisionRequest(sElem, null, null, () -> 0);
+            ServiceResource resource = Selector.acquireServiceResource(request, selector);
+            if (resource == null)
+                return null;
+            InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+            ir.addDeployedService(new DeployedService(sElem, createServiceBeanInstance(sElem, ir), null));
+            ir.decrementProvisionCounter(sElem);
+            double[] demand = getDemand(sElem);
+            double[] current = used.get(ir);
+            report(ir, current[0] + demand[0], current[1] + demand[1]);
+            return ir;
+        }
+
+        void report(InstantiatorResource ir, double memoryGb, double processors) {
+            used.put(ir, new double[]{memoryGb, processors});
+            ir.setResourceCapability(createResourceCapability(ir.getHostAddress(), memoryGb, processors));
+            selector.resourceCapabilityUpdated(getServiceResource(ir));
+        }
+
+        ServiceResource getServiceResource(InstantiatorResource ir) {
+            for (ServiceResource resource : selector.getServiceResources()) {
+                if (resource.getResource() == ir)
+                    return resource;
+            }
+            return null;
+        }
+
+        double[] getDemand(ServiceElement sElem) {
+            double[] demand = new double[2];
+            for (SystemComponent requirement : sElem.getServiceLevelAgreements().getSystemRequirements().getSystemComponents()) {
+                if (requirement.getName().equals(SystemMemory.ID)) {
+                    String memory = (String) requirement.getAttributes().get(ByteOrientedDevice.AVAILABLE);
+                    demand[0] = Double.parseDouble(memory.substring(0, memory.length() - 1));
+                } else {
+                    demand[1] = Double.parseDouble((String) requirement.getAttributes().get(ProcessorArchitecture.AVAILABLE));
+                }
+            }
+            return demand;
+        }
+
+        ResourceCapability createResourceCapability(String address, double usedMemoryGb, double usedProcessors) {
+            SystemMemory systemMemory = new SystemMemory();
+            systemMemory.define(ByteOrientedDevice.CAPACITY, MEMORY_GB + "g");
+            systemMemory.define(ByteOrientedDevice.AVAILABLE, (MEMORY_GB - usedMemoryGb) + "g");
+            ProcessorArchitecture processorArchitecture = new ProcessorArchitecture();
+            processorArchitecture.define(ProcessorArchitecture.AVAILABLE, Integer.toString(PROCESSORS));
+            List<MeasuredResource> measured = new ArrayList<>();
+            measured.add(new CpuUtilization(SystemWatchID.SYSTEM_CPU,
+                                            usedProcessors / PROCESSORS,
+                                            new ThresholdValues(0.0, 1.0)));
+            measured.add(new MeasuredResource(SystemWatchID.SYSTEM_MEMORY,
+                                              usedMemoryGb / MEMORY_GB,
+                                              new ThresholdValues(0.0, 1.0)));
+            return TestUtil.createResourceCapability(address, address, measured, systemMemory, processorArchitecture);
+        }
+
+        ServiceBeanInstance createServiceBeanInstance(ServiceElement sElem,
+                                                      InstantiatorResource ir) throws Exception {
+            return new ServiceBeanInstance(UuidFactory.generate(),
+                                           new MarshalledInstance("proxy"),
+                                           sElem.getServiceBeanConfig(),
+                                           ir.getResourceCapability().getHostName(),
+                                           ir.getHostAddress(),
+                                           ir.getInstantiatorUuid());
+        }
+    }
+}
@@ -15,16 +15,29 @@
  */
 package org.rioproject.monitor.service;
 
+import net.jini.core.lease.Lease;
+import net.jini.core.lease.LeaseDeniedException;
+import net.jini.id.UuidFactory;
 import org.rioproject.deploy.DeployAdmin;
+import org.rioproject.deploy.ServiceBeanInstance;
+import org.rioproject.deploy.ServiceBeanInstantiator;
 import org.rioproject.event.EventHandler;
+import org.rioproject.impl.service.LandlordLessor;
+import org.rioproject.impl.service.ServiceResource;
 import org.rioproject.monitor.ProvisionMonitor;
 import org.rioproject.opstring.ClassBundle;
 import org.rioproject.opstring.ServiceBeanConfig;
 import org.rioproject.opstring.ServiceElement;
+import org.rioproject.system.ComputeResourceUtilization;
+import org.rioproject.system.MeasuredResource;
+import org.rioproject.system.ResourceCapability;
+import org.rioproject.system.capability.PlatformCapability;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Dennis Reedy
@@ -67,6 +80,86 @@ public class TestUtil {
                                                      new IH());
     }
 
+    /**
+     * Create a ServiceBeanInstantiator that instantiates nothing
+     */
+    public static ServiceBeanInstantiator createServiceBeanInstantiator() {
+        return createServiceBeanInstantiator(null);
+    }
+
+    /**
+     * Create a ServiceBeanInstantiator that passes its calls to a handler. A method returning a
+     * ServiceBeanInstance[] returns an empty array when the handler returns null, or there is no handler
+     */
+    public static ServiceBeanInstantiator createServiceBeanInstantiator(final InvocationHandler handler) {
+        return (ServiceBeanInstantiator) Proxy.newProxyInstance(TestUtil.class.getClassLoader(),
+                                                                new Class[]{ServiceBeanInstantiator.class},
+                                                                (proxy, method, args) -> {
+            if (method.getDeclaringClass().equals(Object.class)) {
+                switch (method.getName()) {
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    default: return "ServiceBeanInstantiator@"+Integer.toHexString(System.identityHashCode(proxy));
+                }
+            }
+            Object result = handler == null ? null : handler.invoke(proxy, method, args);
+            if (result == null && method.getReturnType().equals(ServiceBeanInstance[].class))
+                return new ServiceBeanInstance[0];
+            return result;
+        });
+    }
+
+    public static ResourceCapability createResourceCapability(String address) {
+        return createResourceCapability(address, address, new ArrayList<>());
+    }
+
+    public static ResourceCapability createResourceCapability(String address,
+                                                              String hostName,
+                                                              List<MeasuredResource> measured,
+                                                              PlatformCapability... platformCapabilities) {
+        ComputeResourceUtilization utilization = new ComputeResourceUtilization(hostName, hostName, address, measured);
+        return new ResourceCapability(address, hostName, false, platformCapabilities, utilization);
+    }
+
+    /**
+     * Create a dynamically enabled InstantiatorResource for a Cybernode at an address, with a service limit of 100
+     * and a ServiceBeanInstantiator that instantiates nothing
+     */
+    public static InstantiatorResource createInstantiatorResource(String address) {
+        return createInstantiatorResource(address, createServiceBeanInstantiator());
+    }
+
+    public static InstantiatorResource createInstantiatorResource(String address, ServiceBeanInstantiator instantiator) {
+        return createInstantiatorResource(instantiator, createResourceCapability(address));
+    }
+
+    /**
+     * Create a dynamically enabled InstantiatorResource named by the host name of its ResourceCapability, with a
+     * service limit of 100
+     */
+    public static InstantiatorResource createInstantiatorResource(ServiceBeanInstantiator instantiator,
+                                                                  ResourceCapability resourceCapability) {
+        InstantiatorResource ir = new InstantiatorResource(null,
+                                                           instantiator,
+                                                           resourceCapability.getHostName(),
+                                                           UuidFactory.generate(),
+                                                           null,
+                                                           resourceCapability,
+                                                           100);
+        ir.setDynamicEnabledOn();
+        return ir;
+    }
+
+    /**
+     * Register an InstantiatorResource with a LandlordLessor, as the ProvisionMonitor does when a Cybernode
+     * registers
+     */
+    public static ServiceResource register(LandlordLessor landlord, InstantiatorResource ir) throws LeaseDeniedException {
+        ServiceResource resource = new ServiceResource(ir);
+        landlord.newLease(resource, Lease.FOREVER);
+        return resource;
+    }
+
     static class IH implements InvocationHandler {
         @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
             System.out.println("===> "+method.getName());
@@ -0,0 +1,192 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.managers;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.impl.service.LandlordLessor;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.impl.servicebean.ServiceElementUtil;
+import org.rioproject.impl.watch.GaugeWatch;
+import org.rioproject.monitor.service.*;
+import org.rioproject.monitor.service.selectors.RoundRobinSelector;
+import org.rioproject.opstring.ServiceElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PendingManagerTest {
+    private final List<ProvisionRequest> dispatched = new CopyOnWriteArrayList<>();
+    private final AtomicInteger snapshots = new AtomicInteger();
+    private volatile CountDownLatch dispatchLatch = new CountDownLatch(0);
+    private LandlordLessor landlord;
+    private PendingManager pendingManager;
+
+    @Before
+    public void setup() throws Exception {
+        landlord = new LandlordLessor(new DynamicConfiguration());
+        RoundRobinSelector selector = new RoundRobinSelector() {
+            @Override
+            public ServiceResource[] getServiceResources() {
+                snapshots.incrementAndGet();
+                return super.getServiceResources();
+            }
+        };
+        selector.setLandlordLessor(landlord);
+        ServiceProvisionDispatcher dispatcher = new ServiceProvisionDispatcher() {
+            public void dispatch(ProvisionRequest request) {
+            }
+
+            public void dispatch(ProvisionRequest request, ServiceResource resource, long index) {
+                InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+                ir.decrementProvisionCounter(request.getServiceElement());
+                dispatched.add(request);
+                dispatchLatch.countDown();
+            }
+        };
+        ServiceProvisionContext context = new ServiceProvisionContext(selector,
+                                                                      null,
+                                                                      new ArrayList<>(),
+                                                                      null,
+                                                                      null,
+                                                                      dispatcher,
+                                                                      null,
+                                                                      null,
+                                                                      new AtomicInteger());
+        pendingManager = new PendingManager(context);
+    }
+
+    @After
+    public void teardown() {
+        pendingManager.terminate();
+    }
+
+    @Test
+    public void testBatchDrainsBacklog() throws Exception {
+        addCybernodes(10);
+        ServiceElement service = TestUtil.makeServiceElement("backlog", "test", 200);
+        addPending(service, 200);
+        GaugeWatch queueDepth = new GaugeWatch("depth");
+        GaugeWatch waitTime = new GaugeWatch("wait");
+        pendingManager.setQueueDepthWatch(queueDepth);
+        pendingManager.setWaitTimeWatch(waitTime);
+        snapshots.set(0);
+        long t0 = System.currentTimeMillis();
+        Assert.assertEquals(200, pendingManager.dispatchPending());
+        /* The resources are read once for the batch */
+        Assert.assertEquals(1, snapshots.get());
+        Assert.assertTrue("Took "+(System.currentTimeMillis() - t0)+" ms", System.currentTimeMillis() - t0 < 10000);
+        Assert.assertEquals(0, pendingManager.getSize());
+        Assert.assertNotNull(waitTime.getLastCalculable());
+        Assert.assertEquals(0, queueDepth.getLastCalculableValue(), 0);
+    }
+
+    @Test
+    public void testUnplaceableServiceIsSelectedOnce() {
+        List<ProvisionRequest> requests = new ArrayList<>();
+        requests.addAll(addPending(TestUtil.makeServiceElement("first", "test", 50), 50));
+        requests.addAll(addPending(TestUtil.makeServiceElement("second", "test", 50), 50));
+        Assert.assertEquals(0, pendingManager.dispatchPending());
+        Assert.assertEquals(1, snapshots.get());
+        int selected = 0;
+        for (ProvisionRequest request : requests) {
+            if (!request.getFailureReasons().isEmpty())
+                selected++;
+        }
+        Assert.assertEquals(2, selected);
+        Assert.assertEquals(100, pendingManager.getSize());
+    }
+
+    @Test
+    public void testOpStringsTakeTurns() throws Exception {
+        addCybernodes(2);
+        addPending(TestUtil.makeServiceElement("a", "large", 10), 10);
+        addPending(TestUtil.makeServiceElement("b", "small", 2), 2);
+        Assert.assertEquals(12, pendingManager.dispatchPending());
+        List<String> order = new ArrayList<>();
+        for (ProvisionRequest request : dispatched)
+            order.add(request.getServiceElement().getOperationalStringName());
+        Assert.assertEquals("small", order.get(1));
+        Assert.assertEquals("small", order.get(3));
+        Assert.assertFalse(order.subList(4, order.size()).contains("small"));
+    }
+
+    @Test
+    public void testRelocationsFirst() throws Exception {
+        addCybernodes(1);
+        addPending(TestUtil.makeServiceElement("provision", "test", 5), 5);
+        ProvisionRequest relocate = new ProvisionRequest(ServiceElementUtil.prepareInstanceID(
+            TestUtil.makeServiceElement("relocate", "other", 1), 1), null, null, null);
+        relocate.setType(ProvisionRequest.Type.RELOCATE);
+        pendingManager.addProvisionRequest(relocate, 0);
+        pendingManager.dispatchPending();
+        Assert.assertSame(relocate, dispatched.get(0));
+    }
+
+    @Test
+    public void testProcessIsWokenByCapacity() throws Exception {
+        ServiceElement service = TestUtil.makeServiceElement("waiting", "test", 20);
+        addPending(service, 20);
+        pendingManager.process();
+        Thread.sleep(200);
+        Assert.assertTrue(dispatched.isEmpty());
+        dispatchLatch = new CountDownLatch(20);
+        addCybernodes(2);
+        pendingManager.process();
+        Assert.assertTrue(dispatchLatch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, pendingManager.getSize());
+    }
+
+    @Test
+    public void testRetryAfterBackoff() throws Exception {
+        addCybernodes(1);
+        ProvisionRequest request = new ProvisionRequest(ServiceElementUtil.prepareInstanceID(
+            TestUtil.makeServiceElement("retry", "test", 1), 1), null, null, null);
+        request.setRetryAfter(System.currentTimeMillis() + 500);
+        dispatchLatch = new CountDownLatch(1);
+        pendingManager.addProvisionRequest(request, 0);
+        Assert.assertEquals(0, pendingManager.dispatchPending());
+        Assert.assertEquals(1, pendingManager.getSize());
+        /* The dispatcher is woken when the request can be retried */
+        Assert.assertTrue(dispatchLatch.await(10, TimeUnit.SECONDS));
+        Assert.assertSame(request, dispatched.get(0));
+    }
+
+    private List<ProvisionRequest> addPending(ServiceElement service, int count) {
+        List<ProvisionRequest> requests = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ProvisionRequest request = new ProvisionRequest(ServiceElementUtil.prepareInstanceID(service, i),
+                                                            null,
+                                                            null,
+                                                            null);
+            pendingManager.addProvisionRequest(request, 0);
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private void addCybernodes(int count) throws Exception {
+        for (int i = 0; i < count; i++)
+            TestUtil.register(landlord, TestUtil.createInstantiatorResource("10.0.0."+(landlord.total() + 1)));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.monitor.service.selectors;
+
+import net.jini.id.UuidFactory;
+import net.jini.io.MarshalledInstance;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.deploy.DeployedService;
+import org.rioproject.deploy.ServiceBeanInstance;
+import org.rioproject.deploy.ServiceBeanInstantiator;
+import org.rioproject.impl.service.LandlordLessor;
+import org.rioproject.impl.service.ServiceResource;
+import org.rioproject.monitor.service.InstantiatorResource;
+import org.rioproject.monitor.service.ProvisionListener;
+import org.rioproject.monitor.service.ProvisionRequest;
+import org.rioproject.monitor.service.TestUtil;
+import org.rioproject.opstring.ServiceElement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deploys services across many Cybernodes and counts the remote calls made to select them.
+ */
+public class SelectionScaleTest {
+    private static final int CYBERNODES = 200;
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+    private final List<InstantiatorResource> instantiatorResources = new ArrayList<>();
+    private ServiceResourceSelector selector;
+
+    @Before
+    public void setup() throws Exception {
+        LandlordLessor landlord = new LandlordLessor(new DynamicConfiguration());
+        selector = new RoundRobinSelector();
+        selector.setLandlordLessor(landlord);
+        for (int i = 0; i < CYBERNODES; i++) {
+            String address = "10.0."+(i / 250)+"."+(i % 250 + 1);
+            /* Counts the remote calls made to the Cybernode */
+            ServiceBeanInstantiator instantiator = TestUtil.createServiceBeanInstantiator((proxy, method, args) -> {
+                remoteCalls.incrementAndGet();
+                return null;
+            });
+            InstantiatorResource ir = TestUtil.createInstantiatorResource(address, instantiator);
+            instantiatorResources.add(ir);
+            TestUtil.register(landlord, ir);
+        }
+    }
+
+    @Test
+    public void testSelectionMakesNoRemoteCalls() throws Exception {
+        int planned = 500;
+        ServiceElement service = TestUtil.makeServiceElement("scale", "test", planned);
+        for (int i = 0; i < planned; i++) {
+            ServiceResource resource = Selector.acquireServiceResource(createProvisionRequest(service), selector);
+            Assert.assertNotNull("Instance "+i+" was not placed", resource);
+            InstantiatorResource ir = (InstantiatorResource) resource.getResource();
+            /* The provision result, as recorded by the ProvisionTask */
+            ir.addDeployedService(new DeployedService(service, createServiceBeanInstance(service, ir), null));
+            ir.decrementProvisionCounter(service);
+        }
+        int total = 0;
+        for (InstantiatorResource ir : instantiatorResources) {
+            total += ir.getServiceElementCount(service);
+            Assert.assertTrue(ir.getServiceElementCount(service) <= 3);
+        }
+        Assert.assertEquals(planned, total);
+        Assert.assertEquals("Remote calls made selecting Cybernodes", 0, remoteCalls.get());
+    }
+
+    private ProvisionRequest createProvisionRequest(ServiceElement service) {
+        return new ProvisionRequest(service,
+                                    new ProvisionListener() {
+                                        public void serviceProvisioned(ServiceBeanInstance serviceBeanInstance,
+                                                                       InstantiatorResource resource) {
+                                        }
+
+                                        @Override
+                                        public void uninstantiable(ProvisionRequest request) {
+                                        }
+                                    },
+                                    null,
+                                    () -> 0);
+    }
+
+    private ServiceBeanInstance createServiceBeanInstance(ServiceElement service,
+                                                          InstantiatorResource ir) throws IOException {
+        return new ServiceBeanInstance(UuidFactory.generate(),
+                                       new MarshalledInstance("proxy"),
+                                       service.getServiceBeanConfig(),
+                                       ir.getResourceCapability().getHostName(),
+                                       ir.getHostAddress(),
+                                       ir.getInstantiatorUuid());
+    }
+}
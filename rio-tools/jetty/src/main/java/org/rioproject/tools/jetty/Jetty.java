@@ -27,6 +27,7 @@ import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.rioproject.config.Constants;
 import org.rioproject.net.HostUtil;
 import org.rioproject.util.RioHome;
+import org.rioproject.web.ContentProvider;
 import org.rioproject.web.WebsterService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +51,7 @@ public class Jetty implements WebsterService {
     private int minThreads;
     private int maxThreads;
     private boolean isSecure;
+    private boolean publish = true;
     private Server server;
     private final HandlerList handlers = new HandlerList();
     private static final Logger logger = LoggerFactory.getLogger(Jetty.class);
@@ -128,6 +130,7 @@ public class Jetty implements WebsterService {
                 .setMinThreads((Integer) config.getEntry(COMPONENT, "minThreads", int.class, 0))
                 .setMaxThreads((Integer) config.getEntry(COMPONENT, "maxThreads", int.class, 0))
                 .setSecure((Boolean) config.getEntry(COMPONENT, "secure", Boolean.class, true));
+        setPublish((Boolean) config.getEntry(COMPONENT, "publish", Boolean.class, true));
         if (isSecure) {
             startSecure();
         } else {
@@ -139,6 +142,9 @@ public class Jetty implements WebsterService {
         if (logger.isDebugEnabled()) {
             logger.debug("Setting roots {}", Arrays.toString(roots));
         }
+        if (roots == null) {
+            return this;
+        }
         for(String root : roots) {
             if (";".equals(root)) {
                 continue;
@@ -184,6 +190,26 @@ public class Jetty implements WebsterService {
         return this;
     }
 
+    @Override
+    public Jetty addContent(String path, ContentProvider provider) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Adding content {} for {}", path, provider.getClass().getName());
+        }
+        ContextHandler context = new ContextHandler(path);
+        context.setHandler(new ContentHandler(provider));
+        /* Ahead of the roots, their ResourceHandlers answer 404 for paths they do not have */
+        handlers.prependHandler(context);
+        if (server != null && server.isStarted() && !context.isStarted()) {
+            try {
+                context.start();
+            } catch (Exception e) {
+                handlers.removeHandler(context);
+                throw new IllegalStateException("Could not start content for " + path, e);
+            }
+        }
+        return this;
+    }
+
     @Override
     public void start() throws Exception {
         createServer();
@@ -244,7 +270,8 @@ public class Jetty implements WebsterService {
 
     @Override
     public URI getURI() {
-        return server == null ? null : server.getURI();
+        /* The server's URI has the path of its first context, content added is ahead of the roots */
+        return server == null ? null : server.getURI().resolve("/");
     }
 
     private void createServer() {
@@ -301,8 +328,8 @@ public class Jetty implements WebsterService {
     }
 
     private void setProperty() {
-        if (server != null) {
-            URI uri = server.getURI();
+        if (server != null && publish) {
+            URI uri = getURI();
             String serverAddress = uri.toASCIIString().endsWith("/")
                     ? uri.toASCIIString().substring(0, uri.toASCIIString().length() - 1)
                     : uri.toASCIIString();
@@ -315,6 +342,13 @@ public class Jetty implements WebsterService {
         this.isSecure = isSecure;
     }
 
+    /*
+     * Whether the address of the server is set as the webster system property
+     */
+    private void setPublish(boolean publish) {
+        this.publish = publish;
+    }
+
     public static void main(String[] args) throws Exception {
         if (args.length == 0) {
             throw new RuntimeException("You must provide an argument that points to a Jetty configuration file");
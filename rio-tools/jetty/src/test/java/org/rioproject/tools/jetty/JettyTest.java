@@ -24,6 +24,7 @@ import org.rioproject.config.DynamicConfiguration;
 import org.rioproject.security.KeyStoreHelper;
 import org.rioproject.security.SecureEnv;
 import org.rioproject.util.RioHome;
+import org.rioproject.web.ContentProvider;
 import org.rioproject.start.util.ServiceDescriptorUtil;
 
 import java.io.*;
@@ -175,6 +176,57 @@ public class JettyTest {
         System.out.println("Total failed Fetchers: "+totalFailed);
     }
 
+    @Test
+    public void testGetContent() throws Exception {
+        Jetty jetty = new Jetty().setRoots(System.getProperty("user.dir"));
+        jetty.addContent("/metrics", createContentProvider());
+        jetty.start();
+        try {
+            verifyContent(jetty, "/metrics");
+        } finally {
+            jetty.terminate();
+        }
+    }
+
+    @Test
+    public void testAddContentWhenStarted() throws Exception {
+        Jetty jetty = new Jetty().setRoots(System.getProperty("user.dir"));
+        jetty.start();
+        try {
+            jetty.addContent("/metrics", createContentProvider());
+            verifyContent(jetty, "/metrics");
+        } finally {
+            jetty.terminate();
+        }
+    }
+
+    private ContentProvider createContentProvider() {
+        return new ContentProvider() {
+            @Override
+            public String getContentType() {
+                return "text/plain; charset=utf-8";
+            }
+
+            @Override
+            public void write(Writer out) throws IOException {
+                out.write("generated\n");
+            }
+        };
+    }
+
+    private void verifyContent(Jetty jetty, String path) throws IOException {
+        URI uri = jetty.getURI();
+        assertEquals("/", uri.getPath());
+        URL url = new URL(uri.getScheme(), uri.getHost(), uri.getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/plain"));
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            assertEquals("generated", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
     @Test(expected = IOException.class)
     public void testDirectoryTraversal() throws Exception {
         Jetty jetty = new Jetty().setRoots(System.getProperty("user.dir"));
@@ -21,24 +21,47 @@ import java.rmi.RemoteException;
 /**
  * The Accumulator represents a collection of Calculable objects and performs
  * statistical analysis across the collection of Calculable objects, providing
- * mean, median and standard deviation
+ * mean, median and standard deviation.
+ *
+ * <p>By default statistics are computed with a {@link StreamingStatistics}
+ * windowed to the size of the WatchDataSource history, and {@link #update()}
+ * only fetches and adds the Calculable records recorded since the last call.
+ * The exact {@link Statistics}, which also provides the mode, can be used for
+ * small data sets.</p>
  *
  * @author Dennis Reedy
  */
 public class Accumulator {
     private Calculable[] calcs;
-    /** Holds reference to the statistical formulae implementor */
-    private Statistics statistics = new Statistics();
+    /** Holds reference to the exact statistical formulae implementor, null if streaming */
+    private final Statistics statistics;
+    /** Holds reference to the streaming statistical formulae implementor */
+    private StreamingStatistics streaming;
     /** Holds value of property source. */
     private final WatchDataSource source;
+    /** The time of the last Calculable added, and how many Calculables were added with that time */
+    private long lastWhen = Long.MIN_VALUE;
+    private int lastWhenCount;
 
     /**
-     * Creates new Accumulator
+     * Creates new Accumulator that computes streaming statistics
      *
      * @param source The WatchDataSource the Accumulator will use
      */
     public Accumulator(WatchDataSource source) {
+        this(source, false);
+    }
+
+    /**
+     * Creates new Accumulator
+     *
+     * @param source The WatchDataSource the Accumulator will use
+     * @param exact If true, statistics are computed exactly from every value,
+     * including the mode. If false, statistics are computed incrementally
+     */
+    public Accumulator(WatchDataSource source, boolean exact) {
         this.source = source;
+        this.statistics = exact ? new Statistics() : null;
     }
 
     /*
@@ -71,7 +94,7 @@ public class Accumulator {
      * Returns a Calculable[] for the requested offset and length
      */
     private Calculable[] getCalculables() throws RemoteException {
-        calcs = source.getCalculable();
+        calcs = CalculableBatch.getCalculable(source, Long.MIN_VALUE, Long.MAX_VALUE);
         return (calcs);
     }
 
@@ -79,7 +102,13 @@ public class Accumulator {
      * Clears the current set of values
      */
     public void reset() {
-        statistics.clearAll();
+        if(statistics != null)
+            statistics.clearAll();
+        if(streaming != null)
+            streaming.clearAll();
+        calcs = null;
+        lastWhen = Long.MIN_VALUE;
+        lastWhenCount = 0;
     }
 
     /**
@@ -90,7 +119,58 @@ public class Accumulator {
      */
     public void init() throws RemoteException {
         reset();
-        statistics.setValues(getValues(getCalculables()));
+        if(statistics != null) {
+            statistics.setValues(getValues(getCalculables()));
+            return;
+        }
+        int window = Math.max(source.getMaxSize(), 1);
+        if(streaming == null || streaming.getWindow() != window)
+            streaming = new StreamingStatistics(window);
+        add(getCalculables(), 0);
+    }
+
+    /**
+     * Update the values for calculating statistics with the Calculable records
+     * recorded since the last call to {@link #init()} or {@code update()}. If
+     * the Accumulator computes exact statistics, or the history of the
+     * WatchDataSource has been cleared, all values are reinitialized.
+     *
+     * @throws RemoteException If communication errors happen interfacing with
+     * the WatchDataSource
+     */
+    public void update() throws RemoteException {
+        if(statistics != null || calcs == null || source.getCurrentSize() < streaming.count()) {
+            init();
+            return;
+        }
+        Calculable[] added = CalculableBatch.getCalculable(source, lastWhen, Long.MAX_VALUE);
+        /* Skip the Calculables already added with the last time */
+        int skip = 0;
+        while(skip < added.length && skip < lastWhenCount && added[skip].getWhen() == lastWhen)
+            skip++;
+        if(skip == added.length)
+            return;
+        add(added, skip);
+        int size = Math.min(calcs.length + added.length - skip, streaming.getWindow());
+        Calculable[] merged = new Calculable[size];
+        int fromAdded = Math.min(added.length - skip, size);
+        int fromCalcs = size - fromAdded;
+        System.arraycopy(calcs, calcs.length - fromCalcs, merged, 0, fromCalcs);
+        System.arraycopy(added, added.length - fromAdded, merged, fromCalcs, fromAdded);
+        calcs = merged;
+    }
+
+    private void add(Calculable[] added, int from) {
+        for(int i = from; i < added.length; i++) {
+            streaming.addValue(added[i].getValue());
+            long when = added[i].getWhen();
+            if(when == lastWhen) {
+                lastWhenCount++;
+            } else {
+                lastWhen = when;
+                lastWhenCount = 1;
+            }
+        }
     }
 
     /**
@@ -99,7 +179,7 @@ public class Accumulator {
      * @return int the total number of values
      */
     public int count() {
-        return (statistics.count());
+        return (statistics != null ? statistics.count() : streaming().count());
     }
 
 
@@ -109,7 +189,7 @@ public class Accumulator {
      * @return double the max of values
      */
     public double max() {
-        return (statistics.max());
+        return (statistics != null ? statistics.max() : streaming().max());
     }
 
 
@@ -119,7 +199,7 @@ public class Accumulator {
      * @return double the mean of the values
      */
     public double mean() {
-        return (statistics.mean());
+        return (statistics != null ? statistics.mean() : streaming().mean());
     }
 
     /**
@@ -128,7 +208,7 @@ public class Accumulator {
      * @return double the median of the values
      */
     public double median() {
-        return (statistics.median());
+        return (statistics != null ? statistics.median() : streaming().median());
     }
 
     /**
@@ -137,16 +217,17 @@ public class Accumulator {
      * @return double the min of the values
      */
     public double min() {
-        return (statistics.min());
+        return (statistics != null ? statistics.min() : streaming().min());
     }    
 
     /**
      * Get the mode of the current set of values
      * 
-     * @return double the mode of the values
+     * @return double the mode of the values, NaN if the Accumulator does not
+     * compute exact statistics
      */
     public double mode() {
-        return (statistics.mode());
+        return (statistics != null ? statistics.mode() : Double.NaN);
     }
 
     /**
@@ -155,7 +236,7 @@ public class Accumulator {
      * @return int the mode count
      */
     public int modeCount() {
-        return (statistics.modeOccurrenceCount());
+        return (statistics != null ? statistics.modeOccurrenceCount() : 0);
     }
 
     /**
@@ -164,7 +245,7 @@ public class Accumulator {
      * @return double the range of the values
      */
     public double range() {
-        return (statistics.range());
+        return (statistics != null ? statistics.range() : streaming().range());
     }
 
     /**
@@ -173,7 +254,7 @@ public class Accumulator {
      * @return double the standard deviation of the values
      */
     public double standardDeviation() {
-        return (statistics.standardDeviation());
+        return (statistics != null ? statistics.standardDeviation() : streaming().standardDeviation());
     }
 
     /**
@@ -182,7 +263,13 @@ public class Accumulator {
      * @return double the sum of the values
      */
     public double sum() {
-        return (statistics.sum());
+        return (statistics != null ? statistics.sum() : streaming().sum());
+    }
+
+    private StreamingStatistics streaming() {
+        if(streaming == null)
+            streaming = new StreamingStatistics();
+        return streaming;
     }
 
     /**
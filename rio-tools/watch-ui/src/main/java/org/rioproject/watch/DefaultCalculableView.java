@@ -170,8 +170,12 @@ public class DefaultCalculableView implements CalculableViewable {
             ThresholdValues tvalues = watchDataSource.getThresholdValues();
             highThreshold = tvalues.getHighThreshold();
             lowThreshold = tvalues.getLowThreshold();
-            accum = new Accumulator(watchDataSource);
-            accum.init();
+            if(accum == null || accum.getSource() != watchDataSource) {
+                accum = new Accumulator(watchDataSource);
+                accum.init();
+            } else {
+                accum.update();
+            }
             data = accum.getCalcs();
             //if(data == null || data.length == 0) {
             //    return;
@@ -0,0 +1,372 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import java.util.Arrays;
+
+/**
+ * Computes statistics incrementally, in constant time for each added value, without keeping the values.
+ *
+ * <p>The mean and standard deviation are computed using Welford's algorithm. Without a window, the median
+ * is estimated using the P<sup>2</sup> algorithm of Jain and Chlamtac, which keeps five markers instead of
+ * the values, and memory use is constant regardless of how many values are added.</p>
+ *
+ * <p>With a window, only the most recent {@code window} values are included. The values are kept in a
+ * primitive ring, the oldest value is removed from the running mean and variance as a new value is added,
+ * and the minimum and maximum are tracked with monotonic queues. The median of the window is computed exactly
+ * when requested, by selection rather than sorting.</p>
+ *
+ * <p>The mode is not tracked, use {@link Statistics} when the exact mode of a small set of values is
+ * needed.</p>
+ */
+public class StreamingStatistics {
+    private final int window;
+    private long count;
+    private double mean;
+    private double m2;
+    private double sum;
+    private double min;
+    private double max;
+
+    /* Sliding window state */
+    private final double[] ring;
+    private long sequence;
+    private final long[] minQueue;
+    private final long[] maxQueue;
+    private int minHead, minSize, maxHead, maxSize;
+    private double[] scratch;
+
+    /* P-square median estimator state */
+    private final double[] heights = new double[5];
+    private final int[] positions = new int[5];
+    private final double[] desired = new double[5];
+    private static final double[] INCREMENTS = {0, 0.25, 0.5, 0.75, 1};
+
+    /**
+     * Create a StreamingStatistics that includes every added value
+     */
+    public StreamingStatistics() {
+        this(0);
+    }
+
+    /**
+     * Create a StreamingStatistics
+     *
+     * @param window The number of most recent values to include. If zero, every added value is included
+     */
+    public StreamingStatistics(final int window) {
+        if(window < 0)
+            throw new IllegalArgumentException("window must not be negative");
+        this.window = window;
+        ring = window > 0 ? new double[window] : null;
+        minQueue = window > 0 ? new long[window] : null;
+        maxQueue = window > 0 ? new long[window] : null;
+        clearAll();
+    }
+
+    /**
+     * @return The number of most recent values included, zero if every added value is included
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Removes all of the values
+     */
+    public void clearAll() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        sum = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+        sequence = 0;
+        minHead = minSize = maxHead = maxSize = 0;
+    }
+
+    /**
+     * Add a value
+     *
+     * @param value The value to add
+     */
+    public void addValue(final double value) {
+        if(window > 0) {
+            if(count == window)
+                remove(ring[(int)(sequence % window)]);
+            ring[(int)(sequence % window)] = value;
+            pushMin(value);
+            pushMax(value);
+            sequence++;
+        } else {
+            min = count == 0 ? value : Math.min(min, value);
+            max = count == 0 ? value : Math.max(max, value);
+            addToMedian(value);
+        }
+        count++;
+        sum += value;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Set the values, replacing any added values
+     *
+     * @param calcs The Calculable records to take the values from
+     */
+    public void setValues(final Calculable[] calcs) {
+        if(calcs==null)
+            throw new IllegalArgumentException("calcs is null");
+        clearAll();
+        for(Calculable calc : calcs)
+            addValue(calc.getValue());
+    }
+
+    /*
+     * Remove the oldest value in the window
+     */
+    private void remove(final double value) {
+        long evicted = sequence - window;
+        if(minSize > 0 && minQueue[minHead] == evicted) {
+            minHead = (minHead + 1) % window;
+            minSize--;
+        }
+        if(maxSize > 0 && maxQueue[maxHead] == evicted) {
+            maxHead = (maxHead + 1) % window;
+            maxSize--;
+        }
+        if(count == 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            sum = 0;
+            return;
+        }
+        double previousMean = mean;
+        mean = (count * mean - value) / (count - 1);
+        m2 = Math.max(0, m2 - (value - previousMean) * (value - mean));
+        sum -= value;
+        count--;
+    }
+
+    private void pushMin(final double value) {
+        while(minSize > 0 && ring[slot(minQueue[(minHead + minSize - 1) % window])] >= value)
+            minSize--;
+        minQueue[(minHead + minSize) % window] = sequence;
+        minSize++;
+    }
+
+    private void pushMax(final double value) {
+        while(maxSize > 0 && ring[slot(maxQueue[(maxHead + maxSize - 1) % window])] <= value)
+            maxSize--;
+        maxQueue[(maxHead + maxSize) % window] = sequence;
+        maxSize++;
+    }
+
+    private int slot(final long seq) {
+        return (int)(seq % window);
+    }
+
+    private void addToMedian(final double value) {
+        if(count < 5) {
+            heights[(int)count] = value;
+            if(count == 4) {
+                Arrays.sort(heights);
+                for(int i = 0; i < 5; i++) {
+                    positions[i] = i + 1;
+                    desired[i] = 1 + 4 * INCREMENTS[i];
+                }
+            }
+            return;
+        }
+        int k;
+        if(value < heights[0]) {
+            heights[0] = value;
+            k = 0;
+        } else if(value >= heights[4]) {
+            heights[4] = value;
+            k = 3;
+        } else {
+            k = 0;
+            while(value >= heights[k + 1])
+                k++;
+        }
+        for(int i = k + 1; i < 5; i++)
+            positions[i]++;
+        for(int i = 0; i < 5; i++)
+            desired[i] += INCREMENTS[i];
+        for(int i = 1; i < 4; i++) {
+            double d = desired[i] - positions[i];
+            if((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int step = d > 0 ? 1 : -1;
+                double height = parabolic(i, step);
+                if(heights[i - 1] < height && height < heights[i + 1])
+                    heights[i] = height;
+                else
+                    heights[i] += step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+                positions[i] += step;
+            }
+        }
+    }
+
+    private double parabolic(final int i, final int step) {
+        return heights[i] + (double)step / (positions[i + 1] - positions[i - 1]) *
+               ((positions[i] - positions[i - 1] + step) * (heights[i + 1] - heights[i]) / (positions[i + 1] - positions[i]) +
+                (positions[i + 1] - positions[i] - step) * (heights[i] - heights[i - 1]) / (positions[i] - positions[i - 1]));
+    }
+
+    /**
+     * Number of values included
+     *
+     * @return int number of values
+     */
+    public int count() {
+        return (int)Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the largest value
+     *
+     * @return double largest value, NaN if there are no values
+     */
+    public double max() {
+        if(count == 0)
+            return Double.NaN;
+        return window > 0 ? ring[slot(maxQueue[maxHead])] : max;
+    }
+
+    /**
+     * Get the smallest value
+     *
+     * @return double smallest value, NaN if there are no values
+     */
+    public double min() {
+        if(count == 0)
+            return Double.NaN;
+        return window > 0 ? ring[slot(minQueue[minHead])] : min;
+    }
+
+    /**
+     * Get the average value
+     *
+     * @return double the average value, NaN if there are no values
+     */
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Get the median. Without a window, once more than five values have been added the median is an estimate
+     *
+     * @return double the middle value, NaN if there are no values
+     */
+    public double median() {
+        if(count == 0)
+            return Double.NaN;
+        if(window == 0 && count >= 5)
+            return heights[2];
+        int n = (int)count;
+        if(scratch == null || scratch.length < n)
+            scratch = new double[window > 0 ? window : 5];
+        if(window > 0) {
+            for(int i = 0; i < n; i++)
+                scratch[i] = ring[slot(sequence - n + i)];
+        } else {
+            System.arraycopy(heights, 0, scratch, 0, n);
+        }
+        int k = (n - 1) / 2;
+        double low = select(scratch, n, k);
+        if(n % 2 != 0)
+            return low;
+        /* After selection every value above k is at least the low middle value */
+        double high = scratch[k + 1];
+        for(int i = k + 2; i < n; i++)
+            high = Math.min(high, scratch[i]);
+        return (low + high) / 2D;
+    }
+
+    /*
+     * Quickselect, partially orders values so that the k-th smallest is at index k
+     */
+    private static double select(final double[] values, final int n, final int k) {
+        int left = 0;
+        int right = n - 1;
+        while(left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while(i <= j) {
+                while(values[i] < pivot)
+                    i++;
+                while(values[j] > pivot)
+                    j--;
+                if(i <= j) {
+                    double t = values[i];
+                    values[i] = values[j];
+                    values[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if(k <= j)
+                right = j;
+            else if(k >= i)
+                left = i;
+            else
+                break;
+        }
+        return values[k];
+    }
+
+    /**
+     * Get the range
+     *
+     * @return double the difference between the min and max, NaN if there are no values
+     */
+    public double range() {
+        return max() - min();
+    }
+
+    /**
+     * Get the sample variance
+     *
+     * @return double the sample variance, NaN if there are no values
+     */
+    public double variance() {
+        if(count == 0)
+            return Double.NaN;
+        return count == 1 ? 0 : m2 / (count - 1);
+    }
+
+    /**
+     * Get the standard deviation
+     *
+     * @return double the dispersion from the mean, NaN if there are no values
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * Get the sum of the values
+     *
+     * @return double the sum of the values, NaN if there are no values
+     */
+    public double sum() {
+        return count == 0 ? Double.NaN : sum;
+    }
+}
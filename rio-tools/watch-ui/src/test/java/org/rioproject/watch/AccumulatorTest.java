@@ -0,0 +1,111 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.rioproject.config.DynamicConfiguration;
+import org.rioproject.impl.watch.WatchDataSourceImpl;
+
+import java.lang.reflect.Proxy;
+import java.rmi.UnmarshalException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the {@code Accumulator} incremental update
+ */
+public class AccumulatorTest {
+
+    @Test
+    public void testUpdate() throws Exception {
+        DynamicConfiguration config = new DynamicConfiguration();
+        config.setEntry("org.rioproject.watch", "collectionSize", 10);
+        WatchDataSourceImpl source = new WatchDataSourceImpl("accumulator", config);
+        try {
+            for(int i = 0; i < 6; i++)
+                source.addCalculable(new Calculable("accumulator", i, 1000 + i / 2));
+            Accumulator accumulator = new Accumulator(source);
+            Accumulator exact = new Accumulator(source, true);
+            accumulator.init();
+            exact.init();
+            assertSame(exact, accumulator);
+
+            for(int i = 6; i < 25; i++) {
+                source.addCalculable(new Calculable("accumulator", i * i, 1000 + i / 2));
+                accumulator.update();
+                exact.update();
+                assertSame(exact, accumulator);
+                Assert.assertArrayEquals(exact.getCalcs(), accumulator.getCalcs());
+            }
+            Assert.assertEquals(10, accumulator.count());
+
+            source.clear();
+            source.addCalculable(new Calculable("accumulator", 5, 2000));
+            accumulator.update();
+            Assert.assertEquals(1, accumulator.count());
+            Assert.assertEquals(5, accumulator.mean(), 0);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void testUpdateFromOlderExport() throws Exception {
+        final List<Calculable> history = new ArrayList<>();
+        for(int i = 0; i < 3; i++)
+            history.add(new Calculable("accumulator", i, 1000 + i));
+        /* A WatchDataSource exported before getCalculableBatch was added */
+        WatchDataSource source =
+            (WatchDataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                     new Class[]{WatchDataSource.class},
+                                                     (proxy, method, args) -> {
+                switch(method.getName()) {
+                    case "getCalculableBatch":
+                        throw new UnmarshalException("unrecognized method hash");
+                    case "getCalculable":
+                        List<Calculable> range = new ArrayList<>();
+                        for(Calculable calculable : history) {
+                            if(calculable.getWhen() >= (Long)args[0] && calculable.getWhen() <= (Long)args[1])
+                                range.add(calculable);
+                        }
+                        return range.toArray(new Calculable[0]);
+                    case "getCurrentSize":
+                        return history.size();
+                    case "getMaxSize":
+                        return 10;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        Accumulator accumulator = new Accumulator(source);
+        accumulator.init();
+        Assert.assertEquals(3, accumulator.count());
+        history.add(new Calculable("accumulator", 9, 1003));
+        accumulator.update();
+        Assert.assertEquals(4, accumulator.count());
+        Assert.assertEquals(9, accumulator.max(), 0);
+    }
+
+    private void assertSame(Accumulator exact, Accumulator accumulator) {
+        Assert.assertEquals(exact.count(), accumulator.count());
+        Assert.assertEquals(exact.min(), accumulator.min(), 0);
+        Assert.assertEquals(exact.max(), accumulator.max(), 0);
+        Assert.assertEquals(exact.mean(), accumulator.mean(), 1e-9);
+        Assert.assertEquals(exact.median(), accumulator.median(), 0);
+        Assert.assertEquals(exact.standardDeviation(), accumulator.standardDeviation(), 1e-9);
+    }
+}
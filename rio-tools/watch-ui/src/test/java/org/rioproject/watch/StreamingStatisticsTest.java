@@ -0,0 +1,89 @@
+/*
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.rioproject.watch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the {@code StreamingStatistics} against the exact {@code Statistics}
+ */
+public class StreamingStatisticsTest {
+
+    @Test
+    public void testEmpty() {
+        StreamingStatistics stat = new StreamingStatistics();
+        Assert.assertEquals(0, stat.count());
+        Assert.assertTrue(Double.isNaN(stat.max()));
+        Assert.assertTrue(Double.isNaN(stat.min()));
+        Assert.assertTrue(Double.isNaN(stat.mean()));
+        Assert.assertTrue(Double.isNaN(stat.median()));
+        Assert.assertTrue(Double.isNaN(stat.range()));
+        Assert.assertTrue(Double.isNaN(stat.standardDeviation()));
+        Assert.assertTrue(Double.isNaN(stat.sum()));
+    }
+
+    @Test
+    public void testUnbounded() {
+        Random random = new Random(42);
+        StreamingStatistics stat = new StreamingStatistics();
+        Statistics exact = new Statistics();
+        for(int i = 0; i < 100000; i++) {
+            double value = 100 + random.nextGaussian() * 10;
+            stat.addValue(value);
+            exact.addValue(value);
+            if(i < 5)
+                Assert.assertEquals(exact.median(), stat.median(), 0);
+        }
+        Assert.assertEquals(exact.count(), stat.count());
+        Assert.assertEquals(exact.max(), stat.max(), 0);
+        Assert.assertEquals(exact.min(), stat.min(), 0);
+        Assert.assertEquals(exact.mean(), stat.mean(), 1e-9);
+        Assert.assertEquals(exact.sum(), stat.sum(), 1e-4);
+        Assert.assertEquals(exact.standardDeviation(), stat.standardDeviation(), 1e-6);
+        Assert.assertEquals(exact.median(), stat.median(), 0.1);
+    }
+
+    @Test
+    public void testWindow() {
+        Random random = new Random(7);
+        int window = 50;
+        StreamingStatistics stat = new StreamingStatistics(window);
+        List<Double> values = new ArrayList<Double>();
+        for(int i = 0; i < 1000; i++) {
+            double value = random.nextInt(20) + (i % 100 < 50 ? i : -i);
+            stat.addValue(value);
+            values.add(value);
+            Statistics exact = new Statistics(values.subList(Math.max(0, values.size() - window), values.size()));
+            Assert.assertEquals(exact.count(), stat.count());
+            Assert.assertEquals(exact.max(), stat.max(), 0);
+            Assert.assertEquals(exact.min(), stat.min(), 0);
+            Assert.assertEquals(exact.mean(), stat.mean(), 1e-6);
+            Assert.assertEquals(exact.median(), stat.median(), 0);
+            Assert.assertEquals(exact.standardDeviation(), stat.standardDeviation(), 1e-6);
+            Assert.assertEquals(exact.sum(), stat.sum(), 1e-6);
+        }
+        stat.clearAll();
+        Assert.assertEquals(0, stat.count());
+        stat.addValue(3);
+        Assert.assertEquals(3, stat.median(), 0);
+        Assert.assertEquals(3, stat.max(), 0);
+    }
+}
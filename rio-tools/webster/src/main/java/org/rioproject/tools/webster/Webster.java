@@ -21,6 +21,7 @@ import net.jini.config.Configuration;
 import org.rioproject.config.Constants;
 import org.rioproject.net.HostUtil;
 import org.rioproject.net.PortRangeServerSocketFactory;
+import org.rioproject.web.ContentProvider;
 import org.rioproject.web.WebsterService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,7 @@ import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NotDirectoryException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -82,6 +84,7 @@ public class Webster implements WebsterService, Runnable {
     private boolean started = false;
     private boolean join;
     private final List<String> expandedRoots = new LinkedList<>();
+    private final Map<String, ContentProvider> contents = new ConcurrentHashMap<>();
 
     /**
      * Create a new Webster using a Groovy config file
@@ -358,6 +361,14 @@ public class Webster implements WebsterService, Runnable {
         return this;
     }
 
+    @Override
+    public WebsterService addContent(String path, ContentProvider provider) {
+        if (provider == null)
+            throw new IllegalArgumentException("provider is null");
+        contents.put(path.startsWith("/") ? path.substring(1) : path, provider);
+        return this;
+    }
+
     /*
      * Setup the websterRoot property
      */
@@ -514,7 +525,11 @@ public class Webster implements WebsterService, Runnable {
                             }
                         }
                         if (header.getProperty("GET") != null) {
-                            pool.execute(new GetFile(s, fileName));
+                            ContentProvider provider = getContentProvider(fileName);
+                            if (provider != null)
+                                pool.execute(new GetContent(s, provider, false));
+                            else
+                                pool.execute(new GetFile(s, fileName));
                         } else if (header.getProperty("PUT") != null) {
                             if (putDirectory != null) {
                                 pool.execute(new PutFile(s, fileName, header, inputStream));
@@ -531,7 +546,11 @@ public class Webster implements WebsterService, Runnable {
                             clientStream.flush();
                             clientStream.close();
                         } else if (header.getProperty("HEAD") != null) {
-                            pool.execute(new Head(s, fileName));
+                            ContentProvider provider = getContentProvider(fileName);
+                            if (provider != null)
+                                pool.execute(new GetContent(s, provider, true));
+                            else
+                                pool.execute(new Head(s, fileName));
                         } else {
                             if (debug)
                                 System.out.println("bad request [" + line + "] from " + from);
@@ -632,6 +651,13 @@ public class Webster implements WebsterService, Runnable {
         return f;
     }
 
+    private ContentProvider getContentProvider(String fileName) {
+        if (contents.isEmpty())
+            return null;
+        int query = fileName.indexOf('?');
+        return contents.get(query < 0 ? fileName : fileName.substring(0, query));
+    }
+
     private boolean isAmbiguous(File f) {
         String name = f.getName();
         return name.contains("/.");
@@ -778,6 +804,55 @@ public class Webster implements WebsterService, Runnable {
         } // end of Head
     }
 
+    /**
+     * Generated content is written to a buffer first, so the response has a Content-Length like the files
+     * Webster serves
+     */
+    class GetContent implements Runnable {
+        private final Socket client;
+        private final ContentProvider provider;
+        private final boolean head;
+
+        GetContent(Socket s, ContentProvider provider, boolean head) {
+            client = s;
+            this.provider = provider;
+            this.head = head;
+        }
+
+        public void run() {
+            try {
+                DataOutputStream clientStream = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                try {
+                    Writer writer = new OutputStreamWriter(content, StandardCharsets.UTF_8);
+                    provider.write(writer);
+                    writer.flush();
+                    clientStream.writeBytes("HTTP/1.1 200 OK\n"
+                                           + "Allow: GET\nMIME-Version: 1.0\n"
+                                           + "Server: " + SERVER_DESCRIPTION + "\n"
+                                           + "Content-Type: " + provider.getContentType() + "\n"
+                                           + "X-Content-Type-Options:\"nosniff\"\n"
+                                           + "Content-Length: " + content.size() + "\r\n\r\n");
+                    if (!head)
+                        content.writeTo(clientStream);
+                } catch (IOException e) {
+                    logger.warn("Generating content with {}", provider.getClass().getName(), e);
+                    clientStream.writeBytes("HTTP/1.1 500 Internal Server Error\r\n\r\n");
+                }
+                clientStream.flush();
+                clientStream.close();
+            } catch (IOException e) {
+                logger.warn("Closing Socket", e);
+            } finally {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    logger.warn("Closing incoming socket", e);
+                }
+            }
+        }
+    }
+
     class GetFile implements Runnable {
         private final Socket client;
         private final String fileName;
@@ -17,11 +17,13 @@ package org.rioproject.tools.webster;
 
 import org.junit.Test;
 import org.rioproject.net.PortRangeServerSocketFactory;
+import org.rioproject.web.ContentProvider;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Writer;
 import java.net.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -129,6 +131,30 @@ public class WebsterUTest {
         assertNotNull(items);
     }
 
+    @Test
+    public void testGetContent() throws Exception {
+        Webster w = new Webster(0, System.getProperty("user.dir"));
+        w.addContent("/metrics", new ContentProvider() {
+            @Override
+            public String getContentType() {
+                return "text/plain; charset=utf-8";
+            }
+
+            @Override
+            public void write(Writer out) throws IOException {
+                out.write("generated\n");
+            }
+        });
+        HttpURLConnection connection = (HttpURLConnection) new URL(w.getURI().toString()+"/metrics").openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/plain; charset=utf-8", connection.getContentType());
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            assertEquals("generated", in.readLine());
+            assertNull(in.readLine());
+        }
+        w.terminate();
+    }
+
     private List<String> get(int port) throws IOException {
         return get(port, "");
     }